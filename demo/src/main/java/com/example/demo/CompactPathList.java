@@ -0,0 +1,261 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * 紧凑文件路径列表（前缀压缩，只读）
+ * 按块存储：每块首条路径完整保存，其余只保存与前一条的公共前缀长度 + 后缀字节；
+ * 编码后超过阈值的列表放到堆外内存，避免大任务占用堆空间
+ */
+public final class CompactPathList extends AbstractList<String> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// 每块路径数（越大压缩率越高，随机访问越慢）
+	private static final int BLOCK_SIZE = 16;
+	// 编码后超过1MB放到堆外
+	private static final int OFF_HEAP_THRESHOLD = 1024 * 1024;
+
+	private static final CompactPathList EMPTY = new CompactPathList(0, 0, new int[0], ByteBuffer.allocate(0));
+
+	private transient int size;
+	// 最长路径字节数（解码缓冲区大小）
+	private transient int maxLength;
+	// 每块在data中的起始偏移
+	private transient int[] blockOffsets;
+	// 编码数据（堆内或堆外，只读）
+	private transient ByteBuffer data;
+
+	private CompactPathList(int size, int maxLength, int[] blockOffsets, ByteBuffer data) {
+		this.size = size;
+		this.maxLength = maxLength;
+		this.blockOffsets = blockOffsets;
+		this.data = data;
+	}
+
+	/**
+	 * 从路径集合构建（原集合已是 CompactPathList 时直接复用）
+	 */
+	public static CompactPathList copyOf(Collection<String> paths) {
+		if (paths instanceof CompactPathList) {
+			return (CompactPathList) paths;
+		}
+		if (paths == null || paths.isEmpty()) {
+			return EMPTY;
+		}
+
+		int size = paths.size();
+		int[] blockOffsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		GrowableBytes out = new GrowableBytes(Math.max(64, size * 16));
+		byte[] previous = new byte[0];
+		int maxLength = 0;
+		int index = 0;
+		for (String path : paths) {
+			if (path == null) {
+				throw new IllegalArgumentException("文件路径不能为空，下标：" + index);
+			}
+			byte[] current = path.getBytes(StandardCharsets.UTF_8);
+			maxLength = Math.max(maxLength, current.length);
+			if (index % BLOCK_SIZE == 0) {
+				blockOffsets[index / BLOCK_SIZE] = out.length;
+				out.writeVarInt(current.length);
+				out.write(current, 0, current.length);
+			} else {
+				int shared = sharedPrefix(previous, current);
+				out.writeVarInt(shared);
+				out.writeVarInt(current.length - shared);
+				out.write(current, shared, current.length - shared);
+			}
+			previous = current;
+			index++;
+		}
+		return new CompactPathList(size, maxLength, blockOffsets, toBuffer(out.bytes, out.length));
+	}
+
+	@Override
+	public String get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("下标越界：" + index + "，总数：" + size);
+		}
+		Decoder decoder = new Decoder(index / BLOCK_SIZE * BLOCK_SIZE);
+		for (int i = index % BLOCK_SIZE; i > 0; i--) {
+			decoder.next();
+		}
+		return decoder.next();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 顺序迭代：复用同一个解码缓冲区，每条路径只解码一次
+	 */
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<>() {
+			private final Decoder decoder = new Decoder(0);
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public String next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				next++;
+				return decoder.next();
+			}
+		};
+	}
+
+	/**
+	 * 编码后占用字节数（不含块索引）
+	 */
+	public int encodedBytes() {
+		return data.capacity();
+	}
+
+	/**
+	 * 编码数据是否在堆外
+	 */
+	boolean isOffHeap() {
+		return data.isDirect();
+	}
+
+	/**
+	 * 从指定块首开始的顺序解码器
+	 */
+	private final class Decoder {
+		private final ByteBuffer buffer = data.duplicate();
+		private final byte[] scratch = new byte[maxLength];
+		private int index;
+
+		private Decoder(int startIndex) {
+			this.index = startIndex;
+			if (startIndex < size) {
+				buffer.position(blockOffsets[startIndex / BLOCK_SIZE]);
+			}
+		}
+
+		private String next() {
+			int length;
+			if (index % BLOCK_SIZE == 0) {
+				length = readVarInt();
+				buffer.get(scratch, 0, length);
+			} else {
+				int shared = readVarInt();
+				int suffix = readVarInt();
+				buffer.get(scratch, shared, suffix);
+				length = shared + suffix;
+			}
+			index++;
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer.get();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+
+	private static int sharedPrefix(byte[] a, byte[] b) {
+		int limit = Math.min(a.length, b.length);
+		int i = 0;
+		while (i < limit && a[i] == b[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	private static ByteBuffer toBuffer(byte[] bytes, int length) {
+		ByteBuffer buffer = length > OFF_HEAP_THRESHOLD
+				? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+		buffer.put(bytes, 0, length).flip();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	// ------------------------------ 序列化：只写编码数据 ------------------------------
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		out.writeInt(maxLength);
+		out.writeInt(blockOffsets.length);
+		for (int offset : blockOffsets) {
+			out.writeInt(offset);
+		}
+		byte[] bytes = new byte[data.capacity()];
+		data.duplicate().position(0).get(bytes);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		size = in.readInt();
+		maxLength = in.readInt();
+		blockOffsets = new int[in.readInt()];
+		for (int i = 0; i < blockOffsets.length; i++) {
+			blockOffsets[i] = in.readInt();
+		}
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		data = toBuffer(bytes, bytes.length);
+	}
+
+	/**
+	 * 构建时使用的可扩容字节数组
+	 */
+	private static final class GrowableBytes {
+		private byte[] bytes;
+		private int length;
+
+		private GrowableBytes(int capacity) {
+			this.bytes = new byte[capacity];
+		}
+
+		private void ensure(int extra) {
+			if (length + extra > bytes.length) {
+				byte[] grown = new byte[Math.max(bytes.length * 2, length + extra)];
+				System.arraycopy(bytes, 0, grown, 0, length);
+				bytes = grown;
+			}
+		}
+
+		private void write(byte[] src, int offset, int len) {
+			ensure(len);
+			System.arraycopy(src, offset, bytes, length, len);
+			length += len;
+		}
+
+		private void writeVarInt(int value) {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.example.demo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 热点文件预压缩变体缓存
+ * 同一文件（路径+大小+修改时间）被请求达到阈值后，在下一次流式压缩时顺带落盘，后续请求直接返回压缩文件
+ */
+@Slf4j
+@Component
+public class CompressedVariantCache {
+	// 预压缩文件存储目录
+	private static final String CACHE_DIR = "/tmp/download/compressed/";
+	// 请求次数达到该值视为热点文件
+	private static final int HOT_THRESHOLD = 2;
+
+	// 压缩变体（缓存key → 压缩文件），淘汰时删除磁盘文件
+	private final Cache<String, File> variants = CacheBuilder.newBuilder()
+			.maximumSize(64) // 最多保留64个压缩变体
+			.expireAfterAccess(1, TimeUnit.HOURS)
+			.removalListener((RemovalListener<String, File>) notification -> {
+				File file = notification.getValue();
+				if (file != null && file.exists() && !file.delete()) {
+					log.warn("删除过期压缩文件失败：{}", file.getAbsolutePath());
+				}
+			})
+			.build();
+
+	// 请求计数（只统计，不保存数据）
+	private final Cache<String, AtomicInteger> hits = CacheBuilder.newBuilder()
+			.maximumSize(1024)
+			.expireAfterAccess(10, TimeUnit.MINUTES)
+			.build();
+
+	// 正在生成中的变体，避免并发请求重复落盘
+	private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+
+	private final File cacheDir;
+
+	public CompressedVariantCache() {
+		this(new File(CACHE_DIR));
+	}
+
+	CompressedVariantCache(File cacheDir) {
+		this.cacheDir = cacheDir;
+		if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+			log.warn("创建压缩缓存目录失败：{}", cacheDir.getAbsolutePath());
+		}
+		// 变体索引只在内存中，重启后遗留的压缩文件和临时文件无法再命中，启动时清空
+		File[] orphans = cacheDir.listFiles(File::isFile);
+		if (orphans != null) {
+			for (File orphan : orphans) {
+				if (!orphan.delete()) {
+					log.warn("删除遗留压缩文件失败：{}", orphan.getAbsolutePath());
+				}
+			}
+		}
+	}
+
+	/**
+	 * 查询已生成的压缩变体（源文件变化后key不同，自然失效）
+	 */
+	public File lookup(File source, ContentEncoding encoding) {
+		String key = key(source, encoding);
+		File variant = variants.getIfPresent(key);
+		if (variant != null && !variant.exists()) {
+			variants.invalidate(key);
+			return null;
+		}
+		return variant;
+	}
+
+	/**
+	 * 记录一次请求，热点文件返回落盘句柄（调用方写完句柄的临时文件后调用 {@link #commit}），否则返回null
+	 * <p>
+	 * 句柄记录开始落盘时的key，提交时源文件已变化（压缩期间被修改）则丢弃，避免旧内容挂到新key下
+	 */
+	public Capture beginCapture(File source, ContentEncoding encoding) {
+		String key = key(source, encoding);
+		AtomicInteger counter;
+		try {
+			counter = hits.get(key, AtomicInteger::new);
+		} catch (Exception e) {
+			return null;
+		}
+		if (counter.incrementAndGet() < HOT_THRESHOLD || pending.putIfAbsent(key, Boolean.TRUE) != null) {
+			return null;
+		}
+		try {
+			return new Capture(key, source, encoding, File.createTempFile("variant-", ".tmp", cacheDir));
+		} catch (IOException e) {
+			pending.remove(key);
+			log.warn("创建压缩缓存临时文件失败：{}", source.getAbsolutePath(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * 提交压缩变体
+	 * @param capture {@link #beginCapture} 返回的句柄
+	 * @param complete 是否完整写入（客户端中途断开时为false，丢弃临时文件）
+	 * @return 保存后的压缩变体文件，未保存时返回null
+	 */
+	public File commit(Capture capture, boolean complete) {
+		File source = capture.source;
+		File temp = capture.file;
+		try {
+			if (!complete || !capture.key.equals(key(source, capture.encoding))) {
+				Files.deleteIfExists(temp.toPath());
+				return null;
+			}
+			File target = new File(cacheDir, Integer.toHexString(capture.key.hashCode()) + "-" + System.nanoTime()
+					+ "." + capture.encoding.getToken());
+			Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			variants.put(capture.key, target);
+			log.info("生成压缩变体：{} → {}，{}KB → {}KB", source.getAbsolutePath(), capture.encoding.getToken(),
+					source.length() / 1024, target.length() / 1024);
+			return target;
+		} catch (IOException e) {
+			log.warn("保存压缩变体失败：{}", source.getAbsolutePath(), e);
+			temp.delete();
+			return null;
+		} finally {
+			pending.remove(capture.key);
+		}
+	}
+
+	private String key(File source, ContentEncoding encoding) {
+		return source.getAbsolutePath() + "|" + source.length() + "|" + source.lastModified() + "|" + encoding.getToken();
+	}
+
+	/**
+	 * 落盘句柄：开始落盘时的key和写入用的临时文件
+	 */
+	public static final class Capture {
+		private final String key;
+		private final File source;
+		private final ContentEncoding encoding;
+		private final File file;
+
+		private Capture(String key, File source, ContentEncoding encoding, File file) {
+			this.key = key;
+			this.source = source;
+			this.encoding = encoding;
+			this.file = file;
+		}
+
+		/**
+		 * 压缩后字节写入的临时文件
+		 */
+		public File getFile() {
+			return file;
+		}
+	}
+}
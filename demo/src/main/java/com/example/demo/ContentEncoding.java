@@ -0,0 +1,103 @@
+package com.example.demo;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 响应内容编码（Content-Encoding）
+ * 按 Accept-Encoding 协商，q 值相同时优先 zstd
+ */
+public enum ContentEncoding {
+	/** 不压缩 */
+	IDENTITY("identity"),
+	/** gzip（兼容性最好） */
+	GZIP("gzip"),
+	/** zstd（压缩率/速度更优） */
+	ZSTD("zstd");
+
+	// 流式压缩缓冲区：64KB，与文件读取缓冲区一致
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// zstd 压缩级别（3为默认级别，速度与压缩率兼顾）
+	private static final int ZSTD_LEVEL = 3;
+
+	private final String token;
+
+	ContentEncoding(String token) {
+		this.token = token;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * 包装输出流，写入的数据按当前编码流式压缩
+	 */
+	public OutputStream wrap(OutputStream out) throws IOException {
+		switch (this) {
+			case GZIP:
+				return new GZIPOutputStream(out, BUFFER_SIZE);
+			case ZSTD:
+				return new ZstdOutputStream(out, ZSTD_LEVEL);
+			default:
+				return out;
+		}
+	}
+
+	/**
+	 * 根据 Accept-Encoding 请求头协商编码
+	 * @param acceptEncoding 请求头原文（可为空）
+	 * @return 客户端可接受且 q 值最高的编码，无可用编码时返回 IDENTITY
+	 */
+	public static ContentEncoding negotiate(String acceptEncoding) {
+		if (acceptEncoding == null || acceptEncoding.isBlank()) {
+			return IDENTITY;
+		}
+		double gzipQ = 0;
+		double zstdQ = 0;
+		double wildcardQ = -1;
+		boolean gzipListed = false;
+		boolean zstdListed = false;
+		for (String part : acceptEncoding.split(",")) {
+			String[] items = part.trim().split(";");
+			String coding = items[0].trim().toLowerCase(Locale.ROOT);
+			double q = 1.0;
+			for (int i = 1; i < items.length; i++) {
+				String param = items[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(param.substring(2));
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+					// 非法 q 值（NaN、超出 0~1）按不可接受处理
+					if (!(q >= 0 && q <= 1)) {
+						q = 0;
+					}
+				}
+			}
+			if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+				gzipQ = Math.max(gzipQ, q);
+				gzipListed = true;
+			} else if ("zstd".equals(coding)) {
+				zstdQ = Math.max(zstdQ, q);
+				zstdListed = true;
+			} else if ("*".equals(coding)) {
+				wildcardQ = q;
+			}
+		}
+		// 通配符只对未显式声明的编码生效
+		if (wildcardQ > 0) {
+			if (!gzipListed) gzipQ = wildcardQ;
+			if (!zstdListed) zstdQ = wildcardQ;
+		}
+		if (zstdQ <= 0 && gzipQ <= 0) {
+			return IDENTITY;
+		}
+		return zstdQ >= gzipQ ? ZSTD : GZIP;
+	}
+}
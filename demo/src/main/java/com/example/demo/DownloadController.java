@@ -1,5 +1,7 @@
 package com.example.demo;
 
+import com.example.demo.defect.DownloadService;
+import com.example.demo.defect.DownloadVo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -25,16 +27,32 @@ public class DownloadController {
 	@Autowired
 	private DownloadTaskManager taskManager;
 
+	@Autowired
+	private DownloadService downloadService;
+
 	/**
 	 * 单文件下载（服务器本地）
+	 * 请求头 TE: trailers 时，首次下载的 SHA-256 摘要作为 trailer 返回（摘要规则见 SingleFileDownloader）
+	 * @param rotateAngle 指定时按KLARF文件处理，返回坐标旋转后的KLARF（不支持断点续传）
 	 */
 	@PostMapping("/single/local")
 	public void downloadSingleLocalFile(
 			@RequestParam String filePath,
 			@RequestParam(defaultValue = "0") long rangeStart,
+			@RequestParam(required = false) Double rotateAngle,
+			@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+			@RequestHeader(value = "TE", required = false) String te,
 			HttpServletResponse response) {
 		try {
-			singleFileDownloader.downloadLocalFile(filePath, rangeStart, response);
+			if (rotateAngle != null) {
+				if (rangeStart > 0) {
+					throw new IllegalArgumentException("KLARF旋转下载不支持断点续传");
+				}
+				singleFileDownloader.downloadRotatedKlarf(filePath, rotateAngle, acceptEncoding, response);
+				return;
+			}
+			singleFileDownloader.downloadLocalFile(filePath, rangeStart, acceptEncoding,
+					SingleFileDownloader.acceptsTrailers(te), response);
 		} catch (Exception e) {
 			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 			try {
@@ -62,6 +80,40 @@ public class DownloadController {
 		}
 	}
 
+	/**
+	 * 提交多文件下载任务（支持目录 + glob 过滤，服务端枚举文件）
+	 */
+	@PostMapping("/multi/local/submit/source")
+	public ResponseEntity<String> submitMultiLocalSourceTask(
+			@RequestBody MultiFileSubmitRequest request,
+			@RequestParam String userId) {
+		try {
+			String taskId = multiFileDownloader.submitMultiFileTask(request, userId);
+			return ResponseEntity.ok(taskId);
+		} catch (Exception e) {
+			log.error("提交目录下载任务失败", e);
+			return ResponseEntity.badRequest().body("提交失败：" + e.getMessage());
+		}
+	}
+
+	/**
+	 * 实体文件导出（如按缺陷ID下载缺陷图像），直接流式返回 zip
+	 */
+	@PostMapping("/entity")
+	public void downloadEntityFiles(@RequestBody DownloadVo downloadVo, HttpServletResponse response) {
+		try {
+			// 先校验再设置响应头，文件名由服务端决定
+			String fileName = downloadService.validate(downloadVo);
+			response.setContentType("application/zip");
+			response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+			response.setHeader("X-Accel-Buffering", "no");
+			downloadService.download(downloadVo, response.getOutputStream());
+		} catch (Exception e) {
+			log.error("实体文件导出失败：{}", downloadVo.getEntityName(), e);
+			StreamingResponses.fail(response, "导出失败", e);
+		}
+	}
+
 	/**
 	 * 取消下载任务
 	 */
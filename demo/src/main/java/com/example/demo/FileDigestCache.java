@@ -0,0 +1,64 @@
+package com.example.demo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件SHA-256摘要缓存
+ * 摘要只在下载时顺带计算（不额外读文件），按 路径+大小+修改时间 缓存，文件变化后自然失效
+ */
+@Component
+public class FileDigestCache {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Cache<String, byte[]> digests = CacheBuilder.newBuilder()
+			.maximumSize(100_000) // 每条约100字节
+			.expireAfterAccess(1, TimeUnit.DAYS)
+			.build();
+
+	/**
+	 * 查询已缓存的摘要（未计算过返回null）
+	 */
+	public byte[] getIfPresent(File file) {
+		return digests.getIfPresent(key(file));
+	}
+
+	/**
+	 * 缓存摘要（调用方需保证摘要覆盖了文件的完整内容）
+	 */
+	public void put(File file, byte[] digest) {
+		digests.put(key(file), digest);
+	}
+
+	public static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("JDK不支持SHA-256", e);
+		}
+	}
+
+	public static String toHex(byte[] digest) {
+		char[] chars = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	public static String toBase64(byte[] digest) {
+		return Base64.getEncoder().encodeToString(digest);
+	}
+
+	private String key(File file) {
+		return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.demo;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多文件任务预检查：下载前并行批量读取文件元数据，统计总大小、识别缺失/不可读文件、校验磁盘剩余空间
+ */
+@Slf4j
+@Component
+public class FilePreflightChecker {
+	// 每批检查的文件数（批量提交，减少线程调度开销）
+	private static final int BATCH_SIZE = 256;
+	// 最小剩余空间（100MB），与 UniversalFileDownloader 保持一致
+	private static final long MIN_FREE_SPACE = 1024 * 1024 * 100;
+
+	// 元数据读取是阻塞IO，单独线程池，不占用下载线程
+	private final ExecutorService statExecutor = Executors.newFixedThreadPool(
+			Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())),
+			new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger(1);
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "download-preflight-" + count.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/**
+	 * 并行读取所有文件元数据
+	 * @param filePathList 文件路径列表
+	 * @return 预检查结果（总字节数只统计可读文件）
+	 */
+	public PreflightResult inspect(List<String> filePathList) {
+		long startTime = System.currentTimeMillis();
+		int total = filePathList.size();
+		List<CompletableFuture<BatchResult>> futures = new ArrayList<>((total + BATCH_SIZE - 1) / BATCH_SIZE);
+		for (int from = 0; from < total; from += BATCH_SIZE) {
+			int batchFrom = from;
+			int batchTo = Math.min(total, from + BATCH_SIZE);
+			futures.add(CompletableFuture.supplyAsync(
+					() -> statBatch(filePathList, batchFrom, batchTo), statExecutor));
+		}
+
+		PreflightResult result = new PreflightResult();
+		result.setTotalCount(total);
+		for (CompletableFuture<BatchResult> future : futures) {
+			BatchResult batch = future.join();
+			result.totalBytes += batch.bytes;
+			result.invalidIndexes.or(batch.invalid);
+		}
+		result.setInvalidCount(result.invalidIndexes.cardinality());
+
+		log.info("文件预检查完成：文件数：{}，无效：{}，总大小：{}KB，耗时：{}ms",
+				total, result.getInvalidCount(), result.getTotalBytes() / 1024, System.currentTimeMillis() - startTime);
+		return result;
+	}
+
+	/**
+	 * 异步统计目录源的文件数和总字节数（流式遍历，不物化文件列表）
+	 */
+	public CompletableFuture<PreflightResult> measureSources(List<FileSourceSpec> sources) {
+		return CompletableFuture.supplyAsync(() -> {
+			long startTime = System.currentTimeMillis();
+			PreflightResult result = new PreflightResult();
+			for (FileSourceSpec source : sources) {
+				try {
+					long[] measured = FileSources.measure(source);
+					result.totalCount += (int) measured[0];
+					result.totalBytes += measured[1];
+				} catch (IOException | UncheckedIOException e) {
+					log.warn("统计目录源失败：{}", source.getRoot(), e);
+				}
+			}
+			log.info("目录源统计完成：目录数：{}，文件数：{}，总大小：{}KB，耗时：{}ms", sources.size(),
+					result.getTotalCount(), result.getTotalBytes() / 1024, System.currentTimeMillis() - startTime);
+			return result;
+		}, statExecutor);
+	}
+
+	/**
+	 * 检查目标目录磁盘剩余空间（需容纳全部文件并保留最小余量）
+	 */
+	public void checkFreeSpace(String targetDir, long requiredBytes) throws IOException {
+		Path dir = Paths.get(targetDir);
+		Files.createDirectories(dir);
+		long freeSpace = Files.getFileStore(dir).getUsableSpace();
+		if (freeSpace < requiredBytes + MIN_FREE_SPACE) {
+			throw new IOException("存储磁盘剩余空间不足：" + freeSpace / (1024 * 1024) + "MB（需≥"
+					+ (requiredBytes + MIN_FREE_SPACE) / (1024 * 1024) + "MB）");
+		}
+	}
+
+	private BatchResult statBatch(List<String> filePathList, int from, int to) {
+		BatchResult batch = new BatchResult();
+		for (int i = from; i < to; i++) {
+			String filePath = filePathList.get(i);
+			try {
+				Path path = Paths.get(filePath);
+				BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+				if (!attrs.isRegularFile() || !Files.isReadable(path)) {
+					log.warn("文件不可读：{}", filePath);
+					batch.invalid.set(i);
+					continue;
+				}
+				batch.bytes += attrs.size();
+			} catch (IOException | InvalidPathException e) {
+				log.warn("文件不存在：{}", filePath);
+				batch.invalid.set(i);
+			}
+		}
+		return batch;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		statExecutor.shutdownNow();
+	}
+
+	/**
+	 * 单批检查结果
+	 */
+	private static class BatchResult {
+		private long bytes;
+		private final BitSet invalid = new BitSet();
+	}
+
+	/**
+	 * 预检查结果
+	 */
+	@Data
+	public static class PreflightResult {
+		// 文件总数
+		private int totalCount;
+		// 缺失/不可读文件数
+		private int invalidCount;
+		// 可读文件总字节数
+		private long totalBytes;
+		// 缺失/不可读文件下标
+		private BitSet invalidIndexes = new BitSet();
+
+		public boolean isAllInvalid() {
+			return invalidCount >= totalCount;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.demo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 目录下载源：服务端按根目录 + glob 过滤规则惰性枚举文件
+ */
+@Data
+public class FileSourceSpec implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// 根目录（服务器本地路径）
+	private String root;
+	// glob过滤规则（不含"/"时只匹配文件名，如 *.csv；含"/"时匹配相对根目录的路径，如 lot1/**/*.klarf）
+	private String glob;
+	// 是否递归子目录
+	private boolean recursive = true;
+	// 最大递归深度（recursive=true时生效）
+	private int maxDepth = Integer.MAX_VALUE;
+}
@@ -0,0 +1,87 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+/**
+ * 目录下载源枚举工具
+ * 基于 Files.find 惰性遍历，调用方消费一个处理一个，不会把整个目录物化为列表
+ */
+public final class FileSources {
+
+	private FileSources() {
+	}
+
+	/**
+	 * 校验目录源（提交时调用，根目录不存在直接失败）
+	 */
+	public static void validate(FileSourceSpec spec) {
+		if (spec == null || spec.getRoot() == null || spec.getRoot().isBlank()) {
+			throw new IllegalArgumentException("目录下载源根目录不能为空");
+		}
+		Path root = Paths.get(spec.getRoot());
+		if (!Files.isDirectory(root) || !Files.isReadable(root)) {
+			throw new IllegalArgumentException("目录不存在或不可读：" + spec.getRoot());
+		}
+		if (spec.getMaxDepth() < 1) {
+			throw new IllegalArgumentException("最大递归深度必须大于0：" + spec.getMaxDepth());
+		}
+	}
+
+	/**
+	 * 惰性枚举目录源下的普通文件（调用方负责关闭Stream）
+	 */
+	public static Stream<Path> open(FileSourceSpec spec) throws IOException {
+		Path root = Paths.get(spec.getRoot());
+		BiPredicate<Path, BasicFileAttributes> filter = filter(spec, root);
+		return Files.find(root, depth(spec), filter);
+	}
+
+	/**
+	 * 统计目录源匹配的文件数和总字节数（复用遍历时的文件属性，不逐个stat）
+	 * @return [文件数, 总字节数]
+	 */
+	public static long[] measure(FileSourceSpec spec) throws IOException {
+		Path root = Paths.get(spec.getRoot());
+		BiPredicate<Path, BasicFileAttributes> filter = filter(spec, root);
+		long[] result = new long[2];
+		try (Stream<Path> stream = Files.find(root, depth(spec), (path, attrs) -> {
+			if (filter.test(path, attrs)) {
+				result[0]++;
+				result[1] += attrs.size();
+			}
+			return false;
+		})) {
+			stream.forEach(path -> { });
+		}
+		return result;
+	}
+
+	private static int depth(FileSourceSpec spec) {
+		return spec.isRecursive() ? spec.getMaxDepth() : 1;
+	}
+
+	private static BiPredicate<Path, BasicFileAttributes> filter(FileSourceSpec spec, Path root) {
+		String glob = spec.getGlob() == null || spec.getGlob().isBlank() ? "*" : spec.getGlob();
+		boolean matchRelativePath = glob.contains("/");
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		return (path, attrs) -> attrs.isRegularFile()
+				&& matcher.matches(matchRelativePath ? root.relativize(path) : path.getFileName());
+	}
+
+	/**
+	 * 文件在打包目录中的相对路径：根目录名/相对路径，避免不同子目录的同名文件互相覆盖
+	 */
+	public static Path entryPath(FileSourceSpec spec, Path file) {
+		Path root = Paths.get(spec.getRoot());
+		Path rootName = root.getFileName() == null ? Paths.get("root") : root.getFileName();
+		return rootName.resolve(root.relativize(file));
+	}
+}
@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import com.example.demo.klarf.CoordinateUnit;
+import com.example.demo.klarf.KlarfBaseParams;
+import com.example.demo.klarf.KlarfDefectStream;
+import com.example.demo.klarf.RotationCenterType;
+import com.example.demo.klarf.WaferMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KLARF控制器（晶圆图、缺陷流式旋转）
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/klarf")
+public class KlarfController {
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	@Autowired
+	private KlarfWaferMapService waferMapService;
+
+	/**
+	 * 缺陷流式旋转：请求体为 NDJSON（application/x-ndjson）或24字节小端序二进制记录（application/octet-stream），
+	 * 响应为同格式的旋转结果，按批边读边写，不缓存整个请求/响应体
+	 * 客户端需要边发送边读取响应（全双工），否则两端缓冲区写满后会互相等待；
+	 * 开始输出后出错时中断连接，客户端会收到不完整的分块响应
+	 */
+	@PostMapping(value = "/rotate", consumes = {NDJSON, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+	public void rotateDefects(
+			@RequestParam double sampleCenterX,
+			@RequestParam double sampleCenterY,
+			@RequestParam double diePitchX,
+			@RequestParam double diePitchY,
+			@RequestParam(defaultValue = "0") double dieOriginX,
+			@RequestParam(defaultValue = "0") double dieOriginY,
+			@RequestParam double rotateAngle,
+			@RequestParam(defaultValue = "0") double waferPhysicalCenterX,
+			@RequestParam(defaultValue = "0") double waferPhysicalCenterY,
+			@RequestParam(defaultValue = "SAMPLE_CENTER") RotationCenterType rotationCenterType,
+			@RequestParam(defaultValue = "MICROMETER") CoordinateUnit unit,
+			HttpServletRequest request,
+			HttpServletResponse response) {
+		KlarfBaseParams params = new KlarfBaseParams(sampleCenterX, sampleCenterY, diePitchX, diePitchY,
+				dieOriginX, dieOriginY, rotateAngle, waferPhysicalCenterX, waferPhysicalCenterY, rotationCenterType, unit);
+		boolean binary = MediaType.APPLICATION_OCTET_STREAM.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+		long startTime = System.currentTimeMillis();
+		try {
+			response.setContentType(binary ? MediaType.APPLICATION_OCTET_STREAM_VALUE : NDJSON);
+			// 禁止反向代理缓冲，结果逐批到达客户端
+			response.setHeader("X-Accel-Buffering", "no");
+			long count = KlarfDefectStream.rotate(request.getInputStream(), response.getOutputStream(),
+					binary ? KlarfDefectStream.Format.BINARY : KlarfDefectStream.Format.NDJSON, params);
+			log.info("缺陷流旋转完成：{} 个缺陷，耗时 {} ms", count, System.currentTimeMillis() - startTime);
+		} catch (Exception e) {
+			log.error("缺陷流旋转失败：rotateAngle={}", rotateAngle, e);
+			StreamingResponses.fail(response, "旋转失败", e);
+		}
+	}
+
+	/**
+	 * 晶圆图概要：Die统计和瓦片金字塔参数
+	 * @param rotateAngle 旋转角度（度，逆时针为正），默认不旋转
+	 */
+	@GetMapping("/wafer-map")
+	public ResponseEntity<?> getWaferMap(
+			@RequestParam String filePath,
+			@RequestParam(defaultValue = "0") double rotateAngle) {
+		try {
+			return ResponseEntity.ok(WaferMapSummary.of(waferMapService.getWaferMap(filePath, rotateAngle)));
+		} catch (FileNotFoundException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body("生成晶圆图失败：" + e.getMessage());
+		} catch (Exception e) {
+			log.error("生成晶圆图失败：{}", filePath, e);
+			return ResponseEntity.badRequest().body("生成晶圆图失败：" + e.getMessage());
+		}
+	}
+
+	/**
+	 * 晶圆图密度瓦片（带ETag，文件未变化时返回304，浏览器按 Cache-Control 缓存）
+	 */
+	@GetMapping("/wafer-map/tile/{zoom}/{x}/{y}")
+	public ResponseEntity<?> getWaferMapTile(
+			@PathVariable int zoom,
+			@PathVariable int x,
+			@PathVariable int y,
+			@RequestParam String filePath,
+			@RequestParam(defaultValue = "0") double rotateAngle,
+			WebRequest request) {
+		try {
+			String etag = "\"" + FileDigestCache.toHex(FileDigestCache.newSha256().digest(
+					waferMapService.version(new File(filePath), rotateAngle).getBytes(StandardCharsets.UTF_8))) + "\"";
+			if (request.checkNotModified(etag)) {
+				return null;
+			}
+			WaferMap map = waferMapService.getWaferMap(filePath, rotateAngle);
+			return ResponseEntity.ok()
+					.eTag(etag)
+					.cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate())
+					.body(WaferMapTile.of(map, zoom, x, y));
+		} catch (FileNotFoundException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body("获取瓦片失败：" + e.getMessage());
+		} catch (Exception e) {
+			log.error("获取晶圆图瓦片失败：{} {}/{}/{}", filePath, zoom, x, y, e);
+			return ResponseEntity.badRequest().body("获取瓦片失败：" + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import com.example.demo.klarf.DefectBatch;
+import com.example.demo.klarf.KlarfBaseParams;
+import com.example.demo.klarf.KlarfColumnarCache;
+import com.example.demo.klarf.KlarfColumnarFile;
+import com.example.demo.klarf.KlarfCoordinateRotator;
+import com.example.demo.klarf.KlarfReader;
+import com.example.demo.klarf.WaferMap;
+import com.example.demo.klarf.WaferMapAggregator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KLARF晶圆图服务
+ * 通过列式缓存读取缺陷，旋转后一次遍历聚合出Die统计和密度金字塔；
+ * 生成的晶圆图按 路径+大小+修改时间+角度 缓存，瓦片请求直接从缓存的金字塔中切取
+ */
+@Slf4j
+@Service
+public class KlarfWaferMapService {
+	// 晶圆图缓存上限（默认参数下每张约5.6MB）
+	private static final long CACHE_MAX_BYTES = 512L * 1024 * 1024;
+
+	private final KlarfColumnarCache columnarCache = new KlarfColumnarCache(Paths.get(KlarfColumnarCache.DEFAULT_DIRECTORY));
+
+	private final Cache<String, WaferMap> waferMaps = CacheBuilder.newBuilder()
+			.maximumWeight(CACHE_MAX_BYTES)
+			.weigher((String key, WaferMap map) -> (int) Math.min(Integer.MAX_VALUE, map.estimateBytes()))
+			.expireAfterAccess(30, TimeUnit.MINUTES)
+			.build();
+
+	/**
+	 * 获取晶圆图（未缓存时生成，同一文件并发请求只生成一次）
+	 * @param rotateAngle 旋转角度（度，逆时针为正）
+	 */
+	public WaferMap getWaferMap(String filePath, double rotateAngle) throws IOException {
+		File file = new File(filePath);
+		if (!file.isFile()) {
+			log.error("文件不存在：{}", filePath);
+			throw new FileNotFoundException("文件不存在：" + filePath);
+		}
+		try {
+			return waferMaps.get(version(file, rotateAngle), () -> build(file, rotateAngle));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("生成晶圆图失败：" + filePath, e.getCause());
+		}
+	}
+
+	/**
+	 * 晶圆图版本标识（文件或角度变化时改变，用作瓦片ETag）
+	 */
+	public String version(File file, double rotateAngle) {
+		return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "|" + rotateAngle;
+	}
+
+	private WaferMap build(File file, double rotateAngle) throws IOException {
+		long startTime = System.currentTimeMillis();
+		KlarfColumnarFile defects = columnarCache.open(file.toPath());
+		KlarfBaseParams params = defects.getHeader().toBaseParams(rotateAngle);
+		WaferMapAggregator aggregator = new WaferMapAggregator(params);
+		DefectBatch batch = new DefectBatch(KlarfReader.DEFAULT_BATCH_SIZE);
+		DefectBatch rotated = new DefectBatch(KlarfReader.DEFAULT_BATCH_SIZE);
+		for (int row = 0; row < defects.getDefectCount(); row += batch.size()) {
+			defects.read(row, batch);
+			aggregator.add(rotateAngle == 0 ? batch : KlarfCoordinateRotator.rotateBatch(batch, params, rotated));
+		}
+		WaferMap map = aggregator.finish();
+		log.info("晶圆图生成完成：{}，角度：{}，缺陷数：{}，Die数：{}，范围外：{}，耗时：{}ms", file.getPath(), rotateAngle,
+				map.getDefectCount(), map.getDieCount(), map.getOutsideCount(), System.currentTimeMillis() - startTime);
+		return map;
+	}
+}
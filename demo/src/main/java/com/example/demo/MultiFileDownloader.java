@@ -1,6 +1,7 @@
 package com.example.demo;
 
 import com.alibaba.fastjson.JSON;
+import com.example.demo.FilePreflightChecker.PreflightResult;
 import com.example.demo.UserDownloadTask.TaskStage;
 import lombok.extern.slf4j.Slf4j;
 
@@ -11,9 +12,14 @@ import org.springframework.util.CollectionUtils;
 import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * 多文件下载服务（性能优化版）
@@ -25,6 +31,18 @@ public class MultiFileDownloader {
 	@Autowired
 	private DownloadTaskManager taskManager;
 
+	@Autowired
+	private FilePreflightChecker preflightChecker;
+
+	@Autowired
+	private FileDigestCache fileDigestCache;
+
+	// 打包目录中的校验清单文件名
+	private static final String MANIFEST_NAME = "SHA256SUMS";
+
+	// 下载文件存储根目录
+	private static final String DOWNLOAD_DIR = "/tmp/download/";
+
 	// 优化线程池配置
 	private final ExecutorService executorService = new ThreadPoolExecutor(
 			5, // 核心线程数
@@ -46,10 +64,32 @@ public class MultiFileDownloader {
 	/**
 	 * 提交多文件下载任务
 	 */
-	public String submitMultiFileTask(List<String> filePathList, String userId) {
-		if (CollectionUtils.isEmpty(filePathList)) {
+	public String submitMultiFileTask(List<String> filePathList, String userId) throws IOException {
+		MultiFileSubmitRequest request = new MultiFileSubmitRequest();
+		request.setFilePathList(filePathList);
+		return submitMultiFileTask(request, userId);
+	}
+
+	/**
+	 * 提交多文件下载任务（显式文件列表 + 目录源）
+	 * 目录源只在提交时校验根目录，文件在下载阶段由服务端惰性枚举，总数/总大小异步统计
+	 */
+	public String submitMultiFileTask(MultiFileSubmitRequest request, String userId) throws IOException {
+		List<String> filePathList = request.getFilePathList() == null
+				? Collections.emptyList() : request.getFilePathList();
+		List<FileSourceSpec> sources = request.getSources() == null
+				? Collections.emptyList() : request.getSources();
+		if (CollectionUtils.isEmpty(filePathList) && CollectionUtils.isEmpty(sources)) {
 			throw new IllegalArgumentException("文件路径列表不能为空");
 		}
+		sources.forEach(FileSources::validate);
+
+		// 预检查：并行读取元数据，缺失/空间不足的任务在提交时直接失败
+		PreflightResult preflight = preflightChecker.inspect(filePathList);
+		if (sources.isEmpty() && preflight.isAllInvalid()) {
+			throw new IllegalArgumentException("所有文件均不存在或不可读，共" + preflight.getTotalCount() + "个");
+		}
+		preflightChecker.checkFreeSpace(DOWNLOAD_DIR, preflight.getTotalBytes());
 
 		// 生成唯一任务ID
 		String taskId = UUID.randomUUID().toString();
@@ -59,36 +99,51 @@ public class MultiFileDownloader {
 		task.setTaskId(taskId);
 		task.setUserId(userId);
 		task.setFilePathList(filePathList);
+		task.setFileSources(sources);
 		task.setTotalCount(filePathList.size());
+		task.setTotalBytes(preflight.getTotalBytes());
+		task.setDownloadedBytes(0);
+		task.setInvalidFileIndexes(preflight.getInvalidIndexes());
 		task.setCompletedCount(0);
-		task.setFailedCount(0);
+		// 预检查发现的无效文件直接计入失败数
+		task.setFailedCount(preflight.getInvalidCount());
 		task.setStageProgress(0);
 		task.setFinished(false);
 		task.setCancelled(false);
-
-		// 异步计算文件总大小（避免阻塞）
-//
-//		calculateTotalFileSizeAsync(filePathList).thenAccept(totalBytes -> {
-//			task.setTotalBytes(totalBytes);
-//			taskManager.saveTask(task);
-//		});
+		// 目录源统计、空间校验完成前处于等待阶段
+		task.setCurrentStage(TaskStage.WAITING);
 
 		// 保存初始任务
 		taskManager.saveTask(task);
 
-		// 异步执行下载
-		executorService.submit(() -> {
-			try {
-				downloadFiles(task);
-			} catch (Exception e) {
-				task.setFailedCount(task.getTotalCount());
-				task.setFinished(true);
+		// 目录源：先异步统计文件数和总大小（流式遍历，不物化文件列表），空间校验通过后才开始复制
+		CompletableFuture<Void> prepared = CompletableFuture.completedFuture(null);
+		if (!sources.isEmpty()) {
+			prepared = preflightChecker.measureSources(sources).thenAccept(measured -> {
+				synchronized (task) {
+					task.setTotalCount(task.getTotalCount() + measured.getTotalCount());
+					task.setTotalBytes(task.getTotalBytes() + measured.getTotalBytes());
+				}
 				taskManager.saveTask(task);
-				log.error("多文件下载任务执行失败：{}", taskId, e);
-			}
-		});
+				try {
+					preflightChecker.checkFreeSpace(DOWNLOAD_DIR, task.getTotalBytes());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
 
-		log.info("多文件下载任务已提交：{}，文件数：{}", taskId, filePathList.size());
+		// 异步执行下载
+		prepared.thenRunAsync(() -> downloadFiles(task), executorService)
+				.exceptionally(e -> {
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					log.error("多文件下载任务执行失败：{}", taskId, cause);
+					failTask(task);
+					return null;
+				});
+
+		log.info("多文件下载任务已提交：{}，文件数：{}，目录源：{}，总大小：{}KB",
+				taskId, filePathList.size(), sources.size(), preflight.getTotalBytes() / 1024);
 		return taskId;
 	}
 
@@ -96,17 +151,13 @@ public class MultiFileDownloader {
 	 * 执行文件下载（带进度更新）
 	 */
 	private void downloadFiles(UserDownloadTask task) {
-		List<String> filePathList = task.getFilePathList();
 		String userId = task.getUserId();
-		int totalCount = task.getTotalCount(); // 总文件数
 
 		// 创建用户目录（代码不变）
-		File userDir = new File("/tmp/download/" + userId + "/" + task.getTaskId());
+		File userDir = new File(DOWNLOAD_DIR + userId + "/" + task.getTaskId());
 		if (!userDir.exists() && !userDir.mkdirs()) {
 			log.error("创建用户目录失败：{}", userDir.getAbsolutePath());
-			task.setFailedCount(task.getTotalCount());
-			task.setFinished(true);
-			taskManager.saveTask(task);
+			failTask(task);
 			return;
 		}
 
@@ -114,7 +165,132 @@ public class MultiFileDownloader {
 		task.setCurrentStage(TaskStage.DOWNLOADING);
 		taskManager.saveTask(task);
 
-		// 遍历下载文件
+		// 边复制边计算SHA-256，校验清单与文件放在同一目录，随压缩包一起输出
+		// 清单创建/写入失败不影响文件复制，只标记清单缺失
+		Writer manifest = openManifest(task, userDir);
+		try {
+			copyAll(task, userDir, manifest);
+		} finally {
+			closeManifest(task, userDir, manifest);
+		}
+
+		// 2. 打包阶段（全部文件下载完成后）
+		if (!task.isCancelled() && task.getCompletedCount() > 0) {
+			task.setCurrentStage(TaskStage.PACKAGING);
+			task.setStageProgress(0); // 重置阶段进度
+			taskManager.saveTask(task);
+
+			try {
+				// 获取下载的文件列表
+				File[] downloadedFiles = userDir.listFiles();
+				if (downloadedFiles != null && downloadedFiles.length > 0) {
+					// 模拟打包进度（实际应根据打包处理逻辑更新）
+					for (int i = 0; i <= 100; i += 5) {
+						// 总进度 = 下载进度(100%) + 打包进度(100%) → 映射到0-100
+						task.setStageProgress(100 - (int) ((100 - i) * 0.5)); // 打包阶段占总进度的50%
+						taskManager.saveTask(task);
+						Thread.sleep(200); // 模拟打包耗时
+					}
+
+					// 打包完成（生成最终压缩包路径）
+					String zipPath = userDir.getAbsolutePath() + ".zip";
+					task.setFilePath(zipPath); // 记录压缩包路径
+				}
+			} catch (Exception e) {
+				log.error("文件打包失败", e);
+				task.setFailedCount(task.getFailedCount() + 1);
+			}
+		}
+
+		// 任务结束时强制进度为100%（无论成功失败，确保最终状态正确）
+		synchronized (task) {
+			if (task.isCancelled() || task.isFinished()) {
+				return;
+			}
+			task.setCurrentStage(TaskStage.COMPLETED);
+			task.setStageProgress(100);
+			task.setFinished(true);
+			taskManager.saveTask(task);
+		}
+		log.info("多文件下载任务完成：{}，成功：{}，失败：{}，校验清单：{}", task.getTaskId(),
+				task.getCompletedCount(), task.getFailedCount(), task.isManifestMissing() ? "缺失" : "完整");
+	}
+
+	private Writer openManifest(UserDownloadTask task, File userDir) {
+		try {
+			return new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(new File(userDir, MANIFEST_NAME)), StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			log.error("创建校验清单失败，继续复制文件：{}", task.getTaskId(), e);
+			task.setManifestMissing(true);
+			return null;
+		}
+	}
+
+	/**
+	 * 写入一行校验清单（失败只标记清单缺失，不影响已复制完成的文件）
+	 */
+	private void writeManifest(UserDownloadTask task, Writer manifest, String line) {
+		if (manifest == null || task.isManifestMissing()) {
+			return;
+		}
+		try {
+			manifest.write(line);
+		} catch (IOException e) {
+			log.error("写入校验清单失败，继续复制文件：{}", task.getTaskId(), e);
+			task.setManifestMissing(true);
+		}
+	}
+
+	private void closeManifest(UserDownloadTask task, File userDir, Writer manifest) {
+		if (manifest == null) {
+			return;
+		}
+		try {
+			manifest.close();
+		} catch (IOException e) {
+			log.error("写入校验清单失败：{}", task.getTaskId(), e);
+			task.setManifestMissing(true);
+		}
+		// 不完整的清单会让校验误报，直接删除
+		if (task.isManifestMissing() && !new File(userDir, MANIFEST_NAME).delete()) {
+			log.warn("删除不完整的校验清单失败：{}", task.getTaskId());
+		}
+	}
+
+	/**
+	 * 任务整体失败：未完成的文件全部计入失败（与完成状态在同一把锁下切换，先结束的一方生效）
+	 */
+	private void failTask(UserDownloadTask task) {
+		synchronized (task) {
+			if (task.isFinished()) {
+				return;
+			}
+			task.setFailedCount(Math.max(task.getFailedCount(), task.getTotalCount() - task.getCompletedCount()));
+			task.setCurrentStage(TaskStage.FAILED);
+			task.setFinished(true);
+			taskManager.saveTask(task);
+		}
+	}
+
+	/**
+	 * 依次复制显式文件和目录源文件
+	 */
+	private void copyAll(UserDownloadTask task, File userDir, Writer manifest) {
+		List<String> filePathList = task.getFilePathList();
+		BitSet invalidFileIndexes = task.getInvalidFileIndexes();
+		List<FileSourceSpec> sources = task.getFileSources() == null
+				? Collections.<FileSourceSpec>emptyList() : task.getFileSources();
+		// 显式文件平铺在用户目录下：预留校验清单名和目录源的根目录名，同名文件追加序号
+		Set<String> entryNames = new HashSet<>();
+		entryNames.add(MANIFEST_NAME);
+		for (FileSourceSpec source : sources) {
+			Path root = Paths.get(source.getRoot());
+			entryNames.add(FileSources.entryPath(source, root).toString());
+		}
+
+		// 遍历下载显式文件（顺序迭代，紧凑列表逐条解码）
+		int fileIndex = 0;
 		for (String filePath : filePathList) {
 			// 检查任务是否被取消（代码不变）
 			if (task.isCancelled()) {
@@ -122,86 +298,105 @@ public class MultiFileDownloader {
 				break;
 			}
 
-			File file = new File(filePath);
-			if (!file.exists()) {
-				log.warn("文件不存在：{}", filePath);
-				task.setFailedCount(task.getFailedCount() + 1);
-				taskManager.saveTask(task);
+			// 预检查已判定缺失/不可读，已计入失败数
+			if (invalidFileIndexes != null && invalidFileIndexes.get(fileIndex++)) {
 				continue;
 			}
 
-			try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
-				 BufferedOutputStream bos = new BufferedOutputStream(
-						 new FileOutputStream(new File(userDir, file.getName())))) {
-
-				byte[] buffer = new byte[64 * 1024]; // 64KB缓冲区
-				int bytesRead;
-
-				// 下载文件（仅保留文件复制逻辑，移除字节数统计对进度的影响）
-				while ((bytesRead = bis.read(buffer)) != -1) {
-					if (task.isCancelled()) {
-						break;
-					}
-					bos.write(buffer, 0, bytesRead);
-					// 移除：基于字节数的进度更新（不再需要）
-					// task.setDownloadedBytes(task.getDownloadedBytes() + bytesRead);
-				}
+			File file = new File(filePath);
+			String entryName = entryName(file.getName(), entryNames);
+			copyFile(task, file, new File(userDir, entryName), entryName, manifest);
+		}
 
-				if (!task.isCancelled()) {
-					task.setCompletedCount(task.getCompletedCount() + 1); // 成功下载，完成数+1
-					// 基于文件数量计算进度：(已完成数 / 总数) * 100
-					int newProgress = (int) (((double) task.getCompletedCount() / totalCount) * 100);
-					task.setStageProgress(Math.min(newProgress, 100)); // 避免超过100%
-					taskManager.saveTask(task); // 实时更新进度
-				}
-				// 2. 打包阶段（下载完成后）
-				if (!task.isCancelled() && task.getCompletedCount() > 0) {
-					task.setCurrentStage(TaskStage.PACKAGING);
-					task.setStageProgress(0); // 重置阶段进度
-					taskManager.saveTask(task);
-
-					try {
-						// 获取下载的文件列表
-						File[] downloadedFiles = userDir.listFiles();
-						if (downloadedFiles != null && downloadedFiles.length > 0) {
-							int fileCount = downloadedFiles.length;
-							// 模拟打包进度（实际应根据打包处理逻辑更新）
-							for (int i = 0; i <= 100; i += 5) {
-								// 每5%更新一次进度
-								task.setStageProgress(i);
-								// 总进度 = 下载进度(100%) + 打包进度(100%) → 映射到0-100
-								task.setStageProgress(100 - (int) ((100 - i) * 0.5)); // 打包阶段占总进度的50%
-								taskManager.saveTask(task);
-								Thread.sleep(200); // 模拟打包耗时
-							}
-
-							// 打包完成（生成最终压缩包路径）
-							String zipPath = userDir.getAbsolutePath() + ".zip";
-							task.setFilePath(zipPath); // 记录压缩包路径
-						}
-					} catch (Exception e) {
-						log.error("文件打包失败", e);
+		// 遍历下载目录源（边枚举边复制）
+		for (FileSourceSpec source : sources) {
+			if (task.isCancelled()) {
+				break;
+			}
+			try (Stream<Path> files = FileSources.open(source)) {
+				Iterator<Path> iterator = files.iterator();
+				while (iterator.hasNext() && !task.isCancelled()) {
+					Path path = iterator.next();
+					Path entryPath = FileSources.entryPath(source, path);
+					File target = userDir.toPath().resolve(entryPath).toFile();
+					File parent = target.getParentFile();
+					if (!parent.exists() && !parent.mkdirs()) {
+						log.error("创建目录失败：{}", parent.getAbsolutePath());
 						task.setFailedCount(task.getFailedCount() + 1);
+						continue;
 					}
+					String entryName = entryPath.toString().replace(File.separatorChar, '/');
+					copyFile(task, path.toFile(), target, entryName, manifest);
 				}
-			} catch (Exception e) {
-				log.error("下载文件失败：{}", filePath, e);
+			} catch (IOException | UncheckedIOException e) {
+				log.error("枚举目录源失败：{}", source.getRoot(), e);
 				task.setFailedCount(task.getFailedCount() + 1);
-			} finally {
 				taskManager.saveTask(task);
 			}
 		}
+	}
 
-		// 任务结束时强制进度为100%（无论成功失败，确保最终状态正确）
-		if (!task.isCancelled()) {
-			task.setCurrentStage(TaskStage.COMPLETED);
-			task.setStageProgress(100);
-			task.setStageProgress(100);
-			task.setFinished(true);
-			taskManager.saveTask(task);
-			log.info("多文件下载任务完成：{}，成功：{}，失败：{}",
-					task.getTaskId(), task.getCompletedCount(), task.getFailedCount());
+	/**
+	 * 显式文件的目标文件名：已占用时在扩展名前追加序号
+	 */
+	private static String entryName(String fileName, Set<String> used) {
+		int dot = fileName.lastIndexOf('.');
+		String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+		String extension = dot > 0 ? fileName.substring(dot) : "";
+		String name = fileName;
+		for (int n = 1; !used.add(name); n++) {
+			name = base + "_" + n + extension;
 		}
+		return name;
+	}
+
+	/**
+	 * 复制单个文件到用户目录并更新进度（同一次读取中计算SHA-256，成功后写入校验清单）
+	 */
+	private void copyFile(UserDownloadTask task, File file, File target, String entryName, Writer manifest) {
+		try {
+			byte[] sha256 = copyWithDigest(task, file, target);
+			if (sha256 == null) {
+				return; // 已取消
+			}
+			fileDigestCache.put(file, sha256);
+			// sha256sum 兼容格式：<hex>  <相对路径>
+			writeManifest(task, manifest, FileDigestCache.toHex(sha256) + "  " + entryName + "\n");
+			task.setCompletedCount(task.getCompletedCount() + 1); // 成功下载，完成数+1
+			// 基于文件数量计算进度：(已完成数 / 总数) * 100（目录源总数异步统计，可能暂未计入）
+			int totalCount = Math.max(task.getTotalCount(), task.getCompletedCount() + task.getFailedCount());
+			int newProgress = (int) (((double) task.getCompletedCount() / totalCount) * 100);
+			task.setStageProgress(Math.min(newProgress, 100)); // 避免超过100%
+		} catch (Exception e) {
+			log.error("下载文件失败：{}", file.getAbsolutePath(), e);
+			task.setFailedCount(task.getFailedCount() + 1);
+		} finally {
+			taskManager.saveTask(task); // 实时更新进度
+		}
+	}
+
+	/**
+	 * 复制文件内容并计算SHA-256
+	 * @return 摘要，任务中途取消时返回null
+	 */
+	private byte[] copyWithDigest(UserDownloadTask task, File file, File target) throws IOException {
+		MessageDigest digest = FileDigestCache.newSha256();
+		try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
+			 BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(target))) {
+
+			byte[] buffer = new byte[64 * 1024]; // 64KB缓冲区
+			int bytesRead;
+
+			while ((bytesRead = bis.read(buffer)) != -1) {
+				if (task.isCancelled()) {
+					return null;
+				}
+				digest.update(buffer, 0, bytesRead);
+				bos.write(buffer, 0, bytesRead);
+				task.setDownloadedBytes(task.getDownloadedBytes() + bytesRead);
+			}
+		}
+		return task.isCancelled() ? null : digest.digest();
 	}
 
 	/**
@@ -214,14 +409,15 @@ public class MultiFileDownloader {
 			log.warn(msg);
 			return JSON.toJSONString(Map.of("code", 404, "msg", msg));
 		}
-		if (task.isFinished()) {
-			String msg = "任务已完成，无需取消：" + taskId;
-			log.info(msg);
-			return JSON.toJSONString(Map.of("code", 200, "msg", msg));
+		synchronized (task) {
+			if (task.isFinished()) {
+				String msg = "任务已完成，无需取消：" + taskId;
+				log.info(msg);
+				return JSON.toJSONString(Map.of("code", 200, "msg", msg));
+			}
+			task.setCancelled(true);
+			taskManager.saveTask(task);
 		}
-
-		task.setCancelled(true);
-		taskManager.saveTask(task);
 		String msg = "任务已取消：" + taskId;
 		log.info(msg);
 		return JSON.toJSONString(Map.of("code", 200, "msg", msg));
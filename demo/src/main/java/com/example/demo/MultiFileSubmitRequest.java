@@ -0,0 +1,16 @@
+package com.example.demo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 多文件下载提交请求：显式文件列表与目录源可混合使用
+ */
+@Data
+public class MultiFileSubmitRequest {
+	// 显式文件路径列表（可为空）
+	private List<String> filePathList;
+	// 目录下载源（服务端枚举，可为空）
+	private List<FileSourceSpec> sources;
+}
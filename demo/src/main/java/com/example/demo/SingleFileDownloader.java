@@ -1,18 +1,37 @@
 package com.example.demo;
 
+import com.example.demo.klarf.KlarfColumnarCache;
+import com.example.demo.klarf.KlarfColumnarFile;
+import com.example.demo.klarf.KlarfWriter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * 单文件下载服务（NIO优化版）
@@ -20,11 +39,40 @@ import java.nio.ByteBuffer;
 @Slf4j
 @Service
 public class SingleFileDownloader {
+	// 小于该大小的文件不压缩（压缩收益低于额外开销）
+	private static final long COMPRESS_MIN_SIZE = 64 * 1024;
+	// 可压缩的文本类文件扩展名（CSV/KLARF/日志等）
+	private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+			"csv", "tsv", "txt", "log", "json", "xml", "html", "klarf", "klf", "krf");
+
+	@Autowired
+	private CompressedVariantCache compressedVariantCache;
+
+	@Autowired
+	private FileDigestCache fileDigestCache;
+
+	// KLARF列式缓存（旋转下载的坐标来源，源文件文本只作为输出模板）
+	private final KlarfColumnarCache columnarCache = new KlarfColumnarCache(Paths.get(KlarfColumnarCache.DEFAULT_DIRECTORY));
 
 	/**
 	 * 下载服务器本地文件（支持限速和NIO优化）
 	 */
 	public void downloadLocalFile(String filePath, long rangeStart, HttpServletResponse response) throws Exception {
+		downloadLocalFile(filePath, rangeStart, null, false, response);
+	}
+
+	/**
+	 * 下载服务器本地文件，按 Accept-Encoding 协商压缩
+	 * <p>
+	 * SHA-256 摘要（Repr-Digest / Digest，针对实际发送的表示，压缩响应即压缩后的字节）：
+	 * 已缓存时作为响应头发送；未缓存时在本次读取中计算，客户端声明 {@code TE: trailers} 则作为 HTTP trailer 发送
+	 * （分块传输，不返回 Content-Length），否则本次不返回摘要，之后的请求作为响应头返回。
+	 * 断点续传请求不计算摘要，只返回已缓存的完整文件摘要。
+	 * @param acceptEncoding 客户端 Accept-Encoding 请求头（为空则不压缩）
+	 * @param trailers 客户端是否接受 trailer（见 {@link #acceptsTrailers}）
+	 */
+	public void downloadLocalFile(String filePath, long rangeStart, String acceptEncoding, boolean trailers,
+			HttpServletResponse response) throws Exception {
 		long startTime = System.currentTimeMillis();
 		File file = new File(filePath);
 
@@ -33,38 +81,230 @@ public class SingleFileDownloader {
 			throw new FileNotFoundException("文件不存在：" + filePath);
 		}
 
+		// 断点续传请求不压缩（压缩后字节偏移与原文件不对应）
+		ContentEncoding encoding = rangeStart > 0 || !isCompressible(file)
+				? ContentEncoding.IDENTITY : ContentEncoding.negotiate(acceptEncoding);
+		if (isCompressible(file)) {
+			response.setHeader("Vary", "Accept-Encoding");
+		}
+
 		// 设置响应头
 		response.setContentType("application/octet-stream");
 		response.setHeader("Content-Disposition", "attachment; filename=\"" +
 				URLEncoder.encode(file.getName(), StandardCharsets.UTF_8) + "\"");
-		response.setHeader("Content-Length", String.valueOf(file.length()));
-		response.setHeader("Accept-Ranges", "bytes");
 
-		// 使用NIO优化IO（适配大文件）
+		// 已缓存摘要直接输出；未缓存且完整读取时在本次读取中顺带计算
+		byte[] cachedDigest = fileDigestCache.getIfPresent(file);
+		MessageDigest digest = cachedDigest == null && rangeStart <= 0 ? FileDigestCache.newSha256() : null;
+
+		try {
+			if (encoding == ContentEncoding.IDENTITY) {
+				response.setHeader("Accept-Ranges", "bytes");
+				if (cachedDigest != null) {
+					// 摘要针对完整文件（identity表示），断点续传时同样有效
+					digestFields(cachedDigest).forEach(response::setHeader);
+				}
+				if (digest == null || !offerDigestTrailer(response, trailers, () -> fileDigestCache.getIfPresent(file))) {
+					response.setHeader("Content-Length", String.valueOf(file.length()));
+				}
+				transfer(file, rangeStart, response, digest);
+			} else {
+				response.setHeader("Content-Encoding", encoding.getToken());
+				downloadEncoded(file, encoding, response, digest, trailers);
+			}
+
+			log.info("文件下载完成：{}，大小：{}KB，编码：{}，耗时：{}ms",
+					filePath, file.length()/1024, encoding.getToken(), System.currentTimeMillis()-startTime);
+		} catch (Exception e) {
+			log.error("文件下载失败：{}", filePath, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 解析 TE 请求头，客户端声明 trailers 时返回true
+	 */
+	public static boolean acceptsTrailers(String te) {
+		if (te == null) {
+			return false;
+		}
+		for (String part : te.split(",")) {
+			if ("trailers".equalsIgnoreCase(part.split(";")[0].trim())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 旋转后的KLARF文件下载：坐标从列式缓存读取并旋转，源文件文本作为模板流式写出到响应，不在内存中保留缺陷列表
+	 * 内容随旋转角度变化，不支持断点续传，也不使用摘要/压缩变体缓存
+	 * @param rotateAngle 旋转角度（度，逆时针为正）
+	 */
+	public void downloadRotatedKlarf(String filePath, double rotateAngle, String acceptEncoding,
+			HttpServletResponse response) throws Exception {
+		long startTime = System.currentTimeMillis();
+		File file = new File(filePath);
+		if (!file.exists()) {
+			log.error("文件不存在：{}", filePath);
+			throw new FileNotFoundException("文件不存在：" + filePath);
+		}
+
+		ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+		response.setContentType("application/octet-stream");
+		response.setHeader("Content-Disposition", "attachment; filename=\"" +
+				URLEncoder.encode(file.getName(), StandardCharsets.UTF_8) + "\"");
+		response.setHeader("Vary", "Accept-Encoding");
+		if (encoding != ContentEncoding.IDENTITY) {
+			response.setHeader("Content-Encoding", encoding.getToken());
+		}
+
+		try (OutputStream responseOut = response.getOutputStream()) {
+			// 第一次请求时解析源文件生成缓存，之后不再解析坐标
+			KlarfColumnarFile columns = columnarCache.open(file.toPath());
+			long defects;
+			// 压缩流单独关闭：关闭时写出压缩尾部，响应流由外层关闭
+			try (OutputStream encoded = encoding.wrap(CloseShieldOutputStream.wrap(responseOut))) {
+				defects = KlarfWriter.rotate(file.toPath(), columns, rotateAngle, encoded);
+			}
+			log.info("KLARF旋转下载完成：{}，角度：{}，缺陷数：{}，编码：{}，耗时：{}ms",
+					filePath, rotateAngle, defects, encoding.getToken(), System.currentTimeMillis() - startTime);
+		} catch (Exception e) {
+			log.error("KLARF旋转下载失败：{}", filePath, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 压缩下载：优先返回已缓存的压缩变体，否则边读边压缩输出（热点文件同时落盘缓存）
+	 * @param digest 不为空时同步计算源文件摘要（供 identity 下载使用）
+	 */
+	private void downloadEncoded(File file, ContentEncoding encoding, HttpServletResponse response,
+			MessageDigest digest, boolean trailers) throws IOException {
+		File variant = compressedVariantCache.lookup(file, encoding);
+		if (variant != null) {
+			byte[] variantDigest = fileDigestCache.getIfPresent(variant);
+			if (variantDigest != null) {
+				digestFields(variantDigest).forEach(response::setHeader);
+			}
+			if (variantDigest != null || !offerDigestTrailer(response, trailers, () -> fileDigestCache.getIfPresent(variant))) {
+				response.setHeader("Content-Length", String.valueOf(variant.length()));
+			}
+			transfer(variant, 0, response, variantDigest == null ? FileDigestCache.newSha256() : null);
+			return;
+		}
+
+		// 压缩后字节的摘要：作为 trailer 发送，落盘的压缩变体同时缓存该摘要
+		CompressedVariantCache.Capture capture = compressedVariantCache.beginCapture(file, encoding);
+		AtomicReference<byte[]> encodedResult = new AtomicReference<>();
+		boolean trailer = offerDigestTrailer(response, trailers, encodedResult::get);
+		MessageDigest encodedDigest = trailer || capture != null ? FileDigestCache.newSha256() : null;
+		boolean complete = false;
+		try (OutputStream responseOut = response.getOutputStream();
+			 OutputStream captureOut = capture == null ? null
+					 : new BufferedOutputStream(new FileOutputStream(capture.getFile()), 64 * 1024);
+			 OutputStream target = captureOut == null ? CloseShieldOutputStream.wrap(responseOut)
+					 : new TeeOutputStream(CloseShieldOutputStream.wrap(responseOut), captureOut);
+			 FileInputStream in = new FileInputStream(file)) {
+
+			// 压缩流单独关闭：关闭时写出压缩尾部，之后才算完整写入
+			OutputStream digestTarget = encodedDigest == null ? target : new DigestOutputStream(target, encodedDigest);
+			try (OutputStream encoded = encoding.wrap(digestTarget)) {
+				byte[] buffer = new byte[64 * 1024];
+				int bytesRead;
+				while ((bytesRead = in.read(buffer)) != -1) {
+					if (digest != null) {
+						digest.update(buffer, 0, bytesRead);
+					}
+					encoded.write(buffer, 0, bytesRead);
+				}
+			}
+			complete = true;
+			if (encodedDigest != null) {
+				encodedResult.set(encodedDigest.digest());
+			}
+			if (digest != null) {
+				fileDigestCache.put(file, digest.digest());
+			}
+		} finally {
+			if (capture != null) {
+				File committed = compressedVariantCache.commit(capture, complete);
+				if (committed != null && encodedResult.get() != null) {
+					fileDigestCache.put(committed, encodedResult.get());
+				}
+			}
+		}
+	}
+
+	/**
+	 * 客户端接受 trailer 时，把摘要登记为响应结束后发送的 trailer（不能再设置 Content-Length）
+	 * @param digest 响应结束时取摘要，未完整输出时为null（不发送）
+	 * @return 是否已登记（协议不支持 trailer 时返回false）
+	 */
+	private boolean offerDigestTrailer(HttpServletResponse response, boolean trailers, Supplier<byte[]> digest) {
+		if (!trailers) {
+			return false;
+		}
+		try {
+			response.setTrailerFields(() -> {
+				byte[] value = digest.get();
+				return value == null ? Collections.emptyMap() : digestFields(value);
+			});
+		} catch (IllegalStateException e) {
+			// HTTP/1.0 等不支持 trailer 的协议
+			return false;
+		}
+		response.setHeader("Trailer", "Repr-Digest, Digest");
+		return true;
+	}
+
+	private static Map<String, String> digestFields(byte[] digest) {
+		String base64 = FileDigestCache.toBase64(digest);
+		return Map.of("Repr-Digest", "sha-256=:" + base64 + ":", "Digest", "SHA-256=" + base64);
+	}
+
+	/**
+	 * 使用NIO零拷贝方式输出文件（适配大文件）
+	 * @param digest 不为空时同步计算摘要，完整输出后写入摘要缓存
+	 */
+	private void transfer(File file, long rangeStart, HttpServletResponse response,
+			MessageDigest digest) throws IOException {
 		try (FileChannel inChannel = new FileInputStream(file).getChannel();
 			 WritableByteChannel outChannel = Channels.newChannel(response.getOutputStream())) {
 
 			// 缓冲区大小：64KB（适配磁盘块大小，避免频繁IO）
 			ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
-			long bytesWritten = 0;
 
 			// 定位到起始位置（断点续传）
 			if (rangeStart > 0 && rangeStart < file.length()) {
 				inChannel.position(rangeStart);
-				bytesWritten = rangeStart;
 			}
 
 			while (inChannel.read(buffer) != -1) {
 				buffer.flip();
-				bytesWritten += outChannel.write(buffer);
+				if (digest != null) {
+					digest.update(buffer.duplicate());
+				}
+				while (buffer.hasRemaining()) {
+					outChannel.write(buffer);
+				}
 				buffer.clear();
 			}
+			if (digest != null) {
+				fileDigestCache.put(file, digest.digest());
+			}
+		}
+	}
 
-			log.info("文件下载完成：{}，大小：{}KB，耗时：{}ms",
-					filePath, file.length()/1024, System.currentTimeMillis()-startTime);
-		} catch (Exception e) {
-			log.error("文件下载失败：{}", filePath, e);
-			throw e;
+	/**
+	 * 是否值得压缩：文本类扩展名且超过大小阈值
+	 */
+	private boolean isCompressible(File file) {
+		if (file.length() < COMPRESS_MIN_SIZE) {
+			return false;
 		}
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && COMPRESSIBLE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.example.demo;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 流式响应的错误处理：直接写 HttpServletResponse 的接口出错时，统一按是否已开始输出处理
+ */
+@Slf4j
+public final class StreamingResponses {
+
+	private StreamingResponses() {
+	}
+
+	/**
+	 * 响应未提交时清空已设置的头，返回 400 + 纯文本错误信息（"前缀：异常信息"）；
+	 * 已开始输出时无法再改状态码，重新抛出异常让容器中断连接，客户端收到不完整的响应
+	 * @param prefix 错误信息前缀，如"导出失败"
+	 */
+	public static void fail(HttpServletResponse response, String prefix, Exception e) {
+		if (response.isCommitted()) {
+			throw e instanceof IOException ? new UncheckedIOException((IOException) e) : new IllegalStateException(e);
+		}
+		response.reset();
+		response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+		response.setContentType("text/plain;charset=UTF-8");
+		try {
+			response.getWriter().write(prefix + "：" + e.getMessage());
+		} catch (Exception ex) {
+			log.error("写入错误响应失败", ex);
+		}
+	}
+}
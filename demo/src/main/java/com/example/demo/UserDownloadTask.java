@@ -1,7 +1,10 @@
 package com.example.demo;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -15,8 +18,12 @@ public class UserDownloadTask implements Serializable {
 	private String taskId;
 	// 用户ID
 	private String userId;
-	// 文件路径列表
+	// 文件路径列表（前缀压缩存储，不参与序列化输出，SSE/状态查询只返回统计信息）
+	@JsonIgnore
+	@JSONField(serialize = false)
 	private List<String> filePathList;
+	// 目录下载源（服务端惰性枚举）
+	private List<FileSourceSpec> fileSources;
 	// 是否单文件
 	private boolean isSingleFile;
 	// 总文件数
@@ -25,10 +32,16 @@ public class UserDownloadTask implements Serializable {
 	private int completedCount;
 	// 失败文件数
 	private int failedCount;
-	// 总字节数
-//	private long totalBytes;
+	// 总字节数（预检查阶段统计）
+	private long totalBytes;
 	// 已下载字节数
-//	private long downloadedBytes;
+	private long downloadedBytes;
+	// 预检查发现的缺失/不可读文件下标（下载时直接跳过，不参与序列化）
+	@JsonIgnore
+	@JSONField(serialize = false)
+	private BitSet invalidFileIndexes;
+	// 校验清单缺失（SHA256SUMS 创建或写入失败，文件照常复制）
+	private boolean manifestMissing;
 	// 下载进度（0-100）
 	private int stageProgress;
 	// 是否完成
@@ -47,6 +60,13 @@ public class UserDownloadTask implements Serializable {
 	// 任务创建时间
 	private long createTime = System.currentTimeMillis();
 
+	/**
+	 * 设置文件路径列表（转换为紧凑存储，大任务不再持有逐条String）
+	 */
+	public void setFilePathList(List<String> filePathList) {
+		this.filePathList = filePathList == null ? null : CompactPathList.copyOf(filePathList);
+	}
+
 	/**
 	 * 断点信息实体类
 	 */
@@ -63,7 +83,7 @@ public class UserDownloadTask implements Serializable {
 
 		public BreakpointInfo(UserDownloadTask task) {
 			this.taskId = task.getTaskId();
-//			this.downloadedBytes = task.getDownloadedBytes();
+			this.downloadedBytes = task.getDownloadedBytes();
 			this.completedCount = task.getCompletedCount();
 			this.failedCount = task.getFailedCount();
 			this.currentFileIndex = task.getCurrentFileIndex();
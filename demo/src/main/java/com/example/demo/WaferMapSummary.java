@@ -0,0 +1,54 @@
+package com.example.demo;
+
+import com.example.demo.klarf.DieKey;
+import com.example.demo.klarf.WaferMap;
+import lombok.Data;
+
+/**
+ * 晶圆图概要：Die统计 + 瓦片金字塔参数（前端据此请求瓦片）
+ */
+@Data
+public class WaferMapSummary {
+	private long defectCount;
+	private long outsideCount;
+	private int tileSize;
+	private int maxZoom;
+	/** 覆盖范围（μm） */
+	private double minX;
+	private double minY;
+	private double extent;
+	/** 各级单格最大缺陷数（配色用） */
+	private int[] maxBinCounts;
+	/** 有缺陷的Die（三个数组一一对应） */
+	private int[] dieXIndex;
+	private int[] dieYIndex;
+	private int[] dieDefectCount;
+
+	public static WaferMapSummary of(WaferMap map) {
+		WaferMapSummary summary = new WaferMapSummary();
+		summary.setDefectCount(map.getDefectCount());
+		summary.setOutsideCount(map.getOutsideCount());
+		summary.setTileSize(map.getTileSize());
+		summary.setMaxZoom(map.getMaxZoom());
+		summary.setMinX(map.getMinX());
+		summary.setMinY(map.getMinY());
+		summary.setExtent(map.getExtent());
+		int[] maxBinCounts = new int[map.getMaxZoom() + 1];
+		for (int zoom = 0; zoom < maxBinCounts.length; zoom++) {
+			maxBinCounts[zoom] = map.getMaxBinCount(zoom);
+		}
+		summary.setMaxBinCounts(maxBinCounts);
+
+		long[] keys = map.getDieKeys();
+		int[] xIndex = new int[keys.length];
+		int[] yIndex = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			xIndex[i] = DieKey.xIndex(keys[i]);
+			yIndex[i] = DieKey.yIndex(keys[i]);
+		}
+		summary.setDieXIndex(xIndex);
+		summary.setDieYIndex(yIndex);
+		summary.setDieDefectCount(map.getDieDefectCounts());
+		return summary;
+	}
+}
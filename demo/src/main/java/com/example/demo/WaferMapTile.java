@@ -0,0 +1,46 @@
+package com.example.demo;
+
+import com.example.demo.klarf.WaferMap;
+import lombok.Data;
+
+/**
+ * 晶圆图密度瓦片（稀疏格式：只返回非空格子，避免传输大量0）
+ */
+@Data
+public class WaferMapTile {
+	private int zoom;
+	private int x;
+	private int y;
+	private int size;
+	/** 本级单格最大缺陷数（配色用，与瓦片无关） */
+	private int maxBinCount;
+	/** 非空格子：[格子下标, 缺陷数, 格子下标, 缺陷数, ...]，格子下标 = 行 × size + 列 */
+	private int[] bins;
+
+	public static WaferMapTile of(WaferMap map, int zoom, int x, int y) {
+		int[] counts = map.getTile(zoom, x, y);
+		int nonEmpty = 0;
+		for (int count : counts) {
+			if (count != 0) {
+				nonEmpty++;
+			}
+		}
+		int[] bins = new int[nonEmpty * 2];
+		int j = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				bins[j++] = i;
+				bins[j++] = counts[i];
+			}
+		}
+
+		WaferMapTile tile = new WaferMapTile();
+		tile.setZoom(zoom);
+		tile.setX(x);
+		tile.setY(y);
+		tile.setSize(map.getTileSize());
+		tile.setMaxBinCount(map.getMaxBinCount(zoom));
+		tile.setBins(bins);
+		return tile;
+	}
+}
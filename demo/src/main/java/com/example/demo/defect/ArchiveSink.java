@@ -0,0 +1,50 @@
+package com.example.demo.defect;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 压缩包写入目标：按条目顺序写出，同一时刻只有一个打开的条目
+ */
+public interface ArchiveSink {
+
+	/**
+	 * 开始新条目
+	 * @return 条目内容的输出流（写完后调用 {@link #closeEntry()}，不要关闭该流）
+	 */
+	OutputStream putNextEntry(String name) throws IOException;
+
+	void closeEntry() throws IOException;
+
+	/**
+	 * 直接写入 zip（不关闭 zip）
+	 */
+	static ArchiveSink of(ZipOutputStream zip) {
+		OutputStream entryStream = new FilterOutputStream(zip) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() {
+				// 条目由 closeEntry 结束
+			}
+		};
+		return new ArchiveSink() {
+			@Override
+			public OutputStream putNextEntry(String name) throws IOException {
+				zip.putNextEntry(new ZipEntry(name));
+				return entryStream;
+			}
+
+			@Override
+			public void closeEntry() throws IOException {
+				zip.closeEntry();
+			}
+		};
+	}
+}
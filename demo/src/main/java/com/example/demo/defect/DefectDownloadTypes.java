@@ -8,6 +8,10 @@ public enum DefectDownloadTypes implements DownloadTypes {
 
 	);
 
+	public static final String TYPE_LIST = "list";
+	public static final String TYPE_FILE = "file";
+	public static final String TYPE_IMAGE = "image";
+
 	@Override
 	public String entityName() {
 		return DefectFile.class.getSimpleName();
@@ -15,6 +19,6 @@ public enum DefectDownloadTypes implements DownloadTypes {
 
 	@Override
 	public List<String> getDownloadTypes() {
-		return List.of("list","file","image");
+		return List.of(TYPE_LIST, TYPE_FILE, TYPE_IMAGE);
 	}
 }
@@ -0,0 +1,330 @@
+package com.example.demo.defect;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 导出流水线：多个生产者并行生成压缩包条目，由调用线程（唯一的写入者）顺序写入同一个 zip
+ * <p>
+ * 每个生产者有自己的有界队列，条目内容按块（chunkSize）入队。zip 条目不能交错，
+ * 所以条目在写完或积累满一个队列的数据后才通知写入者，写入者一次取走一个完整条目；
+ * 小条目不会让其他生产者等待，大条目边生成边写出。队列满时生产者阻塞（背压），
+ * 每个生产者占用的内存不超过 2 × chunkSize × queueChunks。
+ * 总耗时取决于最慢的生产者（以及写入者的压缩速度），而不是各生产者耗时之和。
+ * <p>
+ * 任一生产者失败或写入失败时，取消其余生产者并抛出异常；生产者的失败立即生效，
+ * 不必等写入者读到它的队列。
+ */
+public final class DefectExportPipeline {
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+	public static final int DEFAULT_QUEUE_CHUNKS = 16;
+	// 写入者等待数据时检查生产者失败的间隔
+	private static final long FAILURE_CHECK_MILLIS = 100;
+
+	/**
+	 * 生产者：向 sink 写入若干条目
+	 */
+	@FunctionalInterface
+	public interface Producer {
+		void produce(ArchiveSink sink) throws IOException;
+	}
+
+	private final ExecutorService executor;
+	private final int chunkSize;
+	private final int queueChunks;
+
+	public DefectExportPipeline(ExecutorService executor) {
+		this(executor, DEFAULT_CHUNK_SIZE, DEFAULT_QUEUE_CHUNKS);
+	}
+
+	/**
+	 * @param chunkSize   数据块字节数
+	 * @param queueChunks 每个生产者队列的块数
+	 */
+	public DefectExportPipeline(ExecutorService executor, int chunkSize, int queueChunks) {
+		if (chunkSize <= 0 || queueChunks <= 0) {
+			throw new IllegalArgumentException("数据块大小和队列长度必须大于0");
+		}
+		this.executor = executor;
+		this.chunkSize = chunkSize;
+		this.queueChunks = queueChunks;
+	}
+
+	/**
+	 * 并行运行生产者并写入 zip（阻塞到全部完成，不调用 zip.finish()）
+	 * @param producers 名称 → 生产者（名称用于错误信息）
+	 */
+	public void run(Map<String, Producer> producers, ZipOutputStream zip) throws IOException {
+		List<String> names = new ArrayList<>(producers.keySet());
+		// 已有条目可写（或已结束）的生产者序号，与各队列中的条目开始/结束标记一一对应
+		BlockingQueue<Integer> ready = new LinkedBlockingQueue<>();
+		List<BlockingQueue<Chunk>> queues = new ArrayList<>(names.size());
+		List<Future<?>> futures = new ArrayList<>(names.size());
+		// 最先失败的生产者的异常
+		AtomicReference<Chunk> failure = new AtomicReference<>();
+		boolean completed = false;
+		try {
+			for (int i = 0; i < names.size(); i++) {
+				QueueSink sink = new QueueSink(i, new ArrayBlockingQueue<>(queueChunks), ready, failure);
+				queues.add(sink.queue);
+				Producer producer = producers.get(names.get(i));
+				futures.add(executor.submit(() -> {
+					try {
+						producer.produce(sink);
+						sink.finish(null);
+					} catch (Throwable e) {
+						sink.finish(e);
+					}
+					return null;
+				}));
+			}
+
+			int remaining = names.size();
+			while (remaining > 0) {
+				int index = take(ready, failure, names);
+				BlockingQueue<Chunk> queue = queues.get(index);
+				Chunk chunk = take(queue, failure, names);
+				if (chunk.kind == Chunk.DONE) {
+					remaining--;
+					continue;
+				}
+				zip.putNextEntry(new ZipEntry(chunk.name));
+				for (chunk = take(queue, failure, names); chunk.kind != Chunk.END; chunk = take(queue, failure, names)) {
+					zip.write(chunk.data, 0, chunk.length);
+				}
+				zip.closeEntry();
+			}
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("导出被中断");
+		} finally {
+			if (!completed) {
+				futures.forEach(future -> future.cancel(true));
+			}
+		}
+	}
+
+	/**
+	 * 从队列取下一个元素；等待期间或取到之前有生产者失败时抛出它的异常
+	 */
+	private static <T> T take(BlockingQueue<T> queue, AtomicReference<Chunk> failure, List<String> names)
+			throws IOException, InterruptedException {
+		while (true) {
+			Chunk failed = failure.get();
+			if (failed != null) {
+				throwFailure(failed, names);
+			}
+			T element = queue.poll(FAILURE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+			if (element != null) {
+				return element;
+			}
+		}
+	}
+
+	private static void throwFailure(Chunk chunk, List<String> names) throws IOException {
+		Throwable cause = chunk.error;
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new IOException("导出失败：" + names.get(chunk.length), cause);
+	}
+
+	/**
+	 * 队列元素：条目开始、数据块、条目结束、生产者结束（失败单独记录，不入队，其 length 为生产者序号）
+	 */
+	private static final class Chunk {
+		static final int START = 0;
+		static final int DATA = 1;
+		static final int END = 2;
+		static final int DONE = 3;
+		static final int ERROR = 4;
+		static final Chunk END_CHUNK = new Chunk(END, null, null, 0, null);
+		static final Chunk DONE_CHUNK = new Chunk(DONE, null, null, 0, null);
+
+		final int kind;
+		final String name;
+		final byte[] data;
+		final int length;
+		final Throwable error;
+
+		Chunk(int kind, String name, byte[] data, int length, Throwable error) {
+			this.kind = kind;
+			this.name = name;
+			this.data = data;
+			this.length = length;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * 单个生产者的 sink：条目通知写入者之前先暂存在本地，之后直接进入有界队列
+	 */
+	private final class QueueSink extends OutputStream implements ArchiveSink {
+		final int index;
+		final BlockingQueue<Chunk> queue;
+		final BlockingQueue<Integer> ready;
+		final AtomicReference<Chunk> failure;
+		final List<Chunk> pending = new ArrayList<>();
+		long pendingBytes;
+		boolean announced;
+		boolean inEntry;
+		byte[] buffer;
+		int count;
+
+		QueueSink(int index, BlockingQueue<Chunk> queue, BlockingQueue<Integer> ready, AtomicReference<Chunk> failure) {
+			this.index = index;
+			this.queue = queue;
+			this.ready = ready;
+			this.failure = failure;
+		}
+
+		@Override
+		public OutputStream putNextEntry(String name) {
+			if (inEntry) {
+				throw new IllegalStateException("上一个条目未结束：" + name);
+			}
+			inEntry = true;
+			announced = false;
+			pendingBytes = 0;
+			pending.add(new Chunk(Chunk.START, name, null, 0, null));
+			return this;
+		}
+
+		@Override
+		public void closeEntry() throws IOException {
+			if (!inEntry) {
+				throw new IllegalStateException("没有打开的条目");
+			}
+			flushBuffer();
+			emit(Chunk.END_CHUNK);
+			if (!announced) {
+				announce();
+			}
+			inEntry = false;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!inEntry) {
+				throw new IllegalStateException("没有打开的条目");
+			}
+			if (buffer == null) {
+				buffer = new byte[chunkSize];
+			}
+			buffer[count++] = (byte) b;
+			if (count == buffer.length) {
+				flushBuffer();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (!inEntry) {
+				throw new IllegalStateException("没有打开的条目");
+			}
+			while (len > 0) {
+				if (buffer == null) {
+					buffer = new byte[chunkSize];
+				}
+				int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+				if (count == buffer.length) {
+					flushBuffer();
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			// 条目由 closeEntry 结束
+		}
+
+		/**
+		 * 生产者结束：未写完的条目丢弃；失败时写入者立即收到异常
+		 */
+		void finish(Throwable error) {
+			if (error == null && inEntry) {
+				error = new IllegalStateException("条目未结束");
+			}
+			pending.clear();
+			if (error != null) {
+				failure.compareAndSet(null, new Chunk(Chunk.ERROR, null, null, index, error));
+				return;
+			}
+			try {
+				ready.put(index);
+				queue.put(Chunk.DONE_CHUNK);
+			} catch (InterruptedException e) {
+				// 已被取消，写入者不再读取
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void flushBuffer() throws IOException {
+			if (count > 0) {
+				// 块交给写入者后不再修改，下次写入分配新块
+				emit(new Chunk(Chunk.DATA, null, buffer, count, null));
+				buffer = null;
+				count = 0;
+			}
+		}
+
+		private void emit(Chunk chunk) throws IOException {
+			if (announced) {
+				put(chunk);
+				return;
+			}
+			pending.add(chunk);
+			pendingBytes += chunk.length;
+			if (pendingBytes >= (long) chunkSize * queueChunks) {
+				announce();
+			}
+		}
+
+		private void announce() throws IOException {
+			announced = true;
+			try {
+				ready.put(index);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("导出已取消");
+			}
+			for (Chunk chunk : pending) {
+				put(chunk);
+			}
+			pending.clear();
+		}
+
+		private void put(Chunk chunk) throws IOException {
+			try {
+				queue.put(chunk);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("导出已取消");
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffSample;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 缺陷导出的一种下载类型（策略）：把请求的缺陷写成压缩包中的若干条目
+ * <p>
+ * 各类型由 {@link DefectExportPipeline} 并行运行，条目名以各自的目录开头，互不重复。
+ */
+public interface DefectExportProducer {
+
+	/**
+	 * 下载类型（{@link DefectDownloadTypes#getDownloadTypes()} 中的取值）
+	 */
+	String getType();
+
+	/**
+	 * @param defectIds 请求的缺陷ID
+	 * @param located   解析出的缺陷文件（所有类型共用一次批量解析）
+	 */
+	void produce(List<Long> defectIds, List<TiffSample> located, ArchiveSink sink) throws IOException;
+}
@@ -1,4 +1,36 @@
 package com.example.demo.defect;
 
-public class DefectFile implements FileResource{
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 缺陷文件：缺陷图像所在的TIFF及帧号（同一缺陷的图像在多个文件中时有多个）
+ */
+public class DefectFile implements FileResource {
+	private final TiffSample sample;
+
+	public DefectFile(TiffSample sample) {
+		this.sample = sample;
+	}
+
+	@Override
+	public long getEntityId() {
+		return sample.getId();
+	}
+
+	@Override
+	public Path getPath() {
+		return sample.getTifPath();
+	}
+
+	public List<TiffImage> getImages() {
+		return sample.getImages();
+	}
+
+	public TiffSample getSample() {
+		return sample;
+	}
 }
@@ -0,0 +1,58 @@
+package com.example.demo.defect;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缺陷文件解析：基于索引文件（defect.image.index，格式见 {@link DefectImageIndex}）
+ * <p>
+ * 只在配置了索引文件时启用；缺陷数据在数据库等其他位置时，另外实现 {@link FileResourceResolver} 替代。
+ * 索引整表加载到内存，一批ID只做一次内存查询；文件变化（大小或修改时间）后重新加载。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "defect.image.index")
+public class DefectFileResolver implements FileResourceResolver<DefectFile> {
+
+	@Value("${defect.image.index}")
+	private String imageIndexPath;
+
+	// 索引文件及其版本（大小 + 修改时间）
+	private DefectImageIndex imageIndex;
+	private String imageIndexVersion;
+
+	@Override
+	public String entityName() {
+		return DefectDownloadTypes.DEFECT_FILE.entityName();
+	}
+
+	@Override
+	public Map<Long, List<DefectFile>> resolve(Set<Long> entityIds) throws IOException {
+		return index().resolve(entityIds);
+	}
+
+	private DefectImageIndex index() throws IOException {
+		File file = new File(imageIndexPath);
+		if (!file.isFile()) {
+			throw new FileNotFoundException("缺陷图像索引不存在：" + imageIndexPath);
+		}
+		String version = file.length() + "|" + file.lastModified();
+		synchronized (this) {
+			if (imageIndex == null || !version.equals(imageIndexVersion)) {
+				imageIndex = DefectImageIndex.load(file.toPath());
+				imageIndexVersion = version;
+				log.info("加载缺陷图像索引：{}，缺陷 {} 个，跳过 {} 行", imageIndexPath, imageIndex.size(), imageIndex.getSkippedLines());
+			}
+			return imageIndex;
+		}
+	}
+}
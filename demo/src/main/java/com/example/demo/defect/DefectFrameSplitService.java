@@ -0,0 +1,86 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffFrameExtractor;
+import com.example.demo.tiff.TiffSample;
+import com.example.demo.tiff.TiffSplitResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缺陷图像拆分服务：把缺陷所在的多页TIFF按缺陷拆成批文件（{@link TiffFrameExtractor}，帧按字节区间复制，不解码）
+ * <p>
+ * 输出目录、每批缺陷数、并行文件数和元数据内存预算由 defect.image.split.* 配置；拆分线程池随应用关闭。
+ * 每次拆分写到输出目录下独占的子目录，调用方用完结果后关闭（删除批文件）；启动时清理上次运行遗留的子目录。
+ */
+@Slf4j
+@Service
+public class DefectFrameSplitService {
+
+	@Value("${defect.image.split.dir:/tmp/download/defect-frames}")
+	private String outputDirectory;
+
+	@Value("${defect.image.split.samples-per-batch:" + TiffFrameExtractor.DEFAULT_SAMPLES_PER_BATCH + "}")
+	private int samplesPerBatch;
+
+	@Value("${defect.image.split.parallelism:4}")
+	private int parallelism;
+
+	// 同时处理的文件占用的IFD元数据上限（MB）
+	@Value("${defect.image.split.memory-budget-mb:64}")
+	private long memoryBudgetMb;
+
+	@Autowired
+	private FileResourceRegistry resourceRegistry;
+
+	private TiffFrameExtractor extractor;
+
+	@PostConstruct
+	public void init() {
+		extractor = new TiffFrameExtractor(Paths.get(outputDirectory), samplesPerBatch, parallelism,
+				memoryBudgetMb * 1024 * 1024);
+		log.info("缺陷图像拆分：输出目录 {}，每批 {} 个缺陷，并行 {} 个文件，内存预算 {}MB",
+				outputDirectory, samplesPerBatch, parallelism, memoryBudgetMb);
+		try {
+			int stale = extractor.deleteStaleResults();
+			if (stale > 0) {
+				log.info("清理遗留的缺陷图像拆分目录 {} 个", stale);
+			}
+		} catch (IOException e) {
+			log.warn("清理遗留的缺陷图像拆分目录失败：{}", outputDirectory, e);
+		}
+	}
+
+	/**
+	 * 按缺陷ID拆分（阻塞到全部文件处理完）
+	 * @return 拆分结果（调用方用完后关闭）：样本的 tifPath 为所在批文件，帧号为批文件内的帧号；未找到图像的缺陷不返回
+	 */
+	public TiffSplitResult split(Collection<Long> defectIds) throws IOException {
+		long startTime = System.currentTimeMillis();
+		Map<Long, List<DefectFile>> resolved = resourceRegistry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class,
+				defectIds);
+		List<TiffSample> samples = new ArrayList<>();
+		resolved.values().forEach(files -> files.forEach(file -> samples.add(file.getSample())));
+		TiffSplitResult result = extractor.split(samples);
+		log.info("缺陷图像拆分完成：缺陷 {} 个，样本 {} 条，输出目录 {}，耗时 {} ms", defectIds.size(),
+				result.getSamples().size(), result.getDirectory(), System.currentTimeMillis() - startTime);
+		return result;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (extractor != null) {
+			extractor.close();
+		}
+	}
+}
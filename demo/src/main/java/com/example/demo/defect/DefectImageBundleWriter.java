@@ -0,0 +1,154 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffFile;
+import com.example.demo.tiff.TiffFrameWriter;
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffReadWindow;
+import com.example.demo.tiff.TiffSample;
+import com.example.demo.util.CsvFields;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缺陷图像打包：把定位到的帧直接从源TIFF复制到压缩包，每个缺陷一个多页TIFF（images/&lt;缺陷ID&gt;.tif），
+ * 不生成中间文件，也不解码像素。
+ * <p>
+ * 缺陷按源文件分组、组内按帧号排序后依次写出，每个源文件只打开一次；
+ * 同一文件中相邻的帧经由 {@link TiffReadWindow} 一次读入，多个缺陷共享同一次读取。
+ * 压缩包中另附 images/manifest.csv（缺陷、条目、页号、图像类型、源文件、源帧号），
+ * 未找到图像或源文件不可读的缺陷列在 images/missing.txt 中。
+ */
+@Slf4j
+public class DefectImageBundleWriter {
+	public static final String DIRECTORY = "images/";
+	public static final String MANIFEST_NAME = DIRECTORY + "manifest.csv";
+	public static final String MISSING_NAME = DIRECTORY + "missing.txt";
+
+	private final int windowSize;
+
+	public DefectImageBundleWriter() {
+		this(TiffReadWindow.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param windowSize 合并读取窗口大小（字节）
+	 */
+	public DefectImageBundleWriter(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * 写入压缩包
+	 * @param defectIds 请求的缺陷ID
+	 * @param located   解析出的缺陷文件（见 {@link DefectFile#getSample()}）
+	 * @return 写入的图像文件数
+	 */
+	public int write(List<Long> defectIds, List<TiffSample> located, ArchiveSink sink) throws IOException {
+		Map<Long, String> missing = new LinkedHashMap<>();
+		Set<Long> found = new HashSet<>();
+		for (TiffSample sample : located) {
+			found.add(sample.getId());
+		}
+		for (Long id : new LinkedHashSet<>(defectIds)) {
+			if (!found.contains(id)) {
+				missing.put(id, "未找到图像");
+			}
+		}
+
+		// 按源文件分组，组内按首帧号排序，读取顺序与帧在文件中的顺序一致
+		Map<Path, List<TiffSample>> bySource = new LinkedHashMap<>();
+		for (TiffSample sample : located) {
+			if (!sample.getImages().isEmpty()) {
+				bySource.computeIfAbsent(sample.getTifPath(), key -> new ArrayList<>()).add(sample);
+			} else {
+				missing.putIfAbsent(sample.getId(), "未找到图像");
+			}
+		}
+		Comparator<TiffSample> byFirstFrame = Comparator.comparingInt(
+				sample -> sample.getImages().stream().mapToInt(TiffImage::getNo).min().orElse(0));
+
+		StringBuilder manifest = new StringBuilder("defect_id,entry,page,image_type,source,source_frame\n");
+		Set<String> entryNames = new HashSet<>();
+		TiffReadWindow window = new TiffReadWindow(windowSize);
+		int entries = 0;
+		for (Map.Entry<Path, List<TiffSample>> group : bySource.entrySet()) {
+			List<TiffSample> samples = group.getValue();
+			samples.sort(byFirstFrame);
+			TiffFile tiff;
+			try {
+				tiff = TiffFile.open(group.getKey());
+			} catch (IOException e) {
+				log.warn("缺陷图像文件不可读：{}，{}", group.getKey(), e.getMessage());
+				for (TiffSample sample : samples) {
+					missing.putIfAbsent(sample.getId(), "图像文件不可读：" + group.getKey());
+				}
+				continue;
+			}
+			try (TiffFile source = tiff) {
+				for (TiffSample sample : samples) {
+					List<TiffImage> images = new ArrayList<>(sample.getImages().size());
+					for (TiffImage image : sample.getImages()) {
+						if (image.getNo() >= 0 && image.getNo() < source.getPageCount()) {
+							images.add(image);
+						}
+					}
+					if (images.isEmpty()) {
+						missing.putIfAbsent(sample.getId(), "帧号超出图像文件页数：" + group.getKey());
+						continue;
+					}
+					int[] pages = images.stream().mapToInt(TiffImage::getNo).toArray();
+					String name = entryName(sample.getId(), entryNames);
+					WritableByteChannel channel = Channels.newChannel(sink.putNextEntry(name));
+					new TiffFrameWriter(source, pages).writeTo(channel, window);
+					sink.closeEntry();
+					entries++;
+					for (int page = 0; page < images.size(); page++) {
+						manifest.append(sample.getId()).append(',').append(name).append(',').append(page).append(',')
+								.append(images.get(page).getType()).append(',').append(CsvFields.escape(group.getKey().toString()))
+								.append(',').append(images.get(page).getNo()).append('\n');
+					}
+				}
+			}
+		}
+		writeText(sink, MANIFEST_NAME, manifest.toString());
+		if (!missing.isEmpty()) {
+			StringBuilder text = new StringBuilder();
+			missing.forEach((id, reason) -> text.append(id).append('\t').append(reason).append('\n'));
+			writeText(sink, MISSING_NAME, text.toString());
+		}
+		log.info("缺陷图像打包完成：请求 {} 个缺陷，图像文件 {} 个，缺失 {} 个，源文件读取 {} 次",
+				defectIds.size(), entries, missing.size(), window.getReadCount());
+		return entries;
+	}
+
+	/**
+	 * 条目名：images/&lt;缺陷ID&gt;.tif，同一缺陷有多个源文件时追加序号
+	 */
+	private static String entryName(long defectId, Set<String> used) {
+		String name = DIRECTORY + defectId + ".tif";
+		for (int n = 1; !used.add(name); n++) {
+			name = DIRECTORY + defectId + "_" + n + ".tif";
+		}
+		return name;
+	}
+
+	private static void writeText(ArchiveSink sink, String name, String text) throws IOException {
+		OutputStream out = sink.putNextEntry(name);
+		out.write(text.getBytes(StandardCharsets.UTF_8));
+		sink.closeEntry();
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缺陷图像索引文件（整表加载到内存，见 {@link DefectFileResolver}）
+ * <p>
+ * 索引文件每行：&lt;缺陷ID&gt; &lt;TIFF路径&gt; &lt;帧号&gt;:&lt;图像类型&gt;[,&lt;帧号&gt;:&lt;图像类型&gt;...]，空白分隔，
+ * 帧号从0开始；空行和 # 开头的行忽略，格式不对的行跳过并计数。同一缺陷可以有多行（图像在多个文件中）。
+ */
+public class DefectImageIndex {
+	private final Map<Long, List<DefectFile>> files;
+	private final int skippedLines;
+
+	private DefectImageIndex(Map<Long, List<DefectFile>> files, int skippedLines) {
+		this.files = files;
+		this.skippedLines = skippedLines;
+	}
+
+	public static DefectImageIndex load(Path file) throws IOException {
+		Map<Long, List<DefectFile>> files = new HashMap<>();
+		int skipped = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+					continue;
+				}
+				TiffSample sample = parseLine(trimmed);
+				if (sample == null) {
+					skipped++;
+					continue;
+				}
+				files.computeIfAbsent(sample.getId(), id -> new ArrayList<>(1)).add(new DefectFile(sample));
+			}
+		}
+		return new DefectImageIndex(files, skipped);
+	}
+
+	/**
+	 * 批量查询
+	 * @return 缺陷ID → 文件（按请求顺序）；未找到的ID不返回
+	 */
+	public Map<Long, List<DefectFile>> resolve(Collection<Long> defectIds) {
+		Map<Long, List<DefectFile>> result = new LinkedHashMap<>();
+		for (Long id : defectIds) {
+			List<DefectFile> found = files.get(id);
+			if (found != null) {
+				result.put(id, found);
+			}
+		}
+		return result;
+	}
+
+	public int size() {
+		return files.size();
+	}
+
+	/**
+	 * 加载时跳过的格式错误行数
+	 */
+	public int getSkippedLines() {
+		return skippedLines;
+	}
+
+	private static TiffSample parseLine(String line) {
+		String[] columns = line.split("\\s+");
+		if (columns.length != 3) {
+			return null;
+		}
+		try {
+			long id = Long.parseLong(columns[0]);
+			List<TiffImage> images = new ArrayList<>();
+			for (String image : columns[2].split(",")) {
+				int colon = image.indexOf(':');
+				if (colon < 0) {
+					return null;
+				}
+				int no = Integer.parseInt(image.substring(0, colon));
+				if (no < 0) {
+					return null;
+				}
+				images.add(new TiffImage(no, Integer.parseInt(image.substring(colon + 1))));
+			}
+			return new TiffSample(id, Paths.get(columns[1]), images);
+		} catch (RuntimeException e) {
+			// 数值或路径非法
+			return null;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffSample;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 缺陷图像（image）：每个缺陷一个多页TIFF，见 {@link DefectImageBundleWriter}
+ */
+@Component
+public class DefectImageProducer implements DefectExportProducer {
+	private final DefectImageBundleWriter bundleWriter = new DefectImageBundleWriter();
+
+	@Override
+	public String getType() {
+		return DefectDownloadTypes.TYPE_IMAGE;
+	}
+
+	@Override
+	public void produce(List<Long> defectIds, List<TiffSample> located, ArchiveSink sink) throws IOException {
+		bundleWriter.write(defectIds, located, sink);
+	}
+}
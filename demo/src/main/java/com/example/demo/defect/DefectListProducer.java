@@ -0,0 +1,57 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+import com.example.demo.util.CsvFields;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缺陷清单（list）：list/defects.csv，按请求顺序每个缺陷图像一行，未找到的缺陷也占一行（found=0）
+ */
+@Component
+public class DefectListProducer implements DefectExportProducer {
+	public static final String ENTRY_NAME = "list/defects.csv";
+	private static final String HEADER = "defect_id,found,source,frame,image_type\n";
+
+	@Override
+	public String getType() {
+		return DefectDownloadTypes.TYPE_LIST;
+	}
+
+	@Override
+	public void produce(List<Long> defectIds, List<TiffSample> located, ArchiveSink sink) throws IOException {
+		Map<Long, List<TiffSample>> byId = new LinkedHashMap<>();
+		for (TiffSample sample : located) {
+			byId.computeIfAbsent(sample.getId(), id -> new ArrayList<>(1)).add(sample);
+		}
+		// 不关闭 writer：条目由 sink 结束
+		Writer writer = new BufferedWriter(new OutputStreamWriter(sink.putNextEntry(ENTRY_NAME), StandardCharsets.UTF_8));
+		writer.write(HEADER);
+		for (Long id : new LinkedHashSet<>(defectIds)) {
+			List<TiffSample> samples = byId.get(id);
+			if (samples == null) {
+				writer.write(id + ",0,,,\n");
+				continue;
+			}
+			for (TiffSample sample : samples) {
+				String source = CsvFields.escape(sample.getTifPath().toString());
+				for (TiffImage image : sample.getImages()) {
+					writer.write(id + ",1," + source + "," + image.getNo() + "," + image.getType() + "\n");
+				}
+			}
+		}
+		writer.flush();
+		sink.closeEntry();
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffSample;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 缺陷源文件（file）：缺陷所在的源TIFF原样放入 files/，每个文件只放一次；
+ * 不存在或不可读的文件列在 files/missing.txt 中
+ */
+@Component
+public class DefectSourceFileProducer implements DefectExportProducer {
+	public static final String DIRECTORY = "files/";
+	public static final String MISSING_NAME = DIRECTORY + "missing.txt";
+
+	@Override
+	public String getType() {
+		return DefectDownloadTypes.TYPE_FILE;
+	}
+
+	@Override
+	public void produce(List<Long> defectIds, List<TiffSample> located, ArchiveSink sink) throws IOException {
+		Set<Path> sources = new LinkedHashSet<>();
+		for (TiffSample sample : located) {
+			sources.add(sample.getTifPath());
+		}
+		Set<String> entryNames = new HashSet<>();
+		StringBuilder missing = new StringBuilder();
+		for (Path source : sources) {
+			if (!Files.isRegularFile(source) || !Files.isReadable(source)) {
+				missing.append(source).append('\t').append("文件不存在或不可读").append('\n');
+				continue;
+			}
+			OutputStream out = sink.putNextEntry(entryName(source, entryNames));
+			Files.copy(source, out);
+			sink.closeEntry();
+		}
+		if (missing.length() > 0) {
+			sink.putNextEntry(MISSING_NAME).write(missing.toString().getBytes(StandardCharsets.UTF_8));
+			sink.closeEntry();
+		}
+	}
+
+	/**
+	 * 条目名：files/&lt;文件名&gt;，不同目录下的同名文件在扩展名前追加序号
+	 */
+	private static String entryName(Path source, Set<String> used) {
+		String fileName = source.getFileName().toString();
+		int dot = fileName.lastIndexOf('.');
+		String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+		String extension = dot > 0 ? fileName.substring(dot) : "";
+		String name = DIRECTORY + fileName;
+		for (int n = 1; !used.add(name); n++) {
+			name = DIRECTORY + base + "_" + n + extension;
+		}
+		return name;
+	}
+}
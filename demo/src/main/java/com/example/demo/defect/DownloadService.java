@@ -1,11 +1,128 @@
 package com.example.demo.defect;
 
+import com.example.demo.tiff.TiffSample;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipOutputStream;
 
+/**
+ * 实体文件导出服务：按请求的下载类型把实体相关文件写入一个压缩包（流式输出，不生成中间文件）
+ * <p>
+ * 缺陷ID经 {@link FileResourceRegistry} 批量解析一次，各下载类型（{@link DefectExportProducer}）并行生成条目，
+ * 经 {@link DefectExportPipeline} 写入同一个 zip，多类型导出的耗时取决于最慢的类型。
+ */
+@Slf4j
+@Service
 public class DownloadService {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	@Autowired
+	private FileResourceRegistry resourceRegistry;
+
+	@Autowired
+	private List<DefectExportProducer> producers;
+
+	// 生产者多为阻塞IO，单独线程池，不占用请求线程
+	private final ExecutorService exportExecutor = Executors.newFixedThreadPool(
+			Math.max(4, Math.min(16, Runtime.getRuntime().availableProcessors() * 2)),
+			new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger(1);
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "defect-export-" + count.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final DefectExportPipeline pipeline = new DefectExportPipeline(exportExecutor);
+
+	/**
+	 * 校验导出请求（实体、下载类型、实体ID），不合法时抛 IllegalArgumentException
+	 * @return 压缩包文件名（由服务端决定，不使用请求中的原始字符串）
+	 */
+	public String validate(DownloadVo downloadVo) {
+		select(downloadVo);
+		return DefectDownloadTypes.DEFECT_FILE.entityName() + ".zip";
+	}
+
+	/**
+	 * 导出为 zip 写到 out（不关闭 out）
+	 */
+	public void download(DownloadVo downloadVo, OutputStream out) throws IOException {
+		Map<String, DefectExportProducer> selected = select(downloadVo);
+		List<Long> entityIds = downloadVo.getEntityIds();
 
-	public void download(DownloadVo downloadVo) {
+		long startTime = System.currentTimeMillis();
+		Map<Long, List<DefectFile>> resolved = resourceRegistry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class,
+				entityIds);
+		List<TiffSample> located = new ArrayList<>(resolved.size());
+		resolved.values().forEach(files -> files.forEach(file -> located.add(file.getSample())));
+		long resolveTime = System.currentTimeMillis() - startTime;
+		Map<String, DefectExportPipeline.Producer> tasks = new LinkedHashMap<>();
+		selected.forEach((type, producer) -> tasks.put(type, sink -> producer.produce(entityIds, located, sink)));
+
+		ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		// 图像多为已压缩的TIFF，用最快的压缩级别
+		zip.setLevel(Deflater.BEST_SPEED);
+		pipeline.run(tasks, zip);
+		// finish 而不是 close：out 由调用方关闭
+		zip.finish();
+		zip.flush();
+		log.info("缺陷导出完成：类型 {}，{} 个缺陷，解析到 {} 条，解析耗时 {} ms，总耗时 {} ms",
+				selected.keySet(), entityIds.size(), located.size(), resolveTime, System.currentTimeMillis() - startTime);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		exportExecutor.shutdownNow();
+	}
+
+	/**
+	 * 校验请求并按请求顺序选出各下载类型的生产者（重复类型只导出一次）
+	 */
+	private Map<String, DefectExportProducer> select(DownloadVo downloadVo) {
 		String entityName = downloadVo.getEntityName();
 		List<String> downloadTypes = downloadVo.getDownloadTypes();
+		if (!DefectDownloadTypes.DEFECT_FILE.entityName().equals(entityName)) {
+			throw new IllegalArgumentException("不支持的实体：" + entityName);
+		}
+		if (CollectionUtils.isEmpty(downloadTypes) || CollectionUtils.isEmpty(downloadVo.getEntityIds())) {
+			throw new IllegalArgumentException("下载类型和实体ID不能为空");
+		}
+		Map<String, DefectExportProducer> selected = new LinkedHashMap<>();
+		for (String type : new LinkedHashSet<>(downloadTypes)) {
+			if (!DefectDownloadTypes.DEFECT_FILE.getDownloadTypes().contains(type)) {
+				throw new IllegalArgumentException("不支持的下载类型：" + type);
+			}
+			selected.put(type, producer(type));
+		}
+		return selected;
+	}
+
+	private DefectExportProducer producer(String type) {
+		for (DefectExportProducer producer : producers) {
+			if (producer.getType().equals(type)) {
+				return producer;
+			}
+		}
+		throw new IllegalArgumentException("暂不支持的下载类型：" + type);
 	}
 }
@@ -8,5 +8,7 @@ import lombok.Data;
 public class DownloadVo {
 	private String entityName;
 	private List<String> downloadTypes;
+	// 下载的实体ID（如缺陷ID）
+	private List<Long> entityIds;
 
 }
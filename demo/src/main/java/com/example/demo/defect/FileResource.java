@@ -1,4 +1,19 @@
 package com.example.demo.defect;
 
+import java.nio.file.Path;
+
+/**
+ * 实体对应的文件（由 {@link FileResourceResolver} 按实体ID批量解析得到）
+ */
 public interface FileResource {
+
+	/**
+	 * 所属实体ID
+	 */
+	long getEntityId();
+
+	/**
+	 * 文件位置
+	 */
+	Path getPath();
 }
@@ -0,0 +1,158 @@
+package com.example.demo.defect;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体文件解析注册表：按实体名找到 {@link FileResourceResolver}，把实体ID分批解析为文件
+ * <p>
+ * 解析结果按 实体名+ID 缓存一小段时间（写入后 {@link #DEFAULT_TTL_SECONDS} 秒过期），
+ * 同一批缺陷的多次导出、多种下载类型不重复查询；未找到的ID不缓存。
+ * 文件位置变化后最多要等缓存过期才生效。
+ */
+@Slf4j
+@Component
+public class FileResourceRegistry {
+	// 单次查询的实体数（限制 IN 子句/单次扫描的规模）
+	public static final int DEFAULT_BATCH_SIZE = 10_000;
+	public static final long DEFAULT_TTL_SECONDS = 60;
+	// 每个实体缓存的ID数，每条约200字节
+	private static final long MAX_CACHED_IDS = 200_000;
+
+	@Autowired(required = false)
+	private List<FileResourceResolver<?>> resolverList;
+
+	private final int batchSize;
+	private final long ttlNanos;
+	private final Ticker ticker;
+	private final Map<String, FileResourceResolver<?>> resolvers = new ConcurrentHashMap<>();
+	private final Map<String, Cache<Long, List<FileResource>>> caches = new ConcurrentHashMap<>();
+
+	public FileResourceRegistry() {
+		this(DEFAULT_BATCH_SIZE, TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS), Ticker.systemTicker());
+	}
+
+	FileResourceRegistry(int batchSize, long ttlNanos, Ticker ticker) {
+		if (batchSize <= 0 || ttlNanos <= 0) {
+			throw new IllegalArgumentException("批大小和缓存时间必须大于0");
+		}
+		this.batchSize = batchSize;
+		this.ttlNanos = ttlNanos;
+		this.ticker = ticker;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (resolverList != null) {
+			resolverList.forEach(this::register);
+		}
+		log.info("实体文件解析器：{}", resolvers.keySet());
+	}
+
+	/**
+	 * 注册解析器（同一实体只能有一个）
+	 */
+	public synchronized void register(FileResourceResolver<?> resolver) {
+		String entityName = resolver.entityName();
+		if (resolvers.containsKey(entityName)) {
+			throw new IllegalStateException("实体文件解析器重复：" + entityName + "，" + resolvers.get(entityName).getClass().getName()
+					+ "，" + resolver.getClass().getName());
+		}
+		caches.put(entityName, CacheBuilder.newBuilder()
+				.maximumSize(MAX_CACHED_IDS)
+				.expireAfterWrite(ttlNanos, TimeUnit.NANOSECONDS)
+				.ticker(ticker)
+				.build());
+		resolvers.put(entityName, resolver);
+	}
+
+	/**
+	 * 批量解析实体文件：先查缓存，未命中的ID每 batchSize 个调用一次解析器
+	 * @param resourceType 文件类型（解析器返回其他类型时报错）
+	 * @return 实体ID → 文件，按请求ID的顺序（重复ID只出现一次）；未找到的ID不返回
+	 */
+	public <R extends FileResource> Map<Long, List<R>> resolve(DownloadTypes types, Class<R> resourceType,
+			Collection<Long> entityIds) throws IOException {
+		String entityName = types.entityName();
+		FileResourceResolver<?> resolver = resolvers.get(entityName);
+		if (resolver == null) {
+			throw new IllegalArgumentException("未注册实体文件解析器：" + entityName);
+		}
+		Cache<Long, List<FileResource>> cache = caches.get(entityName);
+
+		long startTime = System.currentTimeMillis();
+		Set<Long> ids = new LinkedHashSet<>(entityIds);
+		Map<Long, List<FileResource>> found = new HashMap<>(cache.getAllPresent(ids));
+		int cached = found.size();
+		List<Long> misses = new ArrayList<>(ids.size() - cached);
+		for (Long id : ids) {
+			if (!found.containsKey(id)) {
+				misses.add(id);
+			}
+		}
+		int batches = 0;
+		for (int from = 0; from < misses.size(); from += batchSize) {
+			Set<Long> batch = new LinkedHashSet<>(misses.subList(from, Math.min(misses.size(), from + batchSize)));
+			Map<Long, ? extends List<? extends FileResource>> resolved = resolver.resolve(batch);
+			batches++;
+			for (Map.Entry<Long, ? extends List<? extends FileResource>> entry : resolved.entrySet()) {
+				// 只接受本批请求的ID
+				if (batch.contains(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+					List<FileResource> files = Collections.unmodifiableList(new ArrayList<>(entry.getValue()));
+					found.put(entry.getKey(), files);
+					cache.put(entry.getKey(), files);
+				}
+			}
+		}
+
+		Map<Long, List<R>> result = new LinkedHashMap<>();
+		for (Long id : ids) {
+			List<FileResource> files = found.get(id);
+			if (files == null) {
+				continue;
+			}
+			List<R> typed = new ArrayList<>(files.size());
+			for (FileResource file : files) {
+				if (!resourceType.isInstance(file)) {
+					throw new IllegalStateException("实体文件类型不符：" + entityName + "，期望 " + resourceType.getSimpleName()
+							+ "，实际 " + file.getClass().getSimpleName());
+				}
+				typed.add(resourceType.cast(file));
+			}
+			result.put(id, typed);
+		}
+		if (batches > 0) {
+			log.info("解析实体文件：{}，请求 {} 个，缓存命中 {} 个，查询 {} 批，找到 {} 个，耗时 {} ms",
+					entityName, ids.size(), cached, batches, result.size(), System.currentTimeMillis() - startTime);
+		}
+		return result;
+	}
+
+	/**
+	 * 清除某实体的缓存（文件位置批量变化后调用）
+	 */
+	public void invalidate(DownloadTypes types) {
+		Cache<Long, List<FileResource>> cache = caches.get(types.entityName());
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+}
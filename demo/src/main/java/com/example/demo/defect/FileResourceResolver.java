@@ -0,0 +1,26 @@
+package com.example.demo.defect;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 实体文件解析（SPI）：按 {@link DownloadTypes#entityName()} 注册到 {@link FileResourceRegistry}
+ * <p>
+ * 实现为 Spring Bean，每个实体一个。一次调用解析整批ID（一次查询或一次目录扫描），不要逐个ID查询。
+ */
+public interface FileResourceResolver<R extends FileResource> {
+
+	/**
+	 * 对应的实体名（与 {@link DownloadTypes#entityName()} 一致）
+	 */
+	String entityName();
+
+	/**
+	 * 批量解析
+	 * @param entityIds 实体ID（不重复，单批数量不超过 {@link FileResourceRegistry} 的批大小）
+	 * @return 实体ID → 文件；未找到的ID不返回
+	 */
+	Map<Long, List<R>> resolve(Set<Long> entityIds) throws IOException;
+}
@@ -0,0 +1,219 @@
+package com.example.demo.group;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 分块位图（不可变，结构共享）
+ * 位按 CHUNK_BITS 分块，每块一个 long[]；修改通过 {@link Editor} 只复制被改动的块，
+ * 其余块与原位图共享，因此旧版本始终保持不变，可被并发读取。全0块共用同一个数组。
+ */
+public final class ChunkedBitSet {
+	static final int CHUNK_SHIFT = 12;
+	// 每块 4096 位（64 个 long，512 字节）
+	static final int CHUNK_BITS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_WORDS = CHUNK_BITS / Long.SIZE;
+	private static final long[] ZERO_CHUNK = new long[CHUNK_WORDS];
+
+	private final int size;
+	private final long[][] chunks;
+
+	private ChunkedBitSet(int size, long[][] chunks) {
+		this.size = size;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * 全0位图
+	 */
+	public static ChunkedBitSet empty(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("位图大小不能为负数：" + size);
+		}
+		long[][] chunks = new long[chunkCount(size)][];
+		Arrays.fill(chunks, ZERO_CHUNK);
+		return new ChunkedBitSet(size, chunks);
+	}
+
+	/**
+	 * 由连续的 long 数组创建（第 i 位为 words[i / 64] 的第 i % 64 位，超出 size 的位忽略；数组会被复制）
+	 */
+	static ChunkedBitSet of(long[] words, int size) {
+		long[][] chunks = new long[chunkCount(size)][];
+		for (int c = 0; c < chunks.length; c++) {
+			int from = c * CHUNK_WORDS;
+			long[] chunk = Arrays.copyOfRange(words, Math.min(from, words.length), Math.min(from + CHUNK_WORDS, words.length));
+			chunk = Arrays.copyOf(chunk, CHUNK_WORDS);
+			int bitsInChunk = Math.min(CHUNK_BITS, size - c * CHUNK_BITS);
+			clearFrom(chunk, bitsInChunk);
+			chunks[c] = isZero(chunk) ? ZERO_CHUNK : chunk;
+		}
+		return new ChunkedBitSet(size, chunks);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean get(int index) {
+		checkIndex(index);
+		return (chunks[index >>> CHUNK_SHIFT][(index & (CHUNK_BITS - 1)) >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * 置1的位数
+	 */
+	public int cardinality() {
+		int count = 0;
+		for (long[] chunk : chunks) {
+			if (chunk != ZERO_CHUNK) {
+				for (long word : chunk) {
+					count += Long.bitCount(word);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 依次访问置1的位（升序）
+	 */
+	public void forEachSetBit(IntConsumer action) {
+		for (int c = 0; c < chunks.length; c++) {
+			long[] chunk = chunks[c];
+			if (chunk == ZERO_CHUNK) {
+				continue;
+			}
+			int base = c << CHUNK_SHIFT;
+			for (int w = 0; w < CHUNK_WORDS; w++) {
+				long word = chunk[w];
+				while (word != 0) {
+					action.accept(base + (w << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 与另一个位图共享的块数（同一个数组对象，诊断/测试用）
+	 */
+	public int sharedChunks(ChunkedBitSet other) {
+		int shared = 0;
+		for (int c = 0; c < Math.min(chunks.length, other.chunks.length); c++) {
+			if (chunks[c] == other.chunks[c]) {
+				shared++;
+			}
+		}
+		return shared;
+	}
+
+	public int chunkCount() {
+		return chunks.length;
+	}
+
+	/**
+	 * 基于当前位图开始修改（当前位图不受影响）
+	 */
+	public Editor edit() {
+		return new Editor(this);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("位下标越界：" + index + "，大小：" + size);
+		}
+	}
+
+	private static int chunkCount(int size) {
+		return (int) (((long) size + CHUNK_BITS - 1) >>> CHUNK_SHIFT);
+	}
+
+	/**
+	 * 清除块内 from 及之后的位
+	 */
+	private static void clearFrom(long[] chunk, int from) {
+		if (from >= CHUNK_BITS) {
+			return;
+		}
+		int word = from >>> 6;
+		chunk[word] &= (1L << from) - 1;
+		Arrays.fill(chunk, word + 1, CHUNK_WORDS, 0);
+	}
+
+	private static boolean isZero(long[] chunk) {
+		for (long word : chunk) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 位图修改器（写时复制：每个块第一次被改动时复制一次，之后原地修改；非线程安全）
+	 */
+	public static final class Editor {
+		private final int size;
+		private final long[][] chunks;
+		// 本修改器已复制（独占）的块
+		private boolean[] owned;
+		private boolean changed;
+
+		private Editor(ChunkedBitSet base) {
+			this.size = base.size;
+			this.chunks = base.chunks.clone();
+			this.owned = new boolean[chunks.length];
+		}
+
+		public Editor set(int index, boolean value) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("位下标越界：" + index + "，大小：" + size);
+			}
+			int c = index >>> CHUNK_SHIFT;
+			int w = (index & (CHUNK_BITS - 1)) >>> 6;
+			long mask = 1L << index;
+			long word = chunks[c][w];
+			if (((word & mask) != 0) == value) {
+				// 值未变化，不复制块
+				return this;
+			}
+			if (!owned[c]) {
+				chunks[c] = chunks[c].clone();
+				owned[c] = true;
+			}
+			chunks[c][w] = value ? word | mask : word & ~mask;
+			changed = true;
+			return this;
+		}
+
+		public boolean get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("位下标越界：" + index + "，大小：" + size);
+			}
+			return (chunks[index >>> CHUNK_SHIFT][(index & (CHUNK_BITS - 1)) >>> 6] & (1L << index)) != 0;
+		}
+
+		/**
+		 * 是否有位发生了变化
+		 */
+		public boolean isChanged() {
+			return changed;
+		}
+
+		/**
+		 * 生成新位图；之后继续修改不会影响已生成的位图
+		 */
+		public ChunkedBitSet build() {
+			long[][] result = chunks.clone();
+			for (int c = 0; c < result.length; c++) {
+				if (owned[c] && isZero(result[c])) {
+					result[c] = ZERO_CHUNK;
+				}
+			}
+			// 已生成的位图持有这些块，后续修改需重新复制
+			owned = new boolean[chunks.length];
+			return new ChunkedBitSet(size, result);
+		}
+	}
+}
@@ -0,0 +1,739 @@
+package com.example.demo.group;
+
+import com.example.demo.util.LongIntHashMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 组信息工具（group/group_tool.py GroupInfoTool 的Java实现，进程内调用，省去Python子进程和JSON序列化）
+ * <ul>
+ *   <li>列式存储：每列一个基本类型数组，组名按出现顺序字典编码，mark_path 原样保存在一块字节区中；</li>
+ *   <li>按组下标数组：每组的行号是一段连续区间（计数排序），按组修改/统计不扫描全表；</li>
+ *   <li>k-d树：按 (x_offset, y_offset) 查询最近的 percent% 行；随机选择使用蓄水池采样；</li>
+ *   <li>mark/choose 状态：保存在分块位图中，每次修改生成新的 {@link Snapshot} 版本，
+ *       未改动的块与旧版本共享（不整表复制），读者持有的快照始终一致、不受后续修改影响。</li>
+ * </ul>
+ * 文件格式：每行 &lt;id&gt; &lt;group_name&gt; &lt;mark&gt; &lt;mark_path&gt; &lt;x_offset&gt; &lt;y_offset&gt; &lt;choose&gt;，
+ * 空白分隔；与Python版一致，列数不是7或数值非法的行跳过；mark/choose 只能为0或1，其他值的行同样跳过。
+ * <p>
+ * 线程安全：列数据加载后只读；当前版本的修改方法串行执行并原子发布新版本，读取方法读取调用时刻的当前版本。
+ * 多个用户可各自基于快照修改（{@link Snapshot} 的修改方法返回新快照，不影响当前版本），再用 {@link #commit} 乐观提交。
+ */
+public class GroupInfoTool {
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int COLUMN_COUNT = 7;
+	// 整数解析失败标记
+	private static final long INVALID = Long.MIN_VALUE;
+
+	private int size;
+	private int skippedLines;
+	private int[] ids;
+	private int[] groupCodes;
+	private int[] xOffsets;
+	private int[] yOffsets;
+	// mark_path：第 i 行为 markPathBytes[markPathOffsets[i], markPathOffsets[i + 1])
+	private int[] markPathOffsets;
+	private byte[] markPathBytes;
+	private int markPathLength;
+
+	// 组名字典（编码 = 首次出现顺序）
+	private final GroupNameDictionary groupNames = new GroupNameDictionary();
+	// 第 g 组的行号为 groupRows[groupStarts[g], groupStarts[g + 1])，组内按行号升序
+	private int[] groupStarts;
+	private int[] groupRows;
+
+	private LongIntHashMap rowById;
+	// 首次空间查询时构建（坐标不可修改，构建后一直有效）
+	private volatile GroupKdTree kdTree;
+
+	// 版本号（所有快照共用，单调递增）
+	private final AtomicLong versions = new AtomicLong();
+	private volatile Snapshot current;
+
+	// 解析时的 mark/choose 位（加载完成后转为分块位图）
+	private long[] markWords;
+	private long[] chooseWords;
+	// 解析时复用的列位置
+	private final int[] tokenStarts = new int[COLUMN_COUNT];
+	private final int[] tokenEnds = new int[COLUMN_COUNT];
+
+	private GroupInfoTool() {
+		this.ids = new int[INITIAL_CAPACITY];
+		this.groupCodes = new int[INITIAL_CAPACITY];
+		this.xOffsets = new int[INITIAL_CAPACITY];
+		this.yOffsets = new int[INITIAL_CAPACITY];
+		this.markPathOffsets = new int[INITIAL_CAPACITY + 1];
+		this.markPathBytes = new byte[INITIAL_CAPACITY * 16];
+		this.markWords = new long[INITIAL_CAPACITY / Long.SIZE];
+		this.chooseWords = new long[INITIAL_CAPACITY / Long.SIZE];
+	}
+
+	/**
+	 * 加载组信息文件并建立按组/按ID索引
+	 */
+	public static GroupInfoTool load(Path file) throws IOException {
+		GroupInfoTool tool = new GroupInfoTool();
+		try (InputStream in = Files.newInputStream(file)) {
+			tool.parse(in);
+		}
+		tool.buildIndexes();
+		tool.current = tool.new Snapshot(tool.versions.incrementAndGet(),
+				ChunkedBitSet.of(tool.markWords, tool.size), ChunkedBitSet.of(tool.chooseWords, tool.size));
+		tool.markWords = null;
+		tool.chooseWords = null;
+		return tool;
+	}
+
+	/**
+	 * 当前版本
+	 */
+	public Snapshot snapshot() {
+		return current;
+	}
+
+	/**
+	 * 乐观提交：当前版本仍为 base 时发布 updated（updated 一般由 base 修改得到）
+	 * @return 是否提交成功（失败说明期间有其他修改，调用方可基于新的当前版本重做）
+	 */
+	public synchronized boolean commit(Snapshot base, Snapshot updated) {
+		if (updated.owner() != this) {
+			throw new IllegalArgumentException("快照不属于当前组信息文件");
+		}
+		if (current != base) {
+			return false;
+		}
+		current = updated;
+		return true;
+	}
+
+	/**
+	 * 保存当前版本（格式与加载时相同）
+	 */
+	public void save(Path file) throws IOException {
+		current.save(file);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 加载时跳过的非法行数（不含空行）
+	 */
+	public int getSkippedLines() {
+		return skippedLines;
+	}
+
+	public int getGroupCount() {
+		return groupNames.size();
+	}
+
+	/**
+	 * 解析为 GroupLine 列表（当前版本）
+	 */
+	public List<GroupLine> parseToList() {
+		return current.parseToList();
+	}
+
+	public GroupLine getLine(int row) {
+		return current.getLine(row);
+	}
+
+	/**
+	 * 按ID查找行号（ID重复时为最后一行），不存在返回-1
+	 */
+	public int rowOf(int id) {
+		return rowById.get(id, -1);
+	}
+
+	public int getId(int row) { checkRow(row); return ids[row]; }
+	public String getGroupName(int row) { checkRow(row); return groupNames.name(groupCodes[row]); }
+
+	/**
+	 * 行所属的组编码（组名首次出现顺序，0 ~ getGroupCount()-1）
+	 */
+	public int getGroupCode(int row) { checkRow(row); return groupCodes[row]; }
+
+	/**
+	 * 组编码对应的组名
+	 */
+	public String getGroupNameByCode(int code) {
+		if (code < 0 || code >= groupNames.size()) {
+			throw new IndexOutOfBoundsException("组编码越界：" + code + "，组数：" + groupNames.size());
+		}
+		return groupNames.name(code);
+	}
+	public int getMark(int row) { return current.getMark(row); }
+	public int getXOffset(int row) { checkRow(row); return xOffsets[row]; }
+	public int getYOffset(int row) { checkRow(row); return yOffsets[row]; }
+	public int getChoose(int row) { return current.getChoose(row); }
+
+	public String getMarkPath(int row) {
+		checkRow(row);
+		return new String(markPathBytes, markPathOffsets[row], markPathOffsets[row + 1] - markPathOffsets[row], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 指定组的行号（升序，返回副本）；组不存在返回空数组
+	 */
+	public int[] getGroupRows(String groupName) {
+		int code = groupNames.find(groupName);
+		if (code < 0) {
+			return new int[0];
+		}
+		return Arrays.copyOfRange(groupRows, groupStarts[code], groupStarts[code + 1]);
+	}
+
+	/**
+	 * 按组名统计 mark == 1 的行数（当前版本，按组名首次出现顺序）
+	 */
+	public Map<String, Integer> countMarkedByGroup() {
+		return current.countMarkedByGroup();
+	}
+
+	/**
+	 * 按组名统计 choose == 1 的行数（当前版本，按组名首次出现顺序）
+	 */
+	public Map<String, Integer> countChosenByGroup() {
+		return current.countChosenByGroup();
+	}
+
+	/**
+	 * 按组编码统计 mark == 1 的行数（下标为组编码，不生成组名字符串，适合组数很多时使用）
+	 */
+	public int[] countMarkedByGroupCode() {
+		return current.countMarkedByGroupCode();
+	}
+
+	/**
+	 * 按组编码统计 choose == 1 的行数
+	 */
+	public int[] countChosenByGroupCode() {
+		return current.countChosenByGroupCode();
+	}
+
+	/**
+	 * 把距离 (x, y) 最近的 percent% 行标记为选中（choose = 1），至少1行，并发布新版本
+	 * @return 本次选中的行数（percent &lt;= 0 或没有数据时为0）
+	 */
+	public synchronized int selectNearestGroups(int x, int y, double percent) {
+		int[] rows = nearestRows(x, y, percent);
+		current = current.withChosen(rows);
+		return rows.length;
+	}
+
+	/**
+	 * 随机选择 percent% 行标记为选中（choose = 1），至少1行，并发布新版本
+	 * @return 本次选中的行数（percent &lt;= 0 或没有数据时为0）
+	 */
+	public int selectRandomGroups(double percent) {
+		return selectRandomGroups(percent, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * 随机选择（指定随机源，便于复现）
+	 */
+	public synchronized int selectRandomGroups(double percent, Random random) {
+		int[] rows = randomRows(percent, random);
+		current = current.withChosen(rows);
+		return rows.length;
+	}
+
+	/**
+	 * 修改指定组所有行的 mark，并发布新版本
+	 * @param markValue 0 或 1
+	 * @return 组内行数（组不存在时为0）
+	 */
+	public synchronized int updateMarkStatus(String groupName, int markValue) {
+		Snapshot base = current;
+		current = base.updateMarkStatus(groupName, markValue);
+		int code = groupNames.find(groupName);
+		return code < 0 ? 0 : groupStarts[code + 1] - groupStarts[code];
+	}
+
+	/**
+	 * mark/choose 状态的一个版本（不可变）
+	 * 读取方法只看本版本；修改方法返回新版本（未改动的位图块与本版本共享），不影响本版本和当前版本
+	 */
+	public final class Snapshot {
+		private final long version;
+		private final ChunkedBitSet marks;
+		private final ChunkedBitSet chooses;
+
+		private Snapshot(long version, ChunkedBitSet marks, ChunkedBitSet chooses) {
+			this.version = version;
+			this.marks = marks;
+			this.chooses = chooses;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int getMark(int row) {
+			checkRow(row);
+			return marks.get(row) ? 1 : 0;
+		}
+
+		public int getChoose(int row) {
+			checkRow(row);
+			return chooses.get(row) ? 1 : 0;
+		}
+
+		/**
+		 * mark 位图（只读，可用于比较版本间共享的块）
+		 */
+		public ChunkedBitSet getMarks() {
+			return marks;
+		}
+
+		/**
+		 * choose 位图（只读）
+		 */
+		public ChunkedBitSet getChooses() {
+			return chooses;
+		}
+
+		public GroupLine getLine(int row) {
+			checkRow(row);
+			return new GroupLine(ids[row], groupNames.name(groupCodes[row]), getMark(row), getMarkPath(row),
+					xOffsets[row], yOffsets[row], getChoose(row));
+		}
+
+		public List<GroupLine> parseToList() {
+			List<GroupLine> lines = new ArrayList<>(size);
+			for (int row = 0; row < size; row++) {
+				lines.add(getLine(row));
+			}
+			return lines;
+		}
+
+		public Map<String, Integer> countMarkedByGroup() {
+			return toMap(countByGroupCode(marks));
+		}
+
+		public Map<String, Integer> countChosenByGroup() {
+			return toMap(countByGroupCode(chooses));
+		}
+
+		public int[] countMarkedByGroupCode() {
+			return countByGroupCode(marks);
+		}
+
+		public int[] countChosenByGroupCode() {
+			return countByGroupCode(chooses);
+		}
+
+		/**
+		 * 选中距离 (x, y) 最近的 percent% 行
+		 * @return 新版本（没有变化时返回本版本）
+		 */
+		public Snapshot selectNearestGroups(int x, int y, double percent) {
+			return withChosen(nearestRows(x, y, percent));
+		}
+
+		/**
+		 * 随机选中 percent% 行
+		 * @return 新版本（没有变化时返回本版本）
+		 */
+		public Snapshot selectRandomGroups(double percent, Random random) {
+			return withChosen(randomRows(percent, random));
+		}
+
+		/**
+		 * 修改指定组所有行的 mark
+		 * @param markValue 0 或 1
+		 * @return 新版本（组不存在或没有变化时返回本版本）
+		 */
+		public Snapshot updateMarkStatus(String groupName, int markValue) {
+			if (markValue != 0 && markValue != 1) {
+				throw new IllegalArgumentException("mark 只能为0或1：" + markValue);
+			}
+			int code = groupNames.find(groupName);
+			if (code < 0) {
+				return this;
+			}
+			ChunkedBitSet.Editor editor = marks.edit();
+			for (int i = groupStarts[code]; i < groupStarts[code + 1]; i++) {
+				editor.set(groupRows[i], markValue == 1);
+			}
+			return editor.isChanged() ? new Snapshot(versions.incrementAndGet(), editor.build(), chooses) : this;
+		}
+
+		/**
+		 * 保存本版本（格式与加载时相同）
+		 */
+		public void save(Path file) throws IOException {
+			try (OutputStream out = Files.newOutputStream(file)) {
+				LineWriter writer = new LineWriter(out);
+				byte[] nameBytes = groupNames.rawBytes();
+				for (int row = 0; row < size; row++) {
+					int code = groupCodes[row];
+					writer.writeInt(ids[row]);
+					writer.writeByte(' ');
+					writer.write(nameBytes, groupNames.start(code), groupNames.end(code) - groupNames.start(code));
+					writer.writeByte(' ');
+					writer.writeByte(marks.get(row) ? '1' : '0');
+					writer.writeByte(' ');
+					writer.write(markPathBytes, markPathOffsets[row], markPathOffsets[row + 1] - markPathOffsets[row]);
+					writer.writeByte(' ');
+					writer.writeInt(xOffsets[row]);
+					writer.writeByte(' ');
+					writer.writeInt(yOffsets[row]);
+					writer.writeByte(' ');
+					writer.writeByte(chooses.get(row) ? '1' : '0');
+					writer.writeByte('\n');
+				}
+				writer.flush();
+			}
+		}
+
+		private Snapshot withChosen(int[] rows) {
+			ChunkedBitSet.Editor editor = chooses.edit();
+			for (int row : rows) {
+				editor.set(row, true);
+			}
+			return editor.isChanged() ? new Snapshot(versions.incrementAndGet(), marks, editor.build()) : this;
+		}
+
+		private GroupInfoTool owner() {
+			return GroupInfoTool.this;
+		}
+	}
+
+	// ------------------------------ 内部实现 ------------------------------
+
+	private int[] nearestRows(int x, int y, double percent) {
+		if (size == 0 || !(percent > 0)) {
+			return new int[0];
+		}
+		return kdTree().nearest(x, y, targetCount(percent));
+	}
+
+	private int[] randomRows(double percent, Random random) {
+		if (size == 0 || !(percent > 0)) {
+			return new int[0];
+		}
+		return reservoirSample(size, targetCount(percent), random);
+	}
+
+	private GroupKdTree kdTree() {
+		GroupKdTree tree = kdTree;
+		if (tree == null) {
+			synchronized (this) {
+				tree = kdTree;
+				if (tree == null) {
+					tree = new GroupKdTree(xOffsets, yOffsets, size);
+					kdTree = tree;
+				}
+			}
+		}
+		return tree;
+	}
+
+	private int targetCount(double percent) {
+		return (int) Math.max(1, Math.min(size, (long) (size * percent / 100.0)));
+	}
+
+	private int[] countByGroupCode(ChunkedBitSet flags) {
+		int[] counts = new int[groupNames.size()];
+		flags.forEachSetBit(row -> counts[groupCodes[row]]++);
+		return counts;
+	}
+
+	private Map<String, Integer> toMap(int[] counts) {
+		Map<String, Integer> result = new LinkedHashMap<>(counts.length * 4 / 3 + 1);
+		for (int g = 0; g < counts.length; g++) {
+			result.put(groupNames.name(g), counts[g]);
+		}
+		return result;
+	}
+
+	/**
+	 * 蓄水池采样（Algorithm L）：从 [0, n) 中等概率无放回选取 k 个下标，跳跃步长服从几何分布，
+	 * 期望只生成 O(k·(1 + log(n/k))) 个随机数
+	 */
+	static int[] reservoirSample(int n, int k, Random random) {
+		int[] reservoir = new int[k];
+		for (int i = 0; i < k; i++) {
+			reservoir[i] = i;
+		}
+		if (k == 0 || k >= n) {
+			return reservoir;
+		}
+		double w = Math.exp(Math.log(nextOpenDouble(random)) / k);
+		long i = k - 1;
+		while (true) {
+			i += (long) Math.floor(Math.log(nextOpenDouble(random)) / Math.log(1 - w)) + 1;
+			if (i >= n) {
+				return reservoir;
+			}
+			reservoir[random.nextInt(k)] = (int) i;
+			w *= Math.exp(Math.log(nextOpenDouble(random)) / k);
+		}
+	}
+
+	/**
+	 * (0, 1) 上的均匀随机数（排除0，避免 log(0)）
+	 */
+	private static double nextOpenDouble(Random random) {
+		double value;
+		do {
+			value = random.nextDouble();
+		} while (value == 0);
+		return value;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("行号越界：" + row + "，行数：" + size);
+		}
+	}
+
+	private void buildIndexes() {
+		// 按组计数排序（稳定，组内行号升序）
+		int groupCount = groupNames.size();
+		groupStarts = new int[groupCount + 1];
+		for (int row = 0; row < size; row++) {
+			groupStarts[groupCodes[row] + 1]++;
+		}
+		for (int g = 0; g < groupCount; g++) {
+			groupStarts[g + 1] += groupStarts[g];
+		}
+		groupRows = new int[size];
+		int[] next = Arrays.copyOf(groupStarts, groupCount);
+		for (int row = 0; row < size; row++) {
+			groupRows[next[groupCodes[row]]++] = row;
+		}
+
+		rowById = new LongIntHashMap(size);
+		for (int row = 0; row < size; row++) {
+			rowById.put(ids[row], row);
+		}
+	}
+
+	// ------------------------------ 解析 ------------------------------
+
+	private void parse(InputStream in) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int limit = 0;
+		while (true) {
+			int n = in.read(buffer, limit, buffer.length - limit);
+			boolean eof = n < 0;
+			if (!eof) {
+				limit += n;
+			}
+			int lineStart = 0;
+			for (int i = 0; i < limit; i++) {
+				if (buffer[i] == '\n') {
+					parseLine(buffer, lineStart, i);
+					lineStart = i + 1;
+				}
+			}
+			if (eof) {
+				// 最后一行没有换行符
+				if (lineStart < limit) {
+					parseLine(buffer, lineStart, limit);
+				}
+				return;
+			}
+			// 未完成的行移到缓冲区开头；单行超过缓冲区时扩容
+			int remaining = limit - lineStart;
+			if (lineStart == 0 && limit == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			} else {
+				System.arraycopy(buffer, lineStart, buffer, 0, remaining);
+			}
+			limit = remaining;
+		}
+	}
+
+	/**
+	 * 解析 [start, end) 一行；空行忽略，非法行计入 skippedLines
+	 */
+	private void parseLine(byte[] data, int start, int end) {
+		int count = 0;
+		int i = start;
+		while (true) {
+			while (i < end && isWhitespace(data[i])) {
+				i++;
+			}
+			if (i == end) {
+				break;
+			}
+			if (count == COLUMN_COUNT) {
+				// 多于7列
+				skippedLines++;
+				return;
+			}
+			tokenStarts[count] = i;
+			while (i < end && !isWhitespace(data[i])) {
+				i++;
+			}
+			tokenEnds[count++] = i;
+		}
+		if (count == 0) {
+			return;
+		}
+		if (count < COLUMN_COUNT) {
+			skippedLines++;
+			return;
+		}
+		long id = parseInt(data, tokenStarts[0], tokenEnds[0]);
+		long mark = parseInt(data, tokenStarts[2], tokenEnds[2]);
+		long x = parseInt(data, tokenStarts[4], tokenEnds[4]);
+		long y = parseInt(data, tokenStarts[5], tokenEnds[5]);
+		long choose = parseInt(data, tokenStarts[6], tokenEnds[6]);
+		if (id == INVALID || x == INVALID || y == INVALID || (mark != 0 && mark != 1) || (choose != 0 && choose != 1)) {
+			skippedLines++;
+			return;
+		}
+
+		ensureCapacity(size + 1);
+		ids[size] = (int) id;
+		groupCodes[size] = groupNames.codeOf(data, tokenStarts[1], tokenEnds[1]);
+		xOffsets[size] = (int) x;
+		yOffsets[size] = (int) y;
+		if (mark == 1) {
+			markWords[size >>> 6] |= 1L << size;
+		}
+		if (choose == 1) {
+			chooseWords[size >>> 6] |= 1L << size;
+		}
+		int pathLength = tokenEnds[3] - tokenStarts[3];
+		if (markPathLength + pathLength > markPathBytes.length) {
+			markPathBytes = Arrays.copyOf(markPathBytes, Math.max(markPathBytes.length * 2, markPathLength + pathLength));
+		}
+		System.arraycopy(data, tokenStarts[3], markPathBytes, markPathLength, pathLength);
+		markPathLength += pathLength;
+		markPathOffsets[size + 1] = markPathLength;
+		size++;
+	}
+
+	private void ensureCapacity(int required) {
+		if (required <= ids.length) {
+			return;
+		}
+		int capacity = Math.max(required, ids.length * 2);
+		ids = Arrays.copyOf(ids, capacity);
+		groupCodes = Arrays.copyOf(groupCodes, capacity);
+		xOffsets = Arrays.copyOf(xOffsets, capacity);
+		yOffsets = Arrays.copyOf(yOffsets, capacity);
+		markPathOffsets = Arrays.copyOf(markPathOffsets, capacity + 1);
+		markWords = Arrays.copyOf(markWords, (capacity + Long.SIZE - 1) / Long.SIZE);
+		chooseWords = Arrays.copyOf(chooseWords, (capacity + Long.SIZE - 1) / Long.SIZE);
+	}
+
+	/**
+	 * 解析整数（可带正负号），非法或超出int范围返回 INVALID
+	 */
+	private static long parseInt(byte[] data, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (data[i] == '-' || data[i] == '+') {
+			negative = data[i] == '-';
+			i++;
+		}
+		if (i == end) {
+			return INVALID;
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = data[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID;
+			}
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				return INVALID;
+			}
+		}
+		value = negative ? -value : value;
+		return value > Integer.MAX_VALUE ? INVALID : value;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == 0x0B || b == 0x0C;
+	}
+
+	/**
+	 * 缓冲写出（整数直接格式化为字节）
+	 */
+	private static final class LineWriter {
+		private final OutputStream out;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int count;
+
+		private LineWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		private void writeInt(int value) throws IOException {
+			if (count + 11 > buffer.length) {
+				flushBuffer();
+			}
+			long v = value;
+			if (v < 0) {
+				buffer[count++] = '-';
+				v = -v;
+			}
+			int digits = 1;
+			for (long rest = v / 10; rest != 0; rest /= 10) {
+				digits++;
+			}
+			count += digits;
+			int i = count;
+			do {
+				buffer[--i] = (byte) ('0' + v % 10);
+				v /= 10;
+			} while (v != 0);
+		}
+
+		private void writeByte(int b) throws IOException {
+			if (count == buffer.length) {
+				flushBuffer();
+			}
+			buffer[count++] = (byte) b;
+		}
+
+		private void write(byte[] data, int offset, int length) throws IOException {
+			if (length > buffer.length - count) {
+				flushBuffer();
+				if (length > buffer.length) {
+					out.write(data, offset, length);
+					return;
+				}
+			}
+			System.arraycopy(data, offset, buffer, count, length);
+			count += length;
+		}
+
+		private void flush() throws IOException {
+			flushBuffer();
+			out.flush();
+		}
+
+		private void flushBuffer() throws IOException {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package com.example.demo.group;
+
+/**
+ * 二维k-d树（隐式存储，构建后只读，可多线程并发查询）
+ * 点按树序重排在连续数组中：子树 [lo, hi) 的中位点位于 mid = (lo + hi) / 2，
+ * 左子树 [lo, mid)、右子树 [mid + 1, hi)，按深度交替以X/Y划分；不超过 LEAF_SIZE 个点的子树直接线性扫描
+ */
+final class GroupKdTree {
+	private static final int LEAF_SIZE = 8;
+
+	private final int size;
+	// 树序坐标及对应的原始行号
+	private final int[] x;
+	private final int[] y;
+	private final int[] rows;
+
+	GroupKdTree(int[] xs, int[] ys, int size) {
+		this.size = size;
+		this.x = new int[size];
+		this.y = new int[size];
+		this.rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			x[i] = xs[i];
+			y[i] = ys[i];
+			rows[i] = i;
+		}
+		build(0, size, 0);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * k近邻查询（欧氏距离）
+	 * @return 最近的 min(k, size) 个点的行号，按距离由近到远
+	 */
+	int[] nearest(int qx, int qy, int k) {
+		k = Math.min(k, size);
+		if (k <= 0) {
+			return new int[0];
+		}
+		Heap heap = new Heap(k);
+		search(0, size, 0, qx, qy, heap);
+		return heap.drainSorted();
+	}
+
+	private void build(int lo, int hi, int axis) {
+		while (hi - lo > LEAF_SIZE) {
+			int mid = (lo + hi) >>> 1;
+			select(lo, hi - 1, mid, axis);
+			// 较小的一侧递归，较大的一侧循环，递归深度不超过 log2(n)
+			if (mid - lo < hi - mid - 1) {
+				build(lo, mid, axis ^ 1);
+				lo = mid + 1;
+			} else {
+				build(mid + 1, hi, axis ^ 1);
+				hi = mid;
+			}
+			axis ^= 1;
+		}
+	}
+
+	/**
+	 * 快速选择：把 [left, right] 中按 axis 第 nth 小的点放到 nth，左侧不大于它、右侧不小于它
+	 */
+	private void select(int left, int right, int nth, int axis) {
+		int[] keys = axis == 0 ? x : y;
+		while (right > left) {
+			// 三数取中作为枢轴，避免有序输入退化
+			int middle = (left + right) >>> 1;
+			if (keys[middle] < keys[left]) {
+				swap(middle, left);
+			}
+			if (keys[right] < keys[left]) {
+				swap(right, left);
+			}
+			if (keys[right] < keys[middle]) {
+				swap(right, middle);
+			}
+			int pivot = keys[middle];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if (nth <= j) {
+				right = j;
+			} else if (nth >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int i, int j) {
+		int t = x[i];
+		x[i] = x[j];
+		x[j] = t;
+		t = y[i];
+		y[i] = y[j];
+		y[j] = t;
+		t = rows[i];
+		rows[i] = rows[j];
+		rows[j] = t;
+	}
+
+	private void search(int lo, int hi, int axis, int qx, int qy, Heap heap) {
+		if (hi - lo <= LEAF_SIZE) {
+			for (int i = lo; i < hi; i++) {
+				heap.offer(distance(i, qx, qy), rows[i]);
+			}
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		heap.offer(distance(mid, qx, qy), rows[mid]);
+		double diff = axis == 0 ? (double) qx - x[mid] : (double) qy - y[mid];
+		// 先查询点所在一侧，另一侧只有在分割线距离小于当前第k近距离时才可能有更近的点
+		if (diff < 0) {
+			search(lo, mid, axis ^ 1, qx, qy, heap);
+			if (diff * diff < heap.bound()) {
+				search(mid + 1, hi, axis ^ 1, qx, qy, heap);
+			}
+		} else {
+			search(mid + 1, hi, axis ^ 1, qx, qy, heap);
+			if (diff * diff < heap.bound()) {
+				search(lo, mid, axis ^ 1, qx, qy, heap);
+			}
+		}
+	}
+
+	private double distance(int i, int qx, int qy) {
+		double dx = (double) x[i] - qx;
+		double dy = (double) y[i] - qy;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * 定长最大堆（保留距离最小的k个点）
+	 */
+	private static final class Heap {
+		private final double[] distances;
+		private final int[] rows;
+		private int size;
+
+		private Heap(int capacity) {
+			this.distances = new double[capacity];
+			this.rows = new int[capacity];
+		}
+
+		/**
+		 * 当前第k近距离的平方（未满时为无穷大）
+		 */
+		private double bound() {
+			return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+		}
+
+		private void offer(double distance, int row) {
+			if (size < distances.length) {
+				int i = size++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (distances[parent] >= distance) {
+						break;
+					}
+					distances[i] = distances[parent];
+					rows[i] = rows[parent];
+					i = parent;
+				}
+				distances[i] = distance;
+				rows[i] = row;
+			} else if (distance < distances[0]) {
+				siftDown(distance, row, size);
+			}
+		}
+
+		/**
+		 * 用 (distance, row) 替换堆顶并下沉（堆大小为 n）
+		 */
+		private void siftDown(double distance, int row, int n) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= n) {
+					break;
+				}
+				if (child + 1 < n && distances[child + 1] > distances[child]) {
+					child++;
+				}
+				if (distances[child] <= distance) {
+					break;
+				}
+				distances[i] = distances[child];
+				rows[i] = rows[child];
+				i = child;
+			}
+			distances[i] = distance;
+			rows[i] = row;
+		}
+
+		/**
+		 * 依次弹出堆顶，得到按距离升序的行号
+		 */
+		private int[] drainSorted() {
+			int[] result = new int[size];
+			for (int n = size; n > 0; n--) {
+				result[n - 1] = rows[0];
+				siftDown(distances[n - 1], rows[n - 1], n - 1);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.demo.group;
+
+/**
+ * 组信息行（group_info 文本的一行）
+ * 格式：&lt;id&gt; &lt;group_name&gt; &lt;mark&gt; &lt;mark_path&gt; &lt;x_offset&gt; &lt;y_offset&gt; &lt;choose&gt;
+ */
+public class GroupLine {
+	private final int id;
+	private final String groupName;
+	private final int mark;
+	private final String markPath;
+	private final int xOffset;
+	private final int yOffset;
+	private final int choose;
+
+	public GroupLine(int id, String groupName, int mark, String markPath, int xOffset, int yOffset, int choose) {
+		this.id = id;
+		this.groupName = groupName;
+		this.mark = mark;
+		this.markPath = markPath;
+		this.xOffset = xOffset;
+		this.yOffset = yOffset;
+		this.choose = choose;
+	}
+
+	public int getId() { return id; }
+	public String getGroupName() { return groupName; }
+	public int getMark() { return mark; }
+	public String getMarkPath() { return markPath; }
+	public int getXOffset() { return xOffset; }
+	public int getYOffset() { return yOffset; }
+	public int getChoose() { return choose; }
+
+	@Override
+	public String toString() {
+		return id + " " + groupName + " " + mark + " " + markPath + " " + xOffset + " " + yOffset + " " + choose;
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.demo.group;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 组名字典：按原始字节查找/编码（开放寻址），解析时不为每行创建String；
+ * 编码为首次出现顺序，组名字符串在首次取用时才解码并缓存
+ */
+final class GroupNameDictionary {
+	private static final int INITIAL_SLOTS = 1024;
+
+	// 组名字节：第 c 个组名为 bytes[offsets[c], offsets[c + 1])
+	private byte[] bytes = new byte[INITIAL_SLOTS * 8];
+	private int[] offsets = new int[INITIAL_SLOTS + 1];
+	private String[] names = new String[INITIAL_SLOTS];
+	private int size;
+	// 槽位：高32位为哈希，低32位为 编码 + 1，0 表示空（哈希与编码放在一起，探测时少一次随机访问）
+	private long[] slots = new long[INITIAL_SLOTS * 2];
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * 查找 data[start, end) 的编码，不存在时追加
+	 */
+	int codeOf(byte[] data, int start, int end) {
+		int hash = hash(data, start, end);
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (true) {
+			long entry = slots[slot];
+			if (entry == 0) {
+				break;
+			}
+			int code = (int) entry - 1;
+			if ((int) (entry >>> 32) == hash && equals(code, data, start, end)) {
+				return code;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int code = add(data, start, end);
+		slots[slot] = entry(hash, code);
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return code;
+	}
+
+	/**
+	 * 按组名查找编码，不存在返回-1
+	 */
+	int find(String name) {
+		byte[] data = name.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(data, 0, data.length);
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			long entry = slots[slot];
+			int code = (int) entry - 1;
+			if ((int) (entry >>> 32) == hash && equals(code, data, 0, data.length)) {
+				return code;
+			}
+		}
+		return -1;
+	}
+
+	String name(int code) {
+		String name = names[code];
+		if (name == null) {
+			name = new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+			names[code] = name;
+		}
+		return name;
+	}
+
+	byte[] rawBytes() {
+		return bytes;
+	}
+
+	int start(int code) {
+		return offsets[code];
+	}
+
+	int end(int code) {
+		return offsets[code + 1];
+	}
+
+	private int add(byte[] data, int start, int end) {
+		int length = end - start;
+		if (size == names.length) {
+			int capacity = size * 2;
+			names = Arrays.copyOf(names, capacity);
+			offsets = Arrays.copyOf(offsets, capacity + 1);
+		}
+		if (offsets[size] + length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, offsets[size] + length));
+		}
+		System.arraycopy(data, start, bytes, offsets[size], length);
+		offsets[size + 1] = offsets[size] + length;
+		return size++;
+	}
+
+	private void rehash() {
+		long[] newSlots = new long[slots.length * 2];
+		int mask = newSlots.length - 1;
+		for (long entry : slots) {
+			if (entry != 0) {
+				int slot = (int) (entry >>> 32) & mask;
+				while (newSlots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				newSlots[slot] = entry;
+			}
+		}
+		slots = newSlots;
+	}
+
+	private static long entry(int hash, int code) {
+		return ((long) hash << 32) | (code + 1L);
+	}
+
+	private boolean equals(int code, byte[] data, int start, int end) {
+		return Arrays.equals(bytes, offsets[code], offsets[code + 1], data, start, end);
+	}
+
+	private static int hash(byte[] data, int start, int end) {
+		int hash = 1;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + data[i];
+		}
+		// murmur3 末尾混合：线性探测只用低位，短数字串的多项式哈希低位分布很差
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+}
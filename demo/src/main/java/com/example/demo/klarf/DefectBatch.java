@@ -0,0 +1,112 @@
+package com.example.demo.klarf;
+
+/**
+ * 缺陷列式批次（结构数组，SoA）
+ * 每列一个基本类型数组，批量旋转时直接读写数组，无逐缺陷对象分配；
+ * 同一个批次可反复 clear() 复用，作为预分配的输入/输出缓冲区
+ */
+public final class DefectBatch {
+	private final int[] xIndex;
+	private final int[] yIndex;
+	private final double[] xRel;
+	private final double[] yRel;
+	private int size;
+
+	/**
+	 * 创建空批次
+	 * @param capacity 最大缺陷数
+	 */
+	public DefectBatch(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("批次容量不能为负数：" + capacity);
+		}
+		this.xIndex = new int[capacity];
+		this.yIndex = new int[capacity];
+		this.xRel = new double[capacity];
+		this.yRel = new double[capacity];
+	}
+
+	/**
+	 * 包装已有数组（不复制），批次大小为数组长度
+	 */
+	public DefectBatch(int[] xIndex, int[] yIndex, double[] xRel, double[] yRel) {
+		if (xIndex.length != yIndex.length || xIndex.length != xRel.length || xIndex.length != yRel.length) {
+			throw new IllegalArgumentException("列长度不一致：" + xIndex.length + "/" + yIndex.length
+					+ "/" + xRel.length + "/" + yRel.length);
+		}
+		this.xIndex = xIndex;
+		this.yIndex = yIndex;
+		this.xRel = xRel;
+		this.yRel = yRel;
+		this.size = xIndex.length;
+	}
+
+	/**
+	 * 追加一个缺陷
+	 * @return 缺陷在批次中的下标
+	 */
+	public int add(int xIndex, int yIndex, double xRel, double yRel) {
+		if (size >= capacity()) {
+			throw new IllegalStateException("批次已满，容量：" + capacity());
+		}
+		this.xIndex[size] = xIndex;
+		this.yIndex[size] = yIndex;
+		this.xRel[size] = xRel;
+		this.yRel[size] = yRel;
+		return size++;
+	}
+
+	/**
+	 * 从缺陷对象追加（使用原始坐标）
+	 */
+	public int add(KlarfDefect defect) {
+		return add(defect.getOriginalXIndex(), defect.getOriginalYIndex(),
+				defect.getOriginalXRel(), defect.getOriginalYRel());
+	}
+
+	/**
+	 * 转换为缺陷对象（仅用于输出/调试，批量路径不要调用）
+	 */
+	public KlarfDefect toDefect(int i) {
+		checkIndex(i);
+		return new KlarfDefect(xIndex[i], yIndex[i], xRel[i], yRel[i]);
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return xIndex.length;
+	}
+
+	public boolean isFull() {
+		return size == capacity();
+	}
+
+	/**
+	 * 设置有效缺陷数（直接写数组后调用）
+	 */
+	public void setSize(int size) {
+		if (size < 0 || size > capacity()) {
+			throw new IllegalArgumentException("批次大小超出容量：" + size + "，容量：" + capacity());
+		}
+		this.size = size;
+	}
+
+	// 列数组（直接返回底层数组，只有 [0, size) 有效）
+	public int[] getXIndex() { return xIndex; }
+	public int[] getYIndex() { return yIndex; }
+	public double[] getXRel() { return xRel; }
+	public double[] getYRel() { return yRel; }
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("下标越界：" + i + "，批次大小：" + size);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.demo.klarf;
+
+import com.example.demo.util.LongIntHashMap;
+
+/**
+ * Die键：把 (XIndex, YIndex) 打包成一个 long（高32位X、低32位Y）
+ * 比较、分组直接用 long，只有输出时才渲染为 "X-Y" 形式的DieID字符串
+ */
+public final class DieKey {
+	/** DieID分隔符 */
+	private static final char SEPARATOR = '-';
+
+	private DieKey() {
+	}
+
+	public static long of(int xIndex, int yIndex) {
+		return ((long) xIndex << 32) | (yIndex & 0xFFFFFFFFL);
+	}
+
+	public static int xIndex(long key) {
+		return (int) (key >> 32);
+	}
+
+	public static int yIndex(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * 渲染为DieID（如 3--2）
+	 */
+	public static String toString(long key) {
+		return String.valueOf(xIndex(key)) + SEPARATOR + yIndex(key);
+	}
+
+	/**
+	 * 按Die统计缺陷数
+	 * @return Die键 → 缺陷数
+	 */
+	public static LongIntHashMap countByDie(DefectBatch batch) {
+		int[] xIndex = batch.getXIndex();
+		int[] yIndex = batch.getYIndex();
+		LongIntHashMap counts = new LongIntHashMap();
+		for (int i = 0; i < batch.size(); i++) {
+			counts.addTo(of(xIndex[i], yIndex[i]), 1);
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,322 @@
+package com.example.demo.klarf;
+
+/**
+ * 二维仿射变换（不可变）
+ * <pre>
+ * x' = m00·x + m01·y + m02
+ * y' = m10·x + m11·y + m12
+ * </pre>
+ * 坐标为全局绝对坐标（Index × DiePitch + DieOrigin + Rel，μm）
+ * 旋转、镜像、平移、单位换算、换中心可用 {@link #then} 合并成一个矩阵，整条链只需遍历一次缺陷；
+ * 90°整数倍旋转、镜像、平移的系数都是精确值，组合与求逆不引入额外误差
+ */
+public final class KlarfAffineTransform {
+	// 0°/90°/180°/270° 的精确三角函数值
+	static final double[] QUARTER_COS = {1.0, 0.0, -1.0, 0.0};
+	static final double[] QUARTER_SIN = {0.0, 1.0, 0.0, -1.0};
+
+	public static final KlarfAffineTransform IDENTITY = new KlarfAffineTransform(1, 0, 0, 0, 1, 0);
+
+	private final double m00;
+	private final double m01;
+	private final double m02;
+	private final double m10;
+	private final double m11;
+	private final double m12;
+	// 逆变换（首次使用时计算；对象不可变，并发重复计算无害）
+	private KlarfAffineTransform inverse;
+
+	KlarfAffineTransform(double m00, double m01, double m02, double m10, double m11, double m12) {
+		// +0.0 把 -0.0 归一为 0.0（-sin(0°) 等），避免 equals/isIdentity 误判
+		this.m00 = m00 + 0.0;
+		this.m01 = m01 + 0.0;
+		this.m02 = m02 + 0.0;
+		this.m10 = m10 + 0.0;
+		this.m11 = m11 + 0.0;
+		this.m12 = m12 + 0.0;
+	}
+
+	/**
+	 * 按矩阵系数创建
+	 * @throws IllegalArgumentException 系数不是有限值
+	 */
+	public static KlarfAffineTransform of(double m00, double m01, double m02, double m10, double m11, double m12) {
+		if (!Double.isFinite(m00) || !Double.isFinite(m01) || !Double.isFinite(m02)
+				|| !Double.isFinite(m10) || !Double.isFinite(m11) || !Double.isFinite(m12)) {
+			throw new IllegalArgumentException("仿射变换系数必须为有限值！");
+		}
+		return new KlarfAffineTransform(m00, m01, m02, m10, m11, m12);
+	}
+
+	/**
+	 * 绕任意中心旋转（逆时针为正；90°整数倍使用精确系数）
+	 * @param angleDeg 旋转角度（度）
+	 * @param centerX 旋转中心X
+	 * @param centerY 旋转中心Y
+	 */
+	public static KlarfAffineTransform rotation(double angleDeg, double centerX, double centerY) {
+		if (!Double.isFinite(angleDeg)) {
+			throw new IllegalArgumentException("旋转角度必须为有限值！当前值：" + angleDeg);
+		}
+		double cos;
+		double sin;
+		int turns = quarterTurns(angleDeg);
+		if (turns >= 0) {
+			cos = QUARTER_COS[turns];
+			sin = QUARTER_SIN[turns];
+		} else {
+			double angleRad = Math.toRadians(angleDeg);
+			cos = Math.cos(angleRad);
+			sin = Math.sin(angleRad);
+		}
+		return rotation(cos, sin, centerX, centerY);
+	}
+
+	/**
+	 * 关于竖直线 x = axisX 镜像（X取反）
+	 */
+	public static KlarfAffineTransform mirrorX(double axisX) {
+		return of(-1, 0, 2 * axisX, 0, 1, 0);
+	}
+
+	/**
+	 * 关于水平线 y = axisY 镜像（Y取反）
+	 */
+	public static KlarfAffineTransform mirrorY(double axisY) {
+		return of(1, 0, 0, 0, -1, 2 * axisY);
+	}
+
+	/**
+	 * 平移
+	 */
+	public static KlarfAffineTransform translation(double dx, double dy) {
+		return of(1, 0, dx, 0, 1, dy);
+	}
+
+	/**
+	 * 换中心：把坐标原点从 (fromX, fromY) 移到 (toX, toY)，即 fromX/fromY 处的点映射到 toX/toY
+	 */
+	public static KlarfAffineTransform recenter(double fromX, double fromY, double toX, double toY) {
+		return translation(toX - fromX, toY - fromY);
+	}
+
+	/**
+	 * 以原点为中心缩放
+	 * @throws IllegalArgumentException 缩放系数为0
+	 */
+	public static KlarfAffineTransform scale(double sx, double sy) {
+		if (sx == 0 || sy == 0) {
+			throw new IllegalArgumentException("缩放系数不能为0！");
+		}
+		return of(sx, 0, 0, 0, sy, 0);
+	}
+
+	/**
+	 * 单位换算（如 μm → mm）
+	 */
+	public static KlarfAffineTransform unitConversion(CoordinateUnit from, CoordinateUnit to) {
+		if (from == null || to == null) {
+			throw new IllegalArgumentException("坐标单位不能为空！");
+		}
+		double factor = from.toMicrometer(1.0) / to.toMicrometer(1.0);
+		return scale(factor, factor);
+	}
+
+	static KlarfAffineTransform rotation(double cos, double sin, double centerX, double centerY) {
+		return new KlarfAffineTransform(cos, -sin, centerX - cos * centerX + sin * centerY,
+				sin, cos, centerY - sin * centerX - cos * centerY);
+	}
+
+	/**
+	 * 90°整数倍时返回 0~3（逆时针四分之一圈数），否则返回 -1
+	 */
+	static int quarterTurns(double angleDeg) {
+		double turns = Math.rint(angleDeg / 90);
+		// 反乘校验，避免 90.00000000000001 这类角度因除法舍入被误判
+		if (turns * 90 != angleDeg) {
+			return -1;
+		}
+		// 归一化后的角度可能为 360（极小负角加360后舍入）
+		return (int) turns & 3;
+	}
+
+	/**
+	 * 组合：先执行本变换，再执行 next（返回 next · this）
+	 */
+	public KlarfAffineTransform then(KlarfAffineTransform next) {
+		if (next == null) {
+			throw new IllegalArgumentException("仿射变换不能为空！");
+		}
+		return new KlarfAffineTransform(
+				next.m00 * m00 + next.m01 * m10,
+				next.m00 * m01 + next.m01 * m11,
+				next.m00 * m02 + next.m01 * m12 + next.m02,
+				next.m10 * m00 + next.m11 * m10,
+				next.m10 * m01 + next.m11 * m11,
+				next.m10 * m02 + next.m11 * m12 + next.m12);
+	}
+
+	public boolean isIdentity() {
+		return equals(IDENTITY);
+	}
+
+	public double transformX(double x, double y) {
+		return m00 * x + m01 * y + m02;
+	}
+
+	public double transformY(double x, double y) {
+		return m10 * x + m11 * y + m12;
+	}
+
+	/**
+	 * 逆变换
+	 * 线性部分为正交矩阵（旋转/镜像）时直接取转置，90°整数倍等精确系数的逆也是精确的；否则按行列式求逆
+	 * @throws IllegalStateException 矩阵不可逆
+	 */
+	public KlarfAffineTransform inverse() {
+		KlarfAffineTransform result = inverse;
+		if (result == null) {
+			result = computeInverse();
+			result.inverse = this;
+			inverse = result;
+		}
+		return result;
+	}
+
+	/**
+	 * 批量变换（源与目标Die网格相同）
+	 * @see #apply(DefectBatch, KlarfBaseParams, DefectBatch, KlarfBaseParams)
+	 */
+	public DefectBatch apply(DefectBatch src, KlarfBaseParams grid, DefectBatch dst) {
+		return apply(src, grid, dst, grid);
+	}
+
+	/**
+	 * 批量变换：按源网格还原全局绝对坐标 → 变换 → 按目标网格拆回 Index/Rel（与旋转相同：Index四舍五入，Rel保留4位小数）
+	 * 整条变换链只遍历一次缺陷；src 与 dst 可以是同一个批次（原地变换）
+	 * @param src 原始缺陷批次（非空）
+	 * @param srcGrid 源Die网格（DiePitch/DieOrigin）
+	 * @param dst 输出批次（容量不小于 src.size()）
+	 * @param dstGrid 目标Die网格
+	 * @return dst
+	 */
+	public DefectBatch apply(DefectBatch src, KlarfBaseParams srcGrid, DefectBatch dst, KlarfBaseParams dstGrid) {
+		if (src == null || dst == null) {
+			throw new IllegalArgumentException("缺陷批次不能为空！");
+		}
+		if (dst.capacity() < src.size()) {
+			throw new IllegalArgumentException("输出批次容量不足！需要：" + src.size() + "，实际：" + dst.capacity());
+		}
+		validateGrid(srcGrid);
+		validateGrid(dstGrid);
+		double srcPitchX = srcGrid.getDiePitchX();
+		double srcPitchY = srcGrid.getDiePitchY();
+		double srcOriginX = srcGrid.getDieOriginX();
+		double srcOriginY = srcGrid.getDieOriginY();
+		double dstPitchX = dstGrid.getDiePitchX();
+		double dstPitchY = dstGrid.getDiePitchY();
+		double dstOriginX = dstGrid.getDieOriginX();
+		double dstOriginY = dstGrid.getDieOriginY();
+		int[] srcXIndex = src.getXIndex();
+		int[] srcYIndex = src.getYIndex();
+		double[] srcXRel = src.getXRel();
+		double[] srcYRel = src.getYRel();
+		int[] dstXIndex = dst.getXIndex();
+		int[] dstYIndex = dst.getYIndex();
+		double[] dstXRel = dst.getXRel();
+		double[] dstYRel = dst.getYRel();
+
+		int size = src.size();
+		for (int i = 0; i < size; i++) {
+			double x = srcXIndex[i] * srcPitchX + (srcOriginX + srcXRel[i]);
+			double y = srcYIndex[i] * srcPitchY + (srcOriginY + srcYRel[i]);
+			double globalX = m00 * x + m01 * y + m02;
+			double globalY = m10 * x + m11 * y + m12;
+			int xIndex = (int) Math.round(globalX / dstPitchX);
+			int yIndex = (int) Math.round(globalY / dstPitchY);
+			dstXIndex[i] = xIndex;
+			dstYIndex[i] = yIndex;
+			dstXRel[i] = KlarfRounding.halfUp((globalX - xIndex * dstPitchX) - dstOriginX, KlarfCoordinateRotator.COORD_PRECISION);
+			dstYRel[i] = KlarfRounding.halfUp((globalY - yIndex * dstPitchY) - dstOriginY, KlarfCoordinateRotator.COORD_PRECISION);
+		}
+		dst.setSize(size);
+		return dst;
+	}
+
+	private static void validateGrid(KlarfBaseParams grid) {
+		if (grid == null) {
+			throw new IllegalArgumentException("Klarf基准参数不能为空！");
+		}
+		if (grid.getDiePitchX() <= 0 || grid.getDiePitchY() <= 0) {
+			throw new IllegalArgumentException("芯片间距（DiePitch）必须大于0！当前值：" + grid.getDiePitchX() + "，" + grid.getDiePitchY());
+		}
+	}
+
+	public double getM00() { return m00; }
+	public double getM01() { return m01; }
+	public double getM02() { return m02; }
+	public double getM10() { return m10; }
+	public double getM11() { return m11; }
+	public double getM12() { return m12; }
+
+	private KlarfAffineTransform computeInverse() {
+		double i00;
+		double i01;
+		double i10;
+		double i11;
+		if (isOrthogonal()) {
+			i00 = m00;
+			i01 = m10;
+			i10 = m01;
+			i11 = m11;
+		} else {
+			double determinant = m00 * m11 - m01 * m10;
+			if (determinant == 0 || !Double.isFinite(determinant)) {
+				throw new IllegalStateException("仿射变换不可逆：" + this);
+			}
+			i00 = m11 / determinant;
+			i01 = -m01 / determinant;
+			i10 = -m10 / determinant;
+			i11 = m00 / determinant;
+		}
+		return new KlarfAffineTransform(i00, i01, -(i00 * m02 + i01 * m12),
+				i10, i11, -(i10 * m02 + i11 * m12));
+	}
+
+	/**
+	 * 线性部分是否为正交矩阵（各行为单位向量且互相垂直，按精确相等判断）
+	 */
+	private boolean isOrthogonal() {
+		return m00 * m00 + m01 * m01 == 1 && m10 * m10 + m11 * m11 == 1 && m00 * m10 + m01 * m11 == 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof KlarfAffineTransform)) {
+			return false;
+		}
+		KlarfAffineTransform other = (KlarfAffineTransform) o;
+		return Double.compare(m00, other.m00) == 0 && Double.compare(m01, other.m01) == 0
+				&& Double.compare(m02, other.m02) == 0 && Double.compare(m10, other.m10) == 0
+				&& Double.compare(m11, other.m11) == 0 && Double.compare(m12, other.m12) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Double.hashCode(m00);
+		result = 31 * result + Double.hashCode(m01);
+		result = 31 * result + Double.hashCode(m02);
+		result = 31 * result + Double.hashCode(m10);
+		result = 31 * result + Double.hashCode(m11);
+		result = 31 * result + Double.hashCode(m12);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + m00 + ", " + m01 + ", " + m02 + "; " + m10 + ", " + m11 + ", " + m12 + "]";
+	}
+}
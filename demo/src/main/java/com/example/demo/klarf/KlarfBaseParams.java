@@ -1,35 +1,34 @@
 package com.example.demo.klarf;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.Objects;
 
 /**
  * Klarf文件基准参数（增强版）
- * 支持晶圆物理中心、单位配置
+ * 支持晶圆物理中心、单位配置；不可变，按全部字段判断相等，可作为缓存键
  */
 public class KlarfBaseParams {
 	/** 样品参考中心X（全局坐标系） */
-	private double sampleCenterX;
+	private final double sampleCenterX;
 	/** 样品参考中心Y（全局坐标系） */
-	private double sampleCenterY;
+	private final double sampleCenterY;
 	/** 芯片X方向间距 */
-	private double diePitchX;
+	private final double diePitchX;
 	/** 芯片Y方向间距 */
-	private double diePitchY;
+	private final double diePitchY;
 	/** 芯片内部局部原点X */
-	private double dieOriginX;
+	private final double dieOriginX;
 	/** 芯片内部局部原点Y */
-	private double dieOriginY;
+	private final double dieOriginY;
 	/** 旋转角度（度），逆时针为正，顺时针为负 */
-	private double rotateAngleDeg;
+	private final double rotateAngleDeg;
 	/** 晶圆物理中心X（可选，旋转中心为晶圆物理中心时必填） */
-	private double waferPhysicalCenterX;
+	private final double waferPhysicalCenterX;
 	/** 晶圆物理中心Y（可选，旋转中心为晶圆物理中心时必填） */
-	private double waferPhysicalCenterY;
+	private final double waferPhysicalCenterY;
 	/** 旋转中心类型（默认SampleCenter） */
-	private RotationCenterType rotationCenterType = RotationCenterType.SAMPLE_CENTER;
+	private final RotationCenterType rotationCenterType;
 	/** 坐标单位（默认μm） */
-	private CoordinateUnit unit = CoordinateUnit.MICROMETER;
+	private final CoordinateUnit unit;
 
 	// 全参构造器（简化常用场景，提供重载构造器）
 	public KlarfBaseParams(double sampleCenterX, double sampleCenterY, double diePitchX, double diePitchY,
@@ -114,6 +113,44 @@ public class KlarfBaseParams {
 
 	// 精度处理辅助方法
 	public double round(double value, int scale) {
-		return new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).doubleValue();
+		return KlarfRounding.halfUp(value, scale);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof KlarfBaseParams)) {
+			return false;
+		}
+		KlarfBaseParams other = (KlarfBaseParams) o;
+		return Double.compare(sampleCenterX, other.sampleCenterX) == 0
+				&& Double.compare(sampleCenterY, other.sampleCenterY) == 0
+				&& Double.compare(diePitchX, other.diePitchX) == 0
+				&& Double.compare(diePitchY, other.diePitchY) == 0
+				&& Double.compare(dieOriginX, other.dieOriginX) == 0
+				&& Double.compare(dieOriginY, other.dieOriginY) == 0
+				&& Double.compare(rotateAngleDeg, other.rotateAngleDeg) == 0
+				&& Double.compare(waferPhysicalCenterX, other.waferPhysicalCenterX) == 0
+				&& Double.compare(waferPhysicalCenterY, other.waferPhysicalCenterY) == 0
+				&& rotationCenterType == other.rotationCenterType
+				&& unit == other.unit;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Double.hashCode(sampleCenterX);
+		result = 31 * result + Double.hashCode(sampleCenterY);
+		result = 31 * result + Double.hashCode(diePitchX);
+		result = 31 * result + Double.hashCode(diePitchY);
+		result = 31 * result + Double.hashCode(dieOriginX);
+		result = 31 * result + Double.hashCode(dieOriginY);
+		result = 31 * result + Double.hashCode(rotateAngleDeg);
+		result = 31 * result + Double.hashCode(waferPhysicalCenterX);
+		result = 31 * result + Double.hashCode(waferPhysicalCenterY);
+		result = 31 * result + Objects.hashCode(rotationCenterType);
+		result = 31 * result + Objects.hashCode(unit);
+		return result;
 	}
 }
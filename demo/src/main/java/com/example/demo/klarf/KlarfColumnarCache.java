@@ -0,0 +1,114 @@
+package com.example.demo.klarf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * KLARF列式缓存目录
+ * 每个源文件对应一个缓存文件（文件名为源文件绝对路径的SHA-256前缀），缓存中记录源文件大小和修改时间，
+ * 任一变化即视为失效并重新解析生成。第一次 open 解析文本并写缓存，之后只需映射缓存文件并读取文件头。
+ */
+public final class KlarfColumnarCache {
+	/** 默认缓存目录 */
+	public static final String DEFAULT_DIRECTORY = "/tmp/download/klarf-cache/";
+	private static final String SUFFIX = ".kcol";
+	// 同一源文件的并发生成只做一次（按路径哈希分段加锁）
+	private static final int LOCK_STRIPES = 32;
+
+	private final Path directory;
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	public KlarfColumnarCache(Path directory) {
+		this.directory = directory;
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * 打开源文件对应的列式缓存，不存在或已失效时先解析源文件生成
+	 */
+	public KlarfColumnarFile open(Path source) throws IOException {
+		Path normalized = source.toAbsolutePath().normalize();
+		Path sidecar = sidecarPath(normalized);
+		synchronized (locks[Math.floorMod(normalized.hashCode(), LOCK_STRIPES)]) {
+			BasicFileAttributes attributes = Files.readAttributes(normalized, BasicFileAttributes.class);
+			long size = attributes.size();
+			long modified = attributes.lastModifiedTime().toMillis();
+			KlarfColumnarFile cached = openIfFresh(sidecar, size, modified);
+			if (cached != null) {
+				return cached;
+			}
+			build(normalized, sidecar, size, modified);
+			return KlarfColumnarFile.open(sidecar);
+		}
+	}
+
+	/**
+	 * 删除源文件对应的缓存
+	 */
+	public void evict(Path source) throws IOException {
+		Files.deleteIfExists(sidecarPath(source.toAbsolutePath().normalize()));
+	}
+
+	/**
+	 * 源文件对应的缓存文件路径
+	 */
+	public Path sidecarPath(Path source) {
+		return directory.resolve(sha256(source.toAbsolutePath().normalize().toString()) + SUFFIX);
+	}
+
+	private static KlarfColumnarFile openIfFresh(Path sidecar, long size, long modified) {
+		if (!Files.isRegularFile(sidecar)) {
+			return null;
+		}
+		try {
+			KlarfColumnarFile file = KlarfColumnarFile.open(sidecar);
+			if (file.getSourceSize() == size && file.getSourceModified() == modified) {
+				return file;
+			}
+		} catch (IOException e) {
+			// 损坏或格式不兼容的缓存直接重新生成
+		}
+		return null;
+	}
+
+	/**
+	 * 解析源文件写到临时文件，完成后原子替换，读取方不会看到写了一半的缓存
+	 */
+	private void build(Path source, Path sidecar, long size, long modified) throws IOException {
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, "klarf-", ".tmp");
+		try {
+			try (KlarfReader reader = KlarfReader.open(source);
+				 KlarfColumnarWriter writer = new KlarfColumnarWriter(reader.getHeader(), directory)) {
+				while (reader.next()) {
+					writer.append(reader.getRows(), reader.getBatch());
+				}
+				writer.finish(temp, size, modified);
+			}
+			Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static String sha256(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(32);
+			for (int i = 0; i < 16; i++) {
+				hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256不可用", e);
+		}
+	}
+}
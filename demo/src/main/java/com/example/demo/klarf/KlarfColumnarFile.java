@@ -0,0 +1,309 @@
+package com.example.demo.klarf;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * KLARF列式缓存文件（只读，内存映射）
+ * <p>
+ * 由 {@link KlarfColumnarCache} 在第一次解析KLARF文本时生成，之后的旋转/导出直接映射本文件，
+ * 打开时只读取文件头，不再解析文本。文件格式（小端）：
+ * <pre>
+ * 魔数 "KLFCOL01" | 源文件大小 long | 源文件修改时间 long | 缺陷数 int | 描述区长度 int
+ * 描述区：版本、SampleCenter/DiePitch/DieOrigin、定位标记、列定义（列名、编码、各数据段的位置和长度）
+ * 数据段（8字节对齐）：
+ *   坐标列    XINDEX/YINDEX 为 int[缺陷数]，XREL/YREL 为 double[缺陷数]
+ *   字典编码列 int[缺陷数] 字典码 + int[字典大小+1] 字典偏移 + 字典字节
+ *   普通列    int[缺陷数+1] 偏移 + 字节（取值种类太多、不适合字典编码的列，如 DEFECTID）
+ * </pre>
+ * 非坐标列保存原始文本（字符串列不含引号，数组列含括号，KLARF 1.2 的 IMAGELIST 为全部图像词元）。
+ * 使用方式：
+ * <pre>
+ * KlarfColumnarFile file = cache.open(path);
+ * KlarfBaseParams params = file.getHeader().toBaseParams(90);
+ * for (int row = 0; row &lt; file.getDefectCount(); row += batch.size()) {
+ *     file.read(row, batch);
+ *     KlarfCoordinateRotator.rotateBatch(batch, params, output);
+ * }
+ * </pre>
+ */
+public final class KlarfColumnarFile {
+	static final byte[] MAGIC = "KLFCOL01".getBytes(StandardCharsets.US_ASCII);
+	/** 固定前缀长度：魔数 + 源文件大小 + 修改时间 + 缺陷数 + 描述区长度 */
+	static final int PREFIX_LENGTH = 32;
+
+	/** 列编码 */
+	static final byte ENCODING_COORDINATE = 0;
+	static final byte ENCODING_DICTIONARY = 1;
+	static final byte ENCODING_PLAIN = 2;
+
+	private final long sourceSize;
+	private final long sourceModified;
+	private final int defectCount;
+	private final KlarfHeader header = new KlarfHeader();
+
+	private final IntBuffer xIndex;
+	private final IntBuffer yIndex;
+	private final DoubleBuffer xRel;
+	private final DoubleBuffer yRel;
+	// 非坐标列（坐标列位置为null）
+	private final Column[] columns;
+
+	private KlarfColumnarFile(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		ByteBuffer prefix = readFully(channel, 0, PREFIX_LENGTH);
+		byte[] magic = new byte[MAGIC.length];
+		prefix.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("不是KLARF列式缓存文件");
+		}
+		this.sourceSize = prefix.getLong();
+		this.sourceModified = prefix.getLong();
+		this.defectCount = prefix.getInt();
+		int descriptorLength = prefix.getInt();
+		if (defectCount < 0 || descriptorLength < 0 || PREFIX_LENGTH + (long) descriptorLength > fileSize) {
+			throw new IOException("KLARF列式缓存文件已损坏");
+		}
+
+		ByteBuffer descriptor = readFully(channel, PREFIX_LENGTH, descriptorLength);
+		header.setVersion(readString(descriptor));
+		header.setSampleCenter(descriptor.getDouble(), descriptor.getDouble());
+		header.setDiePitch(descriptor.getDouble(), descriptor.getDouble());
+		header.setDieOrigin(descriptor.getDouble(), descriptor.getDouble());
+		header.setOrientationMarkLocation(readString(descriptor));
+
+		int columnCount = descriptor.getInt();
+		List<String> names = new ArrayList<>(columnCount);
+		this.columns = new Column[columnCount];
+		IntBuffer[] coordinateInts = new IntBuffer[KlarfRowArena.COORDINATE_COUNT];
+		DoubleBuffer[] coordinateDoubles = new DoubleBuffer[KlarfRowArena.COORDINATE_COUNT];
+		for (int i = 0; i < columnCount; i++) {
+			names.add(readString(descriptor));
+			byte encoding = descriptor.get();
+			switch (encoding) {
+				case ENCODING_COORDINATE:
+					int field = descriptor.get();
+					ByteBuffer values = map(channel, descriptor, fileSize);
+					if (field == KlarfRowArena.XREL || field == KlarfRowArena.YREL) {
+						coordinateDoubles[field] = values.asDoubleBuffer();
+					} else {
+						coordinateInts[field] = values.asIntBuffer();
+					}
+					break;
+				case ENCODING_DICTIONARY:
+					columns[i] = new Column(map(channel, descriptor, fileSize).asIntBuffer(),
+							map(channel, descriptor, fileSize).asIntBuffer(), map(channel, descriptor, fileSize));
+					break;
+				case ENCODING_PLAIN:
+					columns[i] = new Column(null, map(channel, descriptor, fileSize).asIntBuffer(),
+							map(channel, descriptor, fileSize));
+					break;
+				default:
+					throw new IOException("KLARF列式缓存文件已损坏：未知列编码" + encoding);
+			}
+		}
+		header.setDefectColumns(names);
+		this.xIndex = requireColumn(coordinateInts[KlarfRowArena.XINDEX]);
+		this.yIndex = requireColumn(coordinateInts[KlarfRowArena.YINDEX]);
+		this.xRel = requireColumn(coordinateDoubles[KlarfRowArena.XREL]);
+		this.yRel = requireColumn(coordinateDoubles[KlarfRowArena.YREL]);
+	}
+
+	/**
+	 * 映射一个缓存文件（不检查源文件是否变化，见 {@link KlarfColumnarCache#open(Path)}）
+	 */
+	public static KlarfColumnarFile open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new KlarfColumnarFile(channel);
+		} catch (RuntimeException e) {
+			// 描述区越界等
+			throw new IOException("KLARF列式缓存文件已损坏：" + file, e);
+		}
+	}
+
+	public KlarfHeader getHeader() {
+		return header;
+	}
+
+	public int getDefectCount() {
+		return defectCount;
+	}
+
+	/**
+	 * 生成缓存时源文件的大小
+	 */
+	public long getSourceSize() {
+		return sourceSize;
+	}
+
+	/**
+	 * 生成缓存时源文件的修改时间（毫秒）
+	 */
+	public long getSourceModified() {
+		return sourceModified;
+	}
+
+	/**
+	 * 从 fromRow 开始读取最多 dst.capacity() 条缺陷坐标到 dst（先清空）
+	 * @return 读取条数，fromRow 到达末尾时为0
+	 */
+	public int read(int fromRow, DefectBatch dst) {
+		if (fromRow < 0 || fromRow > defectCount) {
+			throw new IndexOutOfBoundsException("起始行越界：" + fromRow + "/" + defectCount);
+		}
+		int count = Math.min(dst.capacity(), defectCount - fromRow);
+		xIndex.get(fromRow, dst.getXIndex(), 0, count);
+		yIndex.get(fromRow, dst.getYIndex(), 0, count);
+		xRel.get(fromRow, dst.getXRel(), 0, count);
+		yRel.get(fromRow, dst.getYRel(), 0, count);
+		dst.setSize(count);
+		return count;
+	}
+
+	/**
+	 * 非坐标列的原始文本
+	 * @param column 列下标（与 getHeader().getDefectColumns() 一致）
+	 */
+	public String getValue(int row, int column) {
+		Column values = attributeColumn(column);
+		checkRow(row);
+		if (values.codes != null) {
+			return values.entry(values.codes.get(row));
+		}
+		return values.entry(row);
+	}
+
+	/**
+	 * 该列是否为字典编码（字典编码列可以按字典码分组，不必比较字符串）
+	 */
+	public boolean isDictionaryEncoded(int column) {
+		return attributeColumn(column).codes != null;
+	}
+
+	/**
+	 * 字典编码列的字典大小
+	 */
+	public int getDictionarySize(int column) {
+		Column values = dictionaryColumn(column);
+		return values.offsets.limit() - 1;
+	}
+
+	/**
+	 * 字典编码列的字典码
+	 */
+	public int getDictionaryCode(int row, int column) {
+		Column values = dictionaryColumn(column);
+		checkRow(row);
+		return values.codes.get(row);
+	}
+
+	/**
+	 * 字典码对应的原始文本
+	 */
+	public String getDictionaryValue(int column, int code) {
+		Column values = dictionaryColumn(column);
+		if (code < 0 || code >= values.offsets.limit() - 1) {
+			throw new IndexOutOfBoundsException("字典码越界：" + code);
+		}
+		return values.entry(code);
+	}
+
+	private Column attributeColumn(int column) {
+		if (column < 0 || column >= columns.length) {
+			throw new IndexOutOfBoundsException("列下标越界：" + column + "/" + columns.length);
+		}
+		if (columns[column] == null) {
+			throw new IllegalArgumentException("坐标列请通过 read(int, DefectBatch) 读取：" + header.getDefectColumns().get(column));
+		}
+		return columns[column];
+	}
+
+	private Column dictionaryColumn(int column) {
+		Column values = attributeColumn(column);
+		if (values.codes == null) {
+			throw new IllegalArgumentException("该列不是字典编码：" + header.getDefectColumns().get(column));
+		}
+		return values;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= defectCount) {
+			throw new IndexOutOfBoundsException("行越界：" + row + "/" + defectCount);
+		}
+	}
+
+	private <T extends Buffer> T requireColumn(T buffer) throws IOException {
+		if (buffer == null || buffer.limit() != defectCount) {
+			throw new IOException("KLARF列式缓存文件已损坏：坐标列缺失或长度不符");
+		}
+		return buffer;
+	}
+
+	// ------------------------------ 文件读取辅助 ------------------------------
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("KLARF列式缓存文件不完整");
+			}
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * 按描述区中的（位置, 长度）映射一个数据段
+	 */
+	private static ByteBuffer map(FileChannel channel, ByteBuffer descriptor, long fileSize) throws IOException {
+		long offset = descriptor.getLong();
+		long length = descriptor.getLong();
+		if (offset < 0 || length < 0 || length > Integer.MAX_VALUE || offset + length > fileSize) {
+			throw new IOException("KLARF列式缓存文件已损坏：数据段越界");
+		}
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		return mapped.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 非坐标列：codes 为null时是普通列，offsets 按行；否则 offsets 按字典码
+	 */
+	private static final class Column {
+		final IntBuffer codes;
+		final IntBuffer offsets;
+		final ByteBuffer bytes;
+
+		Column(IntBuffer codes, IntBuffer offsets, ByteBuffer bytes) {
+			this.codes = codes;
+			this.offsets = offsets;
+			this.bytes = bytes;
+		}
+
+		String entry(int index) {
+			int start = offsets.get(index);
+			byte[] text = new byte[offsets.get(index + 1) - start];
+			bytes.get(start, text);
+			return new String(text, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
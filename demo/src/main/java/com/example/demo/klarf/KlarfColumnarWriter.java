@@ -0,0 +1,445 @@
+package com.example.demo.klarf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * KLARF列式缓存文件生成器
+ * 按批次追加 {@link KlarfReader} 的结果，每个数据段先写到各自的临时文件（内存只与字典大小有关，与缺陷数无关），
+ * finish 时拼接成 {@link KlarfColumnarFile} 格式
+ */
+final class KlarfColumnarWriter implements Closeable {
+	private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+	/** 字典编码的取值种类上限，超过后该列按普通列保存 */
+	static final int DICTIONARY_LIMIT = 65536;
+	/** 缺陷数上限（double列的数据段不超过2GB，以便整段映射） */
+	static final int MAX_DEFECTS = Integer.MAX_VALUE / Double.BYTES;
+	private static final int ALIGNMENT = 8;
+
+	private final KlarfHeader header;
+	private final Path directory;
+	private final List<Spill> spills = new ArrayList<>();
+	// 坐标列，按 KlarfRowArena.XREL/YREL/XINDEX/YINDEX 顺序
+	private final Spill[] coordinates = new Spill[KlarfRowArena.COORDINATE_COUNT];
+	// 非坐标列（坐标列位置为null）
+	private final AttributeColumn[] attributes;
+	private int defectCount;
+
+	/**
+	 * @param header 读取器的文件头（决定列定义）
+	 * @param directory 临时文件目录
+	 */
+	KlarfColumnarWriter(KlarfHeader header, Path directory) throws IOException {
+		this.header = header;
+		this.directory = directory;
+		this.attributes = new AttributeColumn[header.getDefectColumns().size()];
+		try {
+			for (int field = 0; field < coordinates.length; field++) {
+				coordinates[field] = newSpill();
+			}
+			for (int column = 0; column < attributes.length; column++) {
+				if (coordinateField(column) < 0) {
+					attributes[column] = new AttributeColumn(newSpill(), newSpill(), newSpill());
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 追加读取器的当前批次
+	 */
+	void append(KlarfRowArena rows, DefectBatch batch) throws IOException {
+		if (rows.getColumnCount() != attributes.length) {
+			throw new IOException("DefectList列数与文件头不一致，无法生成列式缓存：" + rows.getColumnCount() + "/" + attributes.length);
+		}
+		int count = batch.size();
+		if (count > MAX_DEFECTS - defectCount) {
+			throw new IOException("缺陷数超过列式缓存上限：" + MAX_DEFECTS);
+		}
+		for (int i = 0; i < count; i++) {
+			coordinates[KlarfRowArena.XREL].putDouble(batch.getXRel()[i]);
+			coordinates[KlarfRowArena.YREL].putDouble(batch.getYRel()[i]);
+			coordinates[KlarfRowArena.XINDEX].putInt(batch.getXIndex()[i]);
+			coordinates[KlarfRowArena.YINDEX].putInt(batch.getYIndex()[i]);
+		}
+		byte[] data = rows.getData();
+		for (int column = 0; column < attributes.length; column++) {
+			AttributeColumn attribute = attributes[column];
+			if (attribute == null) {
+				continue;
+			}
+			for (int row = 0; row < count; row++) {
+				attribute.add(data, rows.columnStart(row, column), rows.columnEnd(row, column));
+			}
+		}
+		defectCount += count;
+	}
+
+	/**
+	 * 拼接出完整的列式缓存文件（已存在时覆盖）
+	 * @param sourceSize 源文件大小
+	 * @param sourceModified 源文件修改时间（毫秒）
+	 */
+	void finish(Path target, long sourceSize, long sourceModified) throws IOException {
+		List<Section> sections = new ArrayList<>();
+		for (int column = 0; column < attributes.length; column++) {
+			AttributeColumn attribute = attributes[column];
+			if (attribute == null) {
+				sections.add(new Section(coordinates[coordinateField(column)]));
+			} else if (attribute.dictionary != null) {
+				ByteDictionary dictionary = attribute.dictionary;
+				sections.add(new Section(attribute.codes));
+				sections.add(new Section(dictionary.offsets()));
+				sections.add(new Section(ByteBuffer.wrap(dictionary.pool, 0, dictionary.poolLength())));
+			} else {
+				sections.add(new Section(attribute.offsets));
+				sections.add(new Section(attribute.bytes));
+			}
+		}
+
+		// 描述区长度与数据段位置无关：先按位置0序列化求长度，再计算实际位置
+		long[] offsets = new long[sections.size()];
+		int descriptorLength = descriptor(sections, offsets).remaining();
+		long position = KlarfColumnarFile.PREFIX_LENGTH + descriptorLength;
+		for (int i = 0; i < offsets.length; i++) {
+			position = align(position);
+			offsets[i] = position;
+			position += sections.get(i).length;
+		}
+
+		ByteBuffer prefix = ByteBuffer.allocate(KlarfColumnarFile.PREFIX_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		prefix.put(KlarfColumnarFile.MAGIC).putLong(sourceSize).putLong(sourceModified)
+				.putInt(defectCount).putInt(descriptorLength).flip();
+		try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(out, prefix);
+			writeFully(out, descriptor(sections, offsets));
+			for (int i = 0; i < offsets.length; i++) {
+				int padding = (int) (offsets[i] - out.position());
+				writeFully(out, ByteBuffer.allocate(padding));
+				sections.get(i).writeTo(out);
+			}
+		}
+	}
+
+	/**
+	 * 删除临时文件
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (Spill spill : spills) {
+			try {
+				spill.channel.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		spills.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private int coordinateField(int column) {
+		for (int field = 0; field < KlarfRowArena.COORDINATE_COUNT; field++) {
+			if (header.getCoordinateColumn(field) == column) {
+				return field;
+			}
+		}
+		return -1;
+	}
+
+	private ByteBuffer descriptor(List<Section> sections, long[] offsets) {
+		List<String> names = header.getDefectColumns();
+		int capacity = 128 + stringLength(header.getVersion()) + stringLength(header.getOrientationMarkLocation());
+		for (String name : names) {
+			capacity += stringLength(name) + 2;
+		}
+		capacity += sections.size() * 16;
+
+		ByteBuffer buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+		putString(buffer, header.getVersion());
+		buffer.putDouble(header.getSampleCenterX()).putDouble(header.getSampleCenterY());
+		buffer.putDouble(header.getDiePitchX()).putDouble(header.getDiePitchY());
+		buffer.putDouble(header.getDieOriginX()).putDouble(header.getDieOriginY());
+		putString(buffer, header.getOrientationMarkLocation());
+		buffer.putInt(names.size());
+		int section = 0;
+		for (int column = 0; column < names.size(); column++) {
+			putString(buffer, names.get(column));
+			AttributeColumn attribute = attributes[column];
+			int sectionCount;
+			if (attribute == null) {
+				buffer.put(KlarfColumnarFile.ENCODING_COORDINATE).put((byte) coordinateField(column));
+				sectionCount = 1;
+			} else if (attribute.dictionary != null) {
+				buffer.put(KlarfColumnarFile.ENCODING_DICTIONARY);
+				sectionCount = 3;
+			} else {
+				buffer.put(KlarfColumnarFile.ENCODING_PLAIN);
+				sectionCount = 2;
+			}
+			for (int i = 0; i < sectionCount; i++, section++) {
+				buffer.putLong(offsets[section]).putLong(sections.get(section).length);
+			}
+		}
+		return buffer.flip();
+	}
+
+	private Spill newSpill() throws IOException {
+		Path file = Files.createTempFile(directory, "klarf-", ".spill");
+		Spill spill = new Spill(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE));
+		spills.add(spill);
+		return spill;
+	}
+
+	private static long align(long position) {
+		return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	private static int stringLength(String value) {
+		return 4 + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer.putInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length).put(bytes);
+	}
+
+	private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+
+	// ------------------------------ 内部结构 ------------------------------
+	/**
+	 * 顺序写入的临时文件（小端）
+	 */
+	private static final class Spill {
+		final FileChannel channel;
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(SPILL_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		long size;
+
+		Spill(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+			size += Integer.BYTES;
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(Double.BYTES);
+			buffer.putDouble(value);
+			size += Double.BYTES;
+		}
+
+		void put(byte[] data, int offset, int length) throws IOException {
+			size += length;
+			while (length > 0) {
+				ensure(1);
+				int n = Math.min(length, buffer.remaining());
+				buffer.put(data, offset, n);
+				offset += n;
+				length -= n;
+			}
+		}
+
+		/**
+		 * 把全部内容复制到 out 的当前位置
+		 */
+		void copyTo(FileChannel out) throws IOException {
+			drain();
+			long position = 0;
+			while (position < size) {
+				position += channel.transferTo(position, size - position, out);
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				drain();
+			}
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			writeFully(channel, buffer);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * 数据段：临时文件或内存中的字节
+	 */
+	private static final class Section {
+		final long length;
+		final Spill spill;
+		final ByteBuffer bytes;
+
+		Section(Spill spill) {
+			this.length = spill.size;
+			this.spill = spill;
+			this.bytes = null;
+		}
+
+		Section(ByteBuffer bytes) {
+			this.length = bytes.remaining();
+			this.spill = null;
+			this.bytes = bytes;
+		}
+
+		void writeTo(FileChannel out) throws IOException {
+			if (spill != null) {
+				spill.copyTo(out);
+			} else {
+				writeFully(out, bytes.duplicate());
+			}
+		}
+	}
+
+	/**
+	 * 非坐标列：同时写普通编码（偏移 + 字节）和字典码，字典超过上限后只保留普通编码
+	 */
+	private static final class AttributeColumn {
+		final Spill codes;
+		final Spill offsets;
+		final Spill bytes;
+		ByteDictionary dictionary = new ByteDictionary();
+
+		AttributeColumn(Spill codes, Spill offsets, Spill bytes) throws IOException {
+			this.codes = codes;
+			this.offsets = offsets;
+			this.bytes = bytes;
+			offsets.putInt(0);
+		}
+
+		void add(byte[] data, int start, int end) throws IOException {
+			if (dictionary != null) {
+				int code = dictionary.code(data, start, end);
+				if (code < 0) {
+					dictionary = null;
+				} else {
+					codes.putInt(code);
+				}
+			}
+			bytes.put(data, start, end - start);
+			if (bytes.size > Integer.MAX_VALUE) {
+				throw new IOException("单列文本超过2GB，无法生成列式缓存");
+			}
+			offsets.putInt((int) bytes.size);
+		}
+	}
+
+	/**
+	 * 字节串字典（开放寻址哈希表，字典码按首次出现顺序分配）
+	 */
+	static final class ByteDictionary {
+		// 字典码+1，0表示空槽
+		private int[] table = new int[256];
+		private int[] hashes = new int[64];
+		// 第 i 个取值为 pool[starts[i], starts[i+1])
+		private int[] starts = new int[65];
+		private byte[] pool = new byte[1024];
+		private int size;
+
+		/**
+		 * 查找或新增取值
+		 * @return 字典码；取值种类超过 DICTIONARY_LIMIT 时返回-1
+		 */
+		int code(byte[] data, int start, int end) {
+			int hash = hash(data, start, end);
+			int mask = table.length - 1;
+			int slot = hash & mask;
+			while (table[slot] != 0) {
+				int code = table[slot] - 1;
+				if (hashes[code] == hash && Arrays.equals(pool, starts[code], starts[code + 1], data, start, end)) {
+					return code;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (size == DICTIONARY_LIMIT) {
+				return -1;
+			}
+
+			int code = size++;
+			if (size == hashes.length) {
+				hashes = Arrays.copyOf(hashes, size * 2);
+				starts = Arrays.copyOf(starts, size * 2 + 1);
+			}
+			int length = end - start;
+			int poolLength = starts[code];
+			if (poolLength + length > pool.length) {
+				pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolLength + length));
+			}
+			System.arraycopy(data, start, pool, poolLength, length);
+			starts[size] = poolLength + length;
+			hashes[code] = hash;
+			table[slot] = code + 1;
+			if (size * 2 > table.length) {
+				rehash();
+			}
+			return code;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int poolLength() {
+			return starts[size];
+		}
+
+		/**
+		 * 字典偏移段：int[size+1]（小端）
+		 */
+		ByteBuffer offsets() {
+			ByteBuffer buffer = ByteBuffer.allocate((size + 1) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.asIntBuffer().put(starts, 0, size + 1);
+			return buffer;
+		}
+
+		private void rehash() {
+			table = new int[table.length * 2];
+			int mask = table.length - 1;
+			for (int code = 0; code < size; code++) {
+				int slot = hashes[code] & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = code + 1;
+			}
+		}
+
+		private static int hash(byte[] data, int start, int end) {
+			int h = 1;
+			for (int i = start; i < end; i++) {
+				h = 31 * h + data[i];
+			}
+			h *= 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
@@ -1,11 +1,12 @@
 package com.example.demo.klarf;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Klarf缺陷坐标旋转工具类（优化版）
@@ -13,8 +14,14 @@ import java.util.stream.Collectors;
  */
 public class KlarfCoordinateRotator {
 	// 可配置常量（便于统一修改）
-	private static final int COORD_PRECISION = 4; // 坐标精度（μm，保留4位小数）
-	private static final String DIE_ID_SEPARATOR = "-"; // DieID分隔符
+	static final int COORD_PRECISION = 4; // 坐标精度（μm，保留4位小数）
+	private static final int PARALLEL_THRESHOLD = 64 * 1024; // 少于该缺陷数时并行收益低于调度开销，保持串行
+	private static final int PARALLEL_CHUNK = 8 * 1024; // 并行分块大小（每块输入+输出约384KB，适配L2缓存）
+	// 批量旋转内核（启动时选择：-Dklarf.rotation.kernel=auto|scalar|vector，向量内核不可用时回退标量）
+	private static final RotationKernel KERNEL = RotationKernel.select(System.getProperty("klarf.rotation.kernel", "auto"));
+	private static final int RESOLVED_CACHE_LIMIT = 1024; // 解析参数缓存上限（同一文件/角度反复旋转时命中，超限整体清空）
+	// 基准参数 → 解析结果（含仿射矩阵）；KlarfBaseParams 不可变且按值相等，可直接作为键
+	private static final ConcurrentMap<KlarfBaseParams, ResolvedParams> RESOLVED_CACHE = new ConcurrentHashMap<>();
 
 	/**
 	 * 旋转单个缺陷坐标（核心方法）
@@ -27,28 +34,8 @@ public class KlarfCoordinateRotator {
 		// 1. 严格参数校验
 		validateParams(defect, baseParams);
 
-		// 2. 提取核心参数（统一转换为μm）
-		double sampleCenterX = baseParams.getSampleCenterX();
-		double sampleCenterY = baseParams.getSampleCenterY();
-		double diePitchX = baseParams.getDiePitchX();
-		double diePitchY = baseParams.getDiePitchY();
-		double dieOriginX = baseParams.getDieOriginX();
-		double dieOriginY = baseParams.getDieOriginY();
-		double rotateAngleDeg = baseParams.getRotateAngleDeg();
-		// 获取实际旋转中心（SampleCenter/晶圆物理中心）
-		double rotCenterX = baseParams.getActualRotationCenterX();
-		double rotCenterY = baseParams.getActualRotationCenterY();
-
-		// 3. 计算原始绝对坐标（含DieOrigin修正）
-		double[] originalAbsCoord = calculateOriginalAbsoluteCoord(defect, diePitchX, diePitchY, dieOriginX, dieOriginY, sampleCenterX, sampleCenterY);
-
-		// 4. 执行旋转变换
-		double[] rotatedAbsCoord = rotateAbsoluteCoord(originalAbsCoord[0], originalAbsCoord[1], rotCenterX, rotCenterY, rotateAngleDeg);
-
-		// 5. 反向计算旋转后的Klarf格式坐标（XIndex/XRel/DieID）
-		fillRotatedKlarfCoord(defect, rotatedAbsCoord[0], rotatedAbsCoord[1], diePitchX, diePitchY, dieOriginX, dieOriginY, sampleCenterX, sampleCenterY);
-
-		return defect;
+		// 2. 提取核心参数（统一转换为μm，按参数缓存）
+		return rotateDefect(defect, resolve(baseParams));
 	}
 
 	/**
@@ -59,15 +46,75 @@ public class KlarfCoordinateRotator {
 	 */
 	public static List<KlarfDefect> rotateDefects(List<KlarfDefect> defects, KlarfBaseParams baseParams) {
 		validateParams(defects, baseParams);
-		// 流处理：生成新列表，避免修改原列表
-		return defects.stream()
-				.map(defect -> rotateDefect(new KlarfDefect(
-						defect.getOriginalXIndex(),
-						defect.getOriginalYIndex(),
-						defect.getOriginalXRel(),
-						defect.getOriginalYRel()
-				), baseParams))
-				.collect(Collectors.toList());
+		// 参数只解析一次，逐个缺陷复用
+		ResolvedParams params = resolve(baseParams);
+		List<KlarfDefect> rotated = new ArrayList<>(defects.size());
+		for (KlarfDefect defect : defects) {
+			if (defect == null) {
+				throw new IllegalArgumentException("缺陷对象不能为空！");
+			}
+			rotated.add(rotateDefect(new KlarfDefect(
+					defect.getOriginalXIndex(),
+					defect.getOriginalYIndex(),
+					defect.getOriginalXRel(),
+					defect.getOriginalYRel()
+			), params));
+		}
+		return rotated;
+	}
+
+	/**
+	 * 列式批量旋转（零逐缺陷分配）
+	 * 参数只解析/校验一次，结果写入预分配的输出批次；src 与 dst 可以是同一个批次（原地旋转）
+	 * @param src 原始缺陷批次（非空）
+	 * @param baseParams Klarf基准参数（非空）
+	 * @param dst 输出批次（容量不小于 src.size()）
+	 * @return dst
+	 */
+	public static DefectBatch rotateBatch(DefectBatch src, KlarfBaseParams baseParams, DefectBatch dst) {
+		validateParams(src, baseParams, dst);
+		KERNEL.rotate(src, resolve(baseParams), dst, 0, src.size());
+		dst.setSize(src.size());
+		return dst;
+	}
+
+	/**
+	 * 列式批量旋转（并行版）
+	 * 在专用ForkJoinPool上按块并行（不占用web层共享的commonPool），每个下标只写自己的输出位置，结果顺序与串行一致；
+	 * 缺陷数低于阈值时直接串行
+	 * @param src 原始缺陷批次（非空）
+	 * @param baseParams Klarf基准参数（非空）
+	 * @param dst 输出批次（容量不小于 src.size()）
+	 * @return dst
+	 */
+	public static DefectBatch rotateBatchParallel(DefectBatch src, KlarfBaseParams baseParams, DefectBatch dst) {
+		validateParams(src, baseParams, dst);
+		ResolvedParams params = resolve(baseParams);
+		if (src.size() < PARALLEL_THRESHOLD) {
+			KERNEL.rotate(src, params, dst, 0, src.size());
+		} else {
+			RotationPoolHolder.POOL.invoke(new RotateRangeTask(src, params, dst, 0, src.size()));
+		}
+		dst.setSize(src.size());
+		return dst;
+	}
+
+	/**
+	 * 基准参数对应的旋转仿射变换（全局绝对坐标 Index × DiePitch + DieOrigin + Rel → 旋转后的全局绝对坐标，未做精度舍入）
+	 * 相同参数返回同一个缓存对象
+	 * @param baseParams Klarf基准参数（非空）
+	 * @throws IllegalArgumentException 参数非法时抛出
+	 */
+	public static KlarfAffineTransform getTransform(KlarfBaseParams baseParams) {
+		validateParams(baseParams);
+		return resolve(baseParams).transform;
+	}
+
+	/**
+	 * 当前使用的批量旋转内核名称（scalar/vector）
+	 */
+	public static String getKernelName() {
+		return KERNEL.name();
 	}
 
 	// ------------------------------ 私有核心方法：抽离逻辑，提升可读性 ------------------------------
@@ -107,85 +154,242 @@ public class KlarfCoordinateRotator {
 	}
 
 	/**
-	 * 计算原始绝对坐标（含DieOrigin修正）
+	 * 解析基准参数（已校验）：命中缓存直接返回，否则解析后放入缓存
+	 */
+	static ResolvedParams resolve(KlarfBaseParams baseParams) {
+		ResolvedParams params = RESOLVED_CACHE.get(baseParams);
+		if (params == null) {
+			params = new ResolvedParams(baseParams);
+			if (RESOLVED_CACHE.size() >= RESOLVED_CACHE_LIMIT) {
+				RESOLVED_CACHE.clear();
+			}
+			ResolvedParams existing = RESOLVED_CACHE.putIfAbsent(baseParams, params);
+			if (existing != null) {
+				params = existing;
+			}
+		}
+		return params;
+	}
+
+	private static void validateParams(DefectBatch src, KlarfBaseParams baseParams, DefectBatch dst) {
+		if (src == null || dst == null) {
+			throw new IllegalArgumentException("缺陷批次不能为空！");
+		}
+		if (dst.capacity() < src.size()) {
+			throw new IllegalArgumentException("输出批次容量不足！需要：" + src.size() + "，实际：" + dst.capacity());
+		}
+		validateParams(baseParams);
+	}
+
+	/**
+	 * 旋转单个缺陷（参数已解析）
 	 */
-	private static double[] calculateOriginalAbsoluteCoord(KlarfDefect defect, double diePitchX, double diePitchY,
-			double dieOriginX, double dieOriginY,
-			double sampleCenterX, double sampleCenterY) {
-		// 芯片内局部坐标 = DieOrigin + XRel/YRel
-		double dieLocalX = dieOriginX + defect.getOriginalXRel();
-		double dieLocalY = dieOriginY + defect.getOriginalYRel();
-		// 全局绝对坐标 = XIndex*DiePitch + 局部坐标 - SampleCenter
-		double originalAbsX = defect.getOriginalXIndex() * diePitchX + dieLocalX - sampleCenterX;
-		double originalAbsY = defect.getOriginalYIndex() * diePitchY + dieLocalY - sampleCenterY;
-		return new double[]{originalAbsX, originalAbsY};
+	private static KlarfDefect rotateDefect(KlarfDefect defect, ResolvedParams p) {
+		// 3. 计算原始绝对坐标（含DieOrigin修正）
+		double originalAbsX = originalAbsolute(defect.getOriginalXIndex(), defect.getOriginalXRel(),
+				p.diePitchX, p.dieOriginX, p.sampleCenterX);
+		double originalAbsY = originalAbsolute(defect.getOriginalYIndex(), defect.getOriginalYRel(),
+				p.diePitchY, p.dieOriginY, p.sampleCenterY);
+
+		// 4. 执行旋转变换（平移至旋转中心 → 旋转 → 平移回原位置）
+		double tx = originalAbsX - p.rotCenterX;
+		double ty = originalAbsY - p.rotCenterY;
+		double rotatedAbsX = rotateX(tx, ty, p) + p.rotCenterX;
+		double rotatedAbsY = rotateY(tx, ty, p) + p.rotCenterY;
+
+		// 5. 反向计算旋转后的Klarf格式坐标（XIndex/XRel，DieID由索引按需生成）
+		fillRotatedKlarfCoord(defect, rotatedAbsX, rotatedAbsY, p);
+		return defect;
 	}
 
 	/**
-	 * 对绝对坐标执行旋转变换
-	 * @param absX 原始绝对X坐标
-	 * @param absY 原始绝对Y坐标
-	 * @param rotCenterX 旋转中心X
-	 * @param rotCenterY 旋转中心Y
-	 * @param rotateAngleDeg 旋转角度（已归一化）
-	 * @return 旋转后的绝对坐标 [x, y]
+	 * 批量旋转核心循环（标量内核）：只读写基本类型数组
+	 * 向量内核的尾部和越界通道也回退到这里，两者结果必须逐位一致
 	 */
-	private static double[] rotateAbsoluteCoord(double absX, double absY, double rotCenterX, double rotCenterY, double rotateAngleDeg) {
-		// 角度转弧度
-		double rotateAngleRad = Math.toRadians(rotateAngleDeg);
-		double cosTheta = Math.cos(rotateAngleRad);
-		double sinTheta = Math.sin(rotateAngleRad);
+	static void rotateRange(DefectBatch src, ResolvedParams p, DefectBatch dst, int from, int to) {
+		int[] srcXIndex = src.getXIndex();
+		int[] srcYIndex = src.getYIndex();
+		double[] srcXRel = src.getXRel();
+		double[] srcYRel = src.getYRel();
+		int[] dstXIndex = dst.getXIndex();
+		int[] dstYIndex = dst.getYIndex();
+		double[] dstXRel = dst.getXRel();
+		double[] dstYRel = dst.getYRel();
+
+		for (int i = from; i < to; i++) {
+			double originalAbsX = originalAbsolute(srcXIndex[i], srcXRel[i], p.diePitchX, p.dieOriginX, p.sampleCenterX);
+			double originalAbsY = originalAbsolute(srcYIndex[i], srcYRel[i], p.diePitchY, p.dieOriginY, p.sampleCenterY);
 
-		// 平移至旋转中心
-		double tx = absX - rotCenterX;
-		double ty = absY - rotCenterY;
+			double tx = originalAbsX - p.rotCenterX;
+			double ty = originalAbsY - p.rotCenterY;
+			double globalX = rotateX(tx, ty, p) + p.rotCenterX + p.sampleCenterX;
+			double globalY = rotateY(tx, ty, p) + p.rotCenterY + p.sampleCenterY;
 
-		// 执行旋转
-		double rx = tx * cosTheta - ty * sinTheta;
-		double ry = tx * sinTheta + ty * cosTheta;
+			int rotatedXIndex = (int) Math.round(globalX / p.diePitchX);
+			int rotatedYIndex = (int) Math.round(globalY / p.diePitchY);
+			dstXIndex[i] = rotatedXIndex;
+			dstYIndex[i] = rotatedYIndex;
+			dstXRel[i] = roundCoordinate((globalX - rotatedXIndex * p.diePitchX) - p.dieOriginX);
+			dstYRel[i] = roundCoordinate((globalY - rotatedYIndex * p.diePitchY) - p.dieOriginY);
+		}
+	}
+
+	/**
+	 * 旋转后的X分量：tx*cos - ty*sin
+	 * 90°整数倍直接交换/取反（与系数为精确0/±1时的乘法结果逐位相同，只是省去乘法）
+	 */
+	private static double rotateX(double tx, double ty, ResolvedParams p) {
+		switch (p.quarterTurns) {
+			case 0: return tx;
+			case 1: return -ty;
+			case 2: return -tx;
+			case 3: return ty;
+			default: return tx * p.cosTheta - ty * p.sinTheta;
+		}
+	}
 
-		// 平移回原位置，得到旋转后的绝对坐标
-		double rotatedAbsX = rx + rotCenterX;
-		double rotatedAbsY = ry + rotCenterY;
+	/**
+	 * 旋转后的Y分量：tx*sin + ty*cos
+	 */
+	private static double rotateY(double tx, double ty, ResolvedParams p) {
+		switch (p.quarterTurns) {
+			case 0: return ty;
+			case 1: return tx;
+			case 2: return -ty;
+			case 3: return -tx;
+			default: return tx * p.sinTheta + ty * p.cosTheta;
+		}
+	}
 
-		return new double[]{rotatedAbsX, rotatedAbsY};
+	/**
+	 * 计算原始绝对坐标（含DieOrigin修正）
+	 * 全局绝对坐标 = Index*DiePitch + (DieOrigin + Rel) - SampleCenter
+	 */
+	private static double originalAbsolute(int index, double rel, double diePitch, double dieOrigin, double sampleCenter) {
+		return index * diePitch + (dieOrigin + rel) - sampleCenter;
 	}
 
 	/**
-	 * 反向计算并填充旋转后的Klarf格式坐标（XIndex/XRel/DieID）
+	 * 反向计算并填充旋转后的Klarf格式坐标（XIndex/XRel）
 	 */
-	private static void fillRotatedKlarfCoord(KlarfDefect defect, double rotatedAbsX, double rotatedAbsY,
-			double diePitchX, double diePitchY,
-			double dieOriginX, double dieOriginY,
-			double sampleCenterX, double sampleCenterY) {
+	private static void fillRotatedKlarfCoord(KlarfDefect defect, double rotatedAbsX, double rotatedAbsY, ResolvedParams p) {
 		// 计算旋转后的芯片索引（四舍五入）
-		int rotatedXIndex = (int) Math.round((rotatedAbsX + sampleCenterX) / diePitchX);
-		int rotatedYIndex = (int) Math.round((rotatedAbsY + sampleCenterY) / diePitchY);
+		double globalX = rotatedAbsX + p.sampleCenterX;
+		double globalY = rotatedAbsY + p.sampleCenterY;
+		int rotatedXIndex = (int) Math.round(globalX / p.diePitchX);
+		int rotatedYIndex = (int) Math.round(globalY / p.diePitchY);
 
 		// 计算旋转后的相对坐标（含DieOrigin修正，保留精度）
-		double rotatedDieLocalX = (rotatedAbsX + sampleCenterX) - rotatedXIndex * diePitchX;
-		double rotatedXRel = roundCoordinate(rotatedDieLocalX - dieOriginX);
-		double rotatedDieLocalY = (rotatedAbsY + sampleCenterY) - rotatedYIndex * diePitchY;
-		double rotatedYRel = roundCoordinate(rotatedDieLocalY - dieOriginY);
-
-		// 生成旋转后的DieID
-		String rotatedDieID = rotatedXIndex + DIE_ID_SEPARATOR + rotatedYIndex;
+		double rotatedXRel = roundCoordinate((globalX - rotatedXIndex * p.diePitchX) - p.dieOriginX);
+		double rotatedYRel = roundCoordinate((globalY - rotatedYIndex * p.diePitchY) - p.dieOriginY);
 
 		// 填充字段
 		defect.setRotatedXIndex(rotatedXIndex);
 		defect.setRotatedYIndex(rotatedYIndex);
 		defect.setRotatedXRel(rotatedXRel);
 		defect.setRotatedYRel(rotatedYRel);
-		defect.setRotatedDieID(rotatedDieID);
 	}
 
 	/**
-	 * 坐标精度处理（统一入口）
+	 * 坐标精度处理（统一入口，无分配HALF_UP，结果与BigDecimal一致）
 	 */
 	private static double roundCoordinate(double coordinate) {
-		return new BigDecimal(coordinate)
-				.setScale(COORD_PRECISION, RoundingMode.HALF_UP)
-				.doubleValue();
+		return KlarfRounding.halfUp(coordinate, COORD_PRECISION);
+	}
+
+	/**
+	 * 解析后的基准参数（单位已换算为μm、角度已转为三角函数值），按参数缓存复用
+	 * 旋转内核仍按「平移 → 旋转 → 平移回」逐步计算（与合并后的矩阵相比舍入顺序不同，保持输出逐位不变）
+	 */
+	static final class ResolvedParams {
+		final double sampleCenterX;
+		final double sampleCenterY;
+		final double diePitchX;
+		final double diePitchY;
+		final double dieOriginX;
+		final double dieOriginY;
+		// 实际旋转中心（SampleCenter/晶圆物理中心）
+		final double rotCenterX;
+		final double rotCenterY;
+		final double cosTheta;
+		final double sinTheta;
+		// 90°整数倍时为 0~3（逆时针四分之一圈数），否则为 -1
+		final int quarterTurns;
+		// 合并后的仿射矩阵（全局绝对坐标，旋转中心 = SampleCenter + 实际旋转中心）
+		final KlarfAffineTransform transform;
+
+		ResolvedParams(KlarfBaseParams baseParams) {
+			this.sampleCenterX = baseParams.getSampleCenterX();
+			this.sampleCenterY = baseParams.getSampleCenterY();
+			this.diePitchX = baseParams.getDiePitchX();
+			this.diePitchY = baseParams.getDiePitchY();
+			this.dieOriginX = baseParams.getDieOriginX();
+			this.dieOriginY = baseParams.getDieOriginY();
+			this.rotCenterX = baseParams.getActualRotationCenterX();
+			this.rotCenterY = baseParams.getActualRotationCenterY();
+			double rotateAngleDeg = baseParams.getRotateAngleDeg();
+			this.quarterTurns = KlarfAffineTransform.quarterTurns(rotateAngleDeg);
+			if (quarterTurns >= 0) {
+				// 90°整数倍使用精确系数（cos(90°) 计算值约为 6e-17，会让落在Die边界上的缺陷索引跳变）
+				this.cosTheta = KlarfAffineTransform.QUARTER_COS[quarterTurns];
+				this.sinTheta = KlarfAffineTransform.QUARTER_SIN[quarterTurns];
+			} else {
+				// 角度转弧度
+				double rotateAngleRad = Math.toRadians(rotateAngleDeg);
+				this.cosTheta = Math.cos(rotateAngleRad);
+				this.sinTheta = Math.sin(rotateAngleRad);
+			}
+			this.transform = KlarfAffineTransform.rotation(cosTheta, sinTheta,
+					sampleCenterX + rotCenterX, sampleCenterY + rotCenterY);
+		}
+	}
+
+	/**
+	 * 旋转专用线程池（首次并行旋转时创建，守护线程）
+	 */
+	private static final class RotationPoolHolder {
+		private static final ForkJoinPool POOL = new ForkJoinPool(
+				Runtime.getRuntime().availableProcessors(),
+				pool -> {
+					ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+					thread.setName("klarf-rotate-" + thread.getPoolIndex());
+					return thread;
+				},
+				null, false);
+	}
+
+	/**
+	 * 二分拆分直到块大小不超过 PARALLEL_CHUNK
+	 */
+	private static final class RotateRangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final DefectBatch src;
+		private final ResolvedParams params;
+		private final DefectBatch dst;
+		private final int from;
+		private final int to;
+
+		private RotateRangeTask(DefectBatch src, ResolvedParams params, DefectBatch dst, int from, int to) {
+			this.src = src;
+			this.params = params;
+			this.dst = dst;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_CHUNK) {
+				KERNEL.rotate(src, params, dst, from, to);
+				return;
+			}
+			// 拆分点对齐到块边界，避免相邻任务写同一缓存行
+			int chunks = (to - from + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+			int mid = from + chunks / 2 * PARALLEL_CHUNK;
+			invokeAll(new RotateRangeTask(src, params, dst, from, mid),
+					new RotateRangeTask(src, params, dst, mid, to));
+		}
 	}
 
 	// ------------------------------ 测试示例（覆盖多场景） ------------------------------
@@ -231,5 +435,15 @@ public class KlarfCoordinateRotator {
 		defectList.add(new KlarfDefect(6, 4, 400.0, 300.0));
 		List<KlarfDefect> rotatedList = KlarfCoordinateRotator.rotateDefects(defectList, params1);
 		rotatedList.forEach(System.out::println);
+
+		// 场景4：列式批量旋转（预分配输出批次）
+		System.out.println("=== 场景4：列式批量旋转 ===");
+		DefectBatch batch = new DefectBatch(defectList.size());
+		defectList.forEach(batch::add);
+		DefectBatch rotatedBatch = KlarfCoordinateRotator.rotateBatch(batch, params1, new DefectBatch(batch.size()));
+		for (int i = 0; i < rotatedBatch.size(); i++) {
+			System.out.println("XIndex=" + rotatedBatch.getXIndex()[i] + ", YIndex=" + rotatedBatch.getYIndex()[i]
+					+ ", XRel=" + rotatedBatch.getXRel()[i] + "μm, YRel=" + rotatedBatch.getYRel()[i] + "μm");
+		}
 	}
 }
@@ -1,10 +1,8 @@
 package com.example.demo.klarf;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-
 /**
  * Klarf缺陷实体（增强空值防护）
+ * Die标识以 {@link DieKey} 打包的 long 保存，DieID字符串只在调用getter输出时生成
  */
 public class KlarfDefect {
 	// 原始字段
@@ -12,14 +10,13 @@ public class KlarfDefect {
 	private Integer originalYIndex;
 	private Double originalXRel;
 	private Double originalYRel;
-	private String originalDieID;
+	private final long originalDieKey;
 
 	// 旋转后字段
 	private Integer rotatedXIndex;
 	private Double rotatedXRel;
 	private Integer rotatedYIndex;
 	private Double rotatedYRel;
-	private String rotatedDieID;
 
 	// 构造器（增加空值校验）
 	public KlarfDefect(Integer originalXIndex, Integer originalYIndex, Double originalXRel, Double originalYRel) {
@@ -33,12 +30,23 @@ public class KlarfDefect {
 		this.originalYIndex = originalYIndex;
 		this.originalXRel = originalXRel;
 		this.originalYRel = originalYRel;
-		this.originalDieID = generateDieID(originalXIndex, originalYIndex);
+		this.originalDieKey = DieKey.of(originalXIndex, originalYIndex);
 	}
 
-	// 生成DieID（抽离为方法，便于自定义格式）
-	private String generateDieID(Integer xIndex, Integer yIndex) {
-		return xIndex + "-" + yIndex;
+	/**
+	 * 原始Die键（分组/比较用）
+	 */
+	public long getOriginalDieKey() { return originalDieKey; }
+
+	/**
+	 * 旋转后Die键
+	 * @throws IllegalStateException 尚未旋转
+	 */
+	public long getRotatedDieKey() {
+		if (rotatedXIndex == null || rotatedYIndex == null) {
+			throw new IllegalStateException("缺陷尚未旋转，没有旋转后的Die键！");
+		}
+		return DieKey.of(rotatedXIndex, rotatedYIndex);
 	}
 
 	// Getter & Setter（补充）
@@ -46,7 +54,7 @@ public class KlarfDefect {
 	public Integer getOriginalYIndex() { return originalYIndex; }
 	public Double getOriginalXRel() { return originalXRel; }
 	public Double getOriginalYRel() { return originalYRel; }
-	public String getOriginalDieID() { return originalDieID; }
+	public String getOriginalDieID() { return DieKey.toString(originalDieKey); }
 	public Integer getRotatedXIndex() { return rotatedXIndex; }
 	public void setRotatedXIndex(Integer rotatedXIndex) { this.rotatedXIndex = rotatedXIndex; }
 	public Double getRotatedXRel() { return rotatedXRel; }
@@ -55,8 +63,10 @@ public class KlarfDefect {
 	public void setRotatedYIndex(Integer rotatedYIndex) { this.rotatedYIndex = rotatedYIndex; }
 	public Double getRotatedYRel() { return rotatedYRel; }
 	public void setRotatedYRel(Double rotatedYRel) { this.rotatedYRel = rotatedYRel; }
-	public String getRotatedDieID() { return rotatedDieID; }
-	public void setRotatedDieID(String rotatedDieID) { this.rotatedDieID = rotatedDieID; }
+	// 尚未旋转时为null
+	public String getRotatedDieID() {
+		return rotatedXIndex == null || rotatedYIndex == null ? null : DieKey.toString(getRotatedDieKey());
+	}
 
 	// 重写toString（优化输出格式）
 	@Override
@@ -65,15 +75,15 @@ public class KlarfDefect {
 				"原始信息：\n" +
 				"  XIndex=" + originalXIndex + ", YIndex=" + originalYIndex + "\n" +
 				"  XRel=" + round(originalXRel) + "μm, YRel=" + round(originalYRel) + "μm\n" +
-				"  DieID=" + originalDieID + "\n" +
+				"  DieID=" + getOriginalDieID() + "\n" +
 				"旋转后信息：\n" +
 				"  XIndex=" + rotatedXIndex + ", YIndex=" + rotatedYIndex + "\n" +
 				"  XRel=" + round(rotatedXRel) + "μm, YRel=" + round(rotatedYRel) + "μm\n" +
-				"  DieID=" + rotatedDieID + "\n";
+				"  DieID=" + getRotatedDieID() + "\n";
 	}
 
 	// 私有辅助方法：精度处理
 	private double round(double value) {
-		return new BigDecimal(value).setScale(4, RoundingMode.HALF_UP).doubleValue();
+		return KlarfRounding.round4(value);
 	}
 }
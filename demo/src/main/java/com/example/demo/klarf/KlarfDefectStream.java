@@ -0,0 +1,450 @@
+package com.example.demo.klarf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 缺陷流式旋转（NDJSON / 二进制列记录）
+ * 边读边按批旋转边写出，每批写完立即 flush；内存占用只与批次大小有关，与流长度无关。
+ * 读写均为阻塞IO：下游不读时写出阻塞，上游随之停止读取（背压由TCP窗口自然传递）
+ * <pre>
+ * NDJSON：每行一个缺陷，{"xIndex":1,"yIndex":2,"xRel":100.5,"yRel":-20.25} 或 [1,2,100.5,-20.25]，空行忽略；
+ *         输出统一为对象格式，Rel保留4位小数
+ * BINARY：每个缺陷24字节小端序记录 int xIndex, int yIndex, double xRel, double yRel，输入输出格式相同
+ * </pre>
+ */
+public final class KlarfDefectStream {
+	public static final int DEFAULT_BATCH_SIZE = 8192;
+	public static final int BINARY_RECORD_SIZE = 24;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// 单行上限（一行只有4个数值，超过说明不是NDJSON，避免无换行的输入撑满缓冲区）
+	private static final int MAX_LINE_LENGTH = 4096;
+
+	public enum Format {
+		NDJSON,
+		BINARY
+	}
+
+	private KlarfDefectStream() {
+	}
+
+	/**
+	 * 读取缺陷流 → 按基准参数旋转 → 写出（不关闭 in/out）
+	 * @param in 输入缺陷流
+	 * @param out 输出缺陷流（格式与输入相同）
+	 * @param format 流格式
+	 * @param baseParams Klarf基准参数
+	 * @return 缺陷数
+	 * @throws IllegalArgumentException 参数非法
+	 * @throws IOException 读写失败或输入格式错误
+	 */
+	public static long rotate(InputStream in, OutputStream out, Format format, KlarfBaseParams baseParams) throws IOException {
+		if (format == null) {
+			throw new IllegalArgumentException("缺陷流格式不能为空！");
+		}
+		// 先校验参数，避免开始输出后才失败
+		KlarfCoordinateRotator.getTransform(baseParams);
+		Reader reader = new Reader(in, format);
+		Writer writer = new Writer(out, format);
+		DefectBatch batch = new DefectBatch(DEFAULT_BATCH_SIZE);
+		long count = 0;
+		while (reader.read(batch)) {
+			// 原地旋转
+			KlarfCoordinateRotator.rotateBatch(batch, baseParams, batch);
+			writer.write(batch);
+			writer.flush();
+			count += batch.size();
+		}
+		writer.flush();
+		return count;
+	}
+
+	/**
+	 * 缺陷流读取器
+	 */
+	static final class Reader {
+		private final InputStream in;
+		private final Format format;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+		private int position;
+		private int limit;
+		private boolean eof;
+		// 已读行数（二进制为记录数），用于错误定位
+		private long line;
+
+		Reader(InputStream in, Format format) {
+			this.in = in;
+			this.format = format;
+		}
+
+		/**
+		 * 读取下一批（先清空 batch）
+		 * 批次满、输入结束，或已读到缺陷且暂无可读数据时返回（上游发送慢时不等待凑满一批）
+		 * @return 是否读到缺陷
+		 */
+		boolean read(DefectBatch batch) throws IOException {
+			batch.clear();
+			while (!batch.isFull()) {
+				boolean added = format == Format.BINARY ? readRecord(batch) : readLine(batch);
+				if (!added) {
+					break;
+				}
+				if (position == limit && in.available() == 0) {
+					break;
+				}
+			}
+			return batch.size() > 0;
+		}
+
+		private boolean readRecord(DefectBatch batch) throws IOException {
+			if (!fill(BINARY_RECORD_SIZE)) {
+				if (position != limit) {
+					throw new IOException("二进制缺陷流不完整：末尾剩余 " + (limit - position) + " 字节");
+				}
+				return false;
+			}
+			int xIndex = view.getInt(position);
+			int yIndex = view.getInt(position + 4);
+			double xRel = view.getDouble(position + 8);
+			double yRel = view.getDouble(position + 16);
+			position += BINARY_RECORD_SIZE;
+			line++;
+			if (!Double.isFinite(xRel) || !Double.isFinite(yRel)) {
+				throw new IOException("二进制缺陷流格式错误（第" + line + "条）：坐标必须为有限值");
+			}
+			batch.add(xIndex, yIndex, xRel, yRel);
+			return true;
+		}
+
+		/**
+		 * 读取一个非空行并解析为缺陷
+		 */
+		private boolean readLine(DefectBatch batch) throws IOException {
+			while (true) {
+				int end = indexOfNewline(position);
+				while (end < 0) {
+					if (limit - position >= MAX_LINE_LENGTH) {
+						throw error("单行超过 " + MAX_LINE_LENGTH + " 字节");
+					}
+					// 已扫描过的部分不再重复查找（fill 可能把未读数据移到缓冲区开头）
+					int scanned = limit - position;
+					if (!fill(scanned + 1)) {
+						break;
+					}
+					end = indexOfNewline(position + scanned);
+				}
+				if (end < 0) {
+					// 最后一行没有换行符
+					if (position == limit) {
+						return false;
+					}
+					end = limit;
+				}
+				line++;
+				int start = position;
+				position = end < limit ? end + 1 : end;
+				int lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+				if (parseLine(start, lineEnd, batch)) {
+					return true;
+				}
+			}
+		}
+
+		private int indexOfNewline(int from) {
+			for (int i = from; i < limit; i++) {
+				if (buffer[i] == '\n') {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * 解析一行：对象或数组；空行返回 false
+		 */
+		private boolean parseLine(int start, int end, DefectBatch batch) throws IOException {
+			int i = skipWhitespace(start, end);
+			if (i == end) {
+				return false;
+			}
+			int xIndex = 0;
+			int yIndex = 0;
+			double xRel = 0;
+			double yRel = 0;
+			try {
+				if (buffer[i] == '[') {
+					int[] cursor = {i + 1};
+					xIndex = KlarfNumbers.parseInt(buffer, token(cursor, end), cursor[0]);
+					expect(cursor, end, ',');
+					yIndex = KlarfNumbers.parseInt(buffer, token(cursor, end), cursor[0]);
+					expect(cursor, end, ',');
+					xRel = KlarfNumbers.parseDouble(buffer, token(cursor, end), cursor[0]);
+					expect(cursor, end, ',');
+					yRel = KlarfNumbers.parseDouble(buffer, token(cursor, end), cursor[0]);
+					expect(cursor, end, ']');
+					i = cursor[0];
+				} else if (buffer[i] == '{') {
+					int[] cursor = {i + 1};
+					int seen = 0;
+					do {
+						String key = key(cursor, end);
+						expect(cursor, end, ':');
+						int valueStart = token(cursor, end);
+						int field;
+						switch (key) {
+							case "xIndex": field = 0; xIndex = KlarfNumbers.parseInt(buffer, valueStart, cursor[0]); break;
+							case "yIndex": field = 1; yIndex = KlarfNumbers.parseInt(buffer, valueStart, cursor[0]); break;
+							case "xRel": field = 2; xRel = KlarfNumbers.parseDouble(buffer, valueStart, cursor[0]); break;
+							case "yRel": field = 3; yRel = KlarfNumbers.parseDouble(buffer, valueStart, cursor[0]); break;
+							default: throw error("未知字段 " + key);
+						}
+						if ((seen & (1 << field)) != 0) {
+							throw error("字段重复 " + key);
+						}
+						seen |= 1 << field;
+						cursor[0] = skipWhitespace(cursor[0], end);
+					} while (cursor[0] < end && buffer[cursor[0]++] == ',');
+					if (buffer[cursor[0] - 1] != '}') {
+						throw error("缺少 }");
+					}
+					if (seen != 0b1111) {
+						throw error("缺少字段，必须包含 xIndex/yIndex/xRel/yRel");
+					}
+					i = cursor[0];
+				} else {
+					throw error("每行必须是对象或数组");
+				}
+			} catch (NumberFormatException e) {
+				throw error(e.getMessage());
+			}
+			if (skipWhitespace(i, end) != end) {
+				throw error("行尾有多余内容");
+			}
+			if (!Double.isFinite(xRel) || !Double.isFinite(yRel)) {
+				throw error("坐标必须为有限值");
+			}
+			batch.add(xIndex, yIndex, xRel, yRel);
+			return true;
+		}
+
+		/**
+		 * 读取带引号的字段名（不支持转义），cursor 移到引号之后
+		 */
+		private String key(int[] cursor, int end) throws IOException {
+			int i = skipWhitespace(cursor[0], end);
+			if (i == end || buffer[i] != '"') {
+				throw error("缺少字段名");
+			}
+			int start = ++i;
+			while (i < end && buffer[i] != '"') {
+				if (buffer[i] == '\\') {
+					throw error("字段名不支持转义");
+				}
+				i++;
+			}
+			if (i == end) {
+				throw error("字段名缺少结束引号");
+			}
+			cursor[0] = i + 1;
+			return KlarfNumbers.text(buffer, start, i);
+		}
+
+		/**
+		 * 定位数值token，返回起点，cursor 移到token末尾
+		 */
+		private int token(int[] cursor, int end) throws IOException {
+			int start = skipWhitespace(cursor[0], end);
+			int i = start;
+			while (i < end && isNumberChar(buffer[i])) {
+				i++;
+			}
+			if (i == start) {
+				throw error("缺少数值");
+			}
+			cursor[0] = i;
+			return start;
+		}
+
+		private void expect(int[] cursor, int end, char expected) throws IOException {
+			int i = skipWhitespace(cursor[0], end);
+			if (i == end || buffer[i] != expected) {
+				throw error("缺少 " + expected);
+			}
+			cursor[0] = i + 1;
+		}
+
+		private int skipWhitespace(int i, int end) {
+			while (i < end && (buffer[i] == ' ' || buffer[i] == '\t' || buffer[i] == '\r')) {
+				i++;
+			}
+			return i;
+		}
+
+		private static boolean isNumberChar(byte b) {
+			return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+		}
+
+		/**
+		 * 保证缓冲区至少有 required 字节未读数据
+		 * @return 输入结束前是否凑够
+		 */
+		private boolean fill(int required) throws IOException {
+			if (limit - position >= required) {
+				return true;
+			}
+			if (position > 0) {
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				limit -= position;
+				position = 0;
+			}
+			while (!eof && limit < required) {
+				int n = in.read(buffer, limit, buffer.length - limit);
+				if (n < 0) {
+					eof = true;
+				} else {
+					limit += n;
+				}
+			}
+			return limit >= required;
+		}
+
+		private IOException error(String message) {
+			return new IOException("NDJSON缺陷流格式错误（第" + line + "行）：" + message);
+		}
+	}
+
+	/**
+	 * 缺陷流写出器（缓冲写出，flush 时推送到下游）
+	 */
+	static final class Writer {
+		// 4位小数（与旋转结果精度一致）
+		private static final long DECIMAL_SCALE = 10_000L;
+		// 超过该值的坐标不走整数格式化
+		private static final double PLAIN_FORMAT_LIMIT = 1e14;
+		private static final byte[] X_INDEX = "{\"xIndex\":".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] Y_INDEX = ",\"yIndex\":".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] X_REL = ",\"xRel\":".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] Y_REL = ",\"yRel\":".getBytes(StandardCharsets.US_ASCII);
+
+		private final OutputStream out;
+		private final Format format;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+		private int count;
+
+		Writer(OutputStream out, Format format) {
+			this.out = out;
+			this.format = format;
+		}
+
+		void write(DefectBatch batch) throws IOException {
+			int[] xIndex = batch.getXIndex();
+			int[] yIndex = batch.getYIndex();
+			double[] xRel = batch.getXRel();
+			double[] yRel = batch.getYRel();
+			for (int i = 0; i < batch.size(); i++) {
+				if (format == Format.BINARY) {
+					if (count + BINARY_RECORD_SIZE > buffer.length) {
+						flushBuffer();
+					}
+					view.putInt(count, xIndex[i]);
+					view.putInt(count + 4, yIndex[i]);
+					view.putDouble(count + 8, xRel[i]);
+					view.putDouble(count + 16, yRel[i]);
+					count += BINARY_RECORD_SIZE;
+				} else {
+					write(X_INDEX);
+					writeLong(xIndex[i]);
+					write(Y_INDEX);
+					writeLong(yIndex[i]);
+					write(X_REL);
+					writeDecimal(xRel[i]);
+					write(Y_REL);
+					writeDecimal(yRel[i]);
+					writeByte('}');
+					writeByte('\n');
+				}
+			}
+		}
+
+		void flush() throws IOException {
+			flushBuffer();
+			out.flush();
+		}
+
+		/**
+		 * 输出最多4位小数的定点数（去掉末尾0，至少保留1位小数）
+		 */
+		private void writeDecimal(double value) throws IOException {
+			double abs = Math.abs(value);
+			if (!(abs < PLAIN_FORMAT_LIMIT)) {
+				write(BigDecimal.valueOf(value).toPlainString().getBytes(StandardCharsets.US_ASCII));
+				return;
+			}
+			long scaled = Math.round(abs * DECIMAL_SCALE);
+			if (value < 0 && scaled != 0) {
+				writeByte('-');
+			}
+			writeLong(scaled / DECIMAL_SCALE);
+			writeByte('.');
+			long fraction = scaled % DECIMAL_SCALE;
+			long divisor = DECIMAL_SCALE / 10;
+			do {
+				writeByte((byte) ('0' + fraction / divisor));
+				fraction %= divisor;
+				divisor /= 10;
+			} while (fraction != 0 && divisor > 0);
+		}
+
+		/**
+		 * 输出整数（调用方保证不是 Long.MIN_VALUE）
+		 */
+		private void writeLong(long value) throws IOException {
+			if (count + 20 > buffer.length) {
+				flushBuffer();
+			}
+			if (value < 0) {
+				buffer[count++] = '-';
+				value = -value;
+			}
+			int digits = 1;
+			for (long rest = value / 10; rest != 0; rest /= 10) {
+				digits++;
+			}
+			count += digits;
+			int i = count;
+			do {
+				buffer[--i] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while (value != 0);
+		}
+
+		private void writeByte(int b) throws IOException {
+			if (count == buffer.length) {
+				flushBuffer();
+			}
+			buffer[count++] = (byte) b;
+		}
+
+		private void write(byte[] data) throws IOException {
+			if (data.length > buffer.length - count) {
+				flushBuffer();
+			}
+			System.arraycopy(data, 0, buffer, count, data.length);
+			count += data.length;
+		}
+
+		private void flushBuffer() throws IOException {
+			if (count > 0) {
+				out.write(buffer, 0, count);
+				count = 0;
+			}
+		}
+	}
+}
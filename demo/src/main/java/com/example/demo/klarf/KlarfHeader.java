@@ -0,0 +1,121 @@
+package com.example.demo.klarf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * KLARF文件头信息（读取到第一个DefectList为止）
+ * 坐标单位按KLARF约定为μm
+ */
+public class KlarfHeader {
+	/** 文件版本（1.2 / 1.8） */
+	private String version;
+	/** 样品参考中心 */
+	private double sampleCenterX;
+	private double sampleCenterY;
+	/** 芯片间距 */
+	private double diePitchX;
+	private double diePitchY;
+	/** 芯片局部原点 */
+	private double dieOriginX;
+	private double dieOriginY;
+	/** 定位标记位置（UP/DOWN/LEFT/RIGHT，未声明时为null） */
+	private String orientationMarkLocation;
+	/** DefectList列名（大写） */
+	private List<String> defectColumns = Collections.emptyList();
+	// 坐标列下标（按 KlarfRowArena.XREL/YREL/XINDEX/YINDEX 顺序）
+	private final int[] coordinateColumns = {-1, -1, -1, -1};
+
+	/**
+	 * 转换为旋转基准参数
+	 * @param rotateAngleDeg 旋转角度（度，逆时针为正）
+	 */
+	public KlarfBaseParams toBaseParams(double rotateAngleDeg) {
+		return new KlarfBaseParams(sampleCenterX, sampleCenterY, diePitchX, diePitchY,
+				dieOriginX, dieOriginY, rotateAngleDeg);
+	}
+
+	/**
+	 * 把定位标记转到下方（DOWN）所需的逆时针旋转角度，未声明定位标记时为0
+	 */
+	public double getNotchDownAngleDeg() {
+		if (orientationMarkLocation == null) {
+			return 0;
+		}
+		switch (orientationMarkLocation.toUpperCase(Locale.ROOT)) {
+			case "LEFT":
+				return 90;
+			case "UP":
+			case "TOP":
+				return 180;
+			case "RIGHT":
+				return 270;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * 坐标列在DefectList中的下标
+	 * @param field KlarfRowArena.XREL/YREL/XINDEX/YINDEX
+	 * @return 下标，未声明时为-1
+	 */
+	public int getCoordinateColumn(int field) {
+		return coordinateColumns[field];
+	}
+
+	public String getVersion() { return version; }
+	public double getSampleCenterX() { return sampleCenterX; }
+	public double getSampleCenterY() { return sampleCenterY; }
+	public double getDiePitchX() { return diePitchX; }
+	public double getDiePitchY() { return diePitchY; }
+	public double getDieOriginX() { return dieOriginX; }
+	public double getDieOriginY() { return dieOriginY; }
+	public String getOrientationMarkLocation() { return orientationMarkLocation; }
+	public List<String> getDefectColumns() { return defectColumns; }
+
+	// ------------------------------ 解析端使用 ------------------------------
+	void setVersion(String version) {
+		this.version = version;
+	}
+
+	void setSampleCenter(double x, double y) {
+		this.sampleCenterX = x;
+		this.sampleCenterY = y;
+	}
+
+	void setDiePitch(double x, double y) {
+		this.diePitchX = x;
+		this.diePitchY = y;
+	}
+
+	void setDieOrigin(double x, double y) {
+		this.dieOriginX = x;
+		this.dieOriginY = y;
+	}
+
+	void setOrientationMarkLocation(String orientationMarkLocation) {
+		this.orientationMarkLocation = orientationMarkLocation;
+	}
+
+	void setDefectColumns(List<String> columns) {
+		List<String> upper = new ArrayList<>(columns.size());
+		for (String column : columns) {
+			upper.add(column.toUpperCase(Locale.ROOT));
+		}
+		this.defectColumns = Collections.unmodifiableList(upper);
+		coordinateColumns[KlarfRowArena.XREL] = upper.indexOf("XREL");
+		coordinateColumns[KlarfRowArena.YREL] = upper.indexOf("YREL");
+		coordinateColumns[KlarfRowArena.XINDEX] = upper.indexOf("XINDEX");
+		coordinateColumns[KlarfRowArena.YINDEX] = upper.indexOf("YINDEX");
+	}
+
+	@Override
+	public String toString() {
+		return "KLARF " + version + "：SampleCenter=(" + sampleCenterX + ", " + sampleCenterY + ")，DiePitch=("
+				+ diePitchX + ", " + diePitchY + ")，DieOrigin=(" + dieOriginX + ", " + dieOriginY + ")，"
+				+ "OrientationMark=" + orientationMarkLocation + "，列数=" + defectColumns.size();
+	}
+}
@@ -0,0 +1,142 @@
+package com.example.demo.klarf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * KLARF数值解析（直接解析字节，不创建String）
+ * 浮点数使用 Clinger 快速路径：有效数字不超过 2^53 且十进制指数在 ±22 以内时，
+ * 一次乘/除 10^e 即为正确舍入结果；其余情况（超长尾数、大指数、inf/nan）交给 Double.parseDouble
+ */
+final class KlarfNumbers {
+	// 10^0 ~ 10^22 均可被 double 精确表示
+	private static final double[] POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private KlarfNumbers() {
+	}
+
+	/**
+	 * 解析 [start, end) 范围内的浮点数
+	 * @throws NumberFormatException 格式非法
+	 */
+	static double parseDouble(byte[] data, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (data[i] == '-' || data[i] == '+')) {
+			negative = data[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		// 整数部分
+		for (; i < end && isDigit(data[i]); i++) {
+			anyDigit = true;
+			if (mantissa == 0 && data[i] == '0') {
+				continue;
+			}
+			if (++digits > 18) {
+				return slowPath(data, start, end);
+			}
+			mantissa = mantissa * 10 + (data[i] - '0');
+		}
+		// 小数部分
+		if (i < end && data[i] == '.') {
+			for (i++; i < end && isDigit(data[i]); i++) {
+				anyDigit = true;
+				if (mantissa == 0 && data[i] == '0') {
+					exponent--;
+					continue;
+				}
+				if (++digits > 18) {
+					return slowPath(data, start, end);
+				}
+				mantissa = mantissa * 10 + (data[i] - '0');
+				exponent--;
+			}
+		}
+		if (!anyDigit) {
+			return slowPath(data, start, end);
+		}
+		// 指数部分
+		if (i < end && (data[i] == 'e' || data[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (data[i] == '-' || data[i] == '+')) {
+				negativeExponent = data[i] == '-';
+				i++;
+			}
+			if (i == end) {
+				return slowPath(data, start, end);
+			}
+			int value = 0;
+			for (; i < end && isDigit(data[i]); i++) {
+				if (value > 10000) {
+					return slowPath(data, start, end);
+				}
+				value = value * 10 + (data[i] - '0');
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		if (i != end) {
+			return slowPath(data, start, end);
+		}
+
+		double result;
+		if (mantissa == 0) {
+			result = 0.0;
+		} else if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+			result = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+		} else {
+			return slowPath(data, start, end);
+		}
+		return negative ? -result : result;
+	}
+
+	/**
+	 * 解析 [start, end) 范围内的整数
+	 * @throws NumberFormatException 格式非法或超出int范围
+	 */
+	static int parseInt(byte[] data, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (data[i] == '-' || data[i] == '+')) {
+			negative = data[i] == '-';
+			i++;
+		}
+		if (i == end) {
+			throw new NumberFormatException("不是有效的整数：" + text(data, start, end));
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			if (!isDigit(data[i])) {
+				throw new NumberFormatException("不是有效的整数：" + text(data, start, end));
+			}
+			value = value * 10 + (data[i] - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw new NumberFormatException("整数超出范围：" + text(data, start, end));
+			}
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("整数超出范围：" + text(data, start, end));
+		}
+		return (int) value;
+	}
+
+	static String text(byte[] data, int start, int end) {
+		return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	private static double slowPath(byte[] data, int start, int end) {
+		return Double.parseDouble(text(data, start, end));
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+}
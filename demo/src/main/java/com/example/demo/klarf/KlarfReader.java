@@ -0,0 +1,526 @@
+package com.example.demo.klarf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * KLARF流式读取器（支持 1.2 / 1.8）
+ * <p>
+ * 打开时读取文件头（到第一个DefectList为止）；之后每次 {@link #next()} 把最多 batchSize 条缺陷的坐标
+ * 解析到同一个复用的 {@link DefectBatch}，对应的原始文本放在 {@link #getRows()} 中。
+ * 内存占用只与批次大小有关，与文件大小无关。
+ * <p>
+ * 约定：
+ * <ul>
+ *   <li>一个文件有多个DefectList（多片晶圆）时按顺序连续读取，文件头取第一个DefectList之前的信息；
+ *   一个批次不跨DefectList，列表结束时批次可能不满；</li>
+ *   <li>KLARF 1.2 的 IMAGELIST 按 IMAGECOUNT 个（图像号, 图像类型）对读取；</li>
+ *   <li>KLARF 1.8 的数组字段 {...} 记为一列。</li>
+ * </ul>
+ * 使用方式：
+ * <pre>
+ * try (KlarfReader reader = KlarfReader.open(path)) {
+ *     KlarfBaseParams params = reader.getHeader().toBaseParams(90);
+ *     while (reader.next()) {
+ *         KlarfCoordinateRotator.rotateBatch(reader.getBatch(), params, output);
+ *     }
+ * }
+ * </pre>
+ */
+public final class KlarfReader implements Closeable {
+	/** 默认批次大小 */
+	public static final int DEFAULT_BATCH_SIZE = 4096;
+
+	private static final int FORMAT_12 = 12;
+	private static final int FORMAT_18 = 18;
+
+	private final ReadableByteChannel channel;
+	private final KlarfRowArena rows;
+	private final KlarfTokenizer tokenizer;
+	private final DefectBatch batch;
+	private final KlarfHeader header = new KlarfHeader();
+	private final int format;
+	// 模板模式只定位坐标字段，不解析数值（坐标取自列式缓存）
+	private final boolean parseCoordinates;
+
+	// 当前DefectList的列信息：列下标 → 坐标字段（-1表示非坐标列）
+	private int[] columnFields = new int[0];
+	private int imageCountColumn = -1;
+	private int imageListColumn = -1;
+	// 当前行坐标值
+	private int rowXIndex;
+	private int rowYIndex;
+	private double rowXRel;
+	private double rowYRel;
+
+	private boolean headerComplete;
+	private boolean inList;
+	// KLARF 1.8：当前List是否为DefectList
+	private boolean inDefectListBlock;
+	// 第一批次保留文件头字节
+	private boolean firstBatch = true;
+	private long defectCount;
+
+	private KlarfReader(ReadableByteChannel channel, int batchSize, boolean parseCoordinates) throws IOException {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("批次大小必须大于0：" + batchSize);
+		}
+		this.channel = channel;
+		this.parseCoordinates = parseCoordinates;
+		this.rows = new KlarfRowArena(64 * 1024, batchSize);
+		this.tokenizer = new KlarfTokenizer(channel, rows);
+		this.batch = new DefectBatch(batchSize);
+
+		tokenizer.next();
+		this.format = tokenizer.is("Record") ? FORMAT_18 : FORMAT_12;
+		header.setVersion(format == FORMAT_18 ? "1.8" : "1.2");
+		tokenizer.pushBack();
+		seekDefectList();
+	}
+
+	public static KlarfReader open(Path file) throws IOException {
+		return open(file, DEFAULT_BATCH_SIZE);
+	}
+
+	public static KlarfReader open(Path file, int batchSize) throws IOException {
+		return open(file, batchSize, true);
+	}
+
+	/**
+	 * 以模板模式打开：{@link #getRows()} 照常定位坐标字段，{@link #getBatch()} 中的坐标不解析（均为0），
+	 * 供坐标已在 {@link KlarfColumnarFile} 中的改写场景使用
+	 */
+	public static KlarfReader openTemplate(Path file) throws IOException {
+		return open(file, DEFAULT_BATCH_SIZE, false);
+	}
+
+	private static KlarfReader open(Path file, int batchSize, boolean parseCoordinates) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new KlarfReader(channel, batchSize, parseCoordinates);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 从任意通道读取（调用方负责关闭通道，或通过本对象的 close() 关闭）
+	 */
+	public static KlarfReader open(ReadableByteChannel channel, int batchSize) throws IOException {
+		return new KlarfReader(channel, batchSize, true);
+	}
+
+	public KlarfHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * 读取下一批缺陷
+	 * @return 本批次至少有一条缺陷时返回true；返回false时 getRows() 中是剩余的文件尾部字节
+	 */
+	public boolean next() throws IOException {
+		if (!firstBatch) {
+			rows.clear();
+		}
+		firstBatch = false;
+		batch.clear();
+		while (!batch.isFull()) {
+			if (!inList && (batch.size() > 0 || !seekDefectList())) {
+				break;
+			}
+			if (format == FORMAT_18) {
+				readRow18();
+			} else {
+				readRow12();
+			}
+		}
+		rows.setRowCount(batch.size());
+		defectCount += batch.size();
+		return batch.size() > 0;
+	}
+
+	/**
+	 * 当前批次坐标（复用同一个对象，下次 next() 后内容被覆盖）
+	 */
+	public DefectBatch getBatch() {
+		return batch;
+	}
+
+	/**
+	 * 当前批次原始文本
+	 */
+	public KlarfRowArena getRows() {
+		return rows;
+	}
+
+	/**
+	 * 已读取缺陷数
+	 */
+	public long getDefectCount() {
+		return defectCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// ------------------------------ 文件头/结构解析 ------------------------------
+	/**
+	 * 跳到下一个DefectList的数据部分
+	 * @return 到达文件末尾时返回false
+	 */
+	private boolean seekDefectList() throws IOException {
+		return format == FORMAT_18 ? seekDefectList18() : seekDefectList12();
+	}
+
+	/**
+	 * KLARF 1.2：以分号结尾的语句序列，DefectList 后直接跟缺陷行，整个列表以分号结束
+	 */
+	private boolean seekDefectList12() throws IOException {
+		while (true) {
+			int type = tokenizer.next();
+			if (type == KlarfTokenizer.EOF) {
+				return false;
+			}
+			if (type != KlarfTokenizer.WORD) {
+				continue;
+			}
+			if (tokenizer.is("DefectList")) {
+				beginDefectList();
+				return true;
+			}
+			if (tokenizer.is("DefectRecordSpec")) {
+				tokenizer.next(); // 列数
+				List<String> columns = new ArrayList<>();
+				while (tokenizer.next() == KlarfTokenizer.WORD) {
+					columns.add(tokenizer.text());
+				}
+				setColumns(columns);
+			} else if (tokenizer.is("FileVersion")) {
+				String major = nextValue();
+				String minor = nextValue();
+				if (!headerComplete && major != null && minor != null) {
+					header.setVersion(major + "." + minor);
+				}
+			} else {
+				readHeaderField(tokenizer.text());
+			}
+			skipStatement();
+		}
+	}
+
+	/**
+	 * KLARF 1.8：Record/Field/List 嵌套结构，缺陷行位于 List DefectList 的 Data 块中，每行以分号结束
+	 */
+	private boolean seekDefectList18() throws IOException {
+		while (true) {
+			int type = tokenizer.next();
+			if (type == KlarfTokenizer.EOF) {
+				return false;
+			}
+			if (type != KlarfTokenizer.WORD) {
+				continue;
+			}
+			if (tokenizer.is("Record")) {
+				tokenizer.next();
+				boolean fileRecord = tokenizer.is("FileRecord");
+				tokenizer.next();
+				if (fileRecord && !headerComplete) {
+					header.setVersion(tokenizer.text());
+				}
+			} else if (tokenizer.is("Field")) {
+				tokenizer.next();
+				String name = tokenizer.text();
+				tokenizer.next(); // 值个数
+				expect(KlarfTokenizer.OPEN_BRACE);
+				readHeaderField(name);
+				skipBlock();
+			} else if (tokenizer.is("List")) {
+				tokenizer.next();
+				inDefectListBlock = tokenizer.is("DefectList");
+			} else if (tokenizer.is("Columns")) {
+				tokenizer.next(); // 列数
+				expect(KlarfTokenizer.OPEN_BRACE);
+				List<String> columns = new ArrayList<>();
+				// 每列为 "类型 列名"
+				while (tokenizer.next() == KlarfTokenizer.WORD) {
+					tokenizer.next();
+					columns.add(tokenizer.text());
+				}
+				if (inDefectListBlock) {
+					setColumns(columns);
+				}
+			} else if (tokenizer.is("Data")) {
+				tokenizer.next(); // 行数
+				expect(KlarfTokenizer.OPEN_BRACE);
+				if (inDefectListBlock) {
+					beginDefectList();
+					return true;
+				}
+				skipBlock();
+			}
+		}
+	}
+
+	/**
+	 * 读取常用文件头字段（当前词元为字段名之后）；第一个DefectList之后的字段不再覆盖文件头
+	 */
+	private void readHeaderField(String name) throws IOException {
+		if (headerComplete) {
+			return;
+		}
+		switch (name) {
+			case "SampleCenterLocation":
+				header.setSampleCenter(nextDouble(), nextDouble());
+				break;
+			case "DiePitch":
+				header.setDiePitch(nextDouble(), nextDouble());
+				break;
+			case "DieOrigin":
+				header.setDieOrigin(nextDouble(), nextDouble());
+				break;
+			case "OrientationMarkLocation":
+				String location = nextValue();
+				if (location != null) {
+					header.setOrientationMarkLocation(location);
+					rows.setOrientation(tokenizer.start(), tokenizer.end());
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void setColumns(List<String> columns) {
+		if (!headerComplete) {
+			header.setDefectColumns(columns);
+		}
+		columnFields = new int[columns.size()];
+		Arrays.fill(columnFields, -1);
+		imageCountColumn = -1;
+		imageListColumn = -1;
+		for (int i = 0; i < columns.size(); i++) {
+			switch (columns.get(i).toUpperCase(Locale.ROOT)) {
+				case "XREL":
+					columnFields[i] = KlarfRowArena.XREL;
+					break;
+				case "YREL":
+					columnFields[i] = KlarfRowArena.YREL;
+					break;
+				case "XINDEX":
+					columnFields[i] = KlarfRowArena.XINDEX;
+					break;
+				case "YINDEX":
+					columnFields[i] = KlarfRowArena.YINDEX;
+					break;
+				case "IMAGECOUNT":
+					imageCountColumn = i;
+					break;
+				case "IMAGELIST":
+					imageListColumn = i;
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	private void beginDefectList() throws IOException {
+		int found = 0;
+		for (int field : columnFields) {
+			if (field >= 0) {
+				found |= 1 << field;
+			}
+		}
+		if (found != 0b1111) {
+			throw tokenizer.error("DefectList缺少坐标列（需要XREL/YREL/XINDEX/YINDEX），当前列："
+					+ header.getDefectColumns());
+		}
+		headerComplete = true;
+		inList = true;
+		rows.setColumnCount(columnFields.length);
+	}
+
+	// ------------------------------ 缺陷行解析 ------------------------------
+	/**
+	 * KLARF 1.2：按列数读取词元；下一个词元为分号时列表结束
+	 */
+	private void readRow12() throws IOException {
+		int type = tokenizer.next();
+		if (type == KlarfTokenizer.SEMICOLON) {
+			inList = false;
+			return;
+		}
+		boolean pending = true; // 当前词元尚未被任何列使用
+		int imageCount = 0;
+		for (int column = 0; column < columnFields.length; column++) {
+			if (column == imageListColumn) {
+				// 整个图像列表记为一列；没有图像时为上一个词元之后的空区间
+				int listStart = pending ? tokenizer.start() : tokenizer.end();
+				int listEnd = listStart;
+				for (int k = imageCount * 2; k > 0; k--) {
+					if (!pending) {
+						type = tokenizer.next();
+					}
+					pending = false;
+					requireValue(type);
+					if (k == imageCount * 2) {
+						listStart = tokenizer.start();
+					}
+					listEnd = tokenizer.end();
+				}
+				rows.setColumn(batch.size(), column, listStart, listEnd);
+				continue;
+			}
+			if (!pending) {
+				type = tokenizer.next();
+			}
+			pending = false;
+			requireValue(type);
+			if (column == imageCountColumn) {
+				imageCount = Math.max(0, tokenizer.intValue());
+			}
+			readColumn(column);
+		}
+		batch.add(rowXIndex, rowYIndex, rowXRel, rowYRel);
+	}
+
+	/**
+	 * KLARF 1.8：每行以分号结束；Data块的右括号表示列表结束
+	 */
+	private void readRow18() throws IOException {
+		int type = tokenizer.next();
+		if (type == KlarfTokenizer.CLOSE_BRACE) {
+			inList = false;
+			inDefectListBlock = false;
+			return;
+		}
+		int column = 0;
+		int depth = 0;
+		int arrayStart = 0;
+		while (type != KlarfTokenizer.SEMICOLON || depth > 0) {
+			if (type == KlarfTokenizer.EOF) {
+				throw tokenizer.error("DefectList意外结束");
+			}
+			if (type == KlarfTokenizer.OPEN_BRACE) {
+				if (depth++ == 0) {
+					arrayStart = tokenizer.start();
+				}
+			} else if (type == KlarfTokenizer.CLOSE_BRACE) {
+				if (--depth < 0) {
+					throw tokenizer.error("缺陷行括号不匹配");
+				}
+				if (depth == 0) {
+					if (column < columnFields.length) {
+						rows.setColumn(batch.size(), column, arrayStart, tokenizer.end());
+					}
+					column++;
+				}
+			} else if (depth == 0) {
+				if (column < columnFields.length) {
+					readColumn(column);
+				}
+				column++;
+			}
+			type = tokenizer.next();
+		}
+		if (column != columnFields.length) {
+			throw tokenizer.error("缺陷行列数不符，应为" + columnFields.length + "，实际" + column);
+		}
+		batch.add(rowXIndex, rowYIndex, rowXRel, rowYRel);
+	}
+
+	private void readColumn(int column) throws IOException {
+		rows.setColumn(batch.size(), column, tokenizer.start(), tokenizer.end());
+		int field = columnFields[column];
+		if (field < 0) {
+			return;
+		}
+		rows.setField(batch.size(), field, tokenizer.start(), tokenizer.end());
+		if (!parseCoordinates) {
+			return;
+		}
+		switch (field) {
+			case KlarfRowArena.XREL:
+				rowXRel = tokenizer.doubleValue();
+				break;
+			case KlarfRowArena.YREL:
+				rowYRel = tokenizer.doubleValue();
+				break;
+			case KlarfRowArena.XINDEX:
+				rowXIndex = tokenizer.intValue();
+				break;
+			default:
+				rowYIndex = tokenizer.intValue();
+				break;
+		}
+	}
+
+	private void requireValue(int type) throws IOException {
+		if (type != KlarfTokenizer.WORD && type != KlarfTokenizer.STRING) {
+			throw tokenizer.error("缺陷行字段不足，应有" + columnFields.length + "列");
+		}
+	}
+
+	// ------------------------------ 词元辅助 ------------------------------
+	private String nextValue() throws IOException {
+		int type = tokenizer.next();
+		if (type == KlarfTokenizer.WORD || type == KlarfTokenizer.STRING) {
+			return tokenizer.text();
+		}
+		tokenizer.pushBack();
+		return null;
+	}
+
+	private double nextDouble() throws IOException {
+		int type = tokenizer.next();
+		if (type != KlarfTokenizer.WORD) {
+			throw tokenizer.error("缺少数值");
+		}
+		return tokenizer.doubleValue();
+	}
+
+	private void expect(int type) throws IOException {
+		if (tokenizer.next() != type) {
+			throw tokenizer.error("结构不完整：" + tokenizer.text());
+		}
+	}
+
+	/**
+	 * 跳过当前语句（到分号为止）
+	 */
+	private void skipStatement() throws IOException {
+		int type = tokenizer.type();
+		while (type != KlarfTokenizer.SEMICOLON && type != KlarfTokenizer.EOF) {
+			type = tokenizer.next();
+		}
+	}
+
+	/**
+	 * 跳过当前括号块（左括号已读取）
+	 */
+	private void skipBlock() throws IOException {
+		int depth = 1;
+		while (depth > 0) {
+			int type = tokenizer.next();
+			if (type == KlarfTokenizer.EOF) {
+				throw tokenizer.error("括号不匹配");
+			}
+			if (type == KlarfTokenizer.OPEN_BRACE) {
+				depth++;
+			} else if (type == KlarfTokenizer.CLOSE_BRACE) {
+				depth--;
+			}
+		}
+	}
+}
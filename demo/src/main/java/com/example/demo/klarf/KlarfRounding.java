@@ -0,0 +1,74 @@
+package com.example.demo.klarf;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 无分配的 HALF_UP 小数位精度处理
+ * <p>
+ * 结果与 {@code new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).doubleValue()} 逐位一致：
+ * <ul>
+ *   <li>BigDecimal(double) 按 double 的精确二进制值舍入，例如 1.00005 实际是 1.0000499999999999...，
+ *       结果为 1.0 而不是 1.0001。这里用 Math.fma 求出 value×10^scale 的精确舍入误差，
+ *       据此判断真实值落在 .5 的哪一侧，而不是依赖已经舍入过的乘积；</li>
+ *   <li>舍入后的整数 n（小于 2^52）除以 10^scale 只发生一次正确舍入，与 BigDecimal.doubleValue() 相同；</li>
+ *   <li>BigDecimal 没有负零，-0.0 以及舍入为 0 的负数都返回 +0.0；</li>
+ *   <li>NaN/无穷大和超出快速路径范围的大数值仍交给 BigDecimal 处理（NaN/无穷大抛 NumberFormatException）。</li>
+ * </ul>
+ */
+public final class KlarfRounding {
+	// 10^0 ~ 10^15 均可被 double 精确表示
+	private static final double[] POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+	};
+	// 快速路径要求 |value|×10^scale < 1e15 < 2^52，保证乘积的整数/小数部分可精确分离
+	private static final double FAST_PATH_PRODUCT_LIMIT = 1e15;
+
+	private KlarfRounding() {
+	}
+
+	/**
+	 * HALF_UP 保留 scale 位小数
+	 * @param value 原始值
+	 * @param scale 小数位数（0~15 走快速路径）
+	 * @return 与 BigDecimal HALF_UP 结果一致的 double
+	 */
+	public static double halfUp(double value, int scale) {
+		if (scale < 0 || scale >= POW10.length) {
+			return viaBigDecimal(value, scale);
+		}
+		double pow = POW10[scale];
+		double abs = Math.abs(value);
+		// NaN 比较结果为 false，同样走 BigDecimal
+		if (!(abs * pow < FAST_PATH_PRODUCT_LIMIT)) {
+			return viaBigDecimal(value, scale);
+		}
+
+		double product = abs * pow;
+		// 精确误差：abs×pow = product + error（无下溢时 fma 结果精确）
+		double error = Math.fma(abs, pow, -product);
+		double floor = Math.floor(product);
+		// product-floor 与 0.5 都是 ulp(product) 的整数倍，差值精确且非零时绝对值 ≥ ulp，必然大于 |error|
+		double distance = (product - floor) - 0.5;
+		double rounded = distance > 0 || (distance == 0 && error >= 0) ? floor + 1 : floor;
+		if (rounded == 0) {
+			return 0.0;
+		}
+		double result = rounded / pow;
+		return value < 0 ? -result : result;
+	}
+
+	/**
+	 * 坐标精度处理（保留4位小数）
+	 */
+	public static double round4(double value) {
+		return halfUp(value, 4);
+	}
+
+	/**
+	 * 参照实现（慢路径）
+	 */
+	static double viaBigDecimal(double value, int scale) {
+		return new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).doubleValue();
+	}
+}
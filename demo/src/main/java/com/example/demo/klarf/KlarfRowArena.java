@@ -0,0 +1,146 @@
+package com.example.demo.klarf;
+
+/**
+ * 当前批次的KLARF原始文本
+ * 保存自上一批次结束以来读取的全部字节（首批次包含文件头，读取结束后为文件尾），
+ * 以及每行四个坐标字段（XREL/YREL/XINDEX/YINDEX）和全部列在其中的位置，
+ * 写出时只替换坐标字段，其余内容（其他列、空白、注释、汇总信息）原样透传。
+ * 一个批次内的行都属于同一个DefectList，因此列数在批次内不变
+ */
+public final class KlarfRowArena {
+	/** 坐标字段编号 */
+	public static final int XREL = 0;
+	public static final int YREL = 1;
+	public static final int XINDEX = 2;
+	public static final int YINDEX = 3;
+	static final int COORDINATE_COUNT = 4;
+
+	private byte[] data;
+	private int length;
+	// 每行 4 个字段 × (起始, 结束)
+	private int[] spans;
+	private int rowCount;
+	private final int rowCapacity;
+	// 每行全部列 × (起始, 结束)；字符串列不含引号，1.8 数组列包含括号，1.2 IMAGELIST 为全部图像词元
+	private int[] columnSpans = new int[0];
+	private int columnCount;
+	// OrientationMarkLocation 取值位置（只出现在含文件头的首批次中，否则为-1）
+	private int orientationStart = -1;
+	private int orientationEnd = -1;
+
+	KlarfRowArena(int initialBytes, int rowCapacity) {
+		this.data = new byte[initialBytes];
+		this.spans = new int[rowCapacity * COORDINATE_COUNT * 2];
+		this.rowCapacity = rowCapacity;
+	}
+
+	/**
+	 * 原始字节（只有 [0, getLength()) 有效）
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * 坐标字段起始位置
+	 * @param field XREL/YREL/XINDEX/YINDEX
+	 */
+	public int fieldStart(int row, int field) {
+		return spans[(row * COORDINATE_COUNT + field) * 2];
+	}
+
+	/**
+	 * 坐标字段结束位置（不含）
+	 */
+	public int fieldEnd(int row, int field) {
+		return spans[(row * COORDINATE_COUNT + field) * 2 + 1];
+	}
+
+	/**
+	 * 当前DefectList的列数（与 KlarfHeader#getDefectColumns() 的顺序一致）
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * 任意列的起始位置
+	 * @param column 列下标
+	 */
+	public int columnStart(int row, int column) {
+		return columnSpans[(row * columnCount + column) * 2];
+	}
+
+	/**
+	 * 任意列的结束位置（不含）
+	 */
+	public int columnEnd(int row, int column) {
+		return columnSpans[(row * columnCount + column) * 2 + 1];
+	}
+
+	int orientationStart() {
+		return orientationStart;
+	}
+
+	int orientationEnd() {
+		return orientationEnd;
+	}
+
+	// ------------------------------ 读取端使用 ------------------------------
+	void append(byte[] src, int offset, int len) {
+		if (length + len > data.length) {
+			byte[] grown = new byte[Math.max(data.length * 2, length + len)];
+			System.arraycopy(data, 0, grown, 0, length);
+			data = grown;
+		}
+		System.arraycopy(src, offset, data, length, len);
+		length += len;
+	}
+
+	void setField(int row, int field, int start, int end) {
+		int offset = (row * COORDINATE_COUNT + field) * 2;
+		spans[offset] = start;
+		spans[offset + 1] = end;
+	}
+
+	/**
+	 * 设置列数（只能在批次为空时调用）
+	 */
+	void setColumnCount(int columnCount) {
+		this.columnCount = columnCount;
+		int required = rowCapacity * columnCount * 2;
+		if (columnSpans.length < required) {
+			columnSpans = new int[required];
+		}
+	}
+
+	void setColumn(int row, int column, int start, int end) {
+		int offset = (row * columnCount + column) * 2;
+		columnSpans[offset] = start;
+		columnSpans[offset + 1] = end;
+	}
+
+	void setOrientation(int start, int end) {
+		this.orientationStart = start;
+		this.orientationEnd = end;
+	}
+
+	void setRowCount(int rowCount) {
+		this.rowCount = rowCount;
+	}
+
+	void clear() {
+		length = 0;
+		rowCount = 0;
+		orientationStart = -1;
+		orientationEnd = -1;
+	}
+}
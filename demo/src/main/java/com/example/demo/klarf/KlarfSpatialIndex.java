@@ -0,0 +1,476 @@
+package com.example.demo.klarf;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 缺陷空间索引（一般基于旋转后的批次构建，构建后只读，可多线程并发查询）
+ * <ul>
+ *   <li>按Die：Die键计数排序，每个Die的缺陷是排序结果中的一段连续区间，按Die查询为O(1)；</li>
+ *   <li>按位置：绝对坐标上的均匀网格（平均每格约2个缺陷），用于半径查询和k近邻查询。</li>
+ * </ul>
+ * 绝对坐标 = Index × DiePitch + DieOrigin + Rel（μm，与KLARF坐标系一致，SampleCenter不参与）。
+ * 查询结果为缺陷在构建批次中的下标。
+ */
+public final class KlarfSpatialIndex {
+	// 网格平均每格缺陷数
+	private static final int POINTS_PER_CELL = 2;
+	// 网格单元数上限
+	private static final int MAX_CELLS = 1 << 22;
+	// Die范围（X跨度×Y跨度）不超过该值时按稠密数组计数排序，否则按排序后的Die键二分查找
+	private static final long MAX_DENSE_DIES = 1 << 22;
+
+	private final int size;
+	private final double[] x;
+	private final double[] y;
+
+	// ------------------------------ Die索引 ------------------------------
+	// 排序后的缺陷下标，第 rank 个Die的缺陷为 dieOrder[dieStarts[rank], dieStarts[rank+1])
+	private final int[] dieOrder;
+	private final int[] dieStarts;
+	// 稠密模式：rank = (xIndex - dieMinX) * dieSpanY + (yIndex - dieMinY)
+	private final boolean denseDies;
+	private final int dieMinX;
+	private final int dieMinY;
+	private final long dieSpanX;
+	private final long dieSpanY;
+	// 稀疏模式：rank = 有序Die键中的位置
+	private final long[] dieKeys;
+	private final int dieCount;
+
+	// ------------------------------ 位置网格 ------------------------------
+	private final double gridMinX;
+	private final double gridMinY;
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+	// 按网格单元排序后的缺陷下标及坐标（坐标冗余一份，查询时顺序访问）
+	private final int[] cellStarts;
+	private final int[] cellOrder;
+	private final double[] cellX;
+	private final double[] cellY;
+
+	private KlarfSpatialIndex(DefectBatch defects, KlarfBaseParams params) {
+		this.size = defects.size();
+		int[] xIndex = defects.getXIndex();
+		int[] yIndex = defects.getYIndex();
+		double[] xRel = defects.getXRel();
+		double[] yRel = defects.getYRel();
+
+		this.x = new double[size];
+		this.y = new double[size];
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		int minXIndex = Integer.MAX_VALUE;
+		int minYIndex = Integer.MAX_VALUE;
+		int maxXIndex = Integer.MIN_VALUE;
+		int maxYIndex = Integer.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			x[i] = xIndex[i] * params.getDiePitchX() + params.getDieOriginX() + xRel[i];
+			y[i] = yIndex[i] * params.getDiePitchY() + params.getDieOriginY() + yRel[i];
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+			minXIndex = Math.min(minXIndex, xIndex[i]);
+			minYIndex = Math.min(minYIndex, yIndex[i]);
+			maxXIndex = Math.max(maxXIndex, xIndex[i]);
+			maxYIndex = Math.max(maxYIndex, yIndex[i]);
+		}
+
+		// Die：计数排序
+		this.dieMinX = minXIndex;
+		this.dieMinY = minYIndex;
+		this.dieSpanX = size == 0 ? 0 : (long) maxXIndex - minXIndex + 1;
+		this.dieSpanY = size == 0 ? 0 : (long) maxYIndex - minYIndex + 1;
+		this.denseDies = dieSpanX * dieSpanY <= MAX_DENSE_DIES;
+		this.dieKeys = denseDies ? null : sortedDistinctKeys(xIndex, yIndex, size);
+		int ranks = denseDies ? (int) (dieSpanX * dieSpanY) : dieKeys.length;
+		int[] dieRanks = new int[size];
+		for (int i = 0; i < size; i++) {
+			dieRanks[i] = dieRank(xIndex[i], yIndex[i]);
+		}
+		this.dieStarts = new int[ranks + 1];
+		this.dieOrder = countingSort(dieRanks, dieStarts);
+		int nonEmpty = 0;
+		for (int rank = 0; rank < ranks; rank++) {
+			if (dieStarts[rank + 1] > dieStarts[rank]) {
+				nonEmpty++;
+			}
+		}
+		this.dieCount = nonEmpty;
+
+		// 网格：单元大小使平均每格约 POINTS_PER_CELL 个缺陷
+		double width = size == 0 ? 0 : maxX - minX;
+		double height = size == 0 ? 0 : maxY - minY;
+		int targetCells = Math.max(1, Math.min(MAX_CELLS, size / POINTS_PER_CELL));
+		double cell = Math.sqrt(width * height / targetCells);
+		if (!(cell > 0)) {
+			// 所有缺陷在一条水平/竖直线上
+			cell = Math.max(width, height) / targetCells;
+		}
+		if (!(cell > 0) || Double.isInfinite(cell)) {
+			cell = 1;
+		}
+		while ((width / cell + 1) * (height / cell + 1) > 2.0 * MAX_CELLS) {
+			cell *= 2;
+		}
+		this.gridMinX = size == 0 ? 0 : minX;
+		this.gridMinY = size == 0 ? 0 : minY;
+		this.cellSize = cell;
+		this.columns = (int) (width / cell) + 1;
+		this.rows = (int) (height / cell) + 1;
+
+		int[] cells = new int[size];
+		for (int i = 0; i < size; i++) {
+			cells[i] = row(y[i]) * columns + column(x[i]);
+		}
+		this.cellStarts = new int[columns * rows + 1];
+		this.cellOrder = countingSort(cells, cellStarts);
+		this.cellX = new double[size];
+		this.cellY = new double[size];
+		for (int k = 0; k < size; k++) {
+			cellX[k] = x[cellOrder[k]];
+			cellY[k] = y[cellOrder[k]];
+		}
+	}
+
+	/**
+	 * 构建索引
+	 * @param defects 缺陷坐标（一般为旋转结果；索引不持有该批次，之后可复用）
+	 * @param params 计算绝对坐标用的 DiePitch/DieOrigin（旋转不改变这两项，传旋转时的参数即可）
+	 */
+	public static KlarfSpatialIndex build(DefectBatch defects, KlarfBaseParams params) {
+		if (defects == null || params == null) {
+			throw new IllegalArgumentException("缺陷批次和基准参数不能为空！");
+		}
+		if (params.getDiePitchX() <= 0 || params.getDiePitchY() <= 0) {
+			throw new IllegalArgumentException("DiePitch必须大于0！");
+		}
+		return new KlarfSpatialIndex(defects, params);
+	}
+
+	/**
+	 * 缺陷数
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 有缺陷的Die数
+	 */
+	public int getDieCount() {
+		return dieCount;
+	}
+
+	/**
+	 * 缺陷的绝对X坐标
+	 */
+	public double getX(int defect) {
+		return x[defect];
+	}
+
+	/**
+	 * 缺陷的绝对Y坐标
+	 */
+	public double getY(int defect) {
+		return y[defect];
+	}
+
+	// ------------------------------ 按Die查询 ------------------------------
+	/**
+	 * Die上的缺陷数
+	 */
+	public int countInDie(int xIndex, int yIndex) {
+		int rank = dieRank(xIndex, yIndex);
+		return rank < 0 ? 0 : dieStarts[rank + 1] - dieStarts[rank];
+	}
+
+	/**
+	 * Die上的缺陷下标（按下标升序）
+	 */
+	public int[] defectsInDie(int xIndex, int yIndex) {
+		int rank = dieRank(xIndex, yIndex);
+		return rank < 0 ? new int[0] : Arrays.copyOfRange(dieOrder, dieStarts[rank], dieStarts[rank + 1]);
+	}
+
+	/**
+	 * 遍历Die上的缺陷下标（按下标升序）
+	 */
+	public void forEachInDie(int xIndex, int yIndex, IntConsumer action) {
+		int rank = dieRank(xIndex, yIndex);
+		if (rank < 0) {
+			return;
+		}
+		for (int k = dieStarts[rank]; k < dieStarts[rank + 1]; k++) {
+			action.accept(dieOrder[k]);
+		}
+	}
+
+	// ------------------------------ 按位置查询 ------------------------------
+	/**
+	 * 遍历与 (centerX, centerY) 距离不超过 radius 的缺陷（顺序不确定）
+	 * @return 缺陷数
+	 */
+	public int forEachWithinRadius(double centerX, double centerY, double radius, IntConsumer action) {
+		if (size == 0 || !(radius >= 0)) {
+			return 0;
+		}
+		double fromColumn = Math.floor((centerX - radius - gridMinX) / cellSize);
+		double toColumn = Math.floor((centerX + radius - gridMinX) / cellSize);
+		double fromRow = Math.floor((centerY - radius - gridMinY) / cellSize);
+		double toRow = Math.floor((centerY + radius - gridMinY) / cellSize);
+		if (toColumn < 0 || fromColumn >= columns || toRow < 0 || fromRow >= rows) {
+			return 0;
+		}
+		int c0 = (int) Math.max(0, fromColumn);
+		int c1 = (int) Math.min(columns - 1, toColumn);
+		int r0 = (int) Math.max(0, fromRow);
+		int r1 = (int) Math.min(rows - 1, toRow);
+		double radiusSquared = radius * radius;
+		int count = 0;
+		for (int r = r0; r <= r1; r++) {
+			int from = cellStarts[r * columns + c0];
+			int to = cellStarts[r * columns + c1 + 1];
+			for (int k = from; k < to; k++) {
+				double dx = cellX[k] - centerX;
+				double dy = cellY[k] - centerY;
+				if (dx * dx + dy * dy <= radiusSquared) {
+					action.accept(cellOrder[k]);
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 与 (centerX, centerY) 距离不超过 radius 的缺陷下标（升序）
+	 */
+	public int[] withinRadius(double centerX, double centerY, double radius) {
+		IntCollector collector = new IntCollector();
+		forEachWithinRadius(centerX, centerY, radius, collector);
+		int[] result = collector.toArray();
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * 距离 (centerX, centerY) 最近的 k 个缺陷下标（按距离升序；缺陷数不足 k 时返回全部）
+	 * 从所在网格单元开始一圈圈向外扩展，已找到 k 个且下一圈的最近可能距离超过第 k 近距离时停止
+	 */
+	public int[] nearest(double centerX, double centerY, int k) {
+		k = Math.min(k, size);
+		if (k <= 0 || Double.isNaN(centerX) || Double.isNaN(centerY)) {
+			return new int[0];
+		}
+		// 最大堆：堆顶为当前第 k 近
+		double[] heapDistances = new double[k];
+		int[] heapDefects = new int[k];
+		int heapSize = 0;
+
+		int centerColumn = column(centerX);
+		int centerRow = row(centerY);
+		int maxRing = Math.max(columns, rows);
+		for (int ring = 0; ring <= maxRing; ring++) {
+			if (heapSize == k && ring > 0) {
+				double bound = ringDistance(centerX, centerY, centerColumn, centerRow, ring);
+				if (bound * bound > heapDistances[0]) {
+					break;
+				}
+			}
+			for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+				if (r < 0 || r >= rows) {
+					continue;
+				}
+				// 中间行只访问左右两个单元
+				int step = r == centerRow - ring || r == centerRow + ring ? 1 : Math.max(1, 2 * ring);
+				for (int c = centerColumn - ring; c <= centerColumn + ring; c += step) {
+					if (c < 0 || c >= columns) {
+						continue;
+					}
+					int cell = r * columns + c;
+					for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+						double dx = cellX[p] - centerX;
+						double dy = cellY[p] - centerY;
+						double distance = dx * dx + dy * dy;
+						if (heapSize < k) {
+							siftUp(heapDistances, heapDefects, heapSize++, distance, cellOrder[p]);
+						} else if (distance < heapDistances[0]) {
+							siftDown(heapDistances, heapDefects, heapSize, distance, cellOrder[p]);
+						}
+					}
+				}
+			}
+		}
+
+		// 依次取出堆顶得到降序，倒序填充
+		int[] result = new int[heapSize];
+		for (int i = heapSize - 1; i >= 0; i--) {
+			result[i] = heapDefects[0];
+			int last = i;
+			if (last > 0) {
+				siftDown(heapDistances, heapDefects, last, heapDistances[last], heapDefects[last]);
+			}
+		}
+		return result;
+	}
+
+	// ------------------------------ 内部实现 ------------------------------
+	private int dieRank(int xIndex, int yIndex) {
+		if (size == 0) {
+			return -1;
+		}
+		if (denseDies) {
+			long dx = (long) xIndex - dieMinX;
+			long dy = (long) yIndex - dieMinY;
+			if (dx < 0 || dx >= dieSpanX || dy < 0 || dy >= dieSpanY) {
+				return -1;
+			}
+			return (int) (dx * dieSpanY + dy);
+		}
+		int rank = Arrays.binarySearch(dieKeys, DieKey.of(xIndex, yIndex));
+		return rank < 0 ? -1 : rank;
+	}
+
+	private static long[] sortedDistinctKeys(int[] xIndex, int[] yIndex, int size) {
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = DieKey.of(xIndex[i], yIndex[i]);
+		}
+		Arrays.sort(keys);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || keys[i] != keys[i - 1]) {
+				keys[distinct++] = keys[i];
+			}
+		}
+		return Arrays.copyOf(keys, distinct);
+	}
+
+	/**
+	 * 计数排序（稳定）
+	 * @param keys 每个元素的桶号
+	 * @param starts 输出：桶起始位置（长度为桶数+1）
+	 * @return 排序后的元素下标
+	 */
+	private static int[] countingSort(int[] keys, int[] starts) {
+		for (int key : keys) {
+			starts[key + 1]++;
+		}
+		for (int i = 1; i < starts.length; i++) {
+			starts[i] += starts[i - 1];
+		}
+		int[] next = Arrays.copyOf(starts, starts.length - 1);
+		int[] order = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			order[next[keys[i]]++] = i;
+		}
+		return order;
+	}
+
+	private int column(double value) {
+		double c = Math.floor((value - gridMinX) / cellSize);
+		return c <= 0 ? 0 : c >= columns - 1 ? columns - 1 : (int) c;
+	}
+
+	private int row(double value) {
+		double r = Math.floor((value - gridMinY) / cellSize);
+		return r <= 0 ? 0 : r >= rows - 1 ? rows - 1 : (int) r;
+	}
+
+	/**
+	 * 第 ring 圈及更外圈单元中的点到查询点的最小可能距离
+	 * 这些点都在内侧 (ring-1) 圈方块之外，即位于网格范围内方块左/右/下/上四个条带之一，取查询点到各条带的最小距离；
+	 * 所有单元都已访问时为正无穷
+	 */
+	private double ringDistance(double centerX, double centerY, int centerColumn, int centerRow, int ring) {
+		double maxX = gridMinX + columns * cellSize;
+		double maxY = gridMinY + rows * cellSize;
+		double distance = Double.POSITIVE_INFINITY;
+		if (centerColumn - ring >= 0) {
+			double left = gridMinX + (double) (centerColumn - ring + 1) * cellSize;
+			distance = Math.min(distance, rectangleDistance(centerX, centerY, gridMinX, left, gridMinY, maxY));
+		}
+		if (centerColumn + ring < columns) {
+			double right = gridMinX + (double) (centerColumn + ring) * cellSize;
+			distance = Math.min(distance, rectangleDistance(centerX, centerY, right, maxX, gridMinY, maxY));
+		}
+		if (centerRow - ring >= 0) {
+			double bottom = gridMinY + (double) (centerRow - ring + 1) * cellSize;
+			distance = Math.min(distance, rectangleDistance(centerX, centerY, gridMinX, maxX, gridMinY, bottom));
+		}
+		if (centerRow + ring < rows) {
+			double top = gridMinY + (double) (centerRow + ring) * cellSize;
+			distance = Math.min(distance, rectangleDistance(centerX, centerY, gridMinX, maxX, top, maxY));
+		}
+		return distance;
+	}
+
+	private static double rectangleDistance(double x, double y, double minX, double maxX, double minY, double maxY) {
+		double dx = Math.max(0, Math.max(minX - x, x - maxX));
+		double dy = Math.max(0, Math.max(minY - y, y - maxY));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static void siftUp(double[] distances, int[] defects, int index, double distance, int defect) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (distances[parent] >= distance) {
+				break;
+			}
+			distances[index] = distances[parent];
+			defects[index] = defects[parent];
+			index = parent;
+		}
+		distances[index] = distance;
+		defects[index] = defect;
+	}
+
+	/**
+	 * 用 (distance, defect) 替换堆顶后下沉
+	 */
+	private static void siftDown(double[] distances, int[] defects, int heapSize, double distance, int defect) {
+		int index = 0;
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && distances[child + 1] > distances[child]) {
+				child++;
+			}
+			if (distances[child] <= distance) {
+				break;
+			}
+			distances[index] = distances[child];
+			defects[index] = defects[child];
+			index = child;
+		}
+		distances[index] = distance;
+		defects[index] = defect;
+	}
+
+	/**
+	 * 收集查询结果
+	 */
+	private static final class IntCollector implements IntConsumer {
+		private int[] values = new int[16];
+		private int size;
+
+		@Override
+		public void accept(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
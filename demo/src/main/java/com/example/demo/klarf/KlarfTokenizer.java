@@ -0,0 +1,227 @@
+package com.example.demo.klarf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * KLARF字节级分词器
+ * 按固定大小缓冲区从通道读取，已消费的字节按段批量追加到 {@link KlarfRowArena}，
+ * 词元位置即其在 arena 中的偏移（不创建String）。
+ * 分隔符：空白与逗号（KLARF 1.8 的 {a, b}）；独立词元：; { }；双引号字符串不含引号
+ */
+final class KlarfTokenizer {
+	static final int EOF = 0;
+	static final int WORD = 1;
+	static final int STRING = 2;
+	static final int SEMICOLON = 3;
+	static final int OPEN_BRACE = 4;
+	static final int CLOSE_BRACE = 5;
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+	// 词元结束字符查表（空白、逗号、; { } "）
+	private static final boolean[] DELIMITERS = new boolean[256];
+
+	static {
+		for (int c = 0; c <= ' '; c++) {
+			DELIMITERS[c] = true;
+		}
+		for (char c : new char[]{',', ';', '{', '}', '"'}) {
+			DELIMITERS[c] = true;
+		}
+	}
+
+	private final ReadableByteChannel channel;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+	private int position;
+	private int limit;
+	// buffer[copyFrom, position) 已消费但尚未追加到 arena
+	private int copyFrom;
+	private boolean endOfInput;
+
+	private final KlarfRowArena arena;
+	private int line = 1;
+
+	// 当前词元
+	private int type;
+	private int start;
+	private int end;
+	private boolean pushedBack;
+
+	KlarfTokenizer(ReadableByteChannel channel, KlarfRowArena arena) {
+		this.channel = channel;
+		this.arena = arena;
+	}
+
+	/**
+	 * 读取下一个词元（或返回被退回的当前词元）
+	 */
+	int next() throws IOException {
+		if (pushedBack) {
+			pushedBack = false;
+			return type;
+		}
+		// 跳过分隔符
+		int c;
+		while (true) {
+			if (position == limit && !fill()) {
+				sync();
+				type = EOF;
+				start = end = arena.getLength();
+				return type;
+			}
+			c = buffer[position] & 0xFF;
+			if (c > ' ' && c != ',') {
+				break;
+			}
+			if (c == '\n') {
+				line++;
+			}
+			position++;
+		}
+
+		start = offset(position++);
+		switch (c) {
+			case ';':
+				end = start + 1;
+				type = SEMICOLON;
+				break;
+			case '{':
+				end = start + 1;
+				type = OPEN_BRACE;
+				break;
+			case '}':
+				end = start + 1;
+				type = CLOSE_BRACE;
+				break;
+			case '"':
+				start++;
+				while (true) {
+					if (position == limit && !fill()) {
+						throw error("字符串缺少结束引号");
+					}
+					c = buffer[position++] & 0xFF;
+					if (c == '"') {
+						break;
+					}
+					if (c == '\n') {
+						line++;
+					}
+				}
+				end = offset(position) - 1;
+				type = STRING;
+				break;
+			default:
+				while ((position < limit || fill()) && !isDelimiter(buffer[position] & 0xFF)) {
+					position++;
+				}
+				end = offset(position);
+				type = WORD;
+				break;
+		}
+		sync();
+		return type;
+	}
+
+	/**
+	 * 退回当前词元，下次 next() 再次返回（不能跨批次使用：arena清空后词元位置失效）
+	 */
+	void pushBack() {
+		pushedBack = true;
+	}
+
+	int type() {
+		return type;
+	}
+
+	int start() {
+		return start;
+	}
+
+	int end() {
+		return end;
+	}
+
+	int line() {
+		return line;
+	}
+
+	String text() {
+		return KlarfNumbers.text(arena.getData(), start, end);
+	}
+
+	boolean is(String keyword) {
+		if (type != WORD || end - start != keyword.length()) {
+			return false;
+		}
+		byte[] data = arena.getData();
+		for (int i = 0; i < keyword.length(); i++) {
+			if (Character.toLowerCase((char) data[start + i]) != Character.toLowerCase(keyword.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	double doubleValue() throws IOException {
+		try {
+			return KlarfNumbers.parseDouble(arena.getData(), start, end);
+		} catch (NumberFormatException e) {
+			throw error("不是有效的数值：" + text());
+		}
+	}
+
+	int intValue() throws IOException {
+		try {
+			return KlarfNumbers.parseInt(arena.getData(), start, end);
+		} catch (NumberFormatException e) {
+			throw error(e.getMessage());
+		}
+	}
+
+	IOException error(String message) {
+		return new IOException("KLARF格式错误（第" + line + "行）：" + message);
+	}
+
+	/**
+	 * 缓冲区下标对应的 arena 偏移
+	 */
+	private int offset(int bufferPosition) {
+		return arena.getLength() + bufferPosition - copyFrom;
+	}
+
+	/**
+	 * 把已消费的字节批量追加到 arena
+	 */
+	private void sync() {
+		if (position > copyFrom) {
+			arena.append(buffer, copyFrom, position - copyFrom);
+			copyFrom = position;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (endOfInput) {
+			return false;
+		}
+		sync();
+		wrapped.clear();
+		int read;
+		do {
+			read = channel.read(wrapped);
+		} while (read == 0);
+		if (read < 0) {
+			endOfInput = true;
+			return false;
+		}
+		position = 0;
+		copyFrom = 0;
+		limit = read;
+		return true;
+	}
+
+	private static boolean isDelimiter(int c) {
+		return DELIMITERS[c];
+	}
+}
@@ -0,0 +1,256 @@
+package com.example.demo.klarf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * KLARF流式写出器
+ * 以 {@link KlarfReader} 读到的原始文本为模板，只把每行的 XREL/YREL/XINDEX/YINDEX 替换为新坐标，
+ * 其余内容（文件头、其他列、空白、汇总信息）逐字节原样输出，因此 1.2/1.8 格式都保持不变
+ */
+public final class KlarfWriter {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// 定位标记按逆时针旋转90°的顺序
+	private static final String[] ORIENTATIONS = {"DOWN", "RIGHT", "UP", "LEFT"};
+	// 4位小数（与旋转结果精度一致）
+	private static final long DECIMAL_SCALE = 10_000L;
+	// 超过该值的坐标不走整数格式化
+	private static final double PLAIN_FORMAT_LIMIT = 1e14;
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+	// 旋转的四分之一圈数（用于改写定位标记），非90°整数倍时为-1
+	private final int quarterTurns;
+
+	// 每行坐标字段按位置排序用
+	private final int[] order = new int[KlarfRowArena.COORDINATE_COUNT];
+
+	/**
+	 * @param out 输出流（不会被关闭）
+	 * @param rotateAngleDeg 旋转角度，90°整数倍时同步改写 OrientationMarkLocation；不需要改写时传0
+	 */
+	public KlarfWriter(OutputStream out, double rotateAngleDeg) {
+		this.out = out;
+		double normalized = rotateAngleDeg % 360;
+		normalized = normalized < 0 ? normalized + 360 : normalized;
+		double turns = Math.rint(normalized / 90);
+		this.quarterTurns = turns * 90 == normalized ? (int) turns & 3 : -1;
+	}
+
+	/**
+	 * 读取 source，按文件头参数旋转全部缺陷后写出到 out（不关闭out）
+	 * @return 缺陷数
+	 */
+	public static long rotate(Path source, double rotateAngleDeg, OutputStream out) throws IOException {
+		try (KlarfReader reader = KlarfReader.open(source)) {
+			KlarfBaseParams params = reader.getHeader().toBaseParams(rotateAngleDeg);
+			DefectBatch rotated = new DefectBatch(KlarfReader.DEFAULT_BATCH_SIZE);
+			KlarfWriter writer = new KlarfWriter(out, rotateAngleDeg);
+			while (reader.next()) {
+				KlarfCoordinateRotator.rotateBatch(reader.getBatch(), params, rotated);
+				writer.write(reader.getRows(), rotated);
+			}
+			// 文件尾
+			rotated.clear();
+			writer.write(reader.getRows(), rotated);
+			writer.flush();
+			return reader.getDefectCount();
+		}
+	}
+
+	/**
+	 * 坐标取自列式缓存 columns，source 的文本只作为输出模板（只定位字段，不解析坐标数值），旋转后写出到 out（不关闭out）
+	 * @param columns source 对应的列式缓存（{@link KlarfColumnarCache#open}）
+	 * @return 缺陷数
+	 */
+	public static long rotate(Path source, KlarfColumnarFile columns, double rotateAngleDeg, OutputStream out)
+			throws IOException {
+		KlarfBaseParams params = columns.getHeader().toBaseParams(rotateAngleDeg);
+		try (KlarfReader reader = KlarfReader.openTemplate(source)) {
+			DefectBatch coordinates = new DefectBatch(KlarfReader.DEFAULT_BATCH_SIZE);
+			DefectBatch rotated = new DefectBatch(KlarfReader.DEFAULT_BATCH_SIZE);
+			KlarfWriter writer = new KlarfWriter(out, rotateAngleDeg);
+			int row = 0;
+			while (reader.next()) {
+				// 批次不跨DefectList，可能不满：按模板行数截取
+				int rowCount = reader.getRows().getRowCount();
+				if (columns.read(row, coordinates) < rowCount) {
+					throw new IOException("列式缓存与源文件不一致：" + source);
+				}
+				coordinates.setSize(rowCount);
+				row += rowCount;
+				KlarfCoordinateRotator.rotateBatch(coordinates, params, rotated);
+				writer.write(reader.getRows(), rotated);
+			}
+			if (row != columns.getDefectCount()) {
+				throw new IOException("列式缓存与源文件不一致：" + source);
+			}
+			// 文件尾
+			rotated.clear();
+			writer.write(reader.getRows(), rotated);
+			writer.flush();
+			return row;
+		}
+	}
+
+	/**
+	 * 写出一个批次
+	 * @param rows 读取器当前批次的原始文本
+	 * @param coordinates 替换后的坐标（条数与 rows 相同；文件尾批次为空）
+	 */
+	public void write(KlarfRowArena rows, DefectBatch coordinates) throws IOException {
+		if (coordinates.size() != rows.getRowCount()) {
+			throw new IllegalArgumentException("坐标条数与原始行数不一致：" + coordinates.size() + "/" + rows.getRowCount());
+		}
+		byte[] data = rows.getData();
+		int position = 0;
+		if (rows.orientationStart() >= 0 && quarterTurns > 0) {
+			String rotated = rotateOrientation(KlarfNumbers.text(data, rows.orientationStart(), rows.orientationEnd()));
+			if (rotated != null) {
+				write(data, 0, rows.orientationStart());
+				writeAscii(rotated);
+				position = rows.orientationEnd();
+			}
+		}
+
+		for (int row = 0; row < rows.getRowCount(); row++) {
+			sortFields(rows, row);
+			for (int field : order) {
+				write(data, position, rows.fieldStart(row, field) - position);
+				writeField(coordinates, row, field);
+				position = rows.fieldEnd(row, field);
+			}
+		}
+		write(data, position, rows.getLength() - position);
+	}
+
+	public void flush() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+		out.flush();
+	}
+
+	private String rotateOrientation(String location) {
+		for (int i = 0; i < ORIENTATIONS.length; i++) {
+			if (ORIENTATIONS[i].equals(location.toUpperCase(Locale.ROOT))) {
+				return ORIENTATIONS[(i + quarterTurns) & 3];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 四个坐标字段按在行内出现的位置排序（插入排序）
+	 */
+	private void sortFields(KlarfRowArena rows, int row) {
+		for (int field = 0; field < order.length; field++) {
+			int start = rows.fieldStart(row, field);
+			int i = field;
+			while (i > 0 && rows.fieldStart(row, order[i - 1]) > start) {
+				order[i] = order[i - 1];
+				i--;
+			}
+			order[i] = field;
+		}
+	}
+
+	private void writeField(DefectBatch coordinates, int row, int field) throws IOException {
+		switch (field) {
+			case KlarfRowArena.XREL:
+				writeDecimal(coordinates.getXRel()[row]);
+				break;
+			case KlarfRowArena.YREL:
+				writeDecimal(coordinates.getYRel()[row]);
+				break;
+			case KlarfRowArena.XINDEX:
+				writeLong(coordinates.getXIndex()[row]);
+				break;
+			default:
+				writeLong(coordinates.getYIndex()[row]);
+				break;
+		}
+	}
+
+	/**
+	 * 输出最多4位小数的定点数（去掉末尾0，至少保留1位小数，如 -500.0、1234.567）
+	 */
+	private void writeDecimal(double value) throws IOException {
+		double abs = Math.abs(value);
+		if (!(abs < PLAIN_FORMAT_LIMIT)) {
+			writeAscii(BigDecimal.valueOf(value).toPlainString());
+			return;
+		}
+		long scaled = Math.round(abs * DECIMAL_SCALE);
+		if (value < 0 && scaled != 0) {
+			writeByte('-');
+		}
+		writeLong(scaled / DECIMAL_SCALE);
+		writeByte('.');
+		long fraction = scaled % DECIMAL_SCALE;
+		long divisor = DECIMAL_SCALE / 10;
+		do {
+			writeByte((byte) ('0' + fraction / divisor));
+			fraction %= divisor;
+			divisor /= 10;
+		} while (fraction != 0 && divisor > 0);
+	}
+
+	/**
+	 * 输出整数（调用方保证不是 Long.MIN_VALUE）
+	 */
+	private void writeLong(long value) throws IOException {
+		if (count + 20 > buffer.length) {
+			flushBuffer();
+		}
+		if (value < 0) {
+			buffer[count++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long rest = value / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+		count += digits;
+		int i = count;
+		do {
+			buffer[--i] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+	}
+
+	private void writeAscii(String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+		write(bytes, 0, bytes.length);
+	}
+
+	private void writeByte(int b) throws IOException {
+		if (count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	private void write(byte[] data, int offset, int length) throws IOException {
+		if (length > buffer.length - count) {
+			flushBuffer();
+			if (length > buffer.length) {
+				out.write(data, offset, length);
+				return;
+			}
+		}
+		System.arraycopy(data, offset, buffer, count, length);
+		count += length;
+	}
+
+	private void flushBuffer() throws IOException {
+		out.write(buffer, 0, count);
+		count = 0;
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.demo.klarf;
+
+import java.util.Locale;
+
+/**
+ * 列式批量旋转内核
+ * 对 [from, to) 内的缺陷执行 平移→旋转→平移 + 索引/相对坐标分解，结果写入 dst 的同一下标
+ */
+interface RotationKernel {
+
+	/**
+	 * 标量内核（始终可用）
+	 */
+	RotationKernel SCALAR = new RotationKernel() {
+		@Override
+		public void rotate(DefectBatch src, KlarfCoordinateRotator.ResolvedParams p, DefectBatch dst, int from, int to) {
+			KlarfCoordinateRotator.rotateRange(src, p, dst, from, to);
+		}
+
+		@Override
+		public String name() {
+			return "scalar";
+		}
+	};
+
+	void rotate(DefectBatch src, KlarfCoordinateRotator.ResolvedParams p, DefectBatch dst, int from, int to);
+
+	String name();
+
+	/**
+	 * 按配置选择内核
+	 * @param mode auto（向量可用则用向量）、scalar、vector（不可用时同样回退标量）
+	 */
+	static RotationKernel select(String mode) {
+		String normalized = mode == null ? "auto" : mode.trim().toLowerCase(Locale.ROOT);
+		if ("scalar".equals(normalized)) {
+			return SCALAR;
+		}
+		if (!"auto".equals(normalized) && !"vector".equals(normalized)) {
+			throw new IllegalArgumentException("不支持的旋转内核：" + mode + "（可选：auto/scalar/vector）");
+		}
+		RotationKernel vector = vectorOrNull();
+		return vector == null ? SCALAR : vector;
+	}
+
+	/**
+	 * 向量内核（JVM未启用 jdk.incubator.vector 模块或硬件不支持时返回null）
+	 */
+	static RotationKernel vectorOrNull() {
+		try {
+			return VectorRotationKernel.isSupported() ? new VectorRotationKernel() : null;
+		} catch (LinkageError e) {
+			// 未添加 --add-modules jdk.incubator.vector
+			return null;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.demo.klarf;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 JDK Vector API（jdk.incubator.vector）的旋转内核
+ * <p>
+ * 每次处理一组通道（AVX2 为4个double，AVX-512 为8个），运算顺序与标量内核完全相同，结果逐位一致：
+ * <ul>
+ *   <li>加减乘除均为 IEEE 754 逐通道运算，不做乘加融合；</li>
+ *   <li>Math.round 用 floor→小数部分≥0.5 进位 还原（floor(q+0.5) 的精确值）；</li>
+ *   <li>相对坐标的 HALF_UP 舍入按 {@link KlarfRounding#halfUp} 的快速路径逐通道实现（含 FMA 误差判断和 +0.0 处理）。</li>
+ * </ul>
+ * 任一通道超出快速路径（索引超出int范围、NaN、超大坐标）时整组回退标量内核；尾部不足一组同样走标量
+ */
+final class VectorRotationKernel implements RotationKernel {
+	private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+	// 与 double 通道数相同的 int 向量（位宽减半）
+	private static final VectorSpecies<Integer> INT_SPECIES = DOUBLE_SPECIES.length() >= 2
+			? VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLE_SPECIES.vectorBitSize() / 2)) : null;
+
+	// 索引范围：|q| 小于该值时 Math.round 结果可安全转为int
+	private static final double INDEX_LIMIT = Integer.MAX_VALUE - 1.0;
+	// 坐标精度 10^4（与 KlarfCoordinateRotator 保留4位小数一致）
+	private static final double ROUND_POW = Math.pow(10, KlarfCoordinateRotator.COORD_PRECISION);
+	private static final double ROUND_PRODUCT_LIMIT = 1e15;
+	// 1.5×2^52：|x| < 2^51 时 (x + M) - M 为 x 的最近整数
+	private static final double ROUND_MAGIC = 0x1.8p52;
+
+	/**
+	 * 当前硬件是否至少有2个double通道
+	 */
+	static boolean isSupported() {
+		return INT_SPECIES != null;
+	}
+
+	@Override
+	public String name() {
+		return "vector";
+	}
+
+	@Override
+	public void rotate(DefectBatch src, KlarfCoordinateRotator.ResolvedParams p, DefectBatch dst, int from, int to) {
+		int[] srcXIndex = src.getXIndex();
+		int[] srcYIndex = src.getYIndex();
+		double[] srcXRel = src.getXRel();
+		double[] srcYRel = src.getYRel();
+		int[] dstXIndex = dst.getXIndex();
+		int[] dstYIndex = dst.getYIndex();
+		double[] dstXRel = dst.getXRel();
+		double[] dstYRel = dst.getYRel();
+
+		int lanes = DOUBLE_SPECIES.length();
+		int upper = from + DOUBLE_SPECIES.loopBound(to - from);
+		int i = from;
+		for (; i < upper; i += lanes) {
+			// 原始绝对坐标：Index*DiePitch + (DieOrigin + Rel) - SampleCenter
+			DoubleVector originalAbsX = toDouble(IntVector.fromArray(INT_SPECIES, srcXIndex, i)).mul(p.diePitchX)
+					.add(DoubleVector.broadcast(DOUBLE_SPECIES, p.dieOriginX).add(DoubleVector.fromArray(DOUBLE_SPECIES, srcXRel, i)))
+					.sub(p.sampleCenterX);
+			DoubleVector originalAbsY = toDouble(IntVector.fromArray(INT_SPECIES, srcYIndex, i)).mul(p.diePitchY)
+					.add(DoubleVector.broadcast(DOUBLE_SPECIES, p.dieOriginY).add(DoubleVector.fromArray(DOUBLE_SPECIES, srcYRel, i)))
+					.sub(p.sampleCenterY);
+
+			DoubleVector tx = originalAbsX.sub(p.rotCenterX);
+			DoubleVector ty = originalAbsY.sub(p.rotCenterY);
+			DoubleVector globalX = tx.mul(p.cosTheta).sub(ty.mul(p.sinTheta)).add(p.rotCenterX).add(p.sampleCenterX);
+			DoubleVector globalY = tx.mul(p.sinTheta).add(ty.mul(p.cosTheta)).add(p.rotCenterY).add(p.sampleCenterY);
+
+			DoubleVector quotientX = globalX.div(p.diePitchX);
+			DoubleVector quotientY = globalY.div(p.diePitchY);
+			VectorMask<Double> fast = quotientX.abs().compare(VectorOperators.LT, INDEX_LIMIT)
+					.and(quotientY.abs().compare(VectorOperators.LT, INDEX_LIMIT));
+			DoubleVector indexX = round(quotientX);
+			DoubleVector indexY = round(quotientY);
+
+			DoubleVector relX = globalX.sub(indexX.mul(p.diePitchX)).sub(p.dieOriginX);
+			DoubleVector relY = globalY.sub(indexY.mul(p.diePitchY)).sub(p.dieOriginY);
+			fast = fast.and(relX.abs().mul(ROUND_POW).compare(VectorOperators.LT, ROUND_PRODUCT_LIMIT))
+					.and(relY.abs().mul(ROUND_POW).compare(VectorOperators.LT, ROUND_PRODUCT_LIMIT));
+
+			if (!fast.allTrue()) {
+				// 输出尚未写入，原地旋转时src仍是原值
+				KlarfCoordinateRotator.rotateRange(src, p, dst, i, i + lanes);
+				continue;
+			}
+			toInt(indexX).intoArray(dstXIndex, i);
+			toInt(indexY).intoArray(dstYIndex, i);
+			halfUp(relX).intoArray(dstXRel, i);
+			halfUp(relY).intoArray(dstYRel, i);
+		}
+		if (i < to) {
+			KlarfCoordinateRotator.rotateRange(src, p, dst, i, to);
+		}
+	}
+
+	/**
+	 * Math.round 的逐通道实现：n = floor(q)，q - n ≥ 0.5 时进位
+	 * q - floor(q) 在 |q| ≥ 1 时精确；q ∈ (-1, 0) 时可能向上舍入，但只会影响 ≥0.5 的判断结果为进位，与 Math.round 一致
+	 */
+	private static DoubleVector round(DoubleVector q) {
+		DoubleVector floor = floor(q);
+		return floor.add(1.0, q.sub(floor).compare(VectorOperators.GE, 0.5));
+	}
+
+	/**
+	 * {@link KlarfRounding#halfUp} 快速路径的逐通道实现（调用方已确认 |value|×10^4 < 1e15）
+	 */
+	private static DoubleVector halfUp(DoubleVector value) {
+		DoubleVector abs = value.abs();
+		DoubleVector product = abs.mul(ROUND_POW);
+		DoubleVector error = abs.fma(DoubleVector.broadcast(DOUBLE_SPECIES, ROUND_POW), product.neg());
+		DoubleVector floor = floor(product);
+		DoubleVector distance = product.sub(floor).sub(0.5);
+		VectorMask<Double> up = distance.compare(VectorOperators.GT, 0.0)
+				.or(distance.compare(VectorOperators.EQ, 0.0).and(error.compare(VectorOperators.GE, 0.0)));
+		DoubleVector rounded = floor.add(1.0, up);
+		// 舍入为0时保持 +0.0（与BigDecimal一致，无负零）
+		VectorMask<Double> negative = value.compare(VectorOperators.LT, 0.0)
+				.and(rounded.compare(VectorOperators.NE, 0.0));
+		return rounded.div(ROUND_POW).lanewise(VectorOperators.NEG, negative);
+	}
+
+	/**
+	 * 向下取整（调用方保证 |value| < 2^51）
+	 * 加减 1.5×2^52 得到最近整数（只用加减法，避免 double→long 转换在部分硬件上无法向量化），再修正为floor
+	 */
+	private static DoubleVector floor(DoubleVector value) {
+		DoubleVector nearest = value.add(ROUND_MAGIC).sub(ROUND_MAGIC);
+		return nearest.sub(1.0, nearest.compare(VectorOperators.GT, value));
+	}
+
+	private static DoubleVector toDouble(IntVector value) {
+		return (DoubleVector) value.convertShape(VectorOperators.I2D, DOUBLE_SPECIES, 0);
+	}
+
+	private static IntVector toInt(DoubleVector value) {
+		return (IntVector) value.convertShape(VectorOperators.D2I, INT_SPECIES, 0);
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.demo.klarf;
+
+import java.util.Arrays;
+
+/**
+ * 晶圆图（由 {@link WaferMapAggregator} 生成，只读，可多线程共享）
+ * 包含每个Die的缺陷数和多分辨率密度金字塔；瓦片格子按行存储，第0行为Y最小的一侧
+ */
+public final class WaferMap {
+	private final int tileSize;
+	private final int maxZoom;
+	private final double minX;
+	private final double minY;
+	private final double extent;
+	// levels[z]：第 z 级全部格子，每边 tileSize × 2^z 个
+	private final int[][] levels;
+	private final int[] maxBinCounts;
+	// 有缺陷的Die（按Die键升序）及缺陷数
+	private final long[] dieKeys;
+	private final int[] dieCounts;
+	private final long defectCount;
+	private final long outsideCount;
+
+	WaferMap(int tileSize, int maxZoom, double minX, double minY, double extent, int[][] levels,
+			long[] dieKeys, int[] dieCounts, long defectCount, long outsideCount) {
+		this.tileSize = tileSize;
+		this.maxZoom = maxZoom;
+		this.minX = minX;
+		this.minY = minY;
+		this.extent = extent;
+		this.levels = levels;
+		this.dieKeys = dieKeys;
+		this.dieCounts = dieCounts;
+		this.defectCount = defectCount;
+		this.outsideCount = outsideCount;
+		this.maxBinCounts = new int[levels.length];
+		for (int zoom = 0; zoom < levels.length; zoom++) {
+			int max = 0;
+			for (int count : levels[zoom]) {
+				max = Math.max(max, count);
+			}
+			maxBinCounts[zoom] = max;
+		}
+	}
+
+	public int getTileSize() { return tileSize; }
+	public int getMaxZoom() { return maxZoom; }
+	/** 覆盖范围左下角X（μm） */
+	public double getMinX() { return minX; }
+	/** 覆盖范围左下角Y（μm） */
+	public double getMinY() { return minY; }
+	/** 覆盖范围边长（μm） */
+	public double getExtent() { return extent; }
+	public long getDefectCount() { return defectCount; }
+	/** 超出覆盖范围、未计入密度的缺陷数 */
+	public long getOutsideCount() { return outsideCount; }
+
+	/**
+	 * 第 zoom 级单个格子的最大缺陷数（前端配色用）
+	 */
+	public int getMaxBinCount(int zoom) {
+		checkZoom(zoom);
+		return maxBinCounts[zoom];
+	}
+
+	/**
+	 * 第 zoom 级每边瓦片数
+	 */
+	public int getTilesPerSide(int zoom) {
+		checkZoom(zoom);
+		return 1 << zoom;
+	}
+
+	/**
+	 * 瓦片格子（tileSize × tileSize，按行，复制返回）
+	 */
+	public int[] getTile(int zoom, int tileX, int tileY) {
+		checkZoom(zoom);
+		int tiles = 1 << zoom;
+		if (tileX < 0 || tileX >= tiles || tileY < 0 || tileY >= tiles) {
+			throw new IllegalArgumentException("瓦片坐标越界：" + zoom + "/" + tileX + "/" + tileY);
+		}
+		int side = tileSize << zoom;
+		int[] level = levels[zoom];
+		int[] tile = new int[tileSize * tileSize];
+		for (int row = 0; row < tileSize; row++) {
+			System.arraycopy(level, (tileY * tileSize + row) * side + tileX * tileSize, tile, row * tileSize, tileSize);
+		}
+		return tile;
+	}
+
+	/**
+	 * 有缺陷的Die数
+	 */
+	public int getDieCount() {
+		return dieKeys.length;
+	}
+
+	/**
+	 * Die键（升序，复制返回，与 getDieDefectCounts() 一一对应）
+	 */
+	public long[] getDieKeys() {
+		return dieKeys.clone();
+	}
+
+	/**
+	 * 各Die的缺陷数（复制返回）
+	 */
+	public int[] getDieDefectCounts() {
+		return dieCounts.clone();
+	}
+
+	/**
+	 * 单个Die的缺陷数
+	 */
+	public int getDieDefectCount(int xIndex, int yIndex) {
+		int i = Arrays.binarySearch(dieKeys, DieKey.of(xIndex, yIndex));
+		return i < 0 ? 0 : dieCounts[i];
+	}
+
+	/**
+	 * 估算内存占用（字节，缓存按此计权）
+	 */
+	public long estimateBytes() {
+		long bytes = 256 + dieKeys.length * 12L;
+		for (int[] level : levels) {
+			bytes += level.length * 4L;
+		}
+		return bytes;
+	}
+
+	private void checkZoom(int zoom) {
+		if (zoom < 0 || zoom > maxZoom) {
+			throw new IllegalArgumentException("缩放级别越界：" + zoom + "，最大：" + maxZoom);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.example.demo.klarf;
+
+import com.example.demo.util.LongIntHashMap;
+
+/**
+ * 晶圆图聚合器
+ * 一次遍历（旋转后的）缺陷批次，同时累计每个Die的缺陷数和最细一级的密度网格，finish 时逐级 2×2 合并得到多分辨率金字塔。
+ * <p>
+ * 覆盖范围为以 SampleCenter 为中心、边长为晶圆直径的正方形；第 z 级（0 ≤ z ≤ maxZoom）
+ * 共 2^z × 2^z 个瓦片，每个瓦片 tileSize × tileSize 个格子。超出范围的缺陷只计入Die统计和范围外计数。
+ * 绝对坐标 = Index × DiePitch + DieOrigin + Rel（与 {@link KlarfSpatialIndex} 一致）。
+ */
+public final class WaferMapAggregator {
+	/** 默认瓦片边长（格子数） */
+	public static final int DEFAULT_TILE_SIZE = 256;
+	/** 默认最大缩放级别（最细一级 1024×1024 格，300mm晶圆每格约293μm） */
+	public static final int DEFAULT_MAX_ZOOM = 2;
+	/** 默认晶圆直径（μm） */
+	public static final double DEFAULT_WAFER_DIAMETER = 300_000;
+	// 最细一级格子数上限（16M格，64MB）
+	private static final long MAX_BINS = 1L << 24;
+
+	private final KlarfBaseParams params;
+	private final int tileSize;
+	private final int maxZoom;
+	private final double minX;
+	private final double minY;
+	private final double extent;
+	// 最细一级每边格子数及每格边长
+	private final int side;
+	private final double binSize;
+	private final int[] finest;
+	private final LongIntHashMap dieCounts = new LongIntHashMap(1024);
+	private long defectCount;
+	private long outsideCount;
+
+	public WaferMapAggregator(KlarfBaseParams params) {
+		this(params, DEFAULT_WAFER_DIAMETER, DEFAULT_TILE_SIZE, DEFAULT_MAX_ZOOM);
+	}
+
+	/**
+	 * @param params 计算绝对坐标用的参数（SampleCenter/DiePitch/DieOrigin）
+	 * @param waferDiameter 晶圆直径（μm）
+	 * @param tileSize 瓦片边长（格子数）
+	 * @param maxZoom 最大缩放级别
+	 */
+	public WaferMapAggregator(KlarfBaseParams params, double waferDiameter, int tileSize, int maxZoom) {
+		if (params == null) {
+			throw new IllegalArgumentException("基准参数不能为空！");
+		}
+		if (!(waferDiameter > 0) || Double.isInfinite(waferDiameter)) {
+			throw new IllegalArgumentException("晶圆直径必须大于0：" + waferDiameter);
+		}
+		if (tileSize <= 0 || maxZoom < 0 || maxZoom > 16) {
+			throw new IllegalArgumentException("瓦片参数无效：tileSize=" + tileSize + "，maxZoom=" + maxZoom);
+		}
+		long bins = (long) tileSize << maxZoom;
+		if (bins * bins > MAX_BINS) {
+			throw new IllegalArgumentException("最细一级格子数超过上限：" + bins + "×" + bins);
+		}
+		this.params = params;
+		this.tileSize = tileSize;
+		this.maxZoom = maxZoom;
+		this.extent = waferDiameter;
+		this.minX = params.getSampleCenterX() - waferDiameter / 2;
+		this.minY = params.getSampleCenterY() - waferDiameter / 2;
+		this.side = (int) bins;
+		this.binSize = waferDiameter / side;
+		this.finest = new int[side * side];
+	}
+
+	/**
+	 * 累计一个批次（批次可复用，不被持有）
+	 */
+	public void add(DefectBatch batch) {
+		int[] xIndex = batch.getXIndex();
+		int[] yIndex = batch.getYIndex();
+		double[] xRel = batch.getXRel();
+		double[] yRel = batch.getYRel();
+		double pitchX = params.getDiePitchX();
+		double pitchY = params.getDiePitchY();
+		// 把 Index × DiePitch + DieOrigin 中的常量部分提前减掉
+		double offsetX = params.getDieOriginX() - minX;
+		double offsetY = params.getDieOriginY() - minY;
+		double scale = 1 / binSize;
+		for (int i = 0; i < batch.size(); i++) {
+			dieCounts.addTo(DieKey.of(xIndex[i], yIndex[i]), 1);
+			double column = Math.floor((xIndex[i] * pitchX + offsetX + xRel[i]) * scale);
+			double row = Math.floor((yIndex[i] * pitchY + offsetY + yRel[i]) * scale);
+			if (column >= 0 && column < side && row >= 0 && row < side) {
+				finest[(int) row * side + (int) column]++;
+			} else {
+				outsideCount++;
+			}
+		}
+		defectCount += batch.size();
+	}
+
+	/**
+	 * 生成晶圆图（之后本聚合器不应再使用）
+	 */
+	public WaferMap finish() {
+		int[][] levels = new int[maxZoom + 1][];
+		levels[maxZoom] = finest;
+		for (int zoom = maxZoom - 1; zoom >= 0; zoom--) {
+			levels[zoom] = downsample(levels[zoom + 1], tileSize << (zoom + 1));
+		}
+		long[] keys = dieCounts.keys();
+		int[] counts = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			counts[i] = dieCounts.get(keys[i], 0);
+		}
+		return new WaferMap(tileSize, maxZoom, minX, minY, extent, levels, keys, counts, defectCount, outsideCount);
+	}
+
+	/**
+	 * 2×2 合并
+	 * @param fineSide 细一级每边格子数
+	 */
+	private static int[] downsample(int[] fine, int fineSide) {
+		int coarseSide = fineSide / 2;
+		int[] coarse = new int[coarseSide * coarseSide];
+		for (int row = 0; row < coarseSide; row++) {
+			int upper = 2 * row * fineSide;
+			int lower = upper + fineSide;
+			int target = row * coarseSide;
+			for (int column = 0; column < coarseSide; column++) {
+				coarse[target + column] = fine[upper + 2 * column] + fine[upper + 2 * column + 1]
+						+ fine[lower + 2 * column] + fine[lower + 2 * column + 1];
+			}
+		}
+		return coarse;
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.demo.tiff;
+
+import java.nio.ByteBuffer;
+
+/**
+ * IFD 目录项（原始字节，字节序与源文件相同）
+ * 源文件中值不超过目录项值域（经典TIFF 4字节、BigTIFF 8字节）时读入 bytes，否则只记录值在源文件中的位置，
+ * 复制时按字节区间直接从源文件转存，不读入内存
+ */
+final class TiffEntry {
+	final int tag;
+	final int type;
+	final long count;
+	// 内存中的值（null 表示值在源文件 valueOffset 处）
+	final byte[] bytes;
+	final long valueOffset;
+
+	TiffEntry(int tag, int type, long count, byte[] bytes, long valueOffset) {
+		this.tag = tag;
+		this.type = type;
+		this.count = count;
+		this.bytes = bytes;
+		this.valueOffset = valueOffset;
+	}
+
+	/**
+	 * 由内存中的值创建（写出时生成的目录项，如新的条带偏移）
+	 */
+	static TiffEntry of(int tag, int type, long count, ByteBuffer value) {
+		byte[] bytes = new byte[value.remaining()];
+		value.get(bytes);
+		return new TiffEntry(tag, type, count, bytes, -1);
+	}
+
+	/**
+	 * 值的字节数
+	 */
+	long byteLength() {
+		return count * TiffFile.typeSize(type);
+	}
+}
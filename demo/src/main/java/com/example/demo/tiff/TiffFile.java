@@ -0,0 +1,259 @@
+package com.example.demo.tiff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 多页TIFF文件（只读，支持经典TIFF和BigTIFF，大小端均可）
+ * <p>
+ * 打开时只沿 IFD 链读取每页目录的位置（每页两次小的定位读取），不读取像素数据；
+ * {@link #getPage(int)} 按需解析单页目录，条带/瓦片数据通过 {@link #transferTo} 按字节区间直接转存，
+ * 因此内存占用与帧大小无关。FileChannel 的定位读取是线程安全的，多个线程可同时读取不同页。
+ */
+public final class TiffFile implements Closeable {
+	static final int TAG_IMAGE_WIDTH = 256;
+	static final int TAG_IMAGE_LENGTH = 257;
+	static final int TAG_STRIP_OFFSETS = 273;
+	static final int TAG_STRIP_BYTE_COUNTS = 279;
+	static final int TAG_TILE_OFFSETS = 324;
+	static final int TAG_TILE_BYTE_COUNTS = 325;
+
+	static final int TYPE_SHORT = 3;
+	static final int TYPE_LONG = 4;
+	static final int TYPE_LONG8 = 16;
+
+	static final int CLASSIC_MAGIC = 42;
+	static final int BIG_TIFF_MAGIC = 43;
+
+	// 打开时每页的元数据：页位置数组（扩容时新旧两份）加上防循环的已访问集合
+	private static final int OPEN_BYTES_PER_PAGE = 96;
+	// 按文件大小估算页数时假定的每页最小字节数（目录加像素数据）
+	private static final int MIN_PAGE_BYTES = 1024;
+
+	// 各字段类型的字节数（下标为类型编号，0 表示未知类型）
+	private static final int[] TYPE_SIZES = {0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8, 4, 0, 0, 8, 8, 8};
+
+	private final Path path;
+	private final FileChannel channel;
+	private final long fileSize;
+	private final ByteOrder byteOrder;
+	private final boolean bigTiff;
+	// 每页 IFD 在文件中的位置
+	private final long[] ifdOffsets;
+	// 最大的单页目录项数（估算内存用）
+	private final int maxEntryCount;
+
+	private TiffFile(Path path, FileChannel channel) throws IOException {
+		this.path = path;
+		this.channel = channel;
+		this.fileSize = channel.size();
+		if (fileSize < 8) {
+			throw new IOException("不是TIFF文件：" + path);
+		}
+		ByteBuffer header = read(0, (int) Math.min(16, fileSize), ByteOrder.LITTLE_ENDIAN);
+		int b0 = header.get(0);
+		int b1 = header.get(1);
+		if (b0 == 'I' && b1 == 'I') {
+			this.byteOrder = ByteOrder.LITTLE_ENDIAN;
+		} else if (b0 == 'M' && b1 == 'M') {
+			this.byteOrder = ByteOrder.BIG_ENDIAN;
+		} else {
+			throw new IOException("不是TIFF文件：" + path);
+		}
+		header.order(byteOrder);
+		int magic = Short.toUnsignedInt(header.getShort(2));
+		long firstIfd;
+		if (magic == CLASSIC_MAGIC) {
+			this.bigTiff = false;
+			firstIfd = Integer.toUnsignedLong(header.getInt(4));
+		} else if (magic == BIG_TIFF_MAGIC && fileSize >= 16 && header.getShort(4) == 8 && header.getShort(6) == 0) {
+			this.bigTiff = true;
+			firstIfd = header.getLong(8);
+		} else {
+			throw new IOException("不是TIFF文件：" + path);
+		}
+
+		// 沿 IFD 链记录每页位置（防止损坏文件的循环链）
+		long[] offsets = new long[16];
+		int pageCount = 0;
+		int maxEntries = 0;
+		Set<Long> visited = new HashSet<>();
+		for (long offset = firstIfd; offset != 0; ) {
+			if (offset < headerSize() || offset + countSize() > fileSize || !visited.add(offset)) {
+				throw new IOException("TIFF文件已损坏：第" + pageCount + "页IFD位置非法：" + offset);
+			}
+			long entryCount = readUnsigned(offset, countSize());
+			long nextPosition = offset + countSize() + entryCount * entrySize();
+			if (entryCount > 0xFFFF || nextPosition + offsetSize() > fileSize) {
+				throw new IOException("TIFF文件已损坏：第" + pageCount + "页IFD越界");
+			}
+			if (pageCount == offsets.length) {
+				offsets = Arrays.copyOf(offsets, pageCount * 2);
+			}
+			offsets[pageCount++] = offset;
+			maxEntries = Math.max(maxEntries, (int) entryCount);
+			offset = readUnsigned(nextPosition, offsetSize());
+		}
+		this.ifdOffsets = Arrays.copyOf(offsets, pageCount);
+		this.maxEntryCount = maxEntries;
+	}
+
+	/**
+	 * 打开TIFF文件（读取 IFD 链）
+	 */
+	public static TiffFile open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new TiffFile(file, channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public ByteOrder getByteOrder() {
+		return byteOrder;
+	}
+
+	public boolean isBigTiff() {
+		return bigTiff;
+	}
+
+	public int getPageCount() {
+		return ifdOffsets.length;
+	}
+
+	/**
+	 * 解析第 index 页的目录（每次调用重新读取，不缓存）
+	 */
+	public TiffPage getPage(int index) throws IOException {
+		if (index < 0 || index >= ifdOffsets.length) {
+			throw new IndexOutOfBoundsException("页号越界：" + index + "，页数：" + ifdOffsets.length);
+		}
+		return TiffPage.parse(this, index, ifdOffsets[index]);
+	}
+
+	/**
+	 * 打开前按文件大小估算打开过程（沿 IFD 链）占用的元数据字节数，页数按每页至少1KB估算
+	 */
+	public static long estimateOpenBytes(long fileSize) {
+		return Math.max(1, fileSize / MIN_PAGE_BYTES) * OPEN_BYTES_PER_PAGE;
+	}
+
+	/**
+	 * 打开后常驻的元数据加上解析一页目录的大致字节数（用于并发处理时的内存预算）
+	 */
+	public long estimateBytes() {
+		return ifdOffsets.length * 8L + (long) maxEntryCount * (entrySize() + 48);
+	}
+
+	/**
+	 * 把 [position, position + count) 转存到 target（FileChannel 之间由操作系统直接复制）
+	 */
+	public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		if (position < 0 || count < 0 || position + count > fileSize) {
+			throw new IOException("TIFF文件已损坏：数据区间越界：" + position + "+" + count);
+		}
+		while (count > 0) {
+			long n = channel.transferTo(position, count, target);
+			if (n <= 0) {
+				throw new IOException("TIFF文件不完整：" + path);
+			}
+			position += n;
+			count -= n;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// ------------------------------ 格式参数 ------------------------------
+
+	int headerSize() {
+		return bigTiff ? 16 : 8;
+	}
+
+	/** IFD 目录项数字段长度 */
+	int countSize() {
+		return bigTiff ? 8 : 2;
+	}
+
+	int entrySize() {
+		return bigTiff ? 20 : 12;
+	}
+
+	/** 偏移字段（下一IFD位置、目录项值域）长度 */
+	int offsetSize() {
+		return bigTiff ? 8 : 4;
+	}
+
+	/**
+	 * 字段类型的字节数，未知类型返回0
+	 */
+	static int typeSize(int type) {
+		return type > 0 && type < TYPE_SIZES.length ? TYPE_SIZES[type] : 0;
+	}
+
+	/**
+	 * 定位读取（按文件字节序）
+	 */
+	ByteBuffer read(long position, int length) throws IOException {
+		return read(position, length, byteOrder);
+	}
+
+	private ByteBuffer read(long position, int length, ByteOrder order) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(order);
+		readInto(position, buffer);
+		return buffer.flip();
+	}
+
+	/**
+	 * 从 position 开始读满 buffer 的剩余空间
+	 */
+	void readInto(long position, ByteBuffer buffer) throws IOException {
+		if (position < 0 || position + buffer.remaining() > fileSize) {
+			throw new IOException("TIFF文件已损坏：读取越界：" + position + "+" + buffer.remaining());
+		}
+		long base = position - buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, base + buffer.position()) < 0) {
+				throw new IOException("TIFF文件不完整：" + path);
+			}
+		}
+	}
+
+	private long readUnsigned(long position, int size) throws IOException {
+		ByteBuffer buffer = read(position, size);
+		switch (size) {
+			case 2:
+				return Short.toUnsignedLong(buffer.getShort());
+			case 4:
+				return Integer.toUnsignedLong(buffer.getInt());
+			default:
+				long value = buffer.getLong();
+				if (value < 0) {
+					throw new IOException("TIFF文件已损坏：偏移超出范围");
+				}
+				return value;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.example.demo.tiff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多页TIFF按样本拆分（defect_info/tif_frame_process.py split_large_tif 的Java实现）
+ * <p>
+ * 样本按所在TIFF分组，每个文件一个任务并行处理；文件内按样本顺序每 samplesPerBatch 个样本一批，
+ * 批内帧按源帧号排序后写入 &lt;源文件名&gt;_batch_&lt;批号&gt;.tif，一个样本的帧不会被拆到两个文件中。
+ * 每次调用写到输出目录下独占的 split-&lt;UUID&gt; 子目录，并发调用互不覆盖；子目录由调用方关闭结果时删除。
+ * 与Python版不同，帧不解码：按字节区间直接复制（见 {@link TiffFrameWriter}），
+ * 内存只用于IFD元数据，并受 memoryBudgetBytes 限制（超出预算的文件等待其他文件处理完）：
+ * 打开文件前按文件大小预占（{@link TiffFile#estimateOpenBytes}），打开后按实际页数调整；
+ * 平均每页不足1KB的文件在打开过程中可能短暂超出预估。
+ * <p>
+ * 拆分结果中帧号从0开始（与 tif.py 一致）；超出源文件页数的帧被丢弃，没有有效帧的批不生成文件，
+ * 其样本的 tifPath 为 null。不同目录下的同名源文件，输出名追加序号区分。
+ */
+public class TiffFrameExtractor implements Closeable {
+	public static final int DEFAULT_SAMPLES_PER_BATCH = 100;
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+	// 每次调用的输出子目录前缀
+	private static final String RESULT_PREFIX = "split-";
+
+	private final Path outputDirectory;
+	private final int samplesPerBatch;
+	private final ExecutorService executor;
+	// 内存预算（单位KB，单个文件的预占不超过总预算，避免永远等不到）
+	private final int budgetPermits;
+	private final Semaphore budget;
+
+	public TiffFrameExtractor(Path outputDirectory) {
+		this(outputDirectory, DEFAULT_SAMPLES_PER_BATCH, Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())),
+				DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * @param samplesPerBatch   每个输出文件的样本数
+	 * @param parallelism       同时处理的源文件数
+	 * @param memoryBudgetBytes 同时处理的文件占用的元数据内存上限
+	 */
+	public TiffFrameExtractor(Path outputDirectory, int samplesPerBatch, int parallelism, long memoryBudgetBytes) {
+		if (samplesPerBatch <= 0 || parallelism <= 0 || memoryBudgetBytes <= 0) {
+			throw new IllegalArgumentException("批大小、并行数和内存预算必须大于0");
+		}
+		this.outputDirectory = outputDirectory;
+		this.samplesPerBatch = samplesPerBatch;
+		this.budgetPermits = (int) Math.min(Integer.MAX_VALUE, (memoryBudgetBytes + 1023) / 1024);
+		this.budget = new Semaphore(budgetPermits);
+		this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger(1);
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "tiff-extract-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * 拆分（阻塞到所有文件处理完）
+	 * @return 拆分结果，调用方用完后关闭（删除批文件）；拆分失败时已写出的批文件随即删除
+	 */
+	public TiffSplitResult split(List<TiffSample> samples) throws IOException {
+		Path directory = Files.createDirectories(outputDirectory.resolve(RESULT_PREFIX + UUID.randomUUID()));
+		try {
+			return new TiffSplitResult(directory, split(samples, directory));
+		} catch (IOException | RuntimeException e) {
+			try {
+				TiffSplitResult.delete(directory);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * 删除输出目录下遗留的拆分目录（进程退出前未关闭的结果），应在没有拆分进行时调用
+	 * @return 删除的目录数
+	 */
+	public int deleteStaleResults() throws IOException {
+		if (!Files.isDirectory(outputDirectory)) {
+			return 0;
+		}
+		List<Path> stale = new ArrayList<>();
+		try (DirectoryStream<Path> children = Files.newDirectoryStream(outputDirectory, RESULT_PREFIX + "*")) {
+			children.forEach(stale::add);
+		}
+		for (Path directory : stale) {
+			TiffSplitResult.delete(directory);
+		}
+		return stale.size();
+	}
+
+	private List<TiffSample> split(List<TiffSample> samples, Path directory) throws IOException {
+		Map<Path, List<Integer>> bySource = new LinkedHashMap<>();
+		for (int i = 0; i < samples.size(); i++) {
+			bySource.computeIfAbsent(samples.get(i).getTifPath(), key -> new ArrayList<>()).add(i);
+		}
+
+		TiffSample[] results = new TiffSample[samples.size()];
+		Set<String> prefixes = new HashSet<>();
+		List<Future<?>> futures = new ArrayList<>(bySource.size());
+		for (Map.Entry<Path, List<Integer>> entry : bySource.entrySet()) {
+			String prefix = uniquePrefix(entry.getKey(), prefixes);
+			futures.add(executor.submit(() -> {
+				splitFile(entry.getKey(), directory, prefix, entry.getValue(), samples, results);
+				return null;
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("TIFF拆分被中断");
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("TIFF拆分失败", cause);
+		}
+		return Arrays.asList(results);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 拆分一个源文件
+	 * @param positions 属于该文件的样本在输入中的位置
+	 */
+	private void splitFile(Path source, Path directory, String prefix, List<Integer> positions, List<TiffSample> samples,
+			TiffSample[] results) throws IOException, InterruptedException {
+		// 打开文件（沿 IFD 链分配元数据）之前按文件大小预占，打开后按实际页数调整
+		int permits = permits(TiffFile.estimateOpenBytes(Files.size(source)));
+		budget.acquire(permits);
+		try (TiffFile tiff = TiffFile.open(source)) {
+			int required = permits(tiff.estimateBytes());
+			if (required < permits) {
+				budget.release(permits - required);
+				permits = required;
+			} else if (required > permits && !budget.tryAcquire(required - permits)) {
+				// 补不足时先全部归还再整体申请，避免多个文件各自持有部分预算互相等待
+				budget.release(permits);
+				permits = 0;
+				budget.acquire(required);
+				permits = required;
+			} else {
+				permits = required;
+			}
+			for (int from = 0, batch = 0; from < positions.size(); from += samplesPerBatch, batch++) {
+				List<Integer> batchPositions = positions.subList(from, Math.min(positions.size(), from + samplesPerBatch));
+				writeBatch(tiff, directory.resolve(prefix + "_batch_" + batch + ".tif"), batchPositions, samples, results);
+			}
+		} finally {
+			budget.release(permits);
+		}
+	}
+
+	/**
+	 * 字节数换算为预算许可数（KB），单个文件不超过总预算
+	 */
+	private int permits(long bytes) {
+		return (int) Math.min(budgetPermits, Math.max(1, (bytes + 1023) / 1024));
+	}
+
+	private void writeBatch(TiffFile tiff, Path target, List<Integer> positions, List<TiffSample> samples,
+			TiffSample[] results) throws IOException {
+		// 批内所有有效帧：{样本在批内的序号, 图像序号, 源帧号}，按源帧号排序（同一帧号保持样本顺序）
+		List<int[]> frames = new ArrayList<>();
+		for (int s = 0; s < positions.size(); s++) {
+			List<TiffImage> images = samples.get(positions.get(s)).getImages();
+			for (int i = 0; i < images.size(); i++) {
+				int no = images.get(i).getNo();
+				if (no >= 0 && no < tiff.getPageCount()) {
+					frames.add(new int[]{s, i, no});
+				}
+			}
+		}
+		frames.sort(Comparator.comparingInt(frame -> frame[2]));
+
+		// 帧号改为批文件内的位置，样本内图像保持原顺序
+		int[] pages = new int[frames.size()];
+		TiffImage[][] renumbered = new TiffImage[positions.size()][];
+		for (int s = 0; s < positions.size(); s++) {
+			renumbered[s] = new TiffImage[samples.get(positions.get(s)).getImages().size()];
+		}
+		for (int k = 0; k < frames.size(); k++) {
+			int[] frame = frames.get(k);
+			pages[k] = frame[2];
+			TiffImage image = samples.get(positions.get(frame[0])).getImages().get(frame[1]);
+			renumbered[frame[0]][frame[1]] = new TiffImage(k, image.getType());
+		}
+		if (pages.length > 0) {
+			new TiffFrameWriter(tiff, pages).writeTo(target);
+		}
+		for (int s = 0; s < positions.size(); s++) {
+			TiffSample sample = samples.get(positions.get(s));
+			List<TiffImage> images = new ArrayList<>(renumbered[s].length);
+			for (TiffImage image : renumbered[s]) {
+				if (image != null) {
+					images.add(image);
+				}
+			}
+			results[positions.get(s)] = new TiffSample(sample.getId(), pages.length > 0 ? target : null, images);
+		}
+	}
+
+	/**
+	 * 输出文件名前缀：源文件名去掉 .tif/.tiff 扩展名，重名时追加序号
+	 */
+	private static String uniquePrefix(Path source, Set<String> used) {
+		String name = source.getFileName().toString();
+		String lower = name.toLowerCase();
+		if (lower.endsWith(".tif")) {
+			name = name.substring(0, name.length() - 4);
+		} else if (lower.endsWith(".tiff")) {
+			name = name.substring(0, name.length() - 5);
+		}
+		String prefix = name;
+		for (int n = 1; !used.add(prefix); n++) {
+			prefix = name + "_" + n;
+		}
+		return prefix;
+	}
+}
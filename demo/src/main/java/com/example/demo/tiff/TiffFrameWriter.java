@@ -0,0 +1,266 @@
+package com.example.demo.tiff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 把源TIFF中选定的若干页复制为新的多页TIFF（不解码像素）
+ * <p>
+ * 新文件与源文件格式（经典/BigTIFF）和字节序相同，按页依次顺序写出：
+ * <pre>
+ * 文件头 | IFD₀ 目录 + 目录外的值 + 像素数据 | IFD₁ ... | IFDₙ₋₁（下一IFD为0）
+ * </pre>
+ * 每页的目录项原字节复制（条带/瓦片位置改为新位置），目录外的值和像素数据按字节区间从源文件转存，
+ * 页内位置连续的条带合并为一次转存。写出是纯顺序的，目标可以是文件，也可以是压缩包条目等流
+ * （写到流时可传入 {@link TiffReadWindow}，把相邻帧的读取合并）；
+ * 文件大小在构造时算出（需逐页解析一次目录），页元数据不常驻内存。
+ */
+public final class TiffFrameWriter {
+	private static final byte[] PADDING = {0};
+
+	private final TiffFile source;
+	private final int[] pages;
+	private final long size;
+
+	/**
+	 * @param pages 依次写出的源页号（可重复）
+	 */
+	public TiffFrameWriter(TiffFile source, int[] pages) throws IOException {
+		this.source = source;
+		this.pages = pages.clone();
+		long total = source.headerSize();
+		for (int page : this.pages) {
+			total += blockLength(source.getPage(page));
+		}
+		if (!source.isBigTiff() && total > 0xFFFFFFFFL) {
+			throw new IOException("输出超过4GB，经典TIFF无法表示：" + source.getPath());
+		}
+		this.size = total;
+	}
+
+	/**
+	 * 输出文件字节数
+	 */
+	public long size() {
+		return size;
+	}
+
+	public int getPageCount() {
+		return pages.length;
+	}
+
+	/**
+	 * 写出到文件（已存在时覆盖）
+	 */
+	public void writeTo(Path file) throws IOException {
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			writeTo(out);
+		}
+	}
+
+	/**
+	 * 顺序写出到 out（不关闭 out）
+	 * @return 写出的字节数（等于 {@link #size()}）
+	 */
+	public long writeTo(WritableByteChannel out) throws IOException {
+		return writeTo(out, null);
+	}
+
+	/**
+	 * 顺序写出到 out（不关闭 out），源文件数据经由读取窗口
+	 * @param window 读取窗口（null 时直接转存）；可在多次写出间复用，相邻帧只读取一次
+	 * @return 写出的字节数（等于 {@link #size()}）
+	 */
+	public long writeTo(WritableByteChannel out, TiffReadWindow window) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(source.headerSize()).order(source.getByteOrder());
+		header.put(source.getByteOrder() == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+		header.put(header.get(0));
+		if (source.isBigTiff()) {
+			header.putShort((short) TiffFile.BIG_TIFF_MAGIC).putShort((short) 8).putShort((short) 0);
+			header.putLong(pages.length == 0 ? 0 : source.headerSize());
+		} else {
+			header.putShort((short) TiffFile.CLASSIC_MAGIC);
+			header.putInt(pages.length == 0 ? 0 : source.headerSize());
+		}
+		writeFully(header.flip(), out);
+
+		long position = source.headerSize();
+		for (int i = 0; i < pages.length; i++) {
+			position = writePage(source.getPage(pages[i]), position, i == pages.length - 1, out, window);
+		}
+		if (position != size) {
+			throw new IOException("TIFF文件在写出期间被修改：" + source.getPath());
+		}
+		return position;
+	}
+
+	/**
+	 * 写出一页：目录、目录外的值、像素数据
+	 * @param ifdOffset 本页目录在输出中的位置（偶数）
+	 * @return 下一页目录的位置
+	 */
+	private long writePage(TiffPage page, long ifdOffset, boolean last, WritableByteChannel out, TiffReadWindow window)
+			throws IOException {
+		List<TiffEntry> entries = new ArrayList<>(page.entries());
+		int blockCount = page.getDataBlockCount();
+		int valueSize = source.offsetSize();
+		int ifdLength = ifdLength(entries.size() + 2);
+
+		// 目录外的值依次放在目录之后，像素数据放在它们之后
+		long dataStart = ifdOffset + ifdLength + outOfLineLength(entries) + 2 * padded(generatedLength(blockCount));
+		ByteBuffer offsets = allocate(generatedLength(blockCount));
+		ByteBuffer byteCounts = allocate(generatedLength(blockCount));
+		long dataPosition = dataStart;
+		for (int block = 0; block < blockCount; block++) {
+			putUnsigned(offsets, dataPosition);
+			putUnsigned(byteCounts, page.getDataByteCount(block));
+			dataPosition += page.getDataByteCount(block);
+		}
+		int generatedType = source.isBigTiff() ? TiffFile.TYPE_LONG8 : TiffFile.TYPE_LONG;
+		entries.add(TiffEntry.of(page.isTiled() ? TiffFile.TAG_TILE_OFFSETS : TiffFile.TAG_STRIP_OFFSETS,
+				generatedType, blockCount, offsets.flip()));
+		entries.add(TiffEntry.of(page.isTiled() ? TiffFile.TAG_TILE_BYTE_COUNTS : TiffFile.TAG_STRIP_BYTE_COUNTS,
+				generatedType, blockCount, byteCounts.flip()));
+		// 规范要求目录项按标签升序
+		entries.sort(Comparator.comparingInt(entry -> entry.tag));
+
+		ByteBuffer ifd = allocate(ifdLength);
+		if (source.isBigTiff()) {
+			ifd.putLong(entries.size());
+		} else {
+			ifd.putShort((short) entries.size());
+		}
+		long valuePosition = ifdOffset + ifdLength;
+		for (TiffEntry entry : entries) {
+			ifd.putShort((short) entry.tag).putShort((short) entry.type);
+			if (source.isBigTiff()) {
+				ifd.putLong(entry.count);
+			} else {
+				ifd.putInt((int) entry.count);
+			}
+			long length = entry.byteLength();
+			if (length <= valueSize) {
+				ifd.put(entry.bytes);
+				for (long i = length; i < valueSize; i++) {
+					ifd.put((byte) 0);
+				}
+			} else {
+				putUnsigned(ifd, valuePosition);
+				valuePosition += padded(length);
+			}
+		}
+		long dataLength = page.getDataLength();
+		long next = last ? 0 : dataStart + padded(dataLength);
+		putUnsigned(ifd, next);
+		writeFully(ifd.flip(), out);
+
+		for (TiffEntry entry : entries) {
+			long length = entry.byteLength();
+			if (length <= valueSize) {
+				continue;
+			}
+			if (entry.bytes != null) {
+				writeFully(ByteBuffer.wrap(entry.bytes), out);
+			} else {
+				transfer(entry.valueOffset, length, out, window);
+			}
+			if ((length & 1) != 0) {
+				writeFully(ByteBuffer.wrap(PADDING), out);
+			}
+		}
+
+		// 像素数据：源文件中首尾相接的条带合并为一次转存
+		int block = 0;
+		while (block < blockCount) {
+			long start = page.getDataOffset(block);
+			long end = start + page.getDataByteCount(block);
+			block++;
+			while (block < blockCount && page.getDataOffset(block) == end) {
+				end += page.getDataByteCount(block);
+				block++;
+			}
+			transfer(start, end - start, out, window);
+		}
+		if ((dataLength & 1) != 0) {
+			writeFully(ByteBuffer.wrap(PADDING), out);
+		}
+		return dataStart + padded(dataLength);
+	}
+
+	/**
+	 * 一页在输出中占用的字节数（目录 + 目录外的值 + 像素数据，均按2字节对齐）
+	 */
+	private long blockLength(TiffPage page) {
+		List<TiffEntry> entries = page.entries();
+		long generated = generatedLength(page.getDataBlockCount());
+		return ifdLength(entries.size() + 2) + outOfLineLength(entries) + 2 * padded(generated) + padded(page.getDataLength());
+	}
+
+	private int ifdLength(int entryCount) {
+		return source.countSize() + entryCount * source.entrySize() + source.offsetSize();
+	}
+
+	/**
+	 * 复制的目录项中放在目录外的值的总长度（各自按2字节对齐）
+	 */
+	private long outOfLineLength(List<TiffEntry> entries) {
+		long length = 0;
+		for (TiffEntry entry : entries) {
+			if (entry.byteLength() > source.offsetSize()) {
+				length += padded(entry.byteLength());
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * 新生成的条带位置/长度数组放在目录外的长度（放得进值域时为0）
+	 */
+	private long generatedLength(int blockCount) {
+		long length = (long) blockCount * source.offsetSize();
+		return length <= source.offsetSize() ? 0 : length;
+	}
+
+	private ByteBuffer allocate(long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("TIFF目录过大：" + source.getPath());
+		}
+		// 放得进值域的生成值同样用这个缓冲区，至少留出一个值域
+		return ByteBuffer.allocate((int) Math.max(length, source.offsetSize())).order(source.getByteOrder());
+	}
+
+	private void putUnsigned(ByteBuffer buffer, long value) {
+		if (source.isBigTiff()) {
+			buffer.putLong(value);
+		} else {
+			buffer.putInt((int) value);
+		}
+	}
+
+	private void transfer(long position, long count, WritableByteChannel out, TiffReadWindow window) throws IOException {
+		if (window != null) {
+			window.transfer(source, position, count, out);
+		} else {
+			source.transferTo(position, count, out);
+		}
+	}
+
+	private static long padded(long length) {
+		return length + (length & 1);
+	}
+
+	private static void writeFully(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.demo.tiff;
+
+/**
+ * 样本的一张图像：所在帧号（从0开始）和图像类型
+ */
+public final class TiffImage {
+	private final int no;
+	private final int type;
+
+	public TiffImage(int no, int type) {
+		this.no = no;
+		this.type = type;
+	}
+
+	public int getNo() {
+		return no;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return "TiffImage{no=" + no + ", type=" + type + "}";
+	}
+}
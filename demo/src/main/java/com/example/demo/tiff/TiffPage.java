@@ -0,0 +1,215 @@
+package com.example.demo.tiff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TIFF单页目录（只含元数据，不含像素）
+ * 条带（或瓦片）的位置和长度单独解析为数组，其余目录项原样保留，复制帧时按原字节写出；
+ * 指向其他结构的目录项（SubIFDs、EXIF/GPS子目录、旧式JPEG等）复制后位置会失效，解析时丢弃
+ */
+public final class TiffPage {
+	// 复制时丢弃的目录项：FreeOffsets/FreeByteCounts、SubIFDs、JPEGInterchangeFormat(Length)、Exif/GPS/Interop子目录
+	private static final int[] DROPPED_TAGS = {288, 289, 330, 513, 514, 34665, 34853, 40965};
+	private static final int TYPE_IFD = 13;
+	private static final int TYPE_IFD8 = 18;
+
+	private final int index;
+	private final long width;
+	private final long height;
+	private final boolean tiled;
+	private final long[] dataOffsets;
+	private final long[] dataByteCounts;
+	private final long dataLength;
+	// 其余目录项（源文件顺序）
+	private final List<TiffEntry> entries;
+
+	private TiffPage(int index, long width, long height, boolean tiled, long[] dataOffsets, long[] dataByteCounts,
+			long dataLength, List<TiffEntry> entries) {
+		this.index = index;
+		this.width = width;
+		this.height = height;
+		this.tiled = tiled;
+		this.dataOffsets = dataOffsets;
+		this.dataByteCounts = dataByteCounts;
+		this.dataLength = dataLength;
+		this.entries = entries;
+	}
+
+	static TiffPage parse(TiffFile file, int index, long ifdOffset) throws IOException {
+		int countSize = file.countSize();
+		int entrySize = file.entrySize();
+		int valueSize = file.offsetSize();
+		ByteBuffer countBuffer = file.read(ifdOffset, countSize);
+		int entryCount = (int) (countSize == 2 ? Short.toUnsignedLong(countBuffer.getShort()) : countBuffer.getLong());
+		ByteBuffer ifd = file.read(ifdOffset + countSize, entryCount * entrySize);
+
+		List<TiffEntry> entries = new ArrayList<>(entryCount);
+		TiffEntry offsetsEntry = null;
+		TiffEntry byteCountsEntry = null;
+		boolean tiled = false;
+		long width = 0;
+		long height = 0;
+		for (int i = 0; i < entryCount; i++) {
+			int position = i * entrySize;
+			int tag = Short.toUnsignedInt(ifd.getShort(position));
+			int type = Short.toUnsignedInt(ifd.getShort(position + 2));
+			long count = countSize == 2 ? Integer.toUnsignedLong(ifd.getInt(position + 4)) : ifd.getLong(position + 4);
+			int typeSize = TiffFile.typeSize(type);
+			if (typeSize == 0 || type == TYPE_IFD || type == TYPE_IFD8 || isDropped(tag)) {
+				// 未知类型按规范忽略；子目录指针复制后失效
+				continue;
+			}
+			if (count < 0 || count > Long.MAX_VALUE / 8) {
+				throw new IOException("TIFF文件已损坏：第" + index + "页目录项" + tag + "长度非法");
+			}
+			int valuePosition = position + 4 + (countSize == 2 ? 4 : 8);
+			long byteLength = count * typeSize;
+			TiffEntry entry;
+			if (byteLength <= valueSize) {
+				byte[] bytes = new byte[(int) byteLength];
+				ifd.get(valuePosition, bytes);
+				entry = new TiffEntry(tag, type, count, bytes, -1);
+			} else {
+				long valueOffset = valueSize == 4 ? Integer.toUnsignedLong(ifd.getInt(valuePosition)) : ifd.getLong(valuePosition);
+				if (valueOffset < 0 || valueOffset + byteLength > file.getFileSize()) {
+					throw new IOException("TIFF文件已损坏：第" + index + "页目录项" + tag + "越界");
+				}
+				entry = new TiffEntry(tag, type, count, null, valueOffset);
+			}
+			switch (tag) {
+				case TiffFile.TAG_STRIP_OFFSETS:
+					offsetsEntry = entry;
+					break;
+				case TiffFile.TAG_STRIP_BYTE_COUNTS:
+					byteCountsEntry = entry;
+					break;
+				case TiffFile.TAG_TILE_OFFSETS:
+					offsetsEntry = entry;
+					tiled = true;
+					break;
+				case TiffFile.TAG_TILE_BYTE_COUNTS:
+					byteCountsEntry = entry;
+					break;
+				case TiffFile.TAG_IMAGE_WIDTH:
+					width = firstUnsigned(file, entry);
+					entries.add(entry);
+					break;
+				case TiffFile.TAG_IMAGE_LENGTH:
+					height = firstUnsigned(file, entry);
+					entries.add(entry);
+					break;
+				default:
+					entries.add(entry);
+			}
+		}
+		if (offsetsEntry == null || byteCountsEntry == null) {
+			throw new IOException("TIFF文件已损坏：第" + index + "页缺少条带/瓦片位置");
+		}
+		long[] offsets = readUnsigned(file, offsetsEntry);
+		long[] byteCounts = readUnsigned(file, byteCountsEntry);
+		if (offsets.length != byteCounts.length) {
+			throw new IOException("TIFF文件已损坏：第" + index + "页条带位置与长度数量不一致");
+		}
+		long dataLength = 0;
+		for (int i = 0; i < offsets.length; i++) {
+			if (byteCounts[i] > file.getFileSize() || offsets[i] > file.getFileSize() - byteCounts[i]) {
+				throw new IOException("TIFF文件已损坏：第" + index + "页条带" + i + "越界");
+			}
+			dataLength += byteCounts[i];
+		}
+		return new TiffPage(index, width, height, tiled, offsets, byteCounts, dataLength, entries);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public long getWidth() {
+		return width;
+	}
+
+	public long getHeight() {
+		return height;
+	}
+
+	/**
+	 * 是否按瓦片存储（否则为条带）
+	 */
+	public boolean isTiled() {
+		return tiled;
+	}
+
+	/**
+	 * 条带/瓦片数量
+	 */
+	public int getDataBlockCount() {
+		return dataOffsets.length;
+	}
+
+	public long getDataOffset(int block) {
+		return dataOffsets[block];
+	}
+
+	public long getDataByteCount(int block) {
+		return dataByteCounts[block];
+	}
+
+	/**
+	 * 像素数据总字节数（压缩后）
+	 */
+	public long getDataLength() {
+		return dataLength;
+	}
+
+	List<TiffEntry> entries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	private static boolean isDropped(int tag) {
+		for (int dropped : DROPPED_TAGS) {
+			if (dropped == tag) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static long firstUnsigned(TiffFile file, TiffEntry entry) throws IOException {
+		long[] values = readUnsigned(file, entry);
+		return values.length == 0 ? 0 : values[0];
+	}
+
+	/**
+	 * 读取 SHORT/LONG/LONG8 数组
+	 */
+	private static long[] readUnsigned(TiffFile file, TiffEntry entry) throws IOException {
+		int type = entry.type;
+		if (type != TiffFile.TYPE_SHORT && type != TiffFile.TYPE_LONG && type != TiffFile.TYPE_LONG8) {
+			throw new IOException("TIFF文件已损坏：目录项" + entry.tag + "类型非法：" + type);
+		}
+		if (entry.byteLength() > Integer.MAX_VALUE) {
+			throw new IOException("TIFF文件已损坏：目录项" + entry.tag + "过长");
+		}
+		ByteBuffer buffer = entry.bytes != null
+				? ByteBuffer.wrap(entry.bytes).order(file.getByteOrder())
+				: file.read(entry.valueOffset, (int) entry.byteLength());
+		long[] values = new long[(int) entry.count];
+		for (int i = 0; i < values.length; i++) {
+			if (type == TiffFile.TYPE_SHORT) {
+				values[i] = Short.toUnsignedLong(buffer.getShort());
+			} else if (type == TiffFile.TYPE_LONG) {
+				values[i] = Integer.toUnsignedLong(buffer.getInt());
+			} else {
+				values[i] = buffer.getLong();
+				if (values[i] < 0) {
+					throw new IOException("TIFF文件已损坏：目录项" + entry.tag + "数值超出范围");
+				}
+			}
+		}
+		return values;
+	}
+}
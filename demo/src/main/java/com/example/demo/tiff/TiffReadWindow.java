@@ -0,0 +1,73 @@
+package com.example.demo.tiff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 合并读取窗口：按源文件位置递增地复制多个相邻的小区间（如同一文件中连续的帧）时，
+ * 一次读入一整块窗口，后续落在窗口内的区间直接从内存写出，减少对源文件（尤其是网络存储）的读取次数。
+ * 不小于窗口的区间仍直接转存。目标是文件时直接用 {@link TiffFile#transferTo} 更好（零拷贝）。
+ * 非线程安全，一个写出流程使用一个窗口。
+ */
+public final class TiffReadWindow {
+	public static final int DEFAULT_CAPACITY = 1024 * 1024;
+
+	private final ByteBuffer buffer;
+	// 窗口内容所属文件及起始位置
+	private TiffFile file;
+	private long start;
+	private long readCount;
+
+	public TiffReadWindow() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TiffReadWindow(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("窗口大小必须大于0：" + capacity);
+		}
+		this.buffer = ByteBuffer.allocate(capacity);
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * 把 file 的 [position, position + count) 写到 out
+	 */
+	public void transfer(TiffFile file, long position, long count, WritableByteChannel out) throws IOException {
+		if (count >= buffer.capacity()) {
+			file.transferTo(position, count, out);
+			return;
+		}
+		if (file != this.file || position < start || position + count > start + buffer.limit()) {
+			// 向前读时窗口从区间开始；向后读（如条带倒序存放）时窗口在区间结束处截止，覆盖前面的数据
+			boolean backward = file == this.file && position < start;
+			fill(file, backward ? Math.max(0, position + count - buffer.capacity()) : position);
+			if (position + count > start + buffer.limit()) {
+				throw new IOException("TIFF文件已损坏：数据区间越界：" + position + "+" + count);
+			}
+		}
+		ByteBuffer slice = buffer.duplicate();
+		slice.position((int) (position - start)).limit((int) (position - start + count));
+		while (slice.hasRemaining()) {
+			out.write(slice);
+		}
+	}
+
+	/**
+	 * 读取源文件的次数（不含直接转存的大区间）
+	 */
+	public long getReadCount() {
+		return readCount;
+	}
+
+	private void fill(TiffFile file, long position) throws IOException {
+		buffer.clear();
+		buffer.limit((int) Math.max(0, Math.min(buffer.capacity(), file.getFileSize() - position)));
+		file.readInto(position, buffer);
+		buffer.flip();
+		this.file = file;
+		this.start = position;
+		readCount++;
+	}
+}
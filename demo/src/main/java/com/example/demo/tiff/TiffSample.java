@@ -0,0 +1,40 @@
+package com.example.demo.tiff;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 样本（如一个缺陷）及其图像所在的TIFF文件和帧
+ */
+public final class TiffSample {
+	private final long id;
+	private final Path tifPath;
+	private final List<TiffImage> images;
+
+	public TiffSample(long id, Path tifPath, List<TiffImage> images) {
+		this.id = id;
+		this.tifPath = tifPath;
+		this.images = Collections.unmodifiableList(images);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * 图像所在文件（拆分后没有有效帧的样本为null）
+	 */
+	public Path getTifPath() {
+		return tifPath;
+	}
+
+	public List<TiffImage> getImages() {
+		return images;
+	}
+
+	@Override
+	public String toString() {
+		return "TiffSample{id=" + id + ", tifPath=" + tifPath + ", images=" + images + "}";
+	}
+}
@@ -0,0 +1,58 @@
+package com.example.demo.tiff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 一次拆分的结果：批文件都在本次调用独占的目录下，调用方用完后 {@link #close()} 删除整个目录
+ * <p>
+ * 未关闭的结果（如进程异常退出）由 {@link TiffFrameExtractor#deleteStaleResults()} 清理。
+ */
+public final class TiffSplitResult implements Closeable {
+	private final Path directory;
+	private final List<TiffSample> samples;
+
+	TiffSplitResult(Path directory, List<TiffSample> samples) {
+		this.directory = directory;
+		this.samples = Collections.unmodifiableList(samples);
+	}
+
+	/**
+	 * 本次拆分的输出目录
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 拆分后的样本，与输入一一对应：tifPath 为所在批文件，图像帧号为批文件内的帧号
+	 */
+	public List<TiffSample> getSamples() {
+		return samples;
+	}
+
+	/**
+	 * 删除输出目录及其中的批文件
+	 */
+	@Override
+	public void close() throws IOException {
+		delete(directory);
+	}
+
+	static void delete(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+}
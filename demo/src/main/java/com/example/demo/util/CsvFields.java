@@ -0,0 +1,20 @@
+package com.example.demo.util;
+
+/**
+ * CSV字段转义（RFC 4180）：含逗号、双引号、回车或换行的值用双引号包裹，内部双引号写两次
+ */
+public final class CsvFields {
+
+	private CsvFields() {
+	}
+
+	public static String escape(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				return "\"" + value.replace("\"", "\"\"") + "\"";
+			}
+		}
+		return value;
+	}
+}
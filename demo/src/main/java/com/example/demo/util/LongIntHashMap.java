@@ -0,0 +1,184 @@
+package com.example.demo.util;
+
+import java.util.Arrays;
+
+/**
+ * long → int 哈希表（开放寻址、线性探测，无装箱）
+ * 用于按 long 键（如打包的Die键、行ID）分组计数、建立下标索引；非线程安全
+ */
+public final class LongIntHashMap {
+	private static final int DEFAULT_CAPACITY = 16;
+	// 键0用作空槽标记，真正的键0单独存放
+	private static final long EMPTY = 0L;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private boolean hasZeroKey;
+	private int zeroValue;
+
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize 预计键数（达到该数量前不扩容）
+	 */
+	public LongIntHashMap(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("预计大小不能为负数：" + expectedSize);
+		}
+		// 装载因子不超过 0.5
+		int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1)) << 1;
+		this.keys = new long[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(long key) {
+		return key == EMPTY ? hasZeroKey : keys[slot(key)] == key;
+	}
+
+	/**
+	 * @return 键不存在时返回 defaultValue
+	 */
+	public int get(long key, int defaultValue) {
+		if (key == EMPTY) {
+			return hasZeroKey ? zeroValue : defaultValue;
+		}
+		int slot = slot(key);
+		return keys[slot] == key ? values[slot] : defaultValue;
+	}
+
+	public void put(long key, int value) {
+		if (key == EMPTY) {
+			if (!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			zeroValue = value;
+			return;
+		}
+		int slot = slot(key);
+		if (keys[slot] == key) {
+			values[slot] = value;
+			return;
+		}
+		insert(slot, key, value);
+	}
+
+	/**
+	 * 累加（键不存在时视为0）
+	 * @return 累加后的值
+	 */
+	public int addTo(long key, int delta) {
+		if (key == EMPTY) {
+			if (!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			return zeroValue += delta;
+		}
+		int slot = slot(key);
+		if (keys[slot] == key) {
+			return values[slot] += delta;
+		}
+		insert(slot, key, delta);
+		return delta;
+	}
+
+	/**
+	 * 遍历全部键值（顺序不确定）
+	 */
+	public void forEach(EntryConsumer action) {
+		if (hasZeroKey) {
+			action.accept(EMPTY, zeroValue);
+		}
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				action.accept(keys[slot], values[slot]);
+			}
+		}
+	}
+
+	/**
+	 * 全部键（升序）
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int i = 0;
+		if (hasZeroKey) {
+			result[i++] = EMPTY;
+		}
+		for (long key : keys) {
+			if (key != EMPTY) {
+				result[i++] = key;
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		hasZeroKey = false;
+		zeroValue = 0;
+	}
+
+	/**
+	 * 键所在槽位，或探测序列上的第一个空槽
+	 */
+	private int slot(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insert(int slot, long key, int value) {
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 2 > keys.length) {
+			rehash();
+		}
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * 键值遍历回调
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+		void accept(long key, int value);
+	}
+}
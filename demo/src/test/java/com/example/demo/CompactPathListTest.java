@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactPathListTest {
+
+	@Test
+	public void testBlockBoundaries() {
+		// 块大小16：空列表、单条、不足一块、恰好一块、跨块
+		for (int count : new int[]{0, 1, 15, 16, 17, 33}) {
+			List<String> paths = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				paths.add("/data/lot1/wafer" + (i / 4) + "/defect_" + i + ".klarf");
+			}
+			assertRoundTrip(paths);
+		}
+		assertSame(CompactPathList.copyOf(Collections.emptyList()), CompactPathList.copyOf(null));
+	}
+
+	@Test
+	public void testEmptyDuplicateAndNonAsciiPaths() {
+		List<String> paths = Arrays.asList(
+				"", "", "/data/a.csv", "/data/a.csv", "/data/a.csv.bak", "/data/a", "",
+				"/数据/批次1/晶圆.klarf", "/数据/批次1/晶圆2.klarf", "/数据/批次2/晶圆.klarf",
+				// 公共前缀截断在多字节字符中间
+				"/数据/批次一", "/数据/批次丁",
+				"/data/😀.tif", "/data/😁.tif", "/data/é", "/data/é");
+		assertRoundTrip(paths);
+		assertThrows(IllegalArgumentException.class, () -> CompactPathList.copyOf(Arrays.asList("/a", null)));
+	}
+
+	@Test
+	public void testLongPathsUseMultiByteVarInts() {
+		List<String> paths = new ArrayList<>();
+		String prefix = "/data/" + "x".repeat(20_000);
+		for (int i = 0; i < 20; i++) {
+			paths.add(prefix + "/" + "y".repeat(i * 50) + i);
+		}
+		assertRoundTrip(paths);
+	}
+
+	@Test
+	public void testOffHeapAboveThreshold() throws Exception {
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < 40_000; i++) {
+			// 相邻路径的批次目录不同，公共前缀短，编码后超过1MB
+			paths.add("/data/lot" + (i % 7) + "/" + i + "_abcdefghijklmnopqrstuvwxyz.klarf");
+		}
+		CompactPathList list = assertRoundTrip(paths);
+		assertTrue(list.encodedBytes() > 1024 * 1024);
+		assertTrue(list.isOffHeap());
+		assertFalse(CompactPathList.copyOf(paths.subList(0, 100)).isOffHeap());
+
+		CompactPathList copy = serializeRoundTrip(list);
+		assertEquals(paths, copy);
+		assertTrue(copy.isOffHeap());
+	}
+
+	@Test
+	public void testSerializationRoundTrip() throws Exception {
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			paths.add("/数据/lot" + (i % 3) + "/file" + i + ".csv");
+		}
+		CompactPathList list = CompactPathList.copyOf(paths);
+		CompactPathList copy = serializeRoundTrip(list);
+		assertEquals(paths, copy);
+		assertEquals(list.encodedBytes(), copy.encodedBytes());
+		assertEquals(paths.get(37), copy.get(37));
+
+		assertEquals(Collections.emptyList(), serializeRoundTrip(CompactPathList.copyOf(Collections.emptyList())));
+	}
+
+	private static CompactPathList assertRoundTrip(List<String> paths) {
+		CompactPathList list = CompactPathList.copyOf(paths);
+		assertSame(list, CompactPathList.copyOf(list));
+		assertEquals(paths.size(), list.size());
+		// 随机访问（逆序，每次从块首解码）
+		for (int i = paths.size() - 1; i >= 0; i--) {
+			assertEquals(paths.get(i), list.get(i), "下标 " + i);
+		}
+		// 顺序迭代
+		Iterator<String> iterator = list.iterator();
+		for (String path : paths) {
+			assertTrue(iterator.hasNext());
+			assertEquals(path, iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+		assertThrows(NoSuchElementException.class, iterator::next);
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(paths.size()));
+		assertEquals(paths, list);
+		return list;
+	}
+
+	private static CompactPathList serializeRoundTrip(CompactPathList list) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(list);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (CompactPathList) in.readObject();
+		}
+	}
+}
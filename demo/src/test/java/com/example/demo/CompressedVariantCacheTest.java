@@ -0,0 +1,109 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedVariantCacheTest {
+
+	@Test
+	public void testHotFileCapturedAndCommitted(@TempDir Path dir) throws Exception {
+		File source = write(dir.resolve("a.csv"), "a,b,c\n");
+		CompressedVariantCache cache = new CompressedVariantCache(dir.resolve("variants").toFile());
+
+		// 第一次请求只计数
+		assertNull(cache.lookup(source, ContentEncoding.GZIP));
+		assertNull(cache.beginCapture(source, ContentEncoding.GZIP));
+		// 达到热点阈值后返回临时文件，生成期间的并发请求不重复落盘
+		CompressedVariantCache.Capture capture = cache.beginCapture(source, ContentEncoding.GZIP);
+		assertNotNull(capture);
+		File temp = capture.getFile();
+		assertEquals(dir.resolve("variants").toFile(), temp.getParentFile());
+		assertNull(cache.beginCapture(source, ContentEncoding.GZIP));
+		assertNull(cache.lookup(source, ContentEncoding.GZIP));
+
+		Files.write(temp.toPath(), "compressed".getBytes(StandardCharsets.UTF_8));
+		File variant = cache.commit(capture, true);
+		assertFalse(temp.exists());
+		assertNotNull(variant);
+		assertEquals(variant, cache.lookup(source, ContentEncoding.GZIP));
+		assertTrue(variant.getName().endsWith(".gzip"));
+		assertEquals("compressed", new String(Files.readAllBytes(variant.toPath()), StandardCharsets.UTF_8));
+		// 不同编码分别缓存
+		assertNull(cache.lookup(source, ContentEncoding.ZSTD));
+
+		// 变体文件被删除后视为未缓存
+		Files.delete(variant.toPath());
+		assertNull(cache.lookup(source, ContentEncoding.GZIP));
+	}
+
+	@Test
+	public void testIncompleteCaptureDiscarded(@TempDir Path dir) throws Exception {
+		File source = write(dir.resolve("a.csv"), "a,b,c\n");
+		CompressedVariantCache cache = new CompressedVariantCache(dir.resolve("variants").toFile());
+		cache.beginCapture(source, ContentEncoding.ZSTD);
+		CompressedVariantCache.Capture capture = cache.beginCapture(source, ContentEncoding.ZSTD);
+		Files.write(capture.getFile().toPath(), "partial".getBytes(StandardCharsets.UTF_8));
+
+		assertNull(cache.commit(capture, false));
+		assertFalse(capture.getFile().exists());
+		assertNull(cache.lookup(source, ContentEncoding.ZSTD));
+		// 放弃后下一次请求可重新落盘
+		assertNotNull(cache.beginCapture(source, ContentEncoding.ZSTD));
+	}
+
+	@Test
+	public void testSourceChangeInvalidatesVariant(@TempDir Path dir) throws Exception {
+		File source = write(dir.resolve("a.csv"), "a,b,c\n");
+		CompressedVariantCache cache = new CompressedVariantCache(dir.resolve("variants").toFile());
+		cache.beginCapture(source, ContentEncoding.GZIP);
+		cache.commit(cache.beginCapture(source, ContentEncoding.GZIP), true);
+		assertNotNull(cache.lookup(source, ContentEncoding.GZIP));
+
+		Files.setLastModifiedTime(source.toPath(), FileTime.fromMillis(source.lastModified() + 10_000));
+		assertNull(cache.lookup(source, ContentEncoding.GZIP));
+		// 修改时间变化后重新计数
+		assertNull(cache.beginCapture(source, ContentEncoding.GZIP));
+	}
+
+	@Test
+	public void testSourceChangedDuringCaptureDiscarded(@TempDir Path dir) throws Exception {
+		File source = write(dir.resolve("a.csv"), "a,b,c\n");
+		CompressedVariantCache cache = new CompressedVariantCache(dir.resolve("variants").toFile());
+		cache.beginCapture(source, ContentEncoding.GZIP);
+		CompressedVariantCache.Capture capture = cache.beginCapture(source, ContentEncoding.GZIP);
+		Files.write(capture.getFile().toPath(), "compressed".getBytes(StandardCharsets.UTF_8));
+
+		// 压缩期间源文件被修改：旧内容不能挂到新key下
+		write(source.toPath(), "a,b,c\n1,2,3\n");
+		assertNull(cache.commit(capture, true));
+		assertFalse(capture.getFile().exists());
+		assertNull(cache.lookup(source, ContentEncoding.GZIP));
+		// 按开始时的key清理生成标记，新内容达到阈值后可重新落盘
+		cache.beginCapture(source, ContentEncoding.GZIP);
+		assertNotNull(cache.beginCapture(source, ContentEncoding.GZIP));
+	}
+
+	@Test
+	public void testOrphanedVariantsClearedOnStartup(@TempDir Path dir) throws Exception {
+		Path variants = Files.createDirectories(dir.resolve("variants"));
+		File orphan = write(variants.resolve("1a2b-1.gzip"), "old");
+		File temp = write(variants.resolve("variant-1.tmp"), "partial");
+
+		new CompressedVariantCache(variants.toFile());
+		assertFalse(orphan.exists());
+		assertFalse(temp.exists());
+	}
+
+	private static File write(Path path, String text) throws Exception {
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		return path.toFile();
+	}
+}
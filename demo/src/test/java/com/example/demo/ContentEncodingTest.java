@@ -0,0 +1,64 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentEncodingTest {
+
+	@Test
+	public void testNegotiatePrefersHighestQ() {
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(" "));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("identity"));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("br, deflate"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate, br"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("X-GZIP"));
+		// q 值相同时优先 zstd
+		assertEquals(ContentEncoding.ZSTD, ContentEncoding.negotiate("gzip, zstd"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("zstd;q=0.5, gzip;q=0.8"));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=0, zstd;q=0"));
+	}
+
+	@Test
+	public void testNegotiateWildcard() {
+		assertEquals(ContentEncoding.ZSTD, ContentEncoding.negotiate("*"));
+		// 显式拒绝的编码不受通配符影响
+		assertEquals(ContentEncoding.ZSTD, ContentEncoding.negotiate("gzip;q=0, *"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("zstd;q=0, *;q=0.5"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, *;q=0.5"));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("*;q=0"));
+		// 通配符按解析出的编码判断，不按请求头子串判断
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("x-zstd-like, zstd;q=0, *"));
+	}
+
+	@Test
+	public void testNegotiateMalformedQ() {
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("zstd;q=abc, gzip"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("zstd;q=NaN, gzip;q=0.1"));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("zstd;q=2, gzip;q=0.1"));
+		assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q="));
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate(" gzip ; q=0.7 ;level=1 "));
+	}
+
+	@Test
+	public void testGzipRoundTrip() throws Exception {
+		byte[] text = "DefectID XREL YREL\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = ContentEncoding.GZIP.wrap(bytes)) {
+			out.write(text);
+		}
+		assertTrue(bytes.size() < text.length);
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertArrayEquals(text, in.readAllBytes());
+		}
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		assertSame(plain, ContentEncoding.IDENTITY.wrap(plain));
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDigestCacheTest {
+
+	@Test
+	public void testKeyChangesWithMtimeAndSize(@TempDir Path dir) throws Exception {
+		Path path = Files.write(dir.resolve("a.csv"), "abc".getBytes(StandardCharsets.UTF_8));
+		File file = path.toFile();
+		FileDigestCache cache = new FileDigestCache();
+		assertNull(cache.getIfPresent(file));
+
+		byte[] digest = FileDigestCache.newSha256().digest(Files.readAllBytes(path));
+		cache.put(file, digest);
+		assertArrayEquals(digest, cache.getIfPresent(file));
+		assertArrayEquals(digest, cache.getIfPresent(new File(dir.toFile(), "a.csv")));
+
+		// 修改时间变化
+		FileTime original = Files.getLastModifiedTime(path);
+		Files.setLastModifiedTime(path, FileTime.fromMillis(original.toMillis() + 5_000));
+		assertNull(cache.getIfPresent(file));
+		Files.setLastModifiedTime(path, original);
+		assertArrayEquals(digest, cache.getIfPresent(file));
+
+		// 大小变化（修改时间不变）
+		Files.write(path, "abcd".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(path, original);
+		assertNull(cache.getIfPresent(file));
+	}
+
+	@Test
+	public void testEncodings() {
+		byte[] digest = FileDigestCache.newSha256().digest("abc".getBytes(StandardCharsets.US_ASCII));
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", FileDigestCache.toHex(digest));
+		assertEquals("ungWv48Bz+pBQUDeXa4iI7ADYaOWF3qctBD/YfIAFa0=", FileDigestCache.toBase64(digest));
+		assertEquals("00ff", FileDigestCache.toHex(new byte[]{0, (byte) 0xFF}));
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import com.example.demo.FilePreflightChecker.PreflightResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class FilePreflightCheckerTest {
+
+	@Test
+	public void testInspectMissingAndNonRegularPaths(@TempDir Path dir) throws IOException {
+		Path a = Files.write(dir.resolve("a.csv"), new byte[10]);
+		Path b = Files.write(dir.resolve("b.csv"), new byte[32]);
+		Files.createDirectory(dir.resolve("sub"));
+		FilePreflightChecker checker = new FilePreflightChecker();
+		try {
+			PreflightResult result = checker.inspect(Arrays.asList(
+					a.toString(), dir.resolve("missing.csv").toString(), dir.resolve("sub").toString(),
+					b.toString(), "bad\0path"));
+			assertEquals(5, result.getTotalCount());
+			assertEquals(3, result.getInvalidCount());
+			assertEquals(42, result.getTotalBytes());
+			BitSet expected = new BitSet();
+			expected.set(1);
+			expected.set(2);
+			expected.set(4);
+			assertEquals(expected, result.getInvalidIndexes());
+			assertFalse(result.isAllInvalid());
+
+			assertTrue(checker.inspect(Arrays.asList(dir.resolve("x").toString(), dir.toString())).isAllInvalid());
+		} finally {
+			checker.destroy();
+		}
+	}
+
+	@Test
+	public void testInspectUnreadableFile(@TempDir Path dir) throws IOException {
+		Path file = Files.write(dir.resolve("locked.csv"), new byte[8]);
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("---------"));
+		// root 用户不受文件权限限制
+		assumeFalse(Files.isReadable(file));
+		FilePreflightChecker checker = new FilePreflightChecker();
+		try {
+			PreflightResult result = checker.inspect(List.of(file.toString()));
+			assertTrue(result.isAllInvalid());
+			assertEquals(0, result.getTotalBytes());
+		} finally {
+			checker.destroy();
+		}
+	}
+
+	@Test
+	public void testInspectAcrossBatches(@TempDir Path dir) throws IOException {
+		// 超过单批数量，跨批次合并下标
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			Path path = dir.resolve(i + ".txt");
+			if (i % 100 != 7) {
+				Files.write(path, new byte[i % 5]);
+			}
+			paths.add(path.toString());
+		}
+		FilePreflightChecker checker = new FilePreflightChecker();
+		try {
+			PreflightResult result = checker.inspect(paths);
+			assertEquals(6, result.getInvalidCount());
+			assertTrue(result.getInvalidIndexes().get(507));
+			long expectedBytes = 0;
+			for (int i = 0; i < 600; i++) {
+				expectedBytes += i % 100 == 7 ? 0 : i % 5;
+			}
+			assertEquals(expectedBytes, result.getTotalBytes());
+		} finally {
+			checker.destroy();
+		}
+	}
+
+	@Test
+	public void testCheckFreeSpace(@TempDir Path dir) throws IOException {
+		FilePreflightChecker checker = new FilePreflightChecker();
+		try {
+			checker.checkFreeSpace(dir.resolve("out").toString(), 0);
+			assertTrue(Files.isDirectory(dir.resolve("out")));
+			assertThrows(IOException.class, () -> checker.checkFreeSpace(dir.toString(), Long.MAX_VALUE / 2));
+		} finally {
+			checker.destroy();
+		}
+	}
+}
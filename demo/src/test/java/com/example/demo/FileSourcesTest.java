@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSourcesTest {
+
+	@Test
+	public void testGlobAndMaxDepth(@TempDir Path dir) throws IOException {
+		Path root = tree(dir);
+		// 只匹配文件名
+		assertEquals(Arrays.asList("a.csv", "lot1/b.csv", "lot1/w1/c.csv", "lot2/w2/deep/e.csv"),
+				list(root, spec(root, "*.csv", true, Integer.MAX_VALUE)));
+		// 深度2：根目录下一级子目录内的文件
+		assertEquals(Arrays.asList("a.csv", "lot1/b.csv"), list(root, spec(root, "*.csv", true, 2)));
+		assertEquals(Arrays.asList("a.csv", "lot1/b.csv", "lot1/w1/c.csv"), list(root, spec(root, "*.csv", true, 3)));
+		// 非递归时忽略最大深度
+		assertEquals(Arrays.asList("a.csv"), list(root, spec(root, "*.csv", false, 10)));
+		// 含"/"时匹配相对根目录的路径
+		assertEquals(Arrays.asList("lot1/w1/c.csv", "lot1/w1/d.klarf"), list(root, spec(root, "lot1/*/*", true, 10)));
+		assertEquals(Arrays.asList("lot1/w1/d.klarf"), list(root, spec(root, "lot*/**/*.klarf", true, 10)));
+		// 未指定 glob 时匹配所有普通文件（不含目录）
+		assertEquals(6, list(root, spec(root, null, true, Integer.MAX_VALUE)).size());
+	}
+
+	@Test
+	public void testMeasureMatchesEnumeration(@TempDir Path dir) throws IOException {
+		Path root = tree(dir);
+		assertArrayEquals(new long[]{4, 1 + 2 + 3 + 5}, FileSources.measure(spec(root, "*.csv", true, Integer.MAX_VALUE)));
+		assertArrayEquals(new long[]{2, 1 + 2}, FileSources.measure(spec(root, "*.csv", true, 2)));
+		assertArrayEquals(new long[]{0, 0}, FileSources.measure(spec(root, "*.tif", true, Integer.MAX_VALUE)));
+	}
+
+	@Test
+	public void testEntryPathKeepsRootName(@TempDir Path dir) throws IOException {
+		Path root = tree(dir);
+		FileSourceSpec spec = spec(root, "*.csv", true, Integer.MAX_VALUE);
+		assertEquals(Paths.get("data", "lot1", "w1", "c.csv"), FileSources.entryPath(spec, root.resolve("lot1/w1/c.csv")));
+	}
+
+	@Test
+	public void testValidate(@TempDir Path dir) throws IOException {
+		Path root = tree(dir);
+		FileSources.validate(spec(root, "*.csv", true, 1));
+		assertThrows(IllegalArgumentException.class, () -> FileSources.validate(null));
+		assertThrows(IllegalArgumentException.class, () -> FileSources.validate(spec(null, null, true, 1)));
+		assertThrows(IllegalArgumentException.class,
+				() -> FileSources.validate(spec(dir.resolve("missing"), null, true, 1)));
+		assertThrows(IllegalArgumentException.class,
+				() -> FileSources.validate(spec(root.resolve("a.csv"), null, true, 1)));
+		assertThrows(IllegalArgumentException.class, () -> FileSources.validate(spec(root, null, true, 0)));
+	}
+
+	/**
+	 * data/a.csv, data/lot1/b.csv, data/lot1/w1/{c.csv,d.klarf}, data/lot2/w2/deep/e.csv, data/lot2/x.txt
+	 */
+	private static Path tree(Path dir) throws IOException {
+		Path root = dir.resolve("data");
+		write(root.resolve("a.csv"), 1);
+		write(root.resolve("lot1/b.csv"), 2);
+		write(root.resolve("lot1/w1/c.csv"), 3);
+		write(root.resolve("lot1/w1/d.klarf"), 4);
+		write(root.resolve("lot2/w2/deep/e.csv"), 5);
+		write(root.resolve("lot2/x.txt"), 6);
+		return root;
+	}
+
+	private static void write(Path path, int size) throws IOException {
+		Files.createDirectories(path.getParent());
+		Files.write(path, new byte[size]);
+	}
+
+	private static FileSourceSpec spec(Path root, String glob, boolean recursive, int maxDepth) {
+		FileSourceSpec spec = new FileSourceSpec();
+		spec.setRoot(root == null ? null : root.toString());
+		spec.setGlob(glob);
+		spec.setRecursive(recursive);
+		spec.setMaxDepth(maxDepth);
+		return spec;
+	}
+
+	private static List<String> list(Path root, FileSourceSpec spec) throws IOException {
+		try (Stream<Path> files = FileSources.open(spec)) {
+			return files.map(path -> root.relativize(path).toString().replace('\\', '/'))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiFileDownloaderTest {
+
+	@Test
+	public void testDuplicateNamesGetSuffixes(@TempDir Path dir) throws Exception {
+		Path a = write(dir.resolve("lot1/wafer.klarf"), "lot1");
+		Path b = write(dir.resolve("lot2/wafer.klarf"), "lot2");
+		Path c = write(dir.resolve("lot3/wafer.klarf"), "lot3");
+		Path userDir = Files.createDirectories(dir.resolve("user"));
+
+		UserDownloadTask task = task(a, b, c);
+		String manifest = copyAll(task, userDir);
+
+		assertEquals(3, task.getCompletedCount());
+		assertEquals("lot1", read(userDir.resolve("wafer.klarf")));
+		assertEquals("lot2", read(userDir.resolve("wafer_1.klarf")));
+		assertEquals("lot3", read(userDir.resolve("wafer_2.klarf")));
+		// 清单中的条目名与落盘文件名一一对应
+		assertEquals(Arrays.asList("wafer.klarf", "wafer_1.klarf", "wafer_2.klarf"), entries(manifest));
+	}
+
+	@Test
+	public void testManifestNameReserved(@TempDir Path dir) throws Exception {
+		Path sums = write(dir.resolve("src/SHA256SUMS"), "user data");
+		Path userDir = Files.createDirectories(dir.resolve("user"));
+		Files.write(userDir.resolve("SHA256SUMS"), "manifest".getBytes(StandardCharsets.UTF_8));
+
+		UserDownloadTask task = task(sums);
+		String manifest = copyAll(task, userDir);
+
+		assertEquals(1, task.getCompletedCount());
+		// 同名源文件不能覆盖校验清单
+		assertEquals("manifest", read(userDir.resolve("SHA256SUMS")));
+		assertEquals("user data", read(userDir.resolve("SHA256SUMS_1")));
+		assertEquals(Collections.singletonList("SHA256SUMS_1"), entries(manifest));
+	}
+
+	private static UserDownloadTask task(Path... files) {
+		UserDownloadTask task = new UserDownloadTask();
+		task.setTaskId("t1");
+		task.setFilePathList(Arrays.stream(files).map(Path::toString).collect(Collectors.toList()));
+		task.setTotalCount(files.length);
+		return task;
+	}
+
+	private static String copyAll(UserDownloadTask task, Path userDir) {
+		MultiFileDownloader downloader = new MultiFileDownloader();
+		ReflectionTestUtils.setField(downloader, "taskManager", new DownloadTaskManager());
+		ReflectionTestUtils.setField(downloader, "fileDigestCache", new FileDigestCache());
+		StringWriter manifest = new StringWriter();
+		ReflectionTestUtils.invokeMethod(downloader, "copyAll", task, userDir.toFile(), manifest);
+		downloader.destroy();
+		return manifest.toString();
+	}
+
+	private static List<String> entries(String manifest) {
+		List<String> names = new ArrayList<>();
+		for (String line : manifest.split("\n")) {
+			names.add(line.substring(line.indexOf("  ") + 2));
+		}
+		return names;
+	}
+
+	private static Path write(Path path, String text) throws Exception {
+		Files.createDirectories(path.getParent());
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+
+	private static String read(Path path) throws Exception {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+}
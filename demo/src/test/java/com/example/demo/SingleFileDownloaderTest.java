@@ -0,0 +1,110 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFileDownloaderTest {
+
+	@Test
+	public void testDigestTrailerOnFirstDownload(@TempDir Path dir) throws Exception {
+		Path file = Files.write(dir.resolve("a.bin"), "0123456789".repeat(100).getBytes(StandardCharsets.UTF_8));
+		SingleFileDownloader downloader = downloader(dir);
+
+		// 首次下载：摘要在本次读取中计算，作为 trailer 发送，不返回 Content-Length
+		TrailerResponse first = new TrailerResponse();
+		downloader.downloadLocalFile(file.toString(), 0, null, true, first);
+		assertNull(first.getHeader("Content-Length"));
+		assertNull(first.getHeader("Repr-Digest"));
+		assertEquals("Repr-Digest, Digest", first.getHeader("Trailer"));
+		String expected = "sha-256=:" + FileDigestCache.toBase64(FileDigestCache.newSha256().digest(Files.readAllBytes(file))) + ":";
+		assertEquals(expected, first.trailers().get("Repr-Digest"));
+		assertArrayEquals(Files.readAllBytes(file), first.getContentAsByteArray());
+
+		// 再次下载：摘要已缓存，作为响应头发送
+		TrailerResponse second = new TrailerResponse();
+		downloader.downloadLocalFile(file.toString(), 0, null, true, second);
+		assertEquals("1000", second.getHeader("Content-Length"));
+		assertEquals(expected, second.getHeader("Repr-Digest"));
+		assertNull(second.trailerSupplier);
+	}
+
+	@Test
+	public void testNoTrailerWithoutTe(@TempDir Path dir) throws Exception {
+		Path file = Files.write(dir.resolve("a.bin"), new byte[100]);
+		SingleFileDownloader downloader = downloader(dir);
+
+		TrailerResponse first = new TrailerResponse();
+		downloader.downloadLocalFile(file.toString(), 0, null, false, first);
+		assertEquals("100", first.getHeader("Content-Length"));
+		assertNull(first.getHeader("Trailer"));
+		assertNull(first.trailerSupplier);
+		assertNull(first.getHeader("Repr-Digest"));
+
+		// 断点续传不计算摘要，只返回已缓存的完整文件摘要
+		TrailerResponse ranged = new TrailerResponse();
+		downloader.downloadLocalFile(file.toString(), 40, null, true, ranged);
+		assertNotNull(ranged.getHeader("Repr-Digest"));
+		assertEquals(60, ranged.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void testEncodedDigestCoversCompressedBytes(@TempDir Path dir) throws Exception {
+		Path file = Files.write(dir.resolve("a.csv"), "DefectID,XREL,YREL\n".repeat(5000).getBytes(StandardCharsets.UTF_8));
+		SingleFileDownloader downloader = downloader(dir);
+
+		TrailerResponse response = new TrailerResponse();
+		downloader.downloadLocalFile(file.toString(), 0, "gzip", true, response);
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		byte[] body = response.getContentAsByteArray();
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			assertArrayEquals(Files.readAllBytes(file), in.readAllBytes());
+		}
+		assertEquals("SHA-256=" + FileDigestCache.toBase64(FileDigestCache.newSha256().digest(body)),
+				response.trailers().get("Digest"));
+	}
+
+	@Test
+	public void testAcceptsTrailers() {
+		assertTrue(SingleFileDownloader.acceptsTrailers("trailers"));
+		assertTrue(SingleFileDownloader.acceptsTrailers("gzip;q=0.5, Trailers"));
+		assertFalse(SingleFileDownloader.acceptsTrailers(null));
+		assertFalse(SingleFileDownloader.acceptsTrailers("gzip, deflate"));
+	}
+
+	private static SingleFileDownloader downloader(Path dir) {
+		SingleFileDownloader downloader = new SingleFileDownloader();
+		ReflectionTestUtils.setField(downloader, "fileDigestCache", new FileDigestCache());
+		ReflectionTestUtils.setField(downloader, "compressedVariantCache",
+				new CompressedVariantCache(dir.resolve("variants").toFile()));
+		return downloader;
+	}
+
+	/**
+	 * MockHttpServletResponse 不保存 trailer，记录登记的 trailer 供断言
+	 */
+	private static final class TrailerResponse extends MockHttpServletResponse {
+		private Supplier<Map<String, String>> trailerSupplier;
+
+		@Override
+		public void setTrailerFields(Supplier<Map<String, String>> supplier) {
+			this.trailerSupplier = supplier;
+		}
+
+		private Map<String, String> trailers() {
+			assertNotNull(trailerSupplier);
+			return trailerSupplier.get();
+		}
+	}
+}
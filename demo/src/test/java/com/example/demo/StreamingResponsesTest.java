@@ -0,0 +1,39 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingResponsesTest {
+
+	@Test
+	public void testFailBeforeCommit() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("application/zip");
+		response.setHeader("Content-Disposition", "attachment; filename=\"defect.zip\"");
+
+		StreamingResponses.fail(response, "导出失败", new IllegalArgumentException("不支持的实体：x"));
+		assertEquals(400, response.getStatus());
+		assertNull(response.getHeader("Content-Disposition"));
+		assertEquals("text/plain;charset=UTF-8", response.getContentType());
+		assertEquals("导出失败：不支持的实体：x", response.getContentAsString());
+	}
+
+	@Test
+	public void testFailAfterCommitRethrows() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.getOutputStream().write(1);
+		response.flushBuffer();
+
+		UncheckedIOException io = assertThrows(UncheckedIOException.class,
+				() -> StreamingResponses.fail(response, "导出失败", new IOException("断开")));
+		assertEquals("断开", io.getCause().getMessage());
+		assertThrows(IllegalStateException.class,
+				() -> StreamingResponses.fail(response, "导出失败", new IllegalArgumentException("x")));
+		assertEquals(200, response.getStatus());
+	}
+}
@@ -0,0 +1,183 @@
+package com.example.demo.defect;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefectExportPipelineTest {
+
+	@Test
+	public void testProducersRunConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			// 每个生产者写完第一个条目后等待其他生产者都开始，串行执行时会超时
+			CountDownLatch started = new CountDownLatch(3);
+			Map<String, DefectExportPipeline.Producer> producers = new LinkedHashMap<>();
+			for (String type : new String[]{"list", "file", "image"}) {
+				producers.put(type, sink -> {
+					writeEntry(sink, type + "/0.txt", type + " 0");
+					started.countDown();
+					try {
+						assertTrue(started.await(5, TimeUnit.SECONDS));
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+					for (int i = 1; i < 50; i++) {
+						writeEntry(sink, type + "/" + i + ".txt", type + " " + i);
+					}
+				});
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+				new DefectExportPipeline(executor, 16, 2).run(producers, zip);
+			}
+
+			Map<String, String> entries = unzip(bytes.toByteArray());
+			assertEquals(150, entries.size());
+			for (String type : producers.keySet()) {
+				for (int i = 0; i < 50; i++) {
+					assertEquals(type + " " + i, entries.get(type + "/" + i + ".txt"));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLargeEntryStreamsThroughBoundedQueue() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// 条目远大于队列容量（8 × 64 字节），边生成边写出
+			byte[] large = new byte[100_000];
+			for (int i = 0; i < large.length; i++) {
+				large[i] = (byte) (i * 31 + i / 97);
+			}
+			Map<String, DefectExportPipeline.Producer> producers = new LinkedHashMap<>();
+			producers.put("large", sink -> {
+				OutputStream out = sink.putNextEntry("large.bin");
+				for (int off = 0; off < large.length; off += 1000) {
+					out.write(large, off, Math.min(1000, large.length - off));
+				}
+				out.write(7);
+				sink.closeEntry();
+			});
+			producers.put("small", sink -> writeEntry(sink, "small.txt", "small"));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+				new DefectExportPipeline(executor, 64, 8).run(producers, zip);
+			}
+
+			Map<String, byte[]> entries = unzipBytes(bytes.toByteArray());
+			byte[] expected = new byte[large.length + 1];
+			System.arraycopy(large, 0, expected, 0, large.length);
+			expected[large.length] = 7;
+			assertArrayEquals(expected, entries.get("large.bin"));
+			assertArrayEquals("small".getBytes(StandardCharsets.UTF_8), entries.get("small.txt"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailureCancelsOtherProducers() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch cancelled = new CountDownLatch(1);
+			AtomicBoolean interrupted = new AtomicBoolean();
+			Map<String, DefectExportPipeline.Producer> producers = new LinkedHashMap<>();
+			// 写入无限长的条目，队列满后阻塞，直到被取消
+			producers.put("endless", sink -> {
+				OutputStream out = sink.putNextEntry("endless.bin");
+				byte[] chunk = new byte[256];
+				try {
+					while (true) {
+						out.write(chunk);
+						blocked.countDown();
+					}
+				} catch (InterruptedIOException e) {
+					interrupted.set(true);
+					throw e;
+				} finally {
+					cancelled.countDown();
+				}
+			});
+			producers.put("broken", sink -> {
+				try {
+					blocked.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				sink.putNextEntry("broken.txt");
+				throw new IOException("源文件不可读");
+			});
+
+			ZipOutputStream zip = new ZipOutputStream(new ByteArrayOutputStream());
+			IOException error = assertThrows(IOException.class,
+					() -> new DefectExportPipeline(executor, 64, 2).run(producers, zip));
+			assertEquals("源文件不可读", error.getMessage());
+			assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+			assertTrue(interrupted.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testUnclosedEntryIsAnError() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			Map<String, DefectExportPipeline.Producer> producers = new LinkedHashMap<>();
+			producers.put("unclosed", sink -> sink.putNextEntry("a.txt").write(1));
+			ZipOutputStream zip = new ZipOutputStream(new ByteArrayOutputStream());
+			assertThrows(IllegalStateException.class, () -> new DefectExportPipeline(executor).run(producers, zip));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void writeEntry(ArchiveSink sink, String name, String text) throws IOException {
+		sink.putNextEntry(name).write(text.getBytes(StandardCharsets.UTF_8));
+		sink.closeEntry();
+	}
+
+	private static Map<String, String> unzip(byte[] bytes) throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		unzipBytes(bytes).forEach((name, data) -> entries.put(name, new String(data, StandardCharsets.UTF_8)));
+		return entries;
+	}
+
+	private static Map<String, byte[]> unzipBytes(byte[] bytes) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int n; (n = zip.read(buffer)) > 0; ) {
+					out.write(buffer, 0, n);
+				}
+				entries.put(entry.getName(), out.toByteArray());
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefectExportProducerTest {
+
+	@Test
+	public void testListProducer() throws IOException {
+		List<TiffSample> located = Arrays.asList(
+				new TiffSample(2L, Paths.get("/data/a,b.tif"), Arrays.asList(new TiffImage(4, 1), new TiffImage(5, 2))),
+				new TiffSample(1L, Paths.get("/data/c.tif"), Collections.singletonList(new TiffImage(0, 1))));
+		Map<String, byte[]> entries = produce(new DefectListProducer(), Arrays.asList(1L, 3L, 2L, 1L), located);
+
+		assertEquals(Collections.singletonList(DefectListProducer.ENTRY_NAME), Arrays.asList(entries.keySet().toArray()));
+		String[] lines = new String(entries.get(DefectListProducer.ENTRY_NAME), StandardCharsets.UTF_8).split("\n");
+		assertArrayEquals(new String[]{
+				"defect_id,found,source,frame,image_type",
+				"1,1,/data/c.tif,0,1",
+				"3,0,,,",
+				"2,1,\"/data/a,b.tif\",4,1",
+				"2,1,\"/data/a,b.tif\",5,2"}, lines);
+	}
+
+	@Test
+	public void testSourceFileProducer(@TempDir Path dir) throws IOException {
+		Path first = Files.createDirectories(dir.resolve("a")).resolve("wafer.tif");
+		Path second = Files.createDirectories(dir.resolve("b")).resolve("wafer.tif");
+		Files.write(first, new byte[]{1, 2, 3});
+		Files.write(second, new byte[]{4, 5});
+		Path absent = Paths.get("/no/such/source.tif");
+		List<TiffSample> located = Arrays.asList(
+				new TiffSample(1L, first, Collections.singletonList(new TiffImage(0, 1))),
+				new TiffSample(2L, first, Collections.singletonList(new TiffImage(1, 1))),
+				new TiffSample(3L, absent, Collections.singletonList(new TiffImage(0, 1))),
+				new TiffSample(4L, second, Collections.singletonList(new TiffImage(0, 1))));
+		Map<String, byte[]> entries = produce(new DefectSourceFileProducer(), Arrays.asList(1L, 2L, 3L, 4L), located);
+
+		// 同一文件只放一次，同名文件追加序号
+		assertEquals(Arrays.asList("files/wafer.tif", "files/wafer_1.tif", DefectSourceFileProducer.MISSING_NAME),
+				Arrays.asList(entries.keySet().toArray()));
+		assertArrayEquals(new byte[]{1, 2, 3}, entries.get("files/wafer.tif"));
+		assertArrayEquals(new byte[]{4, 5}, entries.get("files/wafer_1.tif"));
+		assertTrue(new String(entries.get(DefectSourceFileProducer.MISSING_NAME), StandardCharsets.UTF_8)
+				.startsWith(absent + "\t"));
+	}
+
+	private static Map<String, byte[]> produce(DefectExportProducer producer, List<Long> defectIds, List<TiffSample> located)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			producer.produce(defectIds, located, ArchiveSink.of(zip));
+		}
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int n; (n = zip.read(buffer)) > 0; ) {
+					out.write(buffer, 0, n);
+				}
+				entries.put(entry.getName(), out.toByteArray());
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffFile;
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+import com.example.demo.tiff.TiffSplitResult;
+import com.example.demo.tiff.TiffTestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefectFrameSplitServiceTest {
+
+	@Test
+	public void testSplitByDefectIds(@TempDir Path dir) throws IOException {
+		Path source = Files.move(TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 4, 8, 8, 8), dir.resolve("wafer.tif"));
+		Map<Long, TiffSample> samples = new HashMap<>();
+		samples.put(1L, new TiffSample(1L, source, Arrays.asList(new TiffImage(3, 1), new TiffImage(1, 2))));
+		samples.put(2L, new TiffSample(2L, source, Collections.singletonList(new TiffImage(0, 1))));
+		samples.put(3L, new TiffSample(3L, source, Collections.singletonList(new TiffImage(2, 1))));
+
+		FileResourceRegistry registry = new FileResourceRegistry();
+		registry.register(new FileResourceResolver<DefectFile>() {
+			@Override
+			public String entityName() {
+				return DefectDownloadTypes.DEFECT_FILE.entityName();
+			}
+
+			@Override
+			public Map<Long, List<DefectFile>> resolve(Set<Long> entityIds) {
+				Map<Long, List<DefectFile>> result = new HashMap<>();
+				for (Long id : entityIds) {
+					if (samples.containsKey(id)) {
+						result.put(id, Collections.singletonList(new DefectFile(samples.get(id))));
+					}
+				}
+				return result;
+			}
+		});
+		DefectFrameSplitService service = new DefectFrameSplitService();
+		ReflectionTestUtils.setField(service, "outputDirectory", dir.resolve("out").toString());
+		ReflectionTestUtils.setField(service, "samplesPerBatch", 2);
+		ReflectionTestUtils.setField(service, "parallelism", 1);
+		ReflectionTestUtils.setField(service, "memoryBudgetMb", 1L);
+		ReflectionTestUtils.setField(service, "resourceRegistry", registry);
+		// 上次运行遗留的拆分目录在启动时清理
+		Path stale = Files.createDirectories(dir.resolve("out/split-stale"));
+		service.init();
+		assertFalse(Files.exists(stale));
+		try (TiffSplitResult split = service.split(Arrays.asList(1L, 9L, 2L, 3L))) {
+			List<TiffSample> result = split.getSamples();
+			assertEquals(3, result.size());
+			assertEquals(dir.resolve("out"), split.getDirectory().getParent());
+			// 缺陷1、2一批，帧按源帧号排序 0、1、3
+			assertEquals(split.getDirectory().resolve("wafer_batch_0.tif"), result.get(0).getTifPath());
+			assertEquals(2, result.get(0).getImages().get(0).getNo());
+			assertEquals(1, result.get(0).getImages().get(1).getNo());
+			assertEquals(0, result.get(1).getImages().get(0).getNo());
+			assertEquals(split.getDirectory().resolve("wafer_batch_1.tif"), result.get(2).getTifPath());
+			try (TiffFile tiff = TiffFile.open(result.get(0).getTifPath())) {
+				assertEquals(3, tiff.getPageCount());
+			}
+		} finally {
+			service.destroy();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+import com.example.demo.tiff.TiffTestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefectImageBundleWriterTest {
+
+	@Test
+	public void testBundleFramesPerDefect(@TempDir Path dir) throws IOException {
+		Path first = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 4, 24, 16, 16);
+		Path second = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 2, 10, 30, 30);
+		List<TiffSample> located = Arrays.asList(
+				new TiffSample(11L, first, Arrays.asList(new TiffImage(2, 1), new TiffImage(3, 2))),
+				new TiffSample(10L, first, Collections.singletonList(new TiffImage(0, 1))),
+				new TiffSample(11L, second, Collections.singletonList(new TiffImage(1, 5))),
+				new TiffSample(12L, first, Collections.singletonList(new TiffImage(9, 1))),
+				new TiffSample(13L, Paths.get("/no/such/file.tif"), Collections.singletonList(new TiffImage(0, 1))));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			int written = new DefectImageBundleWriter().write(Arrays.asList(10L, 11L, 12L, 13L, 14L), located, ArchiveSink.of(zip));
+			assertEquals(3, written);
+		}
+
+		Map<String, byte[]> entries = unzip(bytes.toByteArray());
+		List<BufferedImage> defect10 = TiffTestFiles.readWithImageIO(entries.get("images/10.tif"));
+		assertEquals(1, defect10.size());
+		assertArrayEquals(TiffTestFiles.pixels(0, 24, 16), TiffTestFiles.grayPixels(defect10.get(0)));
+
+		List<BufferedImage> defect11 = TiffTestFiles.readWithImageIO(entries.get("images/11.tif"));
+		assertEquals(2, defect11.size());
+		assertArrayEquals(TiffTestFiles.pixels(2, 24, 16), TiffTestFiles.grayPixels(defect11.get(0)));
+		assertArrayEquals(TiffTestFiles.pixels(3, 24, 16), TiffTestFiles.grayPixels(defect11.get(1)));
+		// 同一缺陷的另一个源文件单独成一个条目
+		List<BufferedImage> defect11Second = TiffTestFiles.readWithImageIO(entries.get("images/11_1.tif"));
+		assertEquals(1, defect11Second.size());
+		assertArrayEquals(TiffTestFiles.pixels(1, 10, 30), TiffTestFiles.grayPixels(defect11Second.get(0)));
+
+		String[] manifest = new String(entries.get(DefectImageBundleWriter.MANIFEST_NAME), StandardCharsets.UTF_8).split("\n");
+		assertEquals(5, manifest.length);
+		assertEquals("defect_id,entry,page,image_type,source,source_frame", manifest[0]);
+		assertTrue(Arrays.asList(manifest).contains("11,images/11.tif,1,2," + first + ",3"));
+
+		String missing = new String(entries.get(DefectImageBundleWriter.MISSING_NAME), StandardCharsets.UTF_8);
+		assertTrue(missing.contains("12\t帧号超出图像文件页数"));
+		assertTrue(missing.contains("13\t图像文件不可读"));
+		assertTrue(missing.contains("14\t未找到图像"));
+		assertFalse(missing.contains("10\t"));
+	}
+
+	@Test
+	public void testNoMissingEntryWhenAllFound(@TempDir Path dir) throws IOException {
+		Path source = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 1, 8, 8, 8);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			TiffSample sample = new TiffSample(1L, source, Collections.singletonList(new TiffImage(0, 1)));
+			new DefectImageBundleWriter().write(Collections.singletonList(1L), Collections.singletonList(sample),
+					ArchiveSink.of(zip));
+		}
+		Map<String, byte[]> entries = unzip(bytes.toByteArray());
+		assertEquals(Arrays.asList("images/1.tif", DefectImageBundleWriter.MANIFEST_NAME), new ArrayList<>(entries.keySet()));
+	}
+
+	@Test
+	public void testIndexLoadAndResolve(@TempDir Path dir) throws IOException {
+		Path indexFile = dir.resolve("defect_images.txt");
+		Files.write(indexFile, Arrays.asList(
+				"# 缺陷ID TIFF路径 帧号:类型",
+				"",
+				"100 /data/a.tif 0:1,1:2",
+				"101 /data/a.tif 2:1",
+				"100 /data/b.tif 5:3",
+				"bad line",
+				"102 /data/a.tif -1:1",
+				"103 /data/a.tif 1-2"), StandardCharsets.UTF_8);
+		DefectImageIndex index = DefectImageIndex.load(indexFile);
+		assertEquals(2, index.size());
+		assertEquals(3, index.getSkippedLines());
+
+		Map<Long, List<DefectFile>> resolved = index.resolve(Arrays.asList(101L, 999L, 100L));
+		assertEquals(Arrays.asList(101L, 100L), new ArrayList<>(resolved.keySet()));
+		List<DefectFile> files = resolved.get(100L);
+		assertEquals(2, files.size());
+		assertEquals(100L, files.get(0).getEntityId());
+		assertEquals(Paths.get("/data/a.tif"), files.get(0).getPath());
+		assertEquals(2, files.get(0).getImages().size());
+		assertEquals(2, files.get(0).getImages().get(1).getType());
+		assertEquals(Paths.get("/data/b.tif"), files.get(1).getPath());
+	}
+
+	private static Map<String, byte[]> unzip(byte[] bytes) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int n; (n = zip.read(buffer)) > 0; ) {
+					out.write(buffer, 0, n);
+				}
+				entries.put(entry.getName(), out.toByteArray());
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.demo.defect;
+
+import com.example.demo.tiff.TiffImage;
+import com.example.demo.tiff.TiffSample;
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileResourceRegistryTest {
+
+	@Test
+	public void testBatchedResolveInRequestOrder() throws IOException {
+		CountingResolver resolver = new CountingResolver();
+		FileResourceRegistry registry = new FileResourceRegistry(3, TimeUnit.SECONDS.toNanos(60), Ticker.systemTicker());
+		registry.register(resolver);
+
+		Map<Long, List<DefectFile>> resolved = registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class,
+				Arrays.asList(7L, 2L, 7L, 5L, 1000L, 4L, 1L, 3L));
+		// 7 个不重复ID，每批3个：3次调用
+		assertEquals(3, resolver.calls.size());
+		assertEquals(Arrays.asList(7L, 2L, 5L), new ArrayList<>(resolver.calls.get(0)));
+		assertEquals(Arrays.asList(7L, 2L, 5L, 4L, 1L, 3L), new ArrayList<>(resolved.keySet()));
+		assertEquals(Paths.get("/data/7.tif"), resolved.get(7L).get(0).getPath());
+		assertEquals(7L, resolved.get(7L).get(0).getEntityId());
+	}
+
+	@Test
+	public void testCacheExpiresAfterTtl() throws IOException {
+		CountingResolver resolver = new CountingResolver();
+		AtomicLong now = new AtomicLong();
+		Ticker ticker = new Ticker() {
+			@Override
+			public long read() {
+				return now.get();
+			}
+		};
+		FileResourceRegistry registry = new FileResourceRegistry(100, TimeUnit.SECONDS.toNanos(60), ticker);
+		registry.register(resolver);
+
+		registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class, Arrays.asList(1L, 2L, 1000L));
+		assertEquals(1, resolver.calls.size());
+		// 已解析的ID命中缓存，只查询新ID；未找到的ID不缓存
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		Map<Long, List<DefectFile>> resolved = registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class,
+				Arrays.asList(2L, 1L, 3L, 1000L));
+		assertEquals(2, resolver.calls.size());
+		assertEquals(Arrays.asList(3L, 1000L), new ArrayList<>(resolver.calls.get(1)));
+		assertEquals(Arrays.asList(2L, 1L, 3L), new ArrayList<>(resolved.keySet()));
+		registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class, Arrays.asList(1L, 2L, 3L));
+		assertEquals(2, resolver.calls.size());
+
+		// 过期后重新查询
+		now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+		registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class, Arrays.asList(1L, 2L, 3L));
+		assertEquals(3, resolver.calls.size());
+		assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(resolver.calls.get(2)));
+
+		registry.invalidate(DefectDownloadTypes.DEFECT_FILE);
+		registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class, Collections.singletonList(3L));
+		assertEquals(4, resolver.calls.size());
+	}
+
+	@Test
+	public void testRegistrationErrors() throws IOException {
+		FileResourceRegistry registry = new FileResourceRegistry();
+		assertThrows(IllegalArgumentException.class,
+				() -> registry.resolve(DefectDownloadTypes.DEFECT_FILE, DefectFile.class, Collections.singletonList(1L)));
+		registry.register(new CountingResolver());
+		assertThrows(IllegalStateException.class, () -> registry.register(new CountingResolver()));
+
+		// 解析器返回的文件类型与请求的不符
+		assertThrows(IllegalStateException.class,
+				() -> registry.resolve(DefectDownloadTypes.DEFECT_FILE, OtherFile.class, Collections.singletonList(1L)));
+	}
+
+	/**
+	 * 记录每次调用的ID；ID小于1000的缺陷都有一个文件
+	 */
+	private static final class CountingResolver implements FileResourceResolver<DefectFile> {
+		final List<Set<Long>> calls = new ArrayList<>();
+
+		@Override
+		public String entityName() {
+			return DefectDownloadTypes.DEFECT_FILE.entityName();
+		}
+
+		@Override
+		public Map<Long, List<DefectFile>> resolve(Set<Long> entityIds) {
+			calls.add(entityIds);
+			Map<Long, List<DefectFile>> result = new HashMap<>();
+			for (Long id : entityIds) {
+				if (id < 1000) {
+					TiffSample sample = new TiffSample(id, Paths.get("/data/" + id + ".tif"),
+							Collections.singletonList(new TiffImage(0, 1)));
+					result.put(id, Collections.singletonList(new DefectFile(sample)));
+				}
+			}
+			return result;
+		}
+	}
+
+	private static final class OtherFile implements FileResource {
+		@Override
+		public long getEntityId() {
+			return 0;
+		}
+
+		@Override
+		public Path getPath() {
+			return null;
+		}
+	}
+}
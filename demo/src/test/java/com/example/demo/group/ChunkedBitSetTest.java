@@ -0,0 +1,82 @@
+package com.example.demo.group;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkedBitSetTest {
+
+	@Test
+	public void testEditDoesNotAffectBase() {
+		int size = ChunkedBitSet.CHUNK_BITS * 5 + 100;
+		ChunkedBitSet base = ChunkedBitSet.empty(size);
+		assertEquals(6, base.chunkCount());
+		assertEquals(0, base.cardinality());
+
+		ChunkedBitSet.Editor editor = base.edit();
+		editor.set(1, true).set(size - 1, true);
+		assertTrue(editor.get(1));
+		ChunkedBitSet first = editor.build();
+		assertEquals(2, first.cardinality());
+		assertFalse(base.get(1));
+		// 只有第一个和最后一个块被复制
+		assertEquals(4, first.sharedChunks(base));
+
+		// build 之后继续修改不影响已生成的位图
+		editor.set(2, true);
+		ChunkedBitSet second = editor.build();
+		assertFalse(first.get(2));
+		assertTrue(second.get(2));
+
+		// 值未变化时不复制块
+		ChunkedBitSet.Editor noop = second.edit();
+		noop.set(1, true).set(3, false);
+		assertFalse(noop.isChanged());
+		assertEquals(6, noop.build().sharedChunks(second));
+
+		// 清零的块恢复为共享的全0块
+		ChunkedBitSet cleared = second.edit().set(size - 1, false).build();
+		assertEquals(5, cleared.sharedChunks(base));
+		assertThrows(IndexOutOfBoundsException.class, () -> cleared.get(size));
+		assertThrows(IndexOutOfBoundsException.class, () -> base.edit().set(-1, true));
+	}
+
+	@Test
+	public void testOfMatchesBitSet() {
+		Random random = new Random(3);
+		int size = ChunkedBitSet.CHUNK_BITS * 3 + 17;
+		long[] words = new long[(size + 63) / 64 + 2];
+		BitSet expected = new BitSet();
+		for (int i = 0; i < words.length * 64; i++) {
+			if (random.nextInt(10) == 0) {
+				words[i >>> 6] |= 1L << i;
+				if (i < size) {
+					expected.set(i);
+				}
+			}
+		}
+		// 只有第二块有数据
+		long[] sparse = new long[words.length];
+		sparse[ChunkedBitSet.CHUNK_BITS / 64] = 1;
+		assertEquals(3, ChunkedBitSet.of(sparse, size).sharedChunks(ChunkedBitSet.empty(size)));
+
+		ChunkedBitSet bits = ChunkedBitSet.of(words, size);
+		// 超出 size 的位被忽略
+		assertEquals(expected.cardinality(), bits.cardinality());
+		List<Integer> visited = new ArrayList<>();
+		bits.forEachSetBit(visited::add);
+		assertEquals(expected.stream().boxed().collect(Collectors.toList()), visited);
+		for (int i = 0; i < size; i++) {
+			assertEquals(expected.get(i), bits.get(i));
+		}
+		// 数组被复制
+		words[0] = ~words[0];
+		assertEquals(expected.get(0), bits.get(0));
+	}
+}
@@ -0,0 +1,250 @@
+package com.example.demo.group;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupInfoToolTest {
+
+	@Test
+	public void testLoadSaveRoundTrip(@TempDir Path dir) throws IOException {
+		Path file = generate(dir, 1000, 1);
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		assertEquals(1000, tool.size());
+		assertEquals(0, tool.getSkippedLines());
+		GroupLine line = tool.parseToList().get(9);
+		assertEquals(10, line.getId());
+		assertEquals("/data/marks/10.json", line.getMarkPath());
+		assertEquals(9, tool.rowOf(10));
+		assertEquals(-1, tool.rowOf(5000));
+
+		Path saved = dir.resolve("group_saved.txt");
+		tool.save(saved);
+		assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(saved));
+	}
+
+	@Test
+	public void testMalformedLinesSkipped(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("group_info.txt");
+		Files.write(file, ("1 1_1 0 /a 10 20 0\n"
+				+ "\n"
+				+ "2 1_1 1 /b 10\n"                     // 列数不足
+				+ "3 1_1 1 /c 10 20 0 extra\n"          // 列数过多
+				+ "4 2_2 x /d 10 20 0\n"                // 非数值
+				+ "5 2_2 1 /e 99999999999 20 0\n"       // 超出int
+				+ "8 2_2 2 /h 10 20 0\n"                // mark 只能为0/1
+				+ "6\t2_2  1 /f -5 +7 1\r\n"
+				+ "7 1_1 1 /g 0 0 0").getBytes(StandardCharsets.UTF_8));
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		assertEquals(3, tool.size());
+		assertEquals(5, tool.getSkippedLines());
+		assertEquals(-5, tool.getXOffset(1));
+		assertEquals(7, tool.getYOffset(1));
+		assertEquals("/f", tool.getMarkPath(1));
+		assertArrayEquals(new int[]{0, 2}, tool.getGroupRows("1_1"));
+		assertEquals(2, tool.getGroupCount());
+	}
+
+	@Test
+	public void testCountsAndUpdateMark(@TempDir Path dir) throws IOException {
+		Path file = generate(dir, 2000, 2);
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		Map<String, Integer> marked = tool.countMarkedByGroup();
+		int expectedMarked = 0;
+		for (int row = 0; row < tool.size(); row++) {
+			expectedMarked += tool.getMark(row) == 1 ? 1 : 0;
+		}
+		assertEquals(expectedMarked, marked.values().stream().mapToInt(Integer::intValue).sum());
+		assertEquals(tool.getGroupCount(), marked.size());
+		// 按组名首次出现顺序
+		assertEquals(tool.getGroupName(0), marked.keySet().iterator().next());
+		int[] byCode = tool.countMarkedByGroupCode();
+		for (int code = 0; code < byCode.length; code++) {
+			assertEquals(marked.get(tool.getGroupNameByCode(code)), byCode[code]);
+		}
+		assertEquals(tool.getGroupName(1), tool.getGroupNameByCode(tool.getGroupCode(1)));
+
+		String group = tool.getGroupName(0);
+		int rows = tool.getGroupRows(group).length;
+		assertEquals(rows, tool.updateMarkStatus(group, 1));
+		assertEquals(rows, tool.countMarkedByGroup().get(group));
+		tool.updateMarkStatus(group, 0);
+		assertEquals(0, tool.countMarkedByGroup().get(group));
+		assertEquals(0, tool.updateMarkStatus("no_such_group", 1));
+	}
+
+	@Test
+	public void testSelectNearestMatchesBruteForce(@TempDir Path dir) throws IOException {
+		Path file = generate(dir, 1000, 3, false);
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		assertEquals(100, tool.selectNearestGroups(500, 500, 10.0));
+
+		// 第100近的距离为界：更近的必须全部选中，更远的都不能选中
+		long[] distances = IntStream.range(0, tool.size())
+				.mapToLong(row -> distance(tool, row, 500, 500)).sorted().toArray();
+		long bound = distances[99];
+		int chosen = 0;
+		for (int row = 0; row < tool.size(); row++) {
+			long d = distance(tool, row, 500, 500);
+			if (tool.getChoose(row) == 1) {
+				chosen++;
+				assertTrue(d <= bound);
+			} else {
+				assertTrue(d >= bound);
+			}
+		}
+		assertEquals(100, chosen);
+		assertEquals(0, tool.selectNearestGroups(500, 500, 0));
+		assertEquals(1, tool.selectNearestGroups(500, 500, 0.001));
+	}
+
+	@Test
+	public void testSnapshotIsolation(@TempDir Path dir) throws IOException {
+		Path file = generate(dir, 20000, 5, false);
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		GroupInfoTool.Snapshot before = tool.snapshot();
+		int[] markedBefore = before.countMarkedByGroupCode();
+
+		String group = tool.getGroupName(0);
+		int[] rows = tool.getGroupRows(group);
+		tool.updateMarkStatus(group, 1);
+		tool.selectRandomGroups(1.0, new Random(7));
+		GroupInfoTool.Snapshot after = tool.snapshot();
+		assertTrue(after.getVersion() > before.getVersion());
+
+		// 旧快照不受影响
+		assertArrayEquals(markedBefore, before.countMarkedByGroupCode());
+		assertEquals(0, before.getChooses().cardinality());
+		assertEquals(200, after.getChooses().cardinality());
+		assertEquals(rows.length, after.countMarkedByGroup().get(group));
+		// 只改了一个组的 mark：未改动的块与旧版本共享
+		assertTrue(after.getMarks().sharedChunks(before.getMarks()) >= before.getMarks().chunkCount() - rows.length);
+
+		// 没有变化时返回原快照
+		assertSame(after, after.updateMarkStatus(group, 1));
+		assertSame(after, after.updateMarkStatus("no_such_group", 0));
+		assertThrows(IllegalArgumentException.class, () -> after.updateMarkStatus(group, 2));
+	}
+
+	@Test
+	public void testSnapshotCommit(@TempDir Path dir) throws IOException {
+		Path file = generate(dir, 1000, 6, false);
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		GroupInfoTool.Snapshot base = tool.snapshot();
+		GroupInfoTool.Snapshot mine = base.selectNearestGroups(500, 500, 10.0);
+		// 未提交前当前版本不变
+		assertSame(base, tool.snapshot());
+		assertEquals(0, tool.snapshot().getChooses().cardinality());
+
+		// 期间有其他修改，基于旧版本的提交失败
+		tool.updateMarkStatus(tool.getGroupName(0), 1 - tool.getMark(0));
+		assertFalse(tool.commit(base, mine));
+		assertEquals(0, tool.snapshot().getChooses().cardinality());
+
+		GroupInfoTool.Snapshot latest = tool.snapshot();
+		assertTrue(tool.commit(latest, latest.selectNearestGroups(500, 500, 10.0)));
+		assertEquals(100, tool.snapshot().getChooses().cardinality());
+		assertSame(latest.getMarks(), tool.snapshot().getMarks());
+
+		GroupInfoTool other = GroupInfoTool.load(file);
+		assertThrows(IllegalArgumentException.class, () -> tool.commit(tool.snapshot(), other.snapshot()));
+
+		// 保存指定快照
+		Path saved = dir.resolve("group_saved.txt");
+		base.save(saved);
+		assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(saved));
+	}
+
+	@Test
+	public void testKdTreeMatchesBruteForce() {
+		Random random = new Random(9);
+		int n = 5000;
+		int[] x = new int[n];
+		int[] y = new int[n];
+		for (int i = 0; i < n; i++) {
+			// 小范围坐标，包含大量重复点
+			x[i] = random.nextInt(200) - 100;
+			y[i] = random.nextInt(200) - 100;
+		}
+		GroupKdTree tree = new GroupKdTree(x, y, n);
+		for (int q = 0; q < 50; q++) {
+			int qx = random.nextInt(400) - 200;
+			int qy = random.nextInt(400) - 200;
+			int k = 1 + random.nextInt(300);
+			int[] rows = tree.nearest(qx, qy, k);
+			assertEquals(k, rows.length);
+			long[] expected = IntStream.range(0, n).mapToLong(i -> sq(x[i] - qx) + sq(y[i] - qy)).sorted().limit(k).toArray();
+			long[] actual = Arrays.stream(rows).mapToLong(i -> sq(x[i] - qx) + sq(y[i] - qy)).toArray();
+			assertArrayEquals(expected, actual);
+			assertEquals(k, Arrays.stream(rows).distinct().count());
+		}
+		assertEquals(n, tree.nearest(0, 0, n + 10).length);
+	}
+
+	@Test
+	public void testSelectRandom(@TempDir Path dir) throws IOException {
+		Path file = generate(dir, 1000, 4, false);
+		GroupInfoTool tool = GroupInfoTool.load(file);
+		assertEquals(50, tool.selectRandomGroups(5.0, new Random(42)));
+		assertEquals(50, IntStream.range(0, tool.size()).filter(row -> tool.getChoose(row) == 1).count());
+
+		// 蓄水池采样：无重复、在范围内、各下标被选概率大致相等
+		int[] hits = new int[100];
+		Random random = new Random(1);
+		for (int round = 0; round < 20000; round++) {
+			int[] sample = GroupInfoTool.reservoirSample(100, 10, random);
+			assertEquals(10, Arrays.stream(sample).distinct().count());
+			for (int index : sample) {
+				hits[index]++;
+			}
+		}
+		// 期望每个下标 2000 次
+		for (int count : hits) {
+			assertTrue(count > 1700 && count < 2300, "hits " + count);
+		}
+		assertArrayEquals(new int[]{0, 1, 2}, GroupInfoTool.reservoirSample(3, 3, random));
+	}
+
+	private static Path generate(Path dir, int lines, long seed) throws IOException {
+		return generate(dir, lines, seed, true);
+	}
+
+	/**
+	 * 与 group/data_generator.py 相同的数据分布
+	 * @param randomChoose false 时 choose 全为0（便于校验选择结果）
+	 */
+	private static Path generate(Path dir, int lines, long seed, boolean randomChoose) throws IOException {
+		Random random = new Random(seed);
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= lines; i++) {
+			int baseX = random.nextInt(5001);
+			int baseY = random.nextInt(5001);
+			text.append(i).append(' ').append(baseX).append('_').append(baseY).append(' ')
+					.append(random.nextInt(2)).append(" /data/marks/").append(i).append(".json ")
+					.append(baseX + random.nextInt(1001) - 500).append(' ')
+					.append(baseY + random.nextInt(1001) - 500).append(' ')
+					.append(randomChoose ? random.nextInt(2) : 0).append('\n');
+		}
+		Path file = dir.resolve("group_info_" + seed + ".txt");
+		Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static long distance(GroupInfoTool tool, int row, int x, int y) {
+		return sq(tool.getXOffset(row) - x) + sq(tool.getYOffset(row) - y);
+	}
+
+	private static long sq(long value) {
+		return value * value;
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.klarf;
+
+import com.example.demo.util.LongIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DieKeyTest {
+
+	@Test
+	public void testPackAndRender() {
+		int[] values = {0, 1, -1, 3, -100, Integer.MIN_VALUE, Integer.MAX_VALUE};
+		for (int x : values) {
+			for (int y : values) {
+				long key = DieKey.of(x, y);
+				assertEquals(x, DieKey.xIndex(key));
+				assertEquals(y, DieKey.yIndex(key));
+				assertEquals(x + "-" + y, DieKey.toString(key));
+			}
+		}
+		assertEquals("-3--100", DieKey.toString(DieKey.of(-3, -100)));
+	}
+
+	@Test
+	public void testDefectDieIdsAreDerivedFromKeys() {
+		KlarfDefect defect = new KlarfDefect(3, -2, 1.0, 2.0);
+		assertEquals(DieKey.of(3, -2), defect.getOriginalDieKey());
+		assertEquals("3--2", defect.getOriginalDieID());
+		assertNull(defect.getRotatedDieID());
+		assertThrows(IllegalStateException.class, defect::getRotatedDieKey);
+
+		defect.setRotatedXIndex(-2);
+		defect.setRotatedYIndex(-3);
+		assertEquals(DieKey.of(-2, -3), defect.getRotatedDieKey());
+		assertEquals("-2--3", defect.getRotatedDieID());
+	}
+
+	@Test
+	public void testCountByDieMatchesBoxedMap() {
+		Random random = new Random(3);
+		DefectBatch batch = new DefectBatch(100000);
+		Map<Long, Integer> expected = new HashMap<>();
+		while (!batch.isFull()) {
+			int x = random.nextInt(61) - 30;
+			int y = random.nextInt(61) - 30;
+			batch.add(x, y, 0, 0);
+			expected.merge(DieKey.of(x, y), 1, Integer::sum);
+		}
+
+		LongIntHashMap counts = DieKey.countByDie(batch);
+		assertEquals(expected.size(), counts.size());
+		counts.forEach((key, count) -> assertEquals(expected.get(key), count));
+		assertEquals(0, counts.get(DieKey.of(31, 31), 0));
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfAffineTransformTest {
+
+	@Test
+	public void testTransformMatchesRotator() {
+		Random random = new Random(7);
+		double[] angles = {0, 90, -90, 180, 270, 33.5, -127.25};
+		for (double angle : angles) {
+			KlarfBaseParams params = new KlarfBaseParams(150000, 148000, 10000, 12000, 35.5, -20.25, angle,
+					151000, 149500, RotationCenterType.WAFER_PHYSICAL_CENTER, CoordinateUnit.MICROMETER);
+			KlarfAffineTransform transform = KlarfCoordinateRotator.getTransform(params);
+			for (int i = 0; i < 200; i++) {
+				int xIndex = random.nextInt(30);
+				int yIndex = random.nextInt(30);
+				double xRel = random.nextDouble() * 10000;
+				double yRel = random.nextDouble() * 12000;
+				KlarfDefect rotated = KlarfCoordinateRotator.rotateDefect(new KlarfDefect(xIndex, yIndex, xRel, yRel), params);
+				double x = xIndex * 10000 + 35.5 + xRel;
+				double y = yIndex * 12000 - 20.25 + yRel;
+				double expectedX = rotated.getRotatedXIndex() * 10000 + 35.5 + rotated.getRotatedXRel();
+				double expectedY = rotated.getRotatedYIndex() * 12000 - 20.25 + rotated.getRotatedYRel();
+				assertEquals(expectedX, transform.transformX(x, y), 1e-3, "angle " + angle);
+				assertEquals(expectedY, transform.transformY(x, y), 1e-3, "angle " + angle);
+			}
+		}
+	}
+
+	@Test
+	public void testInverseRoundTrip() {
+		KlarfAffineTransform transform = KlarfCoordinateRotator.getTransform(
+				new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 41.7));
+		KlarfAffineTransform inverse = transform.inverse();
+		assertSame(transform, inverse.inverse());
+		double x = 123456.789;
+		double y = -9876.5;
+		double tx = transform.transformX(x, y);
+		double ty = transform.transformY(x, y);
+		assertEquals(x, inverse.transformX(tx, ty), 1e-6);
+		assertEquals(y, inverse.transformY(tx, ty), 1e-6);
+
+		// 90°整数倍：系数精确，逆变换也精确；旋转中心 = SampleCenter + 实际旋转中心 = (300000, 300000)
+		KlarfAffineTransform quarter = KlarfCoordinateRotator.getTransform(
+				new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 90));
+		assertEquals(0.0, quarter.getM00());
+		assertEquals(-1.0, quarter.getM01());
+		assertEquals(600000.0, quarter.getM02());
+		assertEquals(0.0, quarter.getM12());
+		assertEquals(x, quarter.inverse().transformX(quarter.transformX(x, y), quarter.transformY(x, y)));
+		assertEquals(y, quarter.inverse().transformY(quarter.transformX(x, y), quarter.transformY(x, y)));
+
+		assertThrows(IllegalStateException.class, () -> new KlarfAffineTransform(1, 2, 0, 2, 4, 0).inverse());
+	}
+
+	@Test
+	public void testEqualParamsShareCachedTransform() {
+		KlarfBaseParams a = new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 15);
+		KlarfBaseParams b = new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 15);
+		KlarfBaseParams c = new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 16);
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertNotEquals(a, c);
+		assertSame(KlarfCoordinateRotator.getTransform(a), KlarfCoordinateRotator.getTransform(b));
+		assertNotEquals(KlarfCoordinateRotator.getTransform(a), KlarfCoordinateRotator.getTransform(c));
+		assertThrows(IllegalArgumentException.class, () -> KlarfCoordinateRotator.getTransform(null));
+	}
+
+	@Test
+	public void testChainComposesIntoSingleMatrix() {
+		KlarfAffineTransform rotate = KlarfAffineTransform.rotation(30, 1000, -500);
+		KlarfAffineTransform mirror = KlarfAffineTransform.mirrorX(250);
+		KlarfAffineTransform recenter = KlarfAffineTransform.recenter(150000, 150000, 0, 0);
+		KlarfAffineTransform toMillimeter = KlarfAffineTransform.unitConversion(CoordinateUnit.MICROMETER, CoordinateUnit.MILLIMETER);
+		KlarfAffineTransform chain = rotate.then(mirror).then(recenter).then(toMillimeter);
+
+		double x = 12345.6;
+		double y = -789.25;
+		double sx = rotate.transformX(x, y);
+		double sy = rotate.transformY(x, y);
+		double mx = mirror.transformX(sx, sy);
+		double my = mirror.transformY(sx, sy);
+		double rx = recenter.transformX(mx, my);
+		double ry = recenter.transformY(mx, my);
+		assertEquals(toMillimeter.transformX(rx, ry), chain.transformX(x, y), 1e-9);
+		assertEquals(toMillimeter.transformY(rx, ry), chain.transformY(x, y), 1e-9);
+
+		KlarfAffineTransform inverse = chain.inverse();
+		assertEquals(x, inverse.transformX(chain.transformX(x, y), chain.transformY(x, y)), 1e-6);
+		assertEquals(y, inverse.transformY(chain.transformX(x, y), chain.transformY(x, y)), 1e-6);
+		assertEquals(x, chain.then(inverse).then(KlarfAffineTransform.IDENTITY).transformX(x, y), 1e-6);
+	}
+
+	@Test
+	public void testQuarterTurnChainIsExact() {
+		KlarfAffineTransform chain = KlarfAffineTransform.rotation(-90, 150000, 150000)
+				.then(KlarfAffineTransform.mirrorY(150000))
+				.then(KlarfAffineTransform.translation(-150000, -150000));
+		KlarfAffineTransform roundTrip = chain.then(chain.inverse());
+		assertTrue(roundTrip.isIdentity(), roundTrip.toString());
+		assertEquals(0.0, KlarfAffineTransform.rotation(180, 0, 0).getM01());
+		assertEquals(KlarfAffineTransform.rotation(90, 10, 20), KlarfAffineTransform.rotation(-270, 10, 20));
+		assertThrows(IllegalArgumentException.class, () -> KlarfAffineTransform.scale(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> KlarfAffineTransform.of(1, 0, Double.NaN, 0, 1, 0));
+	}
+
+	@Test
+	public void testApplyBatchMatchesRotateBatch() {
+		Random random = new Random(11);
+		KlarfBaseParams params = new KlarfBaseParams(150000, 150000, 10000, 10000, 12.5, -7.5, 90);
+		DefectBatch src = new DefectBatch(1000);
+		while (!src.isFull()) {
+			src.add(random.nextInt(30), random.nextInt(30),
+					Math.round(random.nextDouble() * 1e8) / 1e4, Math.round(random.nextDouble() * 1e8) / 1e4);
+		}
+		DefectBatch rotated = KlarfCoordinateRotator.rotateBatch(src, params, new DefectBatch(src.size()));
+		DefectBatch applied = KlarfCoordinateRotator.getTransform(params).apply(src, params, new DefectBatch(src.size()));
+		assertEquals(src.size(), applied.size());
+		for (int i = 0; i < src.size(); i++) {
+			assertEquals(rotated.getXIndex()[i], applied.getXIndex()[i]);
+			assertEquals(rotated.getYIndex()[i], applied.getYIndex()[i]);
+			assertEquals(rotated.getXRel()[i], applied.getXRel()[i], 1e-4);
+			assertEquals(rotated.getYRel()[i], applied.getYRel()[i], 1e-4);
+		}
+
+		// 逆变换回到原始绝对坐标（原地；Index/Rel 拆分按四舍五入规则，可能与原始拆分不同）
+		KlarfCoordinateRotator.getTransform(params).inverse().apply(applied, params, applied);
+		for (int i = 0; i < src.size(); i++) {
+			assertEquals(src.getXIndex()[i] * 10000 + src.getXRel()[i], applied.getXIndex()[i] * 10000 + applied.getXRel()[i], 1e-4);
+			assertEquals(src.getYIndex()[i] * 10000 + src.getYRel()[i], applied.getYIndex()[i] * 10000 + applied.getYRel()[i], 1e-4);
+		}
+	}
+}
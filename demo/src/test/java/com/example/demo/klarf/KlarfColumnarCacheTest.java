@@ -0,0 +1,93 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfColumnarCacheTest {
+
+	@Test
+	public void testColumnsMatchReader(@TempDir Path dir) throws Exception {
+		Path source = copy("sample-1.2.klarf", dir);
+		KlarfColumnarFile file = new KlarfColumnarCache(dir.resolve("cache")).open(source);
+
+		KlarfHeader header = file.getHeader();
+		assertEquals("1.2", header.getVersion());
+		assertEquals(149500.0, header.getSampleCenterY());
+		assertEquals("LEFT", header.getOrientationMarkLocation());
+		assertEquals(17, header.getDefectColumns().size());
+		assertEquals(1, header.getCoordinateColumn(KlarfRowArena.XREL));
+		assertEquals(3, file.getDefectCount());
+
+		DefectBatch expected = new DefectBatch(8);
+		try (KlarfReader reader = KlarfReader.open(source)) {
+			while (reader.next()) {
+				for (int i = 0; i < reader.getBatch().size(); i++) {
+					expected.add(reader.getBatch().toDefect(i));
+				}
+			}
+		}
+		// 批次小于缺陷数时分两次读取
+		DefectBatch batch = new DefectBatch(2);
+		assertEquals(2, file.read(0, batch));
+		assertEquals(1, file.read(2, batch));
+		assertEquals(expected.getXIndex()[2], batch.getXIndex()[0]);
+		assertEquals(expected.getYRel()[2], batch.getYRel()[0]);
+		assertEquals(0, file.read(3, batch));
+
+		int defectId = header.getDefectColumns().indexOf("DEFECTID");
+		int imageList = header.getDefectColumns().indexOf("IMAGELIST");
+		int classNumber = header.getDefectColumns().indexOf("CLASSNUMBER");
+		assertEquals("3", file.getValue(2, defectId));
+		assertEquals("1 0", file.getValue(0, imageList));
+		assertEquals("", file.getValue(1, imageList));
+		assertEquals("2 0 3 1", file.getValue(2, imageList));
+		assertTrue(file.isDictionaryEncoded(classNumber));
+		assertEquals(1, file.getDictionarySize(classNumber));
+		assertEquals("0", file.getDictionaryValue(classNumber, file.getDictionaryCode(1, classNumber)));
+		assertThrows(IllegalArgumentException.class, () -> file.getValue(0, 1));
+	}
+
+	@Test
+	public void testKlarf18ArrayColumn(@TempDir Path dir) throws Exception {
+		KlarfColumnarFile file = new KlarfColumnarCache(dir).open(copy("sample-1.8.klarf", dir));
+		assertEquals(2, file.getDefectCount());
+		assertEquals("{1, 2}", file.getValue(0, 5));
+		assertEquals("{}", file.getValue(1, 5));
+	}
+
+	@Test
+	public void testInvalidatedBySourceChange(@TempDir Path dir) throws Exception {
+		Path source = copy("sample-1.2.klarf", dir);
+		KlarfColumnarCache cache = new KlarfColumnarCache(dir.resolve("cache"));
+		cache.open(source);
+		Path sidecar = cache.sidecarPath(source);
+		FileTime built = Files.getLastModifiedTime(sidecar);
+
+		// 命中：不重新生成
+		Files.setLastModifiedTime(sidecar, FileTime.fromMillis(built.toMillis() - 60_000));
+		assertEquals(3, cache.open(source).getDefectCount());
+		assertEquals(built.toMillis() - 60_000, Files.getLastModifiedTime(sidecar).toMillis());
+
+		// 源文件变化：重新生成
+		String text = Files.readString(source).replace(" 3 9999.9999 0 0 0 0.5 0.5 0.25 0.5 0 1 0 0 0 0 2\n 2 0 3 1;", ";");
+		Files.writeString(source, text);
+		assertEquals(2, cache.open(source).getDefectCount());
+
+		// 损坏的缓存：重新生成
+		Files.write(sidecar, new byte[]{1, 2, 3});
+		assertEquals(2, cache.open(source).getDefectCount());
+	}
+
+	private static Path copy(String name, Path dir) throws Exception {
+		Path target = dir.resolve(name);
+		Files.copy(KlarfReaderTest.resource(name), target, StandardCopyOption.REPLACE_EXISTING);
+		return target;
+	}
+}
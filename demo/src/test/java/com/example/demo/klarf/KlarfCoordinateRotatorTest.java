@@ -0,0 +1,116 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfCoordinateRotatorTest {
+
+	private static final KlarfBaseParams PARAMS = new KlarfBaseParams(
+			150000.0, 149500.0, 1000.0, 1000.0, 200.0, 100.0, 37.5);
+
+	@Test
+	public void testBatchMatchesListRotation() {
+		Random random = new Random(20260306L);
+		int count = 10_000;
+		List<KlarfDefect> defects = new ArrayList<>(count);
+		DefectBatch batch = new DefectBatch(count);
+		for (int i = 0; i < count; i++) {
+			KlarfDefect defect = new KlarfDefect(random.nextInt(300) - 150, random.nextInt(300) - 150,
+					random.nextDouble() * 1000, random.nextDouble() * 1000);
+			defects.add(defect);
+			batch.add(defect);
+		}
+
+		List<KlarfDefect> expected = KlarfCoordinateRotator.rotateDefects(defects, PARAMS);
+		DefectBatch rotated = KlarfCoordinateRotator.rotateBatch(batch, PARAMS, new DefectBatch(count));
+
+		// 批量结果必须与逐个旋转完全一致
+		assertEquals(count, rotated.size());
+		for (int i = 0; i < count; i++) {
+			KlarfDefect defect = expected.get(i);
+			assertEquals(defect.getRotatedXIndex().intValue(), rotated.getXIndex()[i]);
+			assertEquals(defect.getRotatedYIndex().intValue(), rotated.getYIndex()[i]);
+			assertEquals(defect.getRotatedXRel(), rotated.getXRel()[i]);
+			assertEquals(defect.getRotatedYRel(), rotated.getYRel()[i]);
+		}
+	}
+
+	@Test
+	public void testParallelMatchesSequential() {
+		Random random = new Random(20260307L);
+		int count = 300_001; // 超过并行阈值，且不是分块大小的整数倍
+		DefectBatch batch = new DefectBatch(count);
+		for (int i = 0; i < count; i++) {
+			batch.add(random.nextInt(300) - 150, random.nextInt(300) - 150,
+					random.nextDouble() * 1000, random.nextDouble() * 1000);
+		}
+
+		DefectBatch sequential = KlarfCoordinateRotator.rotateBatch(batch, PARAMS, new DefectBatch(count));
+		DefectBatch parallel = KlarfCoordinateRotator.rotateBatchParallel(batch, PARAMS, new DefectBatch(count));
+
+		assertEquals(count, parallel.size());
+		assertArrayEquals(sequential.getXIndex(), parallel.getXIndex());
+		assertArrayEquals(sequential.getYIndex(), parallel.getYIndex());
+		assertArrayEquals(sequential.getXRel(), parallel.getXRel());
+		assertArrayEquals(sequential.getYRel(), parallel.getYRel());
+	}
+
+	@Test
+	public void testQuarterTurnIsExact() {
+		// 绝对坐标(-99900, 3500) 旋转90°后为(-3500, -99900)，X方向恰好落在Die边界 -3.5 上
+		// cos(90°) 的计算误差曾把它推到 -3.5000000000000001 → 索引-4
+		KlarfBaseParams params = new KlarfBaseParams(0.0, 0.0, 1000.0, 1000.0, 0.0, 0.0, 90.0);
+		KlarfDefect rotated = KlarfCoordinateRotator.rotateDefect(new KlarfDefect(-100, 3, 100.0, 500.0), params);
+
+		assertEquals(-3, rotated.getRotatedXIndex().intValue());
+		assertEquals(-100, rotated.getRotatedYIndex().intValue());
+		assertEquals(-500.0, rotated.getRotatedXRel());
+		assertEquals(100.0, rotated.getRotatedYRel());
+		assertEquals("-3--100", rotated.getRotatedDieID());
+	}
+
+	@Test
+	public void testQuarterTurnsMatchBatch() {
+		// -90° 与 270° 归一化后相同；四个方向的批量结果与逐个旋转一致
+		for (double angle : new double[]{0.0, 90.0, 180.0, 270.0, -90.0, 450.0}) {
+			KlarfBaseParams params = new KlarfBaseParams(150000.0, 149500.0, 1000.0, 1000.0, 200.0, 100.0, angle);
+			DefectBatch batch = new DefectBatch(1);
+			batch.add(7, -4, 250.0, 500.0);
+			KlarfDefect expected = KlarfCoordinateRotator.rotateDefect(new KlarfDefect(7, -4, 250.0, 500.0), params);
+
+			KlarfCoordinateRotator.rotateBatch(batch, params, batch);
+
+			assertEquals(expected.getRotatedXIndex().intValue(), batch.getXIndex()[0]);
+			assertEquals(expected.getRotatedYIndex().intValue(), batch.getYIndex()[0]);
+			assertEquals(expected.getRotatedXRel(), batch.getXRel()[0]);
+			assertEquals(expected.getRotatedYRel(), batch.getYRel()[0]);
+		}
+	}
+
+	@Test
+	public void testBatchRotateInPlace() {
+		DefectBatch batch = new DefectBatch(1);
+		batch.add(5, 3, 300.0, 200.0);
+		KlarfDefect expected = KlarfCoordinateRotator.rotateDefect(new KlarfDefect(5, 3, 300.0, 200.0), PARAMS);
+
+		KlarfCoordinateRotator.rotateBatch(batch, PARAMS, batch);
+
+		assertEquals(expected.getRotatedXIndex().intValue(), batch.getXIndex()[0]);
+		assertEquals(expected.getRotatedXRel(), batch.getXRel()[0]);
+	}
+
+	@Test
+	public void testBatchOutputCapacityValidation() {
+		DefectBatch batch = new DefectBatch(2);
+		batch.add(1, 1, 0.0, 0.0);
+		batch.add(2, 2, 0.0, 0.0);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> KlarfCoordinateRotator.rotateBatch(batch, PARAMS, new DefectBatch(1)));
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfDefectStreamTest {
+	private static final KlarfBaseParams PARAMS = new KlarfBaseParams(150000, 150000, 10000, 10000, 12.5, -7.5, 90);
+
+	@Test
+	public void testNdjsonMatchesRotateBatch() throws IOException {
+		Random random = new Random(3);
+		DefectBatch src = new DefectBatch(20000);
+		StringBuilder input = new StringBuilder();
+		while (!src.isFull()) {
+			int xIndex = random.nextInt(30);
+			int yIndex = random.nextInt(30);
+			double xRel = Math.round(random.nextDouble() * 1e8) / 1e4;
+			double yRel = -Math.round(random.nextDouble() * 1e8) / 1e4;
+			src.add(xIndex, yIndex, xRel, yRel);
+			if (src.size() % 2 == 0) {
+				input.append("{\"yRel\": ").append(yRel).append(", \"xIndex\":").append(xIndex)
+						.append(",\"xRel\":").append(xRel).append(",\"yIndex\":").append(yIndex).append("}\r\n");
+			} else {
+				input.append('[').append(xIndex).append(',').append(yIndex).append(',')
+						.append(xRel).append(',').append(yRel).append("]\n\n");
+			}
+		}
+		DefectBatch expected = KlarfCoordinateRotator.rotateBatch(src, PARAMS, new DefectBatch(src.size()));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long count = KlarfDefectStream.rotate(trickle(input.toString().getBytes(StandardCharsets.US_ASCII)), out,
+				KlarfDefectStream.Format.NDJSON, PARAMS);
+		assertEquals(src.size(), count);
+
+		String[] lines = new String(out.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+		assertEquals(src.size(), lines.length);
+		for (int i = 0; i < src.size(); i++) {
+			String line = "{\"xIndex\":" + expected.getXIndex()[i] + ",\"yIndex\":" + expected.getYIndex()[i]
+					+ ",\"xRel\":" + decimal(expected.getXRel()[i])
+					+ ",\"yRel\":" + decimal(expected.getYRel()[i]) + "}";
+			assertEquals(line, lines[i]);
+		}
+	}
+
+	@Test
+	public void testBinaryMatchesRotateBatch() throws IOException {
+		Random random = new Random(5);
+		int n = 10000;
+		DefectBatch src = new DefectBatch(n);
+		ByteBuffer input = ByteBuffer.allocate(n * KlarfDefectStream.BINARY_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (!src.isFull()) {
+			int xIndex = random.nextInt(30) - 15;
+			int yIndex = random.nextInt(30);
+			double xRel = random.nextDouble() * 10000;
+			double yRel = random.nextDouble() * 10000;
+			src.add(xIndex, yIndex, xRel, yRel);
+			input.putInt(xIndex).putInt(yIndex).putDouble(xRel).putDouble(yRel);
+		}
+		DefectBatch expected = KlarfCoordinateRotator.rotateBatch(src, PARAMS, new DefectBatch(n));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(n, KlarfDefectStream.rotate(trickle(input.array()), out, KlarfDefectStream.Format.BINARY, PARAMS));
+		ByteBuffer result = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(n * KlarfDefectStream.BINARY_RECORD_SIZE, result.remaining());
+		for (int i = 0; i < n; i++) {
+			assertEquals(expected.getXIndex()[i], result.getInt());
+			assertEquals(expected.getYIndex()[i], result.getInt());
+			assertEquals(expected.getXRel()[i], result.getDouble());
+			assertEquals(expected.getYRel()[i], result.getDouble());
+		}
+	}
+
+	@Test
+	public void testMalformedInput() {
+		assertError("{\"xIndex\":1,\"yIndex\":2,\"xRel\":1.5}\n", "第1行");
+		assertError("[1,2,3,4]\n{\"xIndex\":1,\"yIndex\":2,\"xRel\":1.5,\"yRel\":2,\"zRel\":3}\n", "未知字段 zRel");
+		assertError("[1,2,3,4]\n\n[1,2,3]\n", "第3行");
+		assertError("[1.5,2,3,4]", "第1行");
+		assertError("[1,2,3,4] x", "多余内容");
+		StringBuilder longLine = new StringBuilder("[1,2,3,");
+		for (int i = 0; i < 5000; i++) {
+			longLine.append('0');
+		}
+		assertError(longLine.toString(), "单行超过");
+
+		IOException e = assertThrows(IOException.class, () -> KlarfDefectStream.rotate(new ByteArrayInputStream(new byte[30]),
+				new ByteArrayOutputStream(), KlarfDefectStream.Format.BINARY, PARAMS));
+		assertTrue(e.getMessage().contains("不完整"), e.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> KlarfDefectStream.rotate(new ByteArrayInputStream(new byte[0]),
+				new ByteArrayOutputStream(), KlarfDefectStream.Format.NDJSON, null));
+	}
+
+	@Test
+	public void testLastLineWithoutNewline() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		KlarfBaseParams identity = new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 0);
+		long count = KlarfDefectStream.rotate(new ByteArrayInputStream("\n[3,4,-1.25,20]".getBytes(StandardCharsets.US_ASCII)),
+				out, KlarfDefectStream.Format.NDJSON, identity);
+		assertEquals(1, count);
+		assertEquals("{\"xIndex\":3,\"yIndex\":4,\"xRel\":-1.25,\"yRel\":20.0}\n", out.toString("US-ASCII"));
+	}
+
+	/**
+	 * 期望的小数格式：最多4位小数，去掉末尾0，至少1位小数
+	 */
+	private static String decimal(double value) {
+		BigDecimal decimal = BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).stripTrailingZeros();
+		return (decimal.scale() < 1 ? decimal.setScale(1) : decimal).toPlainString();
+	}
+
+	private static void assertError(String input, String expectedMessage) {
+		IOException e = assertThrows(IOException.class, () -> KlarfDefectStream.rotate(
+				new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream(),
+				KlarfDefectStream.Format.NDJSON, PARAMS));
+		assertTrue(e.getMessage().contains(expectedMessage), e.getMessage());
+	}
+
+	/**
+	 * 每次最多返回7字节，且 available() 为0（模拟逐包到达的网络输入）
+	 */
+	private static InputStream trickle(byte[] data) {
+		return new FilterInputStream(new ByteArrayInputStream(data)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 7));
+			}
+
+			@Override
+			public int available() {
+				return 0;
+			}
+		};
+	}
+}
@@ -0,0 +1,109 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfReaderTest {
+
+	static Path resource(String name) throws URISyntaxException {
+		return Path.of(KlarfReaderTest.class.getResource("/klarf/" + name).toURI());
+	}
+
+	@Test
+	public void testReadKlarf12() throws Exception {
+		try (KlarfReader reader = KlarfReader.open(resource("sample-1.2.klarf"), 2)) {
+			KlarfHeader header = reader.getHeader();
+			assertEquals("1.2", header.getVersion());
+			assertEquals(150000.0, header.getSampleCenterX());
+			assertEquals(149500.0, header.getSampleCenterY());
+			assertEquals(10000.0, header.getDiePitchX());
+			assertEquals("LEFT", header.getOrientationMarkLocation());
+			assertEquals(90.0, header.getNotchDownAngleDeg());
+			assertEquals(17, header.getDefectColumns().size());
+
+			// 批次大小2：第一批2条，第二批1条（含IMAGECOUNT=2的多图像行）
+			assertTrue(reader.next());
+			DefectBatch batch = reader.getBatch();
+			assertEquals(2, batch.size());
+			assertEquals(3, batch.getXIndex()[0]);
+			assertEquals(-2, batch.getYIndex()[0]);
+			assertEquals(1234.567, batch.getXRel()[0]);
+			assertEquals(-0.0005, batch.getYRel()[1]);
+			assertEquals("1234.567", field(reader.getRows(), 0, KlarfRowArena.XREL));
+
+			assertTrue(reader.next());
+			assertEquals(1, reader.getBatch().size());
+			assertEquals(9999.9999, reader.getBatch().getXRel()[0]);
+
+			assertFalse(reader.next());
+			assertEquals(3, reader.getDefectCount());
+		}
+	}
+
+	@Test
+	public void testReadKlarf18() throws Exception {
+		try (KlarfReader reader = KlarfReader.open(resource("sample-1.8.klarf"))) {
+			KlarfHeader header = reader.getHeader();
+			assertEquals("1.8", header.getVersion());
+			assertEquals(149500.0, header.getSampleCenterY());
+			assertEquals("DOWN", header.getOrientationMarkLocation());
+			assertEquals(6, header.getDefectColumns().size());
+
+			assertTrue(reader.next());
+			DefectBatch batch = reader.getBatch();
+			// SampleTestPlan/SummaryList 中的行不算缺陷
+			assertEquals(2, batch.size());
+			assertEquals(-100, batch.getXIndex()[1]);
+			assertEquals(3, batch.getYIndex()[1]);
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testRowsConcatenateToOriginalBytes() throws Exception {
+		for (String name : new String[]{"sample-1.2.klarf", "sample-1.8.klarf"}) {
+			ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+			try (KlarfReader reader = KlarfReader.open(resource(name), 1)) {
+				boolean more;
+				do {
+					more = reader.next();
+					concatenated.write(reader.getRows().getData(), 0, reader.getRows().getLength());
+				} while (more);
+			}
+			assertArrayEquals(Files.readAllBytes(resource(name)), concatenated.toByteArray(), name);
+		}
+	}
+
+	@Test
+	public void testMissingCoordinateColumns(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("bad.klarf");
+		Files.writeString(file, "FileVersion 1 2;\nDefectRecordSpec 2 DEFECTID XREL;\nDefectList\n 1 2.0;\nEndOfFile;\n");
+
+		IOException e = assertThrows(IOException.class, () -> KlarfReader.open(file).close());
+		assertTrue(e.getMessage().contains("XINDEX"));
+	}
+
+	@Test
+	public void testParseDouble() {
+		for (String text : new String[]{"0", "-0.0", "1.000000e+04", "1234.567", "-0.0005", "9999.9999",
+				"1e-30", "123456789012345678901", ".5", "7."}) {
+			byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+			assertEquals(Double.doubleToRawLongBits(Double.parseDouble(text)),
+					Double.doubleToRawLongBits(KlarfNumbers.parseDouble(bytes, 0, bytes.length)), text);
+		}
+	}
+
+	private static String field(KlarfRowArena rows, int row, int field) {
+		return new String(rows.getData(), rows.fieldStart(row, field),
+				rows.fieldEnd(row, field) - rows.fieldStart(row, field), StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,98 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KlarfRounding 与 BigDecimal HALF_UP 的逐位一致性校验
+ * 默认样本数适合日常构建，大规模验证：./gradlew test --tests '*KlarfRoundingTest' -Dklarf.rounding.samples=2000000000
+ */
+public class KlarfRoundingTest {
+
+	private static final long SAMPLES = Long.getLong("klarf.rounding.samples", 2_000_000L);
+
+	@Test
+	public void testBinaryRepresentationEdgeCases() {
+		// 1.00005 的二进制值略小于 1.00005，BigDecimal 结果为 1.0
+		assertSame(1.00005, 4);
+		assertSame(-1.00005, 4);
+		assertSame(0.00005, 4);
+		assertSame(2.5e-5, 4);
+		assertSame(1.23455, 4);
+		// 负零与舍入为零的负数：BigDecimal 返回 +0.0
+		assertSame(-0.0, 4);
+		assertSame(-0.00004, 4);
+		assertEquals(Double.doubleToRawLongBits(0.0), Double.doubleToRawLongBits(KlarfRounding.halfUp(-0.00004, 4)));
+		// 极小值、快速路径边界附近的大数值
+		assertSame(Double.MIN_VALUE, 4);
+		assertSame(-Double.MIN_VALUE, 4);
+		assertSame(1e-320, 4);
+		assertSame(99_999_999_999.99995, 4);
+		assertSame(1e11, 4);
+		assertSame(1e20, 4);
+		for (int scale = 0; scale < 16; scale++) {
+			assertSame(0.5, scale);
+			assertSame(-2.5, scale);
+			assertSame(4503599627370495.5, scale);
+		}
+	}
+
+	@Test
+	public void testNonFiniteMatchesBigDecimal() {
+		assertThrows(NumberFormatException.class, () -> KlarfRounding.halfUp(Double.NaN, 4));
+		assertThrows(NumberFormatException.class, () -> KlarfRounding.halfUp(Double.POSITIVE_INFINITY, 4));
+	}
+
+	@Test
+	public void testRandomInputsMatchBigDecimal() {
+		SplittableRandom random = new SplittableRandom(20260306L);
+		for (long i = 0; i < SAMPLES; i++) {
+			int scale = i % 5 == 0 ? random.nextInt(9) : 4;
+			double value;
+			switch ((int) (i % 6)) {
+				case 0:
+					// 常见坐标范围
+					value = (random.nextDouble() - 0.5) * 2e6;
+					break;
+				case 1: {
+					// 任意位模式（覆盖极大/极小/非规格化数）
+					value = Double.longBitsToDouble(random.nextLong());
+					if (!Double.isFinite(value)) {
+						continue;
+					}
+					break;
+				}
+				case 2:
+					// 名义上恰好为 .5 的值
+					value = (random.nextLong(-2_000_000_000L, 2_000_000_000L) + 0.5) / Math.pow(10, scale);
+					break;
+				case 3: {
+					// .5 两侧相邻的 double
+					double half = (random.nextLong(-2_000_000_000L, 2_000_000_000L) + 0.5) / Math.pow(10, scale);
+					value = random.nextBoolean() ? Math.nextUp(half) : Math.nextDown(half);
+					break;
+				}
+				case 4:
+					// 跨数量级
+					value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(-12, 14));
+					break;
+				default:
+					// 已是4位小数的值（旋转结果再次舍入）
+					value = random.nextLong(-10_000_000L, 10_000_000L) / 1e4;
+					break;
+			}
+			assertSame(value, scale);
+		}
+	}
+
+	private static void assertSame(double value, int scale) {
+		double expected = KlarfRounding.viaBigDecimal(value, scale);
+		double actual = KlarfRounding.halfUp(value, scale);
+		if (Double.doubleToRawLongBits(expected) != Double.doubleToRawLongBits(actual)) {
+			fail("舍入结果不一致：value=" + value + "，scale=" + scale + "，期望：" + expected + "，实际：" + actual);
+		}
+	}
+}
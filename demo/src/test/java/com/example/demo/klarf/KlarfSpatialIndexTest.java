@@ -0,0 +1,113 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfSpatialIndexTest {
+	private static final KlarfBaseParams PARAMS = new KlarfBaseParams(150000, 150000, 10000, 8000, 50, -20, 90);
+
+	@Test
+	public void testDieQueries() {
+		DefectBatch defects = randomDefects(20000, 15, new Random(1));
+		KlarfSpatialIndex index = KlarfSpatialIndex.build(defects, PARAMS);
+
+		int dies = 0;
+		for (int dx = -16; dx <= 16; dx++) {
+			for (int dy = -16; dy <= 16; dy++) {
+				int[] expected = bruteForceDie(defects, dx, dy);
+				assertArrayEquals(expected, index.defectsInDie(dx, dy));
+				assertEquals(expected.length, index.countInDie(dx, dy));
+				dies += expected.length > 0 ? 1 : 0;
+			}
+		}
+		assertEquals(dies, index.getDieCount());
+	}
+
+	@Test
+	public void testSparseDieRange() {
+		// Die范围过大时走有序键二分查找
+		DefectBatch defects = new DefectBatch(new int[]{-2_000_000_000, 2_000_000_000, 5, 5},
+				new int[]{7, -7, 1_900_000_000, 1_900_000_000}, new double[4], new double[4]);
+		KlarfSpatialIndex index = KlarfSpatialIndex.build(defects, PARAMS);
+		assertArrayEquals(new int[]{2, 3}, index.defectsInDie(5, 1_900_000_000));
+		assertArrayEquals(new int[]{0}, index.defectsInDie(-2_000_000_000, 7));
+		assertEquals(0, index.countInDie(0, 0));
+		assertEquals(3, index.getDieCount());
+	}
+
+	@Test
+	public void testRadiusAndNearestMatchBruteForce() {
+		Random random = new Random(2);
+		DefectBatch defects = randomDefects(50000, 15, random);
+		KlarfSpatialIndex index = KlarfSpatialIndex.build(defects, PARAMS);
+
+		for (int query = 0; query < 200; query++) {
+			// 包含网格外的查询点
+			double x = (random.nextDouble() * 40 - 20) * 10000;
+			double y = (random.nextDouble() * 40 - 20) * 8000;
+			double radius = random.nextDouble() * 5000;
+			assertArrayEquals(bruteForceRadius(index, x, y, radius), index.withinRadius(x, y, radius));
+
+			int k = 1 + random.nextInt(20);
+			int[] nearest = index.nearest(x, y, k);
+			int[] expected = bruteForceNearest(index, x, y, k);
+			assertEquals(k, nearest.length);
+			for (int i = 0; i < k; i++) {
+				// 同距离时顺序可能不同，比较距离
+				assertEquals(distance(index, expected[i], x, y), distance(index, nearest[i], x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testDegenerateInputs() {
+		KlarfSpatialIndex empty = KlarfSpatialIndex.build(new DefectBatch(0), PARAMS);
+		assertEquals(0, empty.countInDie(0, 0));
+		assertEquals(0, empty.withinRadius(0, 0, 1e9).length);
+		assertEquals(0, empty.nearest(0, 0, 3).length);
+
+		// 所有缺陷在同一点
+		DefectBatch same = new DefectBatch(5);
+		for (int i = 0; i < 5; i++) {
+			same.add(1, 1, 3.0, 4.0);
+		}
+		KlarfSpatialIndex index = KlarfSpatialIndex.build(same, PARAMS);
+		assertEquals(5, index.withinRadius(index.getX(0), index.getY(0), 0).length);
+		assertEquals(5, index.nearest(0, 0, 10).length);
+	}
+
+	private static DefectBatch randomDefects(int count, int dieRange, Random random) {
+		DefectBatch batch = new DefectBatch(count);
+		for (int i = 0; i < count; i++) {
+			batch.add(random.nextInt(2 * dieRange + 1) - dieRange, random.nextInt(2 * dieRange + 1) - dieRange,
+					random.nextDouble() * 10000, random.nextDouble() * 8000);
+		}
+		return batch;
+	}
+
+	private static int[] bruteForceDie(DefectBatch defects, int xIndex, int yIndex) {
+		return IntStream.range(0, defects.size())
+				.filter(i -> defects.getXIndex()[i] == xIndex && defects.getYIndex()[i] == yIndex).toArray();
+	}
+
+	private static int[] bruteForceRadius(KlarfSpatialIndex index, double x, double y, double radius) {
+		return IntStream.range(0, index.size()).filter(i -> distance(index, i, x, y) <= radius * radius).toArray();
+	}
+
+	private static int[] bruteForceNearest(KlarfSpatialIndex index, double x, double y, int k) {
+		return IntStream.range(0, index.size()).boxed()
+				.sorted(Comparator.comparingDouble(i -> distance(index, i, x, y)))
+				.limit(k).mapToInt(Integer::intValue).toArray();
+	}
+
+	private static double distance(KlarfSpatialIndex index, int defect, double x, double y) {
+		double dx = index.getX(defect) - x;
+		double dy = index.getY(defect) - y;
+		return dx * dx + dy * dy;
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KlarfWriterTest {
+
+	@Test
+	public void testRotatedOutputRereadsAsRotatedCoordinates(@TempDir Path dir) throws Exception {
+		for (String name : new String[]{"sample-1.2.klarf", "sample-1.8.klarf"}) {
+			Path source = KlarfReaderTest.resource(name);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			long count = KlarfWriter.rotate(source, 37.5, out);
+
+			Path rotatedFile = dir.resolve(name);
+			Files.write(rotatedFile, out.toByteArray());
+			try (KlarfReader original = KlarfReader.open(source); KlarfReader rotated = KlarfReader.open(rotatedFile)) {
+				assertTrue(original.next());
+				assertTrue(rotated.next());
+				DefectBatch expected = KlarfCoordinateRotator.rotateBatch(original.getBatch(),
+						original.getHeader().toBaseParams(37.5), new DefectBatch(original.getBatch().size()));
+				DefectBatch actual = rotated.getBatch();
+
+				assertEquals(count, actual.size());
+				assertArrayEquals(expected.getXIndex(), Arrays.copyOf(actual.getXIndex(), expected.size()));
+				assertArrayEquals(expected.getYIndex(), Arrays.copyOf(actual.getYIndex(), expected.size()));
+				assertArrayEquals(expected.getXRel(), Arrays.copyOf(actual.getXRel(), expected.size()));
+				assertArrayEquals(expected.getYRel(), Arrays.copyOf(actual.getYRel(), expected.size()));
+			}
+		}
+	}
+
+	@Test
+	public void testOnlyCoordinatesAndOrientationChange() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		KlarfWriter.rotate(KlarfReaderTest.resource("sample-1.2.klarf"), 90, out);
+		String text = out.toString(StandardCharsets.US_ASCII);
+
+		// 定位标记 LEFT 逆时针旋转90°后为 DOWN；其他列、图像列表、汇总信息原样保留
+		assertTrue(text.contains("OrientationMarkLocation DOWN;"));
+		assertTrue(text.contains(" 1 -3345.5 234.567 62 3 0.5 0.5 0.25 0.5 0 1 0 0 0 1 1\n 1 0\n"));
+		assertTrue(text.contains("SummaryList\n 1 3 4.2e-09 600 3;\nEndOfFile;\n"));
+	}
+
+	@Test
+	public void testColumnarRotationMatchesTextRotation(@TempDir Path dir) throws Exception {
+		KlarfColumnarCache cache = new KlarfColumnarCache(dir);
+		for (String name : new String[]{"sample-1.2.klarf", "sample-1.8.klarf"}) {
+			Path source = KlarfReaderTest.resource(name);
+			KlarfColumnarFile columns = cache.open(source);
+			for (double angle : new double[]{0, 37.5, 90, 270}) {
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				long count = KlarfWriter.rotate(source, angle, expected);
+				ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+				assertEquals(count, KlarfWriter.rotate(source, columns, angle, actual));
+				assertArrayEquals(expected.toByteArray(), actual.toByteArray(), name + " " + angle);
+			}
+		}
+	}
+
+	@Test
+	public void testColumnarRotationRejectsMismatchedTemplate(@TempDir Path dir) throws Exception {
+		Path source = dir.resolve("sample-1.2.klarf");
+		Files.copy(KlarfReaderTest.resource("sample-1.2.klarf"), source);
+		KlarfColumnarFile columns = new KlarfColumnarCache(dir.resolve("cache")).open(source);
+
+		// 缓存生成后源文件少了一条缺陷
+		String text = Files.readString(source).replace(" 3 9999.9999 0 0 0 0.5 0.5 0.25 0.5 0 1 0 0 0 0 2\n 2 0 3 1;", ";");
+		Files.writeString(source, text);
+		assertThrows(IOException.class, () -> KlarfWriter.rotate(source, columns, 90, new ByteArrayOutputStream()));
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VectorRotationKernelTest {
+
+	@Test
+	public void testVectorMatchesScalarBitwise() {
+		RotationKernel vector = RotationKernel.vectorOrNull();
+		assumeTrue(vector != null, "当前JVM未启用 jdk.incubator.vector");
+
+		SplittableRandom random = new SplittableRandom(20260308L);
+		for (int round = 0; round < 500; round++) {
+			double pitchX = random.nextInt(3) == 0 ? 1000.0 : 100 + random.nextDouble() * 20000;
+			double pitchY = random.nextInt(3) == 0 ? 1000.0 : 100 + random.nextDouble() * 20000;
+			double angle = random.nextInt(6) == 0 ? 90 * random.nextInt(4) : random.nextDouble() * 360;
+			KlarfBaseParams params = new KlarfBaseParams(random.nextDouble() * 300000, random.nextDouble() * 300000,
+					pitchX, pitchY, random.nextDouble() * 100, random.nextDouble() * 100, angle);
+
+			// 不是通道数整数倍，覆盖尾部；混入 .5 边界、负零、超大坐标和越界索引（走标量回退）
+			int count = 1 + random.nextInt(2000);
+			DefectBatch batch = new DefectBatch(count);
+			for (int i = 0; i < count; i++) {
+				int kind = random.nextInt(12);
+				double xRel = kind == 0 ? Math.round(random.nextDouble() * pitchX * 2) / 2.0
+						: kind == 1 ? -0.0
+						: kind == 2 ? 0.00005 * random.nextInt(100000)
+						: kind == 3 ? 1e12 * random.nextDouble()
+						: random.nextDouble() * pitchX;
+				int xIndex = kind == 4 ? Integer.MAX_VALUE - random.nextInt(3) : random.nextInt(400) - 200;
+				batch.add(xIndex, random.nextInt(400) - 200, xRel, random.nextDouble() * pitchY);
+			}
+
+			KlarfCoordinateRotator.ResolvedParams resolved = new KlarfCoordinateRotator.ResolvedParams(params);
+			DefectBatch expected = new DefectBatch(count);
+			DefectBatch actual = new DefectBatch(count);
+			RotationKernel.SCALAR.rotate(batch, resolved, expected, 0, count);
+			vector.rotate(batch, resolved, actual, 0, count);
+
+			for (int i = 0; i < count; i++) {
+				assertEquals(expected.getXIndex()[i], actual.getXIndex()[i]);
+				assertEquals(expected.getYIndex()[i], actual.getYIndex()[i]);
+				assertEquals(Double.doubleToRawLongBits(expected.getXRel()[i]), Double.doubleToRawLongBits(actual.getXRel()[i]));
+				assertEquals(Double.doubleToRawLongBits(expected.getYRel()[i]), Double.doubleToRawLongBits(actual.getYRel()[i]));
+			}
+		}
+	}
+
+	@Test
+	public void testSelectKernel() {
+		assertEquals("scalar", RotationKernel.select("scalar").name());
+		assertNotNull(RotationKernel.select("auto"));
+		assertThrows(IllegalArgumentException.class, () -> RotationKernel.select("gpu"));
+	}
+}
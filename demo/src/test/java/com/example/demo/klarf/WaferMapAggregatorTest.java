@@ -0,0 +1,84 @@
+package com.example.demo.klarf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaferMapAggregatorTest {
+	private static final KlarfBaseParams PARAMS = new KlarfBaseParams(150000, 150000, 10000, 10000, 0, 0, 0);
+
+	@Test
+	public void testPyramidLevelsSumToSameTotal() {
+		Random random = new Random(4);
+		WaferMapAggregator aggregator = new WaferMapAggregator(PARAMS, 300000, 16, 3);
+		DefectBatch batch = new DefectBatch(1000);
+		for (int round = 0; round < 50; round++) {
+			batch.clear();
+			while (!batch.isFull()) {
+				batch.add(random.nextInt(30), random.nextInt(30), random.nextDouble() * 10000, random.nextDouble() * 10000);
+			}
+			aggregator.add(batch);
+		}
+		// 范围外
+		batch.clear();
+		batch.add(100, 0, 0, 0);
+		batch.add(-1, 5, 0, 0);
+		aggregator.add(batch);
+
+		WaferMap map = aggregator.finish();
+		assertEquals(50002, map.getDefectCount());
+		assertEquals(2, map.getOutsideCount());
+		for (int zoom = 0; zoom <= 3; zoom++) {
+			long total = 0;
+			int tiles = map.getTilesPerSide(zoom);
+			for (int x = 0; x < tiles; x++) {
+				for (int y = 0; y < tiles; y++) {
+					for (int count : map.getTile(zoom, x, y)) {
+						total += count;
+					}
+				}
+			}
+			assertEquals(50000, total, "zoom " + zoom);
+		}
+		assertEquals(50000, sum(map.getTile(0, 0, 0)));
+		assertEquals(902, map.getDieCount());
+	}
+
+	@Test
+	public void testBinPlacementAndDieCounts() {
+		// 覆盖范围 [0, 300000)，maxZoom=1 时最细一级 8×8 格，每格 37500μm
+		WaferMapAggregator aggregator = new WaferMapAggregator(PARAMS, 300000, 4, 1);
+		DefectBatch batch = new DefectBatch(4);
+		batch.add(0, 0, 100.0, 100.0);          // (100, 100) → 格(0,0)
+		batch.add(0, 0, 200.0, 300.0);          // 同一格、同一Die
+		batch.add(29, 29, 9999.0, 9999.0);      // (299999, 299999) → 格(7,7)
+		batch.add(4, 0, 0.0, 37500.0);          // (40000, 37500) → 格(1,1)
+		aggregator.add(batch);
+		WaferMap map = aggregator.finish();
+
+		assertEquals(2, map.getTile(1, 0, 0)[0]);
+		assertEquals(1, map.getTile(1, 0, 0)[1 * 4 + 1]);
+		assertEquals(1, map.getTile(1, 1, 1)[3 * 4 + 3]);
+		// 第0级：2×2 合并
+		assertEquals(3, map.getTile(0, 0, 0)[0]);
+		assertEquals(1, map.getTile(0, 0, 0)[15]);
+		assertEquals(3, map.getMaxBinCount(0));
+
+		assertEquals(3, map.getDieCount());
+		assertEquals(2, map.getDieDefectCount(0, 0));
+		assertEquals(1, map.getDieDefectCount(29, 29));
+		assertEquals(0, map.getDieDefectCount(1, 1));
+		assertThrows(IllegalArgumentException.class, () -> map.getTile(2, 0, 0));
+		assertThrows(IllegalArgumentException.class, () -> map.getTile(1, 2, 0));
+	}
+
+	private static long sum(int[] counts) {
+		long total = 0;
+		for (int count : counts) {
+			total += count;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.demo.tiff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiffFileTest {
+
+	@Test
+	public void testReadPages(@TempDir Path dir) throws IOException {
+		for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+			for (boolean bigTiff : new boolean[]{false, true}) {
+				Path file = TiffTestFiles.writeRaw(dir, order, bigTiff, 4, 33, 21, 4);
+				try (TiffFile tiff = TiffFile.open(file)) {
+					assertEquals(order, tiff.getByteOrder());
+					assertEquals(bigTiff, tiff.isBigTiff());
+					assertEquals(4, tiff.getPageCount());
+					for (int p = 0; p < 4; p++) {
+						TiffPage page = tiff.getPage(p);
+						assertEquals(33, page.getWidth());
+						assertEquals(21, page.getHeight());
+						assertFalse(page.isTiled());
+						assertEquals(6, page.getDataBlockCount());
+						assertEquals(33 * 21, page.getDataLength());
+						assertArrayEquals(TiffTestFiles.pixels(p, 33, 21), TiffTestFiles.pageData(tiff, page));
+						// 子目录指针被丢弃
+						assertNull(TiffTestFiles.findEntry(page, TiffTestFiles.TAG_EXIF_IFD));
+						assertNotNull(TiffTestFiles.findEntry(page, TiffTestFiles.TAG_IMAGE_DESCRIPTION));
+					}
+					assertThrows(IndexOutOfBoundsException.class, () -> tiff.getPage(4));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRejectsCorruptFiles(@TempDir Path dir) throws IOException {
+		Path file = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 2, 8, 8, 8);
+		byte[] original = Files.readAllBytes(file);
+
+		byte[] bytes = original.clone();
+		bytes[2] = 41;
+		Files.write(file, bytes);
+		assertThrows(IOException.class, () -> TiffFile.open(file));
+
+		// 第二页的下一IFD指回第一页：循环链
+		ByteBuffer buffer = ByteBuffer.wrap(original.clone()).order(ByteOrder.LITTLE_ENDIAN);
+		int first = buffer.getInt(4);
+		int second = buffer.getInt(first + 2 + buffer.getShort(first) * 12);
+		buffer.putInt(second + 2 + buffer.getShort(second) * 12, first);
+		Files.write(file, buffer.array());
+		assertThrows(IOException.class, () -> TiffFile.open(file));
+
+		// 截断：条带越界在解析页目录时发现
+		buffer = ByteBuffer.wrap(original.clone()).order(ByteOrder.LITTLE_ENDIAN);
+		int count = buffer.getShort(first);
+		for (int i = 0; i < count; i++) {
+			int entry = first + 2 + i * 12;
+			if (buffer.getShort(entry) == 279) {
+				buffer.putInt(entry + 8, original.length);
+			}
+		}
+		Files.write(file, buffer.array());
+		try (TiffFile tiff = TiffFile.open(file)) {
+			assertThrows(IOException.class, () -> tiff.getPage(0));
+			assertEquals(8 * 8, tiff.getPage(1).getDataLength());
+		}
+
+		Files.write(file, new byte[]{'I', 'I', 42});
+		assertThrows(IOException.class, () -> TiffFile.open(file));
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.demo.tiff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiffFrameExtractorTest {
+
+	@Test
+	public void testSplitBySampleBatches(@TempDir Path dir) throws IOException {
+		Path first = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 10, 12, 7, 2);
+		Path second = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 4, 12, 7, 7);
+		try (TiffFrameExtractor extractor = new TiffFrameExtractor(dir.resolve("out"), 2, 2, 1024)) {
+			List<TiffSample> samples = Arrays.asList(
+					sample(1, first, 7, 2),
+					sample(2, second, 3),
+					sample(3, first, 0, 99),        // 帧号超出页数的图像被丢弃
+					sample(4, first, 5),
+					sample(5, second, 99));
+			TiffSplitResult split = extractor.split(samples);
+			List<TiffSample> result = split.getSamples();
+			assertEquals(5, result.size());
+			assertEquals(dir.resolve("out"), split.getDirectory().getParent());
+
+			// first 的第一批：样本1、3，帧按源帧号排序 0、2、7
+			TiffSample s1 = result.get(0);
+			assertEquals(1, s1.getId());
+			assertEquals(name(first) + "_batch_0.tif", s1.getTifPath().getFileName().toString());
+			assertEquals(2, s1.getImages().get(0).getNo());
+			assertEquals(1, s1.getImages().get(1).getNo());
+			assertEquals(17, s1.getImages().get(0).getType());
+			TiffSample s3 = result.get(2);
+			assertEquals(s1.getTifPath(), s3.getTifPath());
+			assertEquals(1, s3.getImages().size());
+			assertEquals(0, s3.getImages().get(0).getNo());
+			assertFrames(s1.getTifPath(), 0, 2, 7);
+
+			TiffSample s4 = result.get(3);
+			assertEquals(name(first) + "_batch_1.tif", s4.getTifPath().getFileName().toString());
+			assertEquals(0, s4.getImages().get(0).getNo());
+			assertFrames(s4.getTifPath(), 5);
+
+			// second 的唯一一批：样本2、5，样本5没有有效帧但同批
+			assertFrames(result.get(1).getTifPath(), 3);
+			assertEquals(result.get(1).getTifPath(), result.get(4).getTifPath());
+			assertTrue(result.get(4).getImages().isEmpty());
+
+			// 每次调用独占输出目录，关闭结果时删除
+			try (TiffSplitResult again = extractor.split(samples)) {
+				assertNotEquals(split.getDirectory(), again.getDirectory());
+				assertEquals(s1.getTifPath().getFileName(), again.getSamples().get(0).getTifPath().getFileName());
+				assertFrames(s1.getTifPath(), 0, 2, 7);
+			}
+			split.close();
+			assertFalse(Files.exists(split.getDirectory()));
+
+			// 全部帧无效的批不生成文件
+			try (TiffSplitResult invalid = extractor.split(Arrays.asList(sample(6, second, 50)))) {
+				assertNull(invalid.getSamples().get(0).getTifPath());
+			}
+			try (Stream<Path> left = Files.list(dir.resolve("out"))) {
+				assertEquals(0, left.count());
+			}
+		}
+	}
+
+	@Test
+	public void testSameNameInDifferentDirectories(@TempDir Path dir) throws IOException {
+		Path a = Files.createDirectories(dir.resolve("a")).resolve("wafer.TIF");
+		Path b = Files.createDirectories(dir.resolve("b")).resolve("wafer.tif");
+		Path first = TiffTestFiles.writeRaw(dir, ByteOrder.BIG_ENDIAN, false, 3, 5, 5, 5);
+		Path second = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, true, 3, 5, 5, 5);
+		Files.move(first, a);
+		Files.move(second, b);
+		try (TiffFrameExtractor extractor = new TiffFrameExtractor(dir.resolve("out"))) {
+			List<TiffSample> result = extractor.split(Arrays.asList(sample(1, a, 1), sample(2, b, 2))).getSamples();
+			assertEquals("wafer_batch_0.tif", result.get(0).getTifPath().getFileName().toString());
+			assertEquals("wafer_1_batch_0.tif", result.get(1).getTifPath().getFileName().toString());
+			try (TiffFile tiff = TiffFile.open(result.get(1).getTifPath())) {
+				assertTrue(tiff.isBigTiff());
+				assertArrayEquals(TiffTestFiles.pixels(2, 5, 5), TiffTestFiles.pageData(tiff, tiff.getPage(0)));
+			}
+			assertThrows(IOException.class, () -> extractor.split(Arrays.asList(sample(3, dir.resolve("missing.tif"), 0))));
+		}
+	}
+
+	@Test
+	public void testFailedAndStaleResultsDeleted(@TempDir Path dir) throws IOException {
+		Path source = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 3, 5, 5, 5);
+		Path out = dir.resolve("out");
+		try (TiffFrameExtractor extractor = new TiffFrameExtractor(out)) {
+			// 失败的拆分不留下输出目录
+			assertThrows(IOException.class, () -> extractor.split(Arrays.asList(sample(1, source, 0),
+					sample(2, dir.resolve("missing.tif"), 0))));
+			try (Stream<Path> left = Files.list(out)) {
+				assertEquals(0, left.count());
+			}
+
+			// 未关闭的结果在下次启动时清理，输出目录下的其他文件不受影响
+			TiffSplitResult unclosed = extractor.split(Arrays.asList(sample(1, source, 0)));
+			Path other = Files.createDirectories(out.resolve("other"));
+			assertEquals(1, extractor.deleteStaleResults());
+			assertFalse(Files.exists(unclosed.getDirectory()));
+			assertTrue(Files.exists(other));
+		}
+	}
+
+	private static TiffSample sample(long id, Path file, int... frames) {
+		List<TiffImage> images = new ArrayList<>();
+		for (int frame : frames) {
+			images.add(new TiffImage(frame, 17));
+		}
+		return new TiffSample(id, file, images);
+	}
+
+	private static void assertFrames(Path file, int... sourceFrames) throws IOException {
+		List<BufferedImage> images = TiffTestFiles.readWithImageIO(file);
+		assertEquals(sourceFrames.length, images.size());
+		for (int i = 0; i < sourceFrames.length; i++) {
+			assertArrayEquals(TiffTestFiles.pixels(sourceFrames[i], 12, 7), TiffTestFiles.grayPixels(images.get(i)));
+		}
+	}
+
+	private static String name(Path file) {
+		String name = file.getFileName().toString();
+		return name.substring(0, name.length() - ".tif".length());
+	}
+}
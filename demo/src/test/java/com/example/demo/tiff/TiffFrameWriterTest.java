@@ -0,0 +1,136 @@
+package com.example.demo.tiff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiffFrameWriterTest {
+
+	@Test
+	public void testCopyReadableByImageIO(@TempDir Path dir) throws IOException {
+		Path source = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 5, 31, 17, 3);
+		Path target = dir.resolve("frames_out.tif");
+		try (TiffFile tiff = TiffFile.open(source)) {
+			TiffFrameWriter writer = new TiffFrameWriter(tiff, new int[]{3, 0, 3, 4});
+			writer.writeTo(target);
+			assertEquals(writer.size(), Files.size(target));
+
+			List<BufferedImage> images = TiffTestFiles.readWithImageIO(target);
+			assertEquals(4, images.size());
+			int[] expected = {3, 0, 3, 4};
+			for (int i = 0; i < expected.length; i++) {
+				assertArrayEquals(TiffTestFiles.pixels(expected[i], 31, 17), TiffTestFiles.grayPixels(images.get(i)));
+			}
+			try (TiffFile copy = TiffFile.open(target)) {
+				TiffPage page = copy.getPage(1);
+				// 页内条带按顺序连续存放，目录外的值原样复制
+				assertEquals(6, page.getDataBlockCount());
+				for (int block = 1; block < page.getDataBlockCount(); block++) {
+					assertEquals(page.getDataOffset(block - 1) + page.getDataByteCount(block - 1), page.getDataOffset(block));
+				}
+				assertEquals(TiffTestFiles.description(0) + "\0", description(copy, page));
+			}
+		}
+	}
+
+	@Test
+	public void testCopyCompressedFrames(@TempDir Path dir) throws IOException {
+		List<BufferedImage> images = Arrays.asList(TiffTestFiles.grayImage(0, 64, 40), TiffTestFiles.grayImage(1, 17, 90),
+				TiffTestFiles.grayImage(2, 300, 300));
+		Path source = TiffTestFiles.writeWithImageIO(dir, images);
+		Path target = dir.resolve("frames_out.tif");
+		try (TiffFile tiff = TiffFile.open(source)) {
+			new TiffFrameWriter(tiff, new int[]{2, 1}).writeTo(target);
+			List<BufferedImage> copied = TiffTestFiles.readWithImageIO(target);
+			assertEquals(2, copied.size());
+			assertArrayEquals(TiffTestFiles.grayPixels(images.get(2)), TiffTestFiles.grayPixels(copied.get(0)));
+			assertArrayEquals(TiffTestFiles.grayPixels(images.get(1)), TiffTestFiles.grayPixels(copied.get(1)));
+			// 压缩数据原样复制
+			try (TiffFile copy = TiffFile.open(target)) {
+				assertArrayEquals(TiffTestFiles.pageData(tiff, tiff.getPage(2)), TiffTestFiles.pageData(copy, copy.getPage(0)));
+			}
+		}
+	}
+
+	@Test
+	public void testBigTiffBigEndianToStream(@TempDir Path dir) throws IOException {
+		Path source = TiffTestFiles.writeRaw(dir, ByteOrder.BIG_ENDIAN, true, 3, 9, 5, 1);
+		Path target = dir.resolve("frames_out.tif");
+		try (TiffFile tiff = TiffFile.open(source)) {
+			TiffFrameWriter writer = new TiffFrameWriter(tiff, new int[]{2, 1});
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(writer.size(), writer.writeTo(Channels.newChannel(out)));
+			assertEquals(writer.size(), out.size());
+			Files.write(target, out.toByteArray());
+
+			try (TiffFile copy = TiffFile.open(target)) {
+				assertTrue(copy.isBigTiff());
+				assertEquals(ByteOrder.BIG_ENDIAN, copy.getByteOrder());
+				assertEquals(2, copy.getPageCount());
+				assertArrayEquals(TiffTestFiles.pixels(2, 9, 5), TiffTestFiles.pageData(copy, copy.getPage(0)));
+				assertArrayEquals(TiffTestFiles.pixels(1, 9, 5), TiffTestFiles.pageData(copy, copy.getPage(1)));
+				assertEquals(TiffTestFiles.description(1) + "\0", description(copy, copy.getPage(1)));
+			}
+		}
+	}
+
+	@Test
+	public void testReadWindowSharedAcrossWrites(@TempDir Path dir) throws IOException {
+		Path source = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 6, 20, 10, 2);
+		try (TiffFile tiff = TiffFile.open(source)) {
+			TiffReadWindow window = new TiffReadWindow();
+			int[][] selections = {{0, 1}, {2}, {3, 4, 5}};
+			for (int[] pages : selections) {
+				TiffFrameWriter writer = new TiffFrameWriter(tiff, pages);
+				ByteArrayOutputStream direct = new ByteArrayOutputStream();
+				writer.writeTo(Channels.newChannel(direct));
+				ByteArrayOutputStream windowed = new ByteArrayOutputStream();
+				assertEquals(writer.size(), writer.writeTo(Channels.newChannel(windowed), window));
+				assertArrayEquals(direct.toByteArray(), windowed.toByteArray());
+			}
+			// 整个文件小于窗口：条带倒序存放也只需向前、向后各读取一次
+			assertTrue(window.getReadCount() <= 2);
+
+			// 窗口比帧小时大区间直接转存，结果不变
+			TiffReadWindow small = new TiffReadWindow(16);
+			TiffFrameWriter writer = new TiffFrameWriter(tiff, new int[]{5, 0});
+			ByteArrayOutputStream direct = new ByteArrayOutputStream();
+			writer.writeTo(Channels.newChannel(direct));
+			ByteArrayOutputStream windowed = new ByteArrayOutputStream();
+			writer.writeTo(Channels.newChannel(windowed), small);
+			assertArrayEquals(direct.toByteArray(), windowed.toByteArray());
+		}
+	}
+
+	@Test
+	public void testEmptySelection(@TempDir Path dir) throws IOException {
+		Path source = TiffTestFiles.writeRaw(dir, ByteOrder.LITTLE_ENDIAN, false, 1, 4, 4, 4);
+		try (TiffFile tiff = TiffFile.open(source)) {
+			TiffFrameWriter writer = new TiffFrameWriter(tiff, new int[0]);
+			assertEquals(8, writer.size());
+			assertThrows(IndexOutOfBoundsException.class, () -> new TiffFrameWriter(tiff, new int[]{1}));
+		}
+	}
+
+	private static String description(TiffFile file, TiffPage page) throws IOException {
+		TiffEntry entry = TiffTestFiles.findEntry(page, TiffTestFiles.TAG_IMAGE_DESCRIPTION);
+		assertNotNull(entry);
+		ByteBuffer value = entry.bytes != null ? ByteBuffer.wrap(entry.bytes) : file.read(entry.valueOffset, (int) entry.byteLength());
+		byte[] bytes = new byte[value.remaining()];
+		value.get(bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,248 @@
+package com.example.demo.tiff;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试用TIFF文件（tiff 包和 defect 包的测试共用）
+ */
+public final class TiffTestFiles {
+	static final int TAG_IMAGE_DESCRIPTION = 270;
+	static final int TAG_EXIF_IFD = 34665;
+
+	private TiffTestFiles() {
+	}
+
+	/**
+	 * 第 page 页第 i 个像素（8位灰度，行优先）
+	 */
+	static byte pixel(int page, int i) {
+		return (byte) (page * 37 + i * 13 + i / 7);
+	}
+
+	public static byte[] pixels(int page, int width, int height) {
+		byte[] pixels = new byte[width * height];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = pixel(page, i);
+		}
+		return pixels;
+	}
+
+	static String description(int page) {
+		return "frame " + page + " of test tiff";
+	}
+
+	/**
+	 * 在 dir 下手工构造未压缩8位灰度多页TIFF：
+	 * 条带在文件中倒序存放（页内不连续）；带一个目录外的 ImageDescription（奇数长度）和一个指向无效位置的 ExifIFD
+	 */
+	public static Path writeRaw(Path dir, ByteOrder order, boolean bigTiff, int pageCount, int width, int height, int rowsPerStrip)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 22).order(order);
+		buffer.put((byte) (order == ByteOrder.LITTLE_ENDIAN ? 'I' : 'M'));
+		buffer.put(buffer.get(0));
+		int nextPointer;
+		if (bigTiff) {
+			buffer.putShort((short) 43).putShort((short) 8).putShort((short) 0);
+			nextPointer = buffer.position();
+			buffer.putLong(0);
+		} else {
+			buffer.putShort((short) 42);
+			nextPointer = buffer.position();
+			buffer.putInt(0);
+		}
+		for (int page = 0; page < pageCount; page++) {
+			byte[] pixels = pixels(page, width, height);
+			int strips = (height + rowsPerStrip - 1) / rowsPerStrip;
+			long[] offsets = new long[strips];
+			long[] counts = new long[strips];
+			for (int s = strips - 1; s >= 0; s--) {
+				int from = s * rowsPerStrip * width;
+				int to = Math.min(pixels.length, from + rowsPerStrip * width);
+				offsets[s] = buffer.position();
+				counts[s] = to - from;
+				buffer.put(pixels, from, to - from);
+			}
+			align(buffer);
+			byte[] description = (description(page) + "\0").getBytes();
+			int descriptionPosition = buffer.position();
+			buffer.put(description);
+			align(buffer);
+			long offsetsValue = putArray(buffer, offsets, bigTiff);
+			long countsValue = putArray(buffer, counts, bigTiff);
+			align(buffer);
+
+			int ifd = buffer.position();
+			if (bigTiff) {
+				buffer.putLong(nextPointer, ifd);
+				buffer.putLong(11);
+			} else {
+				buffer.putInt(nextPointer, ifd);
+				buffer.putShort((short) 11);
+			}
+			int arrayType = bigTiff ? 16 : 4;
+			entry(buffer, bigTiff, 256, 3, 1, width);
+			entry(buffer, bigTiff, 257, 3, 1, height);
+			entry(buffer, bigTiff, 258, 3, 1, 8);
+			entry(buffer, bigTiff, 259, 3, 1, 1);
+			entry(buffer, bigTiff, 262, 3, 1, 1);
+			entry(buffer, bigTiff, TAG_IMAGE_DESCRIPTION, 2, description.length, descriptionPosition);
+			entry(buffer, bigTiff, 273, arrayType, strips, offsetsValue);
+			entry(buffer, bigTiff, 277, 3, 1, 1);
+			entry(buffer, bigTiff, 278, 3, 1, rowsPerStrip);
+			entry(buffer, bigTiff, 279, arrayType, strips, countsValue);
+			entry(buffer, bigTiff, TAG_EXIF_IFD, 4, 1, 0x7FFFFFF0L);
+			nextPointer = buffer.position();
+			if (bigTiff) {
+				buffer.putLong(0);
+			} else {
+				buffer.putInt(0);
+			}
+		}
+		Path file = Files.createTempFile(dir, "frames", ".tif");
+		Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+		return file;
+	}
+
+	/**
+	 * 在 dir 下用 ImageIO 写LZW压缩的多页TIFF（每页尺寸不同）
+	 */
+	static Path writeWithImageIO(Path dir, List<BufferedImage> images) throws IOException {
+		Path file = Files.createTempFile(dir, "frames_lzw", ".tif");
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(out);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionType("LZW");
+			writer.prepareWriteSequence(null);
+			for (BufferedImage image : images) {
+				writer.writeToSequence(new IIOImage(image, null, null), param);
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+		return file;
+	}
+
+	static BufferedImage grayImage(int page, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		image.getRaster().setDataElements(0, 0, width, height, pixels(page, width, height));
+		return image;
+	}
+
+	/**
+	 * 用 ImageIO 解码所有页
+	 */
+	public static List<BufferedImage> readWithImageIO(Path file) throws IOException {
+		return readWithImageIO(ImageIO.createImageInputStream(file.toFile()));
+	}
+
+	public static List<BufferedImage> readWithImageIO(byte[] bytes) throws IOException {
+		return readWithImageIO(ImageIO.createImageInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	private static List<BufferedImage> readWithImageIO(ImageInputStream input) throws IOException {
+		ImageReader reader = ImageIO.getImageReadersByFormatName("tiff").next();
+		try (ImageInputStream in = input) {
+			reader.setInput(in);
+			List<BufferedImage> images = new ArrayList<>();
+			for (int i = 0; i < reader.getNumImages(true); i++) {
+				images.add(reader.read(i));
+			}
+			return images;
+		} finally {
+			reader.dispose();
+		}
+	}
+
+	public static byte[] grayPixels(BufferedImage image) {
+		return (byte[]) image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), null);
+	}
+
+	/**
+	 * 读出一页的全部像素数据（按条带顺序拼接）
+	 */
+	static byte[] pageData(TiffFile file, TiffPage page) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int block = 0; block < page.getDataBlockCount(); block++) {
+			file.transferTo(page.getDataOffset(block), page.getDataByteCount(block), Channels.newChannel(out));
+		}
+		return out.toByteArray();
+	}
+
+	static TiffEntry findEntry(TiffPage page, int tag) {
+		for (TiffEntry entry : page.entries()) {
+			if (entry.tag == tag) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private static long putArray(ByteBuffer buffer, long[] values, boolean bigTiff) {
+		if (values.length == 1) {
+			return values[0];
+		}
+		long position = buffer.position();
+		for (long value : values) {
+			if (bigTiff) {
+				buffer.putLong(value);
+			} else {
+				buffer.putInt((int) value);
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * 目录项（SHORT 单值放在值域开头，其余按偏移/LONG写入）
+	 */
+	private static void entry(ByteBuffer buffer, boolean bigTiff, int tag, int type, long count, long value) {
+		buffer.putShort((short) tag).putShort((short) type);
+		int start;
+		if (bigTiff) {
+			buffer.putLong(count);
+			start = buffer.position();
+			if (type == 3) {
+				buffer.putShort((short) value);
+			} else {
+				buffer.putLong(value);
+			}
+			buffer.position(start + 8);
+		} else {
+			buffer.putInt((int) count);
+			start = buffer.position();
+			if (type == 3) {
+				buffer.putShort((short) value);
+			} else {
+				buffer.putInt((int) value);
+			}
+			buffer.position(start + 4);
+		}
+	}
+
+	private static void align(ByteBuffer buffer) {
+		if ((buffer.position() & 1) != 0) {
+			buffer.put((byte) 0);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvFieldsTest {
+
+	@Test
+	public void testEscape() {
+		assertEquals("", CsvFields.escape(""));
+		assertEquals("/data/a.tif", CsvFields.escape("/data/a.tif"));
+		assertEquals("/数据/晶圆 1.tif", CsvFields.escape("/数据/晶圆 1.tif"));
+		assertEquals("\"/data/a,b.tif\"", CsvFields.escape("/data/a,b.tif"));
+		assertEquals("\"/data/\"\"a\"\".tif\"", CsvFields.escape("/data/\"a\".tif"));
+		assertEquals("\"a\nb\"", CsvFields.escape("a\nb"));
+		// 单独的回车同样会被按行尾处理
+		assertEquals("\"a\rb\"", CsvFields.escape("a\rb"));
+	}
+}
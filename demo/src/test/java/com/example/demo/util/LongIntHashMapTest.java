@@ -0,0 +1,32 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void testPutAddAndZeroKey() {
+		LongIntHashMap map = new LongIntHashMap(0);
+		// 键0与空槽标记相同，单独存放
+		map.put(0L, 7);
+		map.addTo(0L, 1);
+		map.addTo(Long.MIN_VALUE, 2);
+		map.put(-1L, 3);
+		for (long key = 1; key <= 1000; key++) {
+			map.addTo(key << 32, 1);
+		}
+		assertEquals(1003, map.size());
+		assertEquals(8, map.get(0L, -1));
+		assertEquals(2, map.get(Long.MIN_VALUE, -1));
+		assertEquals(3, map.get(-1L, -1));
+		assertEquals(1, map.get(500L << 32, -1));
+		assertFalse(map.containsKey(1001L << 32));
+		assertEquals(Long.MIN_VALUE, map.keys()[0]);
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(0L));
+	}
+}